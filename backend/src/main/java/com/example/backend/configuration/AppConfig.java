@@ -1,13 +1,35 @@
 package com.example.backend.configuration;
 
+import com.example.backend.service.outbound.OutboundClients;
+import com.example.backend.service.outbound.OutboundDependency;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
 
+/**
+ * Client gọi ra ngoài, mỗi dependency 1 RestTemplate riêng (pool, timeout, bulkhead, breaker)
+ * để GHN chậm không ảnh hưởng PayOS và ngược lại.
+ */
 @Configuration
 public class AppConfig {
+
+    public static final String GHN = "ghn";
+    public static final String PAYOS = "payos";
+    public static final String CLOUDINARY = "cloudinary";
+
+    @Bean
+    public RestTemplate ghnRestTemplate(OutboundClients outboundClients) {
+        return outboundClients.restTemplate(GHN);
+    }
+
+    @Bean
+    public RestTemplate payosRestTemplate(OutboundClients outboundClients) {
+        return outboundClients.restTemplate(PAYOS);
+    }
+
+    // Cloudinary SDK dùng HTTP client riêng, chỉ bọc lời gọi bằng bulkhead / breaker / metrics
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public OutboundDependency cloudinaryOutbound(OutboundClients outboundClients) {
+        return outboundClients.dependency(CLOUDINARY);
     }
-}
\ No newline at end of file
+}
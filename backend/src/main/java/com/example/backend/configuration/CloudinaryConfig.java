@@ -1,20 +1,37 @@
 package com.example.backend.configuration;
 
 import com.cloudinary.Cloudinary;
-import com.cloudinary.utils.ObjectUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Configuration
 public class CloudinaryConfig {
 
+    // Timeout đọc của SDK (tính bằng giây), bulkhead / breaker nằm ở bean cloudinaryOutbound
+    @Value("${outbound.clients.cloudinary.read-timeout-ms:30000}")
+    private long readTimeoutMs;
+
+    // Đổi host API (vd. Cloudinary giả của profile stub), để trống = API thật
+    @Value("${cloudinary.upload-prefix:}")
+    private String uploadPrefix;
+
     @Bean
     public Cloudinary cloudinary() {
-        return new Cloudinary(ObjectUtils.asMap(
-                "cloud_name", "dlvfuktdv",
-                "api_key", "178286218563568",
-                "api_secret", "zSTJZj6bBJvPO7D_VJei3vAA4lA",
-                "secure", true
-        ));
+        Map<String, Object> config = new HashMap<>();
+        config.put("cloud_name", "dlvfuktdv");
+        config.put("api_key", "178286218563568");
+        config.put("api_secret", "zSTJZj6bBJvPO7D_VJei3vAA4lA");
+        config.put("secure", true);
+        if (readTimeoutMs > 0) {
+            config.put("timeout", (int) Math.max(1, readTimeoutMs / 1000));
+        }
+        if (uploadPrefix != null && !uploadPrefix.isBlank()) {
+            config.put("upload_prefix", uploadPrefix);
+        }
+        return new Cloudinary(config);
     }
 }
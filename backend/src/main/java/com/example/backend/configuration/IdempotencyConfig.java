@@ -0,0 +1,29 @@
+package com.example.backend.configuration;
+
+import com.example.backend.service.IdempotencyService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Configuration
+public class IdempotencyConfig {
+
+    @Bean
+    FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(
+            IdempotencyService idempotencyService,
+            ObjectMapper objectMapper,
+            @Value("${idempotency.endpoints}") List<String> endpoints,
+            @Value("${idempotency.wait-timeout-ms:10000}") long waitTimeoutMs) {
+        FilterRegistrationBean<IdempotencyFilter> registration = new FilterRegistrationBean<>(
+                new IdempotencyFilter(idempotencyService, objectMapper, endpoints, waitTimeoutMs));
+        // Chạy sau Spring Security để key được tách theo user
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+        registration.addUrlPatterns("/*");
+        return registration;
+    }
+}
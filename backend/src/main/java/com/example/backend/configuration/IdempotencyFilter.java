@@ -0,0 +1,330 @@
+package com.example.backend.configuration;
+
+import com.example.backend.dto.response.ApiResponse;
+import com.example.backend.entity.IdempotencyRecord;
+import com.example.backend.exception.ErrorCode;
+import com.example.backend.service.IdempotencyService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Xử lý header Idempotency-Key cho các endpoint thay đổi dữ liệu.
+ * <p>
+ * - Request đầu tiên của 1 key chạy bình thường, response được lưu lại.
+ * - Request trùng đến khi request đầu còn đang chạy thì chờ kết quả đó, không chạy lại.
+ * - Request trùng đến sau thì trả lại response đã lưu.
+ * - Cùng key nhưng body khác thì báo lỗi 422.
+ * Response 5xx và 409 có thể thử lại (CONCURRENT_UPDATE, QUOTE_OUTDATED) không được lưu để client có thể thử lại.
+ */
+@Slf4j
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final long POLL_INTERVAL_MS = 50;
+    // Số lần giữ lại key khi request đang giữ vừa nhả ra (5xx / lỗi) giữa lúc claim và find
+    private static final int MAX_CLAIM_ATTEMPTS = 3;
+    // Xung đột tạm thời: gửi lại cùng key phải được chạy lại, không replay lỗi cũ
+    private static final Set<Integer> RETRYABLE_CONFLICT_CODES = Set.of(
+            ErrorCode.CONCURRENT_UPDATE.getCode(), ErrorCode.QUOTE_OUTDATED.getCode());
+
+    private final IdempotencyService idempotencyService;
+    private final ObjectMapper objectMapper;
+    // Mỗi phần tử: {method, path pattern}
+    private final List<String[]> endpoints;
+    private final long waitTimeoutMs;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    // Request đang chạy trên node này, request trùng chờ trên future thay vì poll DB
+    private final Map<String, CompletableFuture<IdempotencyRecord>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyFilter(IdempotencyService idempotencyService, ObjectMapper objectMapper,
+                             List<String> endpoints, long waitTimeoutMs) {
+        this.idempotencyService = idempotencyService;
+        this.objectMapper = objectMapper;
+        this.endpoints = endpoints.stream()
+                .map(endpoint -> endpoint.trim().split("\\s+", 2))
+                .toList();
+        this.waitTimeoutMs = waitTimeoutMs;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (request.getHeader(IDEMPOTENCY_KEY_HEADER) == null) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (String[] endpoint : endpoints) {
+            if (endpoint[0].equalsIgnoreCase(request.getMethod()) && pathMatcher.match(endpoint[1], path)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String key = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            writeError(response, ErrorCode.IDEMPOTENCY_KEY_INVALID);
+            return;
+        }
+
+        byte[] body = request.getInputStream().readAllBytes();
+        String requestHash = sha256(body);
+        String recordId = sha256((currentUser() + "\n" + request.getMethod() + "\n" + request.getRequestURI()
+                + "\n" + key).getBytes(StandardCharsets.UTF_8));
+
+        CompletableFuture<IdempotencyRecord> mine = new CompletableFuture<>();
+        CompletableFuture<IdempotencyRecord> running = inFlight.putIfAbsent(recordId, mine);
+        if (running != null) {
+            replay(awaitInFlight(running), requestHash, response);
+            return;
+        }
+
+        IdempotencyRecord result = null;
+        try {
+            result = execute(recordId, requestHash, new CachedBodyRequest(request, body), response, filterChain);
+        } finally {
+            mine.complete(result);
+            inFlight.remove(recordId, mine);
+        }
+    }
+
+    /**
+     * Chạy request nếu giữ được key, trả về bản ghi đã lưu (null nếu response không được lưu).
+     */
+    private IdempotencyRecord execute(String recordId, String requestHash, HttpServletRequest request,
+                                      HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            Optional<IdempotencyRecord> existing = idempotencyService.find(recordId);
+            if (existing.isEmpty()) {
+                if (idempotencyService.claim(recordId, requestHash)) {
+                    return run(recordId, requestHash, request, response, filterChain);
+                }
+                existing = idempotencyService.find(recordId);
+                if (existing.isEmpty()) {
+                    // Request giữ key vừa nhả ra giữa 2 câu: giữ lại từ đầu, không chạy khi chưa giữ được
+                    continue;
+                }
+            }
+            // Đã xong thì trả lại, đang chạy ở node khác thì chờ
+            IdempotencyRecord record = existing.get().isCompleted()
+                    ? existing.get()
+                    : awaitStored(recordId, existing.get());
+            if (record == null) {
+                // Request đang giữ đã nhả key (5xx / lỗi): thử giữ lại
+                continue;
+            }
+            replay(record, requestHash, response);
+            return record;
+        }
+        replay(null, requestHash, response);
+        return null;
+    }
+
+    private IdempotencyRecord run(String recordId, String requestHash, HttpServletRequest request,
+                                  HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(request, responseWrapper);
+        } catch (ServletException | IOException | RuntimeException e) {
+            idempotencyService.release(recordId);
+            throw e;
+        }
+
+        IdempotencyRecord stored = null;
+        int status = responseWrapper.getStatus();
+        byte[] responseBody = responseWrapper.getContentAsByteArray();
+        if (status < 500 && !isRetryableConflict(status, responseBody)) {
+            idempotencyService.complete(recordId, status, responseWrapper.getContentType(), responseBody);
+            stored = IdempotencyRecord.builder()
+                    .id(recordId)
+                    .requestHash(requestHash)
+                    .completed(true)
+                    .responseStatus(status)
+                    .contentType(responseWrapper.getContentType())
+                    .responseBody(responseBody)
+                    .build();
+        } else {
+            idempotencyService.release(recordId);
+        }
+        responseWrapper.copyBodyToResponse();
+        return stored;
+    }
+
+    private boolean isRetryableConflict(int status, byte[] responseBody) {
+        if (status != HttpStatus.CONFLICT.value() || responseBody.length == 0) {
+            return false;
+        }
+        try {
+            JsonNode code = objectMapper.readTree(responseBody).get("code");
+            return code != null && RETRYABLE_CONFLICT_CODES.contains(code.asInt());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private IdempotencyRecord awaitInFlight(CompletableFuture<IdempotencyRecord> running) throws IOException {
+        try {
+            return running.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    // Request đầu đang chạy ở node khác: poll DB tới khi có kết quả hoặc hết thời gian chờ.
+    // null nếu request đó đã nhả key, hết giờ thì trả bản ghi chưa xong (báo đang chạy)
+    private IdempotencyRecord awaitStored(String recordId, IdempotencyRecord pending) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitTimeoutMs);
+        while (System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return pending;
+            }
+            Optional<IdempotencyRecord> record = idempotencyService.find(recordId);
+            if (record.isEmpty() || record.get().isCompleted()) {
+                return record.orElse(null);
+            }
+        }
+        return pending;
+    }
+
+    private void replay(IdempotencyRecord record, String requestHash, HttpServletResponse response)
+            throws IOException {
+        if (record == null || !record.isCompleted()) {
+            writeError(response, ErrorCode.IDEMPOTENCY_IN_PROGRESS);
+            return;
+        }
+        if (!record.getRequestHash().equals(requestHash)) {
+            writeError(response, ErrorCode.IDEMPOTENCY_KEY_REUSED);
+            return;
+        }
+        response.setStatus(record.getResponseStatus());
+        if (record.getContentType() != null) {
+            response.setContentType(record.getContentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        byte[] body = record.getResponseBody() != null ? record.getResponseBody() : new byte[0];
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        response.flushBuffer();
+    }
+
+    private void writeError(HttpServletResponse response, ErrorCode errorCode) throws IOException {
+        response.setStatus(errorCode.getStatus().value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+        ApiResponse<?> apiResponse = ApiResponse.builder()
+                .code(errorCode.getCode())
+                .message(errorCode.getMessage())
+                .build();
+
+        response.getWriter().write(objectMapper.writeValueAsString(apiResponse));
+        response.flushBuffer();
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : "anonymous";
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Request đọc sẵn body để vừa băm được vừa cho controller đọc lại.
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return input.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
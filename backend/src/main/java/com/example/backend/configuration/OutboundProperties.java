@@ -0,0 +1,53 @@
+package com.example.backend.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cấu hình client gọi ra ngoài theo từng dependency (ghn, payos, cloudinary):
+ * outbound.clients.&lt;tên&gt;.*. Thuộc tính không khai báo dùng giá trị mặc định bên dưới.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "outbound")
+@Getter
+@Setter
+public class OutboundProperties {
+
+    private Map<String, Client> clients = new HashMap<>();
+
+    public Client client(String name) {
+        return clients.getOrDefault(name, new Client());
+    }
+
+    @Getter
+    @Setter
+    public static class Client {
+        private String baseUrl;
+
+        // Pool connection keep-alive riêng của dependency
+        private int maxConnections = 20;
+        private long connectTimeoutMs = 1000;
+        private long readTimeoutMs = 5000;
+        private long connectionTtlMs = 60000;
+        private long idleEvictMs = 30000;
+
+        // Bulkhead: số request đồng thời tối đa, chờ tối đa bao lâu để có chỗ
+        private int maxConcurrent = 10;
+        private long bulkheadWaitMs = 0;
+
+        private int breakerFailureThreshold = 5;
+        private long breakerOpenMs = 30000;
+
+        // Tổng số lần gọi (kể cả lần đầu). Request không idempotent (POST) chỉ được thử lại
+        // khi chưa kết nối được, trừ khi retry-non-idempotent = true
+        private int maxAttempts = 2;
+        private long retryBaseBackoffMs = 100;
+        private long retryMaxBackoffMs = 1000;
+        private boolean retryNonIdempotent = false;
+    }
+}
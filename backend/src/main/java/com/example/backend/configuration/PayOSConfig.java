@@ -14,4 +14,6 @@ public class PayOSConfig {
     private String apiKey;
     private String checksumKey;
     private String baseUrl = "https://api-merchant.payos.vn";
+    // Thời hạn link thanh toán gửi lên PayOS (expiredAt)
+    private long linkTtlMinutes = 15;
 }
@@ -1,17 +1,28 @@
 package com.example.backend.controller;
 
+import com.example.backend.dto.request.BulkOrderStatusRequest;
+import com.example.backend.dto.request.BuyNowRequest;
 import com.example.backend.dto.request.OrderSelectedItemsRequest;
 import com.example.backend.dto.request.OrderStatusUpdateRequest;
 import com.example.backend.dto.response.ApiResponse;
+import com.example.backend.dto.response.BulkOrderStatusResponse;
+import com.example.backend.dto.response.CheckoutQuoteResponse;
+import com.example.backend.dto.response.OrderHistoryResponse;
 import com.example.backend.dto.response.OrderResponse;
+import com.example.backend.dto.response.OrderSummaryPageResponse;
+import com.example.backend.dto.response.SellerOrderDashboardResponse;
 import com.example.backend.enums.OrderStatus;
 import com.example.backend.service.OrderService;
+import com.example.backend.service.OrderSummaryService;
+import com.example.backend.service.SellerOrderService;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -22,6 +33,17 @@ import java.util.List;
 public class OrderController {
 
     OrderService orderService;
+    OrderSummaryService orderSummaryService;
+    SellerOrderService sellerOrderService;
+
+    // Báo giá checkout (tiền hàng + phí ship), chưa tạo order
+    @PostMapping("/checkout/quote")
+    public ApiResponse<CheckoutQuoteResponse> quoteCheckout(
+            @RequestBody OrderSelectedItemsRequest request) {
+        return ApiResponse.<CheckoutQuoteResponse>builder()
+                .result(orderService.quoteSelectedItems(request))
+                .build();
+    }
 
     // Tạo order từ cart của user
     @PostMapping("/checkout/selected")
@@ -33,6 +55,14 @@ public class OrderController {
     }
     //OK
 
+    // Mua ngay 1 sản phẩm, không qua cart
+    @PostMapping("/buy-now")
+    public ApiResponse<OrderResponse> buyNow(@RequestBody BuyNowRequest request) {
+        return ApiResponse.<OrderResponse>builder()
+                .result(orderService.buyNow(request))
+                .build();
+    }
+
     // Lấy tất cả order của user
     @GetMapping("/user/{userId}")
     public ApiResponse<List<OrderResponse>> getOrdersByUser(@PathVariable String userId) {
@@ -43,6 +73,66 @@ public class OrderController {
     }
     //OK
 
+    // Lịch sử đơn của user đang đăng nhập, phân trang bằng cursor
+    @GetMapping("/history")
+    public ApiResponse<OrderHistoryResponse> getOrderHistory(
+            @RequestParam(required = false) List<OrderStatus> status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ApiResponse.<OrderHistoryResponse>builder()
+                .result(orderService.getOrderHistory(status, from, to, cursor, size))
+                .build();
+    }
+
+    // Danh sách đơn (bản tóm tắt) của user đang đăng nhập
+    @GetMapping("/summaries")
+    public ApiResponse<OrderSummaryPageResponse> getMyOrderSummaries(
+            @RequestParam(required = false) List<OrderStatus> status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ApiResponse.<OrderSummaryPageResponse>builder()
+                .result(orderSummaryService.getMyOrders(status, cursor, size))
+                .build();
+    }
+
+    // Danh sách đơn (bản tóm tắt) của 1 shop, cho người bán
+    @GetMapping("/shop/{shopId}/summaries")
+    public ApiResponse<OrderSummaryPageResponse> getShopOrderSummaries(
+            @PathVariable String shopId,
+            @RequestParam(required = false) List<OrderStatus> status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ApiResponse.<OrderSummaryPageResponse>builder()
+                .result(orderSummaryService.getShopOrders(shopId, status, cursor, size))
+                .build();
+    }
+
+    // Màn quản lý đơn của người bán: lọc + phân trang + số đơn theo trạng thái
+    @GetMapping("/shop/{shopId}/dashboard")
+    public ApiResponse<SellerOrderDashboardResponse> getShopDashboard(
+            @PathVariable String shopId,
+            @RequestParam(required = false) List<OrderStatus> status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ApiResponse.<SellerOrderDashboardResponse>builder()
+                .result(sellerOrderService.getDashboard(shopId, status, from, to, cursor, size))
+                .build();
+    }
+
+    // Đổi trạng thái nhiều đơn của shop cùng lúc
+    @PatchMapping("/shop/{shopId}/status")
+    public ApiResponse<BulkOrderStatusResponse> bulkUpdateStatus(
+            @PathVariable String shopId,
+            @RequestBody BulkOrderStatusRequest request) {
+        return ApiResponse.<BulkOrderStatusResponse>builder()
+                .result(sellerOrderService.bulkUpdateStatus(shopId, request))
+                .build();
+    }
+
     // Lấy order theo id
     @GetMapping("/{orderId}")
     public ApiResponse<OrderResponse> getOrderById(@PathVariable String orderId) {
@@ -1,6 +1,7 @@
 package com.example.backend.controller;
 
 import com.example.backend.dto.request.PaymentRequest;
+import com.example.backend.dto.request.PayOSGroupPaymentRequest;
 import com.example.backend.dto.request.PayOSPaymentRequest;
 import com.example.backend.dto.request.PayOSTestRequest;
 import com.example.backend.dto.response.ApiResponse;
@@ -8,6 +9,7 @@ import com.example.backend.dto.response.PaymentResponse;
 import com.example.backend.dto.response.PayOSPaymentResponse;
 import com.example.backend.service.PaymentSimulationService;
 import com.example.backend.service.PayOSService;
+import com.example.backend.service.payment.PayOSWebhookInbox;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
@@ -23,6 +25,7 @@ public class PaymentController {
 
     PaymentSimulationService paymentService;
     PayOSService payOSService;
+    PayOSWebhookInbox payOSWebhookInbox;
 
     /**
      * Giả lập thanh toán online (VNPay, Momo)
@@ -68,6 +71,17 @@ public class PaymentController {
                 .build();
     }
 
+    /**
+     * Tạo 1 link PayOS trả chung cho nhiều đơn (checkout nhiều shop)
+     * POST /payments/payos/group
+     */
+    @PostMapping("/payos/group")
+    public ApiResponse<PayOSPaymentResponse> createPayOSGroupPayment(@RequestBody PayOSGroupPaymentRequest request) {
+        return ApiResponse.<PayOSPaymentResponse>builder()
+                .result(payOSService.createGroupPaymentLink(request))
+                .build();
+    }
+
     /**
      * Tạo link thanh toán PayOS cho test (không cần order thật)
      * POST /payments/payos/test
@@ -81,11 +95,12 @@ public class PaymentController {
 
     /**
      * Webhook nhận kết quả thanh toán từ PayOS
+     * Chỉ kiểm chữ ký và ghi vào inbox rồi trả lời ngay, worker cập nhật payment / order sau
      * POST /payments/payos/webhook
      */
     @PostMapping("/payos/webhook")
     public ApiResponse<Map<String, String>> payOSWebhook(@RequestBody Map<String, Object> webhookData) {
-        payOSService.confirmPayment(webhookData);
+        payOSWebhookInbox.receive(webhookData);
         return ApiResponse.<Map<String, String>>builder()
                 .result(Map.of("status", "success"))
                 .build();
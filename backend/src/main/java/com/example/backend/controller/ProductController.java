@@ -5,7 +5,10 @@ import com.example.backend.dto.request.ProductImageUploadRequest;
 import com.example.backend.dto.response.ApiResponse;
 import com.example.backend.dto.response.ProductImageResponse;
 import com.example.backend.dto.response.ProductResponse;
+import com.example.backend.dto.response.TopSellerResponse;
+import com.example.backend.enums.SalesWindow;
 import com.example.backend.service.ProductService;
+import com.example.backend.service.leaderboard.TopSellerLeaderboard;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
@@ -23,6 +26,7 @@ import java.util.List;
 @Slf4j
 public class ProductController {
     ProductService productService;
+    TopSellerLeaderboard topSellerLeaderboard;
 
     @PostMapping
     ApiResponse addProduct(@RequestBody ProductCreationRequest request) {
@@ -41,6 +45,17 @@ public class ProductController {
     //OK
 
 
+    // Sản phẩm bán chạy trong giờ / ngày / tuần qua, toàn sàn hoặc theo danh mục
+    @GetMapping("/best-sellers")
+    ApiResponse<List<TopSellerResponse>> getBestSellers(
+            @RequestParam(defaultValue = "DAY") SalesWindow window,
+            @RequestParam(required = false) String categoryId,
+            @RequestParam(defaultValue = "10") int size) {
+        return ApiResponse.<List<TopSellerResponse>>builder()
+                .result(topSellerLeaderboard.getTopSellers(window, categoryId, size))
+                .build();
+    }
+
     @GetMapping("/{productId}")
     ApiResponse<ProductResponse> getProductById(@PathVariable String productId) {
         return ApiResponse.<ProductResponse>builder()
@@ -0,0 +1,56 @@
+package com.example.backend.controller;
+
+import com.example.backend.dto.response.ApiResponse;
+import com.example.backend.dto.response.DailySalesResponse;
+import com.example.backend.dto.response.SalesRankingResponse;
+import com.example.backend.service.SalesReportService;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/reports")
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ReportController {
+
+    SalesReportService salesReportService;
+
+    // Doanh số từng ngày của shop (chủ shop / admin)
+    @GetMapping("/shops/{shopId}/sales/daily")
+    public ApiResponse<List<DailySalesResponse>> getShopDailySales(
+            @PathVariable String shopId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ApiResponse.<List<DailySalesResponse>>builder()
+                .result(salesReportService.getShopDailySales(shopId, from, to))
+                .build();
+    }
+
+    // Sản phẩm bán chạy của shop theo doanh thu
+    @GetMapping("/shops/{shopId}/sales/top-products")
+    public ApiResponse<List<SalesRankingResponse>> getTopProducts(
+            @PathVariable String shopId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "10") int size) {
+        return ApiResponse.<List<SalesRankingResponse>>builder()
+                .result(salesReportService.getTopProducts(shopId, from, to, size))
+                .build();
+    }
+
+    // Doanh số theo danh mục toàn sàn (admin)
+    @GetMapping("/categories/sales")
+    public ApiResponse<List<SalesRankingResponse>> getCategorySales(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ApiResponse.<List<SalesRankingResponse>>builder()
+                .result(salesReportService.getCategorySales(from, to))
+                .build();
+    }
+}
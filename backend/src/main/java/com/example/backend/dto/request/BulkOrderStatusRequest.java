@@ -0,0 +1,18 @@
+package com.example.backend.dto.request;
+
+import com.example.backend.enums.OrderStatus;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BulkOrderStatusRequest {
+    private List<String> orderIds;
+    private OrderStatus fromStatus;   // chỉ đổi các đơn đang ở trạng thái này
+    private OrderStatus status;
+}
@@ -5,4 +5,5 @@ import java.util.List;
 @Data
 public class OrderSelectedItemsRequest {
     List<String> productIds;   // chọn trong cart
+    String quoteToken;         // token từ /orders/checkout/quote, null thì báo giá lại khi checkout
 }
@@ -0,0 +1,12 @@
+package com.example.backend.dto.request;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class PayOSGroupPaymentRequest {
+    private List<String> orderIds;   // các đơn tách theo shop của cùng 1 lần checkout
+    private String returnUrl;
+    private String cancelUrl;
+}
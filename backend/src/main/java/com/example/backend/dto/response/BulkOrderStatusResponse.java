@@ -0,0 +1,16 @@
+package com.example.backend.dto.response;
+
+import com.example.backend.enums.OrderStatus;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BulkOrderStatusResponse {
+    private OrderStatus status;
+    private int requested;
+    private int updated;      // số đơn thực sự được đổi (đơn sai trạng thái / không thuộc shop bị bỏ qua)
+}
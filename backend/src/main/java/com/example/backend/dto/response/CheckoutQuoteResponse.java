@@ -0,0 +1,21 @@
+package com.example.backend.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CheckoutQuoteResponse {
+    private String quoteToken;
+    private Instant expiresAt;
+    private double itemTotal;
+    private double shippingTotal;
+    private double totalAmount;
+    private List<ShopQuoteResponse> shops;
+}
@@ -0,0 +1,18 @@
+package com.example.backend.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class DailySalesResponse {
+    private LocalDate date;
+    private long units;
+    private double revenue;     // tiền hàng, không gồm phí ship
+    private long orderCount;
+}
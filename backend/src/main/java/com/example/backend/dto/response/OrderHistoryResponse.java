@@ -0,0 +1,16 @@
+package com.example.backend.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class OrderHistoryResponse {
+    private List<OrderResponse> orders;
+    private String nextCursor;   // null = hết dữ liệu
+}
@@ -1,8 +1,10 @@
 package com.example.backend.dto.response;
 
+import com.example.backend.enums.OrderStatus;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 
+import java.time.LocalDateTime;
 import java.util.List;
 @Data
 @NoArgsConstructor
@@ -11,6 +13,8 @@ import java.util.List;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class OrderResponse {
     private String orderId;
+    private OrderStatus status;
+    private LocalDateTime createdAt;
     private double totalAmount;
     private List<OrderItemResponse> items;
 }
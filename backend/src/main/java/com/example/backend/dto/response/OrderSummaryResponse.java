@@ -0,0 +1,26 @@
+package com.example.backend.dto.response;
+
+import com.example.backend.enums.OrderStatus;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class OrderSummaryResponse {
+    private String orderId;
+    private String shopId;
+    private String shopName;
+    private String productName;
+    private String thumbnailUrl;
+    private int itemCount;
+    private double totalAmount;
+    private OrderStatus orderStatus;
+    private String shipmentStatus;
+    private String paymentStatus;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,17 @@
+package com.example.backend.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SalesRankingResponse {
+    private String id;          // productId / categoryId
+    private String name;
+    private long units;
+    private double revenue;
+    private long orderCount;
+}
@@ -0,0 +1,19 @@
+package com.example.backend.dto.response;
+
+import com.example.backend.enums.OrderStatus;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SellerOrderDashboardResponse {
+    private List<OrderResponse> orders;
+    private String nextCursor;                    // null = hết dữ liệu
+    private Map<OrderStatus, Long> statusCounts;  // theo khoảng thời gian, không theo bộ lọc trạng thái
+}
@@ -0,0 +1,18 @@
+package com.example.backend.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ShopQuoteResponse {
+    private String shopId;
+    private String shopName;
+    private double itemTotal;
+    private double shippingFee;
+    private int estimatedDays;
+    private String shippingProvider;
+}
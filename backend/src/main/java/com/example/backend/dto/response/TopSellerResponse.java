@@ -0,0 +1,15 @@
+package com.example.backend.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class TopSellerResponse {
+    private String productId;
+    private String productName;
+    private long units;         // số lượng bán (đơn đã thanh toán) trong cửa sổ
+}
@@ -31,5 +31,10 @@ public class Cart {
     private List<CartItem> items = new ArrayList<>();;
 
     double totalAmount;
+
+    // Optimistic lock: 2 transaction cùng sửa 1 cart thì transaction commit sau bị từ chối
+    @Version
+    @Column(columnDefinition = "bigint default 0")
+    long version;
 }
 
@@ -0,0 +1,43 @@
+package com.example.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * Doanh số theo ngày đặt đơn của 1 shop / danh mục / sản phẩm.
+ * Chỉ tính đơn đã thanh toán (PAID trở đi), đơn bị hủy sau khi thanh toán được trừ lại.
+ * Được cộng dồn bởi SalesRollupService, báo cáo chỉ đọc bảng này.
+ */
+@Entity
+@Table(name = "daily_sales_rollups", indexes = {
+        // Top sản phẩm của 1 shop
+        @Index(name = "idx_daily_sales_rollups_shop", columnList = "dimension, shop_id, sales_date")
+})
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class DailySalesRollup {
+
+    @EmbeddedId
+    DailySalesRollupId id;
+
+    // Shop của sản phẩm (dimension PRODUCT) hoặc chính shop (SHOP), null với CATEGORY
+    @Column(name = "shop_id", length = 64)
+    String shopId;
+
+    long units;
+
+    double revenue;
+
+    @Column(name = "order_count")
+    long orderCount;
+
+    @Column(name = "updated_at")
+    LocalDateTime updatedAt;
+}
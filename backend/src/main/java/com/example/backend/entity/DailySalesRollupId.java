@@ -0,0 +1,35 @@
+package com.example.backend.entity;
+
+import com.example.backend.enums.SalesDimension;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class DailySalesRollupId implements Serializable {
+
+    @Serial
+    static final long serialVersionUID = 1L;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    SalesDimension dimension;
+
+    // shopId / categoryId / productId tùy dimension
+    @Column(name = "dimension_id", length = 64)
+    String dimensionId;
+
+    @Column(name = "sales_date")
+    LocalDate salesDate;
+}
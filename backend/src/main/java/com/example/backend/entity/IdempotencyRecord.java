@@ -0,0 +1,45 @@
+package com.example.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "idempotency_records", indexes = {
+        @Index(name = "idx_idempotency_records_expires_at", columnList = "expires_at")
+})
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class IdempotencyRecord {
+
+    // SHA-256 của (user, method, path, Idempotency-Key)
+    @Id
+    @Column(length = 64)
+    String id;
+
+    // SHA-256 của body request đầu tiên, để phát hiện dùng lại key cho request khác
+    @Column(name = "request_hash", length = 64, nullable = false)
+    String requestHash;
+
+    // false = request đầu tiên đang chạy
+    boolean completed;
+
+    Integer responseStatus;
+
+    String contentType;
+
+    @Column(length = 1048576)
+    byte[] responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    LocalDateTime expiresAt;
+}
@@ -8,7 +8,15 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+// Trên PostgreSQL bảng được chia partition theo tháng trên created_at (PK = id, created_at),
+// xem db/migration/V1 và OrderPartitionMaintenance
+// Lịch sử đơn của 1 user / 1 shop: sort created_at giảm dần, keyset theo (created_at, id)
+// idx_orders_shop_status_created dùng cho đếm số đơn theo trạng thái của shop
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_user_created", columnList = "user_id, created_at DESC, id DESC, status"),
+        @Index(name = "idx_orders_shop_created", columnList = "shop_id, created_at DESC, id DESC, status"),
+        @Index(name = "idx_orders_shop_status_created", columnList = "shop_id, status, created_at")
+})
 @Getter
 @Setter
 @AllArgsConstructor
@@ -24,13 +32,24 @@ public class Order {
     @JoinColumn(name = "user_id")
     private User user;
 
+    // Mỗi đơn thuộc đúng 1 shop (checkout tách đơn theo shop)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "shop_id")
+    private Shop shop;
+
     @Enumerated(EnumType.STRING)
     OrderStatus status = OrderStatus.PENDING;
 
+    // Khóa partition: không đổi sau khi tạo
+    @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 
     double totalAmount;
 
+    @Version
+    @Column(columnDefinition = "bigint default 0")
+    long version;
+
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<OrderItem> items = new ArrayList<>();
 
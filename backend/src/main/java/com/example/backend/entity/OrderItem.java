@@ -4,6 +4,8 @@ import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 
+import java.time.LocalDateTime;
+
 @Entity
 @Table(name = "order_items")
 @Getter
@@ -18,8 +20,9 @@ public class OrderItem {
     @GeneratedValue(strategy = GenerationType.UUID)
     private String id;
 
+    // orders được chia partition theo tháng (PK gồm created_at) nên không có FK tới orders
     @ManyToOne
-    @JoinColumn(name = "order_id")
+    @JoinColumn(name = "order_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Order order;
 
     @ManyToOne
@@ -29,5 +32,16 @@ public class OrderItem {
     private int quantity;
 
     private double priceAtPurchase; // giá lúc mua
+
+    // Khóa partition theo tháng, bằng created_at của đơn
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    void prePersist() {
+        if (createdAt == null) {
+            createdAt = order != null && order.getCreatedAt() != null ? order.getCreatedAt() : LocalDateTime.now();
+        }
+    }
 }
 
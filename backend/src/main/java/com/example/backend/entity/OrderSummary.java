@@ -0,0 +1,63 @@
+package com.example.backend.entity;
+
+import com.example.backend.enums.OrderStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bản tóm tắt 1 đơn hàng cho các màn danh sách, đọc 1 bảng là đủ không cần join.
+ * Tên sản phẩm/ảnh là snapshot lúc đặt, không đổi khi sản phẩm bị sửa hoặc xóa.
+ * Được cập nhật trong cùng transaction với đơn hàng (OrderSummaryService).
+ */
+@Entity
+@Table(name = "order_summaries", indexes = {
+        @Index(name = "idx_order_summaries_user_created", columnList = "user_id, created_at DESC, order_id DESC"),
+        @Index(name = "idx_order_summaries_shop_created", columnList = "shop_id, created_at DESC, order_id DESC")
+})
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class OrderSummary {
+
+    // Trùng id của order
+    @Id
+    @Column(name = "order_id")
+    String orderId;
+
+    @Column(name = "user_id", nullable = false)
+    String userId;
+
+    @Column(name = "shop_id")
+    String shopId;
+
+    String shopName;
+
+    // Tên sản phẩm đầu tiên trong đơn
+    String productName;
+
+    String thumbnailUrl;
+
+    // Tổng số lượng sản phẩm trong đơn
+    int itemCount;
+
+    double totalAmount;
+
+    @Enumerated(EnumType.STRING)
+    OrderStatus orderStatus;
+
+    String shipmentStatus;
+
+    // null = chưa tạo thanh toán
+    String paymentStatus;
+
+    @Column(name = "created_at", nullable = false)
+    LocalDateTime createdAt;
+
+    LocalDateTime updatedAt;
+}
@@ -0,0 +1,57 @@
+package com.example.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "outbox_events", indexes = {
+        @Index(name = "idx_outbox_events_pending", columnList = "published_at, next_attempt_at, id"),
+        @Index(name = "idx_outbox_events_aggregate", columnList = "aggregate_type, aggregate_id, id")
+})
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class OutboxEvent {
+
+    // Lấy từng giá trị từ sequence (allocationSize = 1) để id tăng theo thời điểm ghi trên mọi node,
+    // thứ tự id = thứ tự phát trong cùng aggregate
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_events_seq")
+    @SequenceGenerator(name = "outbox_events_seq", sequenceName = "outbox_events_seq", allocationSize = 1)
+    Long id;
+
+    @Column(name = "aggregate_type", nullable = false, length = 50)
+    String aggregateType;
+
+    @Column(name = "aggregate_id", nullable = false, length = 64)
+    String aggregateId;
+
+    @Column(name = "event_type", nullable = false, length = 100)
+    String eventType;
+
+    // JSON của sự kiện
+    @Column(nullable = false, columnDefinition = "text")
+    String payload;
+
+    @Column(name = "created_at", nullable = false)
+    LocalDateTime createdAt;
+
+    // Lần gửi tiếp theo (lùi dần khi listener lỗi)
+    @Column(name = "next_attempt_at", nullable = false)
+    LocalDateTime nextAttemptAt;
+
+    // null = chưa gửi thành công
+    @Column(name = "published_at")
+    LocalDateTime publishedAt;
+
+    int attempts;
+
+    @Column(name = "last_error", length = 1000)
+    String lastError;
+}
@@ -0,0 +1,40 @@
+package com.example.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * orderCode PayOS -> payment (hoặc nhóm thanh toán). Bảng riêng (không partition) để order_code là khóa chính duy nhất
+ * trên toàn hệ thống; payments chia partition nên không đặt unique index theo order code được.
+ */
+@Entity
+@Table(name = "payos_order_codes")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PayOSOrderCode {
+
+    @Id
+    @Column(name = "order_code")
+    Long orderCode;
+
+    @Column(name = "payment_id", nullable = false, length = 36)
+    String paymentId;
+
+    @Column(name = "order_id", nullable = false, length = 36)
+    String orderId;
+
+    // created_at của payment: tra payment theo (id, created_at) chỉ đụng 1 partition
+    @Column(name = "payment_created_at", nullable = false)
+    LocalDateTime paymentCreatedAt;
+
+    // Có giá trị khi orderCode thuộc 1 nhóm thanh toán gộp (payment_id là payment của đơn đầu tiên)
+    @Column(name = "payment_group_id", length = 36)
+    String paymentGroupId;
+}
@@ -0,0 +1,56 @@
+package com.example.backend.entity;
+
+import com.example.backend.enums.WebhookEventStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * Inbox webhook PayOS: ghi nguyên body ngay khi nhận, worker xử lý sau.
+ * orderCode là khóa chính nên PayOS gửi lại cùng 1 đơn chỉ được ghi 1 lần;
+ * riêng webhook thành công ghi đè được dòng thất bại / hủy trước đó (PayOSWebhookInbox).
+ */
+@Entity
+@Table(name = "payos_webhook_events", indexes = {
+        @Index(name = "idx_payos_webhook_events_pending", columnList = "status, next_attempt_at")
+})
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PayOSWebhookEvent {
+
+    @Id
+    @Column(name = "order_code")
+    Long orderCode;
+
+    // code của webhook, "00" = thanh toán thành công
+    @Column(nullable = false, length = 10)
+    String code;
+
+    // Body gốc PayOS gửi (JSON)
+    @Column(nullable = false, columnDefinition = "text")
+    String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    WebhookEventStatus status;
+
+    @Column(name = "received_at", nullable = false)
+    LocalDateTime receivedAt;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    LocalDateTime nextAttemptAt;
+
+    @Column(name = "processed_at")
+    LocalDateTime processedAt;
+
+    int attempts;
+
+    @Column(name = "last_error", length = 1000)
+    String lastError;
+}
@@ -4,13 +4,20 @@ import lombok.*;
 import lombok.experimental.FieldDefaults;
 import java.time.LocalDateTime;
 
-@Entity @Table(name = "payments")
+// Index transaction_id cho payment cũ (trước payos_order_codes) và đối soát IPN
+@Entity @Table(name = "payments", indexes = {
+        @Index(name = "idx_payments_transaction_id", columnList = "transaction_id"),
+        @Index(name = "idx_payments_group_id", columnList = "payment_group_id"),
+        // Đối soát quét payment PENDING theo (created_at, id)
+        @Index(name = "idx_payments_status_created", columnList = "payment_status, created_at, id")
+})
 @Getter @Setter @Builder @NoArgsConstructor @AllArgsConstructor
 public class Payment {
     @Id @GeneratedValue(strategy = GenerationType.UUID)
     String id;
 
-    @OneToOne @JoinColumn(name = "order_id")
+    // Không FK: orders chia partition theo tháng
+    @OneToOne @JoinColumn(name = "order_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     Order order;
 
     @ManyToOne @JoinColumn(name = "payment_provider_id")
@@ -22,4 +29,26 @@ public class Payment {
     String transactionId;
 
     LocalDateTime paymentDate;
+
+    // Link PayOS đang chờ thanh toán, dùng lại cho tới khi hết hạn
+    @Column(length = 500)
+    String checkoutUrl;
+    @Column(columnDefinition = "text")
+    String qrCode;
+    LocalDateTime linkExpiresAt;
+
+    // Thanh toán gộp: link nằm trên nhóm, payment của từng đơn chỉ trỏ về nhóm
+    @Column(name = "payment_group_id", length = 36)
+    String paymentGroupId;
+
+    // Khóa partition theo tháng (lúc tạo payment)
+    @Column(name = "created_at", nullable = false, updatable = false)
+    LocalDateTime createdAt;
+
+    @PrePersist
+    void prePersist() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
 }
\ No newline at end of file
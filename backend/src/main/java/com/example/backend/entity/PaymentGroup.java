@@ -0,0 +1,65 @@
+package com.example.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Thanh toán gộp nhiều đơn (checkout nhiều shop) bằng 1 link PayOS và 1 webhook.
+ * Mỗi đơn thành viên vẫn có payment riêng trỏ về nhóm qua payments.payment_group_id.
+ */
+@Entity
+@Table(name = "payment_groups", indexes = {
+        @Index(name = "uk_payment_groups_order_code", columnList = "order_code", unique = true),
+        @Index(name = "idx_payment_groups_members", columnList = "members_hash, status")
+})
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PaymentGroup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    String id;
+
+    @Column(name = "order_code", nullable = false)
+    Long orderCode;
+
+    // SHA-256 của các orderId đã sort: tìm nhóm PENDING cùng tập đơn để dùng lại link
+    @Column(name = "members_hash", nullable = false, length = 64)
+    String membersHash;
+
+    // Không FK: orders chia partition theo tháng
+    @ElementCollection
+    @CollectionTable(name = "payment_group_orders", joinColumns = @JoinColumn(name = "group_id"))
+    @Column(name = "order_id", length = 36)
+    @Builder.Default
+    List<String> orderIds = new ArrayList<>();
+
+    double totalAmount;
+    String status;
+
+    @Column(length = 500)
+    String checkoutUrl;
+    @Column(columnDefinition = "text")
+    String qrCode;
+    LocalDateTime linkExpiresAt;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    LocalDateTime createdAt;
+
+    LocalDateTime paidAt;
+
+    @PrePersist
+    void prePersist() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.backend.entity;
+
+import com.example.backend.enums.SalesLedgerState;
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mỗi đơn 1 dòng: đơn đã được cộng/trừ vào daily_sales_rollups hay chưa.
+ * Sự kiện outbox có thể đến nhiều lần, backfill có thể chạy song song với listener,
+ * bảng này đảm bảo mỗi đơn chỉ được cộng 1 lần và trừ tối đa 1 lần.
+ */
+@Entity
+@Table(name = "sales_rollup_ledger")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SalesRollupLedger {
+
+    @Id
+    @Column(name = "order_id", length = 64)
+    String orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    SalesLedgerState state;
+
+    @Column(name = "updated_at", nullable = false)
+    LocalDateTime updatedAt;
+}
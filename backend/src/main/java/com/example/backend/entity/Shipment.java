@@ -3,6 +3,7 @@ import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Entity @Table(name = "shipments")
 @Getter @Setter @Builder @NoArgsConstructor @AllArgsConstructor
@@ -10,7 +11,8 @@ public class Shipment {
     @Id @GeneratedValue(strategy = GenerationType.UUID)
     String id;
 
-    @OneToOne @JoinColumn(name = "order_id")
+    // Không FK: orders chia partition theo tháng
+    @OneToOne @JoinColumn(name = "order_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     Order order;
 
     @ManyToOne @JoinColumn(name = "shipping_provider_id")
@@ -20,4 +22,15 @@ public class Shipment {
     double shippingFee;
     LocalDate estimatedDeliveryDate;
     String status;
+
+    // Khóa partition theo tháng, bằng created_at của đơn
+    @Column(name = "created_at", nullable = false, updatable = false)
+    LocalDateTime createdAt;
+
+    @PrePersist
+    void prePersist() {
+        if (createdAt == null) {
+            createdAt = order != null && order.getCreatedAt() != null ? order.getCreatedAt() : LocalDateTime.now();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.example.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Bậc cân nặng của 1 vùng: hàng nặng tới maxWeightGram thì phí là fee.
+ * Vượt bậc cuối thì cộng extraFeePer500g cho mỗi 500g tiếp theo.
+ */
+@Entity
+@Table(name = "shipping_weight_tiers",
+        indexes = @Index(name = "idx_shipping_weight_tiers_version", columnList = "version"))
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ShippingWeightTier {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    String id;
+
+    int version;
+
+    int zone;
+
+    int maxWeightGram;
+
+    int fee;
+
+    int extraFeePer500g;
+
+    int estimatedDays;
+}
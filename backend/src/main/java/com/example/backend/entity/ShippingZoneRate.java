@@ -0,0 +1,33 @@
+package com.example.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * 1 ô của ma trận vùng giao hàng: tỉnh gửi -> tỉnh nhận thuộc vùng nào.
+ * Mỗi lần cập nhật bảng giá thì ghi 1 version mới, engine luôn dùng version lớn nhất.
+ */
+@Entity
+@Table(name = "shipping_zone_rates",
+        indexes = @Index(name = "idx_shipping_zone_rates_version", columnList = "version"))
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ShippingZoneRate {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    String id;
+
+    int version;
+
+    String fromProvinceCode;
+
+    String toProvinceCode;
+
+    // 0 dành riêng cho giao nội quận, ma trận dùng các vùng từ 1
+    int zone;
+}
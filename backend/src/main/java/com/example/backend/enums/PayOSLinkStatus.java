@@ -0,0 +1,34 @@
+package com.example.backend.enums;
+
+import java.util.Locale;
+
+/**
+ * Trạng thái link thanh toán theo API tra cứu của PayOS
+ */
+public enum PayOSLinkStatus {
+    PENDING,
+    PROCESSING,
+    PAID,
+    CANCELLED,
+    EXPIRED,
+    // PayOS trả về giá trị chưa biết
+    UNKNOWN;
+
+    public static PayOSLinkStatus from(String value) {
+        if (value == null) {
+            return UNKNOWN;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return UNKNOWN;
+        }
+    }
+
+    /**
+     * Link đã kết thúc mà không trả tiền
+     */
+    public boolean isClosedUnpaid() {
+        return this == CANCELLED || this == EXPIRED;
+    }
+}
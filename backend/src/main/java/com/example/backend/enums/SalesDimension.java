@@ -0,0 +1,8 @@
+package com.example.backend.enums;
+
+// Chiều gộp của bảng daily_sales_rollups
+public enum SalesDimension {
+    SHOP,
+    CATEGORY,
+    PRODUCT
+}
@@ -0,0 +1,7 @@
+package com.example.backend.enums;
+
+public enum SalesLedgerState {
+    COUNTED,    // đã cộng vào rollup
+    REVERSED,   // đã cộng rồi bị trừ lại do hủy
+    SKIPPED     // hủy trước khi được cộng, không bao giờ cộng nữa
+}
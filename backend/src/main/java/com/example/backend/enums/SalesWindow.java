@@ -0,0 +1,30 @@
+package com.example.backend.enums;
+
+import java.time.Duration;
+
+// Cửa sổ trượt của bảng xếp hạng bán chạy: độ dài = bucketCount × bucket
+public enum SalesWindow {
+    HOUR(Duration.ofMinutes(1), 60),
+    DAY(Duration.ofMinutes(15), 96),
+    WEEK(Duration.ofHours(1), 168);
+
+    private final long bucketMillis;
+    private final int bucketCount;
+
+    SalesWindow(Duration bucket, int bucketCount) {
+        this.bucketMillis = bucket.toMillis();
+        this.bucketCount = bucketCount;
+    }
+
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+
+    public int getBucketCount() {
+        return bucketCount;
+    }
+
+    public long getLengthMillis() {
+        return bucketMillis * bucketCount;
+    }
+}
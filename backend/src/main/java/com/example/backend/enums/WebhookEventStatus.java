@@ -0,0 +1,8 @@
+package com.example.backend.enums;
+
+public enum WebhookEventStatus {
+    RECEIVED,   // đã ghi vào inbox, chờ worker xử lý
+    PROCESSED,  // đã áp dụng vào payment / order
+    IGNORED,    // webhook báo thất bại hoặc không có payment tương ứng
+    FAILED      // lỗi quá số lần thử, cần xem tay
+}
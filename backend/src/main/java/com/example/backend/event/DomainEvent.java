@@ -0,0 +1,15 @@
+package com.example.backend.event;
+
+/**
+ * Sự kiện nghiệp vụ đi qua transactional outbox.
+ * Được ghi vào outbox_events cùng transaction với thay đổi trạng thái, sau đó OutboxDispatcher
+ * phát lại qua ApplicationEventPublisher (ít nhất 1 lần, đúng thứ tự trong từng aggregate).
+ * Listener (@EventListener) vì vậy phải chịu được sự kiện bị gửi lặp.
+ */
+public sealed interface DomainEvent
+        permits OrderCreatedEvent, OrderPaidEvent, OrderCancelledEvent, OrderStatusChangedEvent {
+
+    String aggregateType();
+
+    String aggregateId();
+}
@@ -0,0 +1,17 @@
+package com.example.backend.event;
+
+import java.time.LocalDateTime;
+
+public record OrderCreatedEvent(String orderId, String userId, String shopId, double totalAmount,
+                                LocalDateTime createdAt) implements DomainEvent {
+
+    @Override
+    public String aggregateType() {
+        return "Order";
+    }
+
+    @Override
+    public String aggregateId() {
+        return orderId;
+    }
+}
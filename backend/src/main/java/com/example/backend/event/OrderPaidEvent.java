@@ -0,0 +1,16 @@
+package com.example.backend.event;
+
+import java.time.LocalDateTime;
+
+public record OrderPaidEvent(String orderId, LocalDateTime paidAt) implements DomainEvent {
+
+    @Override
+    public String aggregateType() {
+        return "Order";
+    }
+
+    @Override
+    public String aggregateId() {
+        return orderId;
+    }
+}
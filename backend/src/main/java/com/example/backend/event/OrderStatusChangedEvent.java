@@ -0,0 +1,20 @@
+package com.example.backend.event;
+
+import com.example.backend.enums.OrderStatus;
+
+import java.time.LocalDateTime;
+
+// Các bước chuyển còn lại (SHIPPED, DELIVERED)
+public record OrderStatusChangedEvent(String orderId, OrderStatus status, LocalDateTime changedAt)
+        implements DomainEvent {
+
+    @Override
+    public String aggregateType() {
+        return "Order";
+    }
+
+    @Override
+    public String aggregateId() {
+        return orderId;
+    }
+}
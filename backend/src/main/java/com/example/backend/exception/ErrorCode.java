@@ -11,6 +11,7 @@ public enum ErrorCode {
     VALIDATION_ERROR(1000, "Validation failed", HttpStatus.BAD_REQUEST),
     METHOD_NOT_ALLOWED(1001, "Method not allowed", HttpStatus.METHOD_NOT_ALLOWED),
     JSON_PARSE_ERROR(1002, "Invalid JSON format", HttpStatus.BAD_REQUEST),
+    CONCURRENT_UPDATE(1003, "Data was changed by another request, please try again", HttpStatus.CONFLICT),
 
     // Authentication & Authorization
     UNAUTHENTICATED(1100, "Unauthenticated", HttpStatus.UNAUTHORIZED),
@@ -44,6 +45,10 @@ public enum ErrorCode {
 
     // Order
     ORDER_NOT_EXIST(1700, "Order does not exist", HttpStatus.BAD_REQUEST),
+    QUOTE_INVALID(1701, "Checkout quote is invalid", HttpStatus.BAD_REQUEST),
+    QUOTE_EXPIRED(1702, "Checkout quote has expired", HttpStatus.BAD_REQUEST),
+    QUOTE_OUTDATED(1703, "Cart or prices changed since the quote", HttpStatus.CONFLICT),
+    ORDER_STATUS_TRANSITION_INVALID(1704, "Order cannot move to this status from its current status", HttpStatus.CONFLICT),
 
     // Address/Ward
     WARD_NOT_FOUND(1800, "Ward not found", HttpStatus.BAD_REQUEST),
@@ -53,7 +58,14 @@ public enum ErrorCode {
     INVALID_VALUE(1900, "Invalid value", HttpStatus.BAD_REQUEST),
 
     // Payment
-    PAYMENT_FAILED(2000, "Payment failed", HttpStatus.BAD_REQUEST);
+    PAYMENT_FAILED(2000, "Payment failed", HttpStatus.BAD_REQUEST),
+    WEBHOOK_SIGNATURE_INVALID(2001, "Webhook signature is invalid", HttpStatus.BAD_REQUEST),
+    PAYMENT_GROUP_INVALID(2002, "Orders cannot be paid together", HttpStatus.BAD_REQUEST),
+
+    // Idempotency
+    IDEMPOTENCY_KEY_INVALID(2100, "Idempotency-Key is invalid", HttpStatus.BAD_REQUEST),
+    IDEMPOTENCY_KEY_REUSED(2101, "Idempotency-Key was already used for a different request", HttpStatus.UNPROCESSABLE_ENTITY),
+    IDEMPOTENCY_IN_PROGRESS(2102, "A request with this Idempotency-Key is still in progress", HttpStatus.CONFLICT);
 
     private final int code;
     private final String message;
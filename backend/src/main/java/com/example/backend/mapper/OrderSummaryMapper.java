@@ -0,0 +1,10 @@
+package com.example.backend.mapper;
+
+import com.example.backend.dto.response.OrderSummaryResponse;
+import com.example.backend.entity.OrderSummary;
+import org.mapstruct.Mapper;
+
+@Mapper(componentModel = "spring")
+public interface OrderSummaryMapper {
+    OrderSummaryResponse toOrderSummaryResponse(OrderSummary summary);
+}
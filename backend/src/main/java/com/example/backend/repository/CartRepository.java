@@ -2,10 +2,18 @@ package com.example.backend.repository;
 
 import com.example.backend.entity.Cart;
 import com.example.backend.entity.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.Optional;
 
 public interface CartRepository extends JpaRepository<Cart, String> {
     Optional<Cart> findByUser(User user);
+
+    // Đánh dấu tăng version của cart khi commit, kể cả khi chỉ cart_items thay đổi
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("SELECT c FROM Cart c WHERE c.id = :id")
+    Optional<Cart> lockById(String id);
 }
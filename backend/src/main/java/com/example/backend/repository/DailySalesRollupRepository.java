@@ -0,0 +1,56 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.DailySalesRollup;
+import com.example.backend.entity.DailySalesRollupId;
+import com.example.backend.enums.SalesDimension;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DailySalesRollupRepository extends JpaRepository<DailySalesRollup, DailySalesRollupId> {
+
+    // Cộng dồn tại chỗ (row lock của DB), trả về 0 nếu dòng chưa tồn tại
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE DailySalesRollup r
+        SET r.units = r.units + :units, r.revenue = r.revenue + :revenue,
+            r.orderCount = r.orderCount + :orders, r.updatedAt = :now
+        WHERE r.id = :id
+    """)
+    int increment(DailySalesRollupId id, long units, double revenue, long orders, LocalDateTime now);
+
+    @Query("""
+        SELECT r FROM DailySalesRollup r
+        WHERE r.id.dimension = :dimension AND r.id.dimensionId = :dimensionId
+          AND r.id.salesDate BETWEEN :from AND :to
+        ORDER BY r.id.salesDate
+    """)
+    List<DailySalesRollup> findDaily(SalesDimension dimension, String dimensionId, LocalDate from, LocalDate to);
+
+    // [productId, units, revenue, orderCount] các sản phẩm của shop, doanh thu giảm dần
+    @Query("""
+        SELECT r.id.dimensionId, SUM(r.units), SUM(r.revenue), SUM(r.orderCount) FROM DailySalesRollup r
+        WHERE r.id.dimension = com.example.backend.enums.SalesDimension.PRODUCT AND r.shopId = :shopId
+          AND r.id.salesDate BETWEEN :from AND :to
+        GROUP BY r.id.dimensionId
+        HAVING SUM(r.units) > 0
+        ORDER BY SUM(r.revenue) DESC, r.id.dimensionId
+    """)
+    List<Object[]> findTopProducts(String shopId, LocalDate from, LocalDate to, Limit limit);
+
+    // [id, units, revenue, orderCount] theo từng id của 1 dimension, doanh thu giảm dần
+    @Query("""
+        SELECT r.id.dimensionId, SUM(r.units), SUM(r.revenue), SUM(r.orderCount) FROM DailySalesRollup r
+        WHERE r.id.dimension = :dimension AND r.id.salesDate BETWEEN :from AND :to
+        GROUP BY r.id.dimensionId
+        ORDER BY SUM(r.revenue) DESC, r.id.dimensionId
+    """)
+    List<Object[]> sumByDimension(SalesDimension dimension, LocalDate from, LocalDate to);
+}
@@ -2,6 +2,7 @@ package com.example.backend.repository;
 
 import com.example.backend.entity.District;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,4 +11,8 @@ import java.util.List;
 public interface DistrictRepository extends JpaRepository<District, String> {
     // Tìm tất cả quận huyện thuộc 1 tỉnh (để dropdown menu frontend)
     List<District> findAllByProvince_Code(String provinceCode);
+
+    // [districtCode, provinceCode] của mọi quận huyện (để dựng ma trận phí ship)
+    @Query("SELECT d.code, d.province.code FROM District d")
+    List<Object[]> findAllProvinceCodes();
 }
\ No newline at end of file
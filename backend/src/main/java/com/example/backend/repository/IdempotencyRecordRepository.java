@@ -0,0 +1,48 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // INSERT thẳng để trùng khóa thì báo lỗi (save() với id có sẵn sẽ thành merge)
+    @Transactional
+    @Modifying
+    @Query(value = """
+        INSERT INTO idempotency_records (id, request_hash, completed, created_at, expires_at)
+        VALUES (:id, :requestHash, false, :createdAt, :expiresAt)
+    """, nativeQuery = true)
+    void insertClaim(String id, String requestHash, LocalDateTime createdAt, LocalDateTime expiresAt);
+
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE IdempotencyRecord r
+        SET r.completed = true, r.responseStatus = :status, r.contentType = :contentType, r.responseBody = :body
+        WHERE r.id = :id
+    """)
+    int complete(String id, int status, String contentType, byte[] body);
+
+    // Xóa chỗ giữ của request lỗi để client gửi lại được
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.completed = false")
+    int deleteClaim(String id);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.expiresAt < :now")
+    int deleteIfExpired(String id, LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(LocalDateTime now);
+}
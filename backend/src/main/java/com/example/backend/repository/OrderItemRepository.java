@@ -2,7 +2,29 @@ package com.example.backend.repository;
 
 
 import com.example.backend.entity.OrderItem;
+import com.example.backend.enums.OrderStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 public interface OrderItemRepository extends JpaRepository<OrderItem, String> {
+
+    // [orderId, createdAt, productId, productName, quantity] của các đơn đã thanh toán từ since (không GROUP BY)
+    @Query("""
+        SELECT o.id, o.createdAt, p.productId, p.name, i.quantity
+        FROM OrderItem i JOIN i.order o JOIN i.product p
+        WHERE o.status IN :statuses AND o.createdAt >= :since
+    """)
+    List<Object[]> findSoldLinesSince(Collection<OrderStatus> statuses, LocalDateTime since);
+
+    // [productId, productName, quantity] của 1 đơn
+    @Query("""
+        SELECT p.productId, p.name, i.quantity
+        FROM OrderItem i JOIN i.product p
+        WHERE i.order.id = :orderId
+    """)
+    List<Object[]> findLinesByOrderId(String orderId);
 }
@@ -1,12 +1,165 @@
 package com.example.backend.repository;
 
 import com.example.backend.entity.Order;
+import com.example.backend.entity.Shop;
 import com.example.backend.entity.User;
+import com.example.backend.enums.OrderStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface OrderRepository extends JpaRepository<Order, String> {
+    @EntityGraph(attributePaths = {"items", "items.product", "shipment", "payment"})
     List<Order> findAllByUser(User user);
+
+    // [id, createdAt] trang đầu của lịch sử đơn, chạy hoàn toàn trên idx_orders_user_created
+    @Query("""
+        SELECT o.id, o.createdAt FROM Order o
+        WHERE o.user.userId = :userId AND o.status IN :statuses
+          AND o.createdAt >= :from AND o.createdAt < :to
+        ORDER BY o.createdAt DESC, o.id DESC
+    """)
+    List<Object[]> findHistoryKeys(String userId, Collection<OrderStatus> statuses,
+                                   LocalDateTime from, LocalDateTime to, Limit limit);
+
+    // Các trang sau: chỉ lấy đơn đứng sau con trỏ (cursorCreatedAt, cursorId)
+    @Query("""
+        SELECT o.id, o.createdAt FROM Order o
+        WHERE o.user.userId = :userId AND o.status IN :statuses
+          AND o.createdAt >= :from AND o.createdAt < :to
+          AND (o.createdAt < :cursorCreatedAt OR (o.createdAt = :cursorCreatedAt AND o.id < :cursorId))
+        ORDER BY o.createdAt DESC, o.id DESC
+    """)
+    List<Object[]> findHistoryKeysAfter(String userId, Collection<OrderStatus> statuses,
+                                        LocalDateTime from, LocalDateTime to,
+                                        LocalDateTime cursorCreatedAt, String cursorId, Limit limit);
+
+    // Nạp cả trang trong 1 query: items + product, shipment, payment
+    @Query("""
+        SELECT DISTINCT o FROM Order o
+        LEFT JOIN FETCH o.items i
+        LEFT JOIN FETCH i.product
+        LEFT JOIN FETCH o.shipment
+        LEFT JOIN FETCH o.payment
+        WHERE o.id IN :ids
+    """)
+    List<Order> findAllWithDetailsByIdIn(Collection<String> ids);
+
+    // Như trên, kèm khoảng created_at của trang để PostgreSQL chỉ quét các partition tháng liên quan
+    @Query("""
+        SELECT DISTINCT o FROM Order o
+        LEFT JOIN FETCH o.items i
+        LEFT JOIN FETCH i.product
+        LEFT JOIN FETCH o.shipment
+        LEFT JOIN FETCH o.payment
+        WHERE o.id IN :ids AND o.createdAt BETWEEN :from AND :to
+    """)
+    List<Order> findAllWithDetailsByIdInAndCreatedAtBetween(Collection<String> ids, LocalDateTime from,
+                                                            LocalDateTime to);
+
+    // Đơn chưa có bản tóm tắt (dữ liệu cũ trước khi có order_summaries)
+    @Query("""
+        SELECT o.id FROM Order o
+        WHERE NOT EXISTS (SELECT 1 FROM OrderSummary s WHERE s.orderId = o.id)
+        ORDER BY o.id
+    """)
+    List<String> findIdsWithoutSummary(Limit limit);
+
+    // Đơn đã thanh toán chưa được cộng vào daily_sales_rollups (dữ liệu cũ)
+    @Query("""
+        SELECT o.id FROM Order o
+        WHERE o.status IN :statuses
+          AND NOT EXISTS (SELECT 1 FROM SalesRollupLedger l WHERE l.orderId = o.id)
+        ORDER BY o.id
+    """)
+    List<String> findIdsWithoutSalesLedger(Collection<OrderStatus> statuses, Limit limit);
+
+    // [id, createdAt] đơn của 1 shop, chạy trên idx_orders_shop_created
+    @Query("""
+        SELECT o.id, o.createdAt FROM Order o
+        WHERE o.shop = :shop AND o.status IN :statuses
+          AND o.createdAt >= :from AND o.createdAt < :to
+        ORDER BY o.createdAt DESC, o.id DESC
+    """)
+    List<Object[]> findShopOrderKeys(Shop shop, Collection<OrderStatus> statuses,
+                                     LocalDateTime from, LocalDateTime to, Limit limit);
+
+    @Query("""
+        SELECT o.id, o.createdAt FROM Order o
+        WHERE o.shop = :shop AND o.status IN :statuses
+          AND o.createdAt >= :from AND o.createdAt < :to
+          AND (o.createdAt < :cursorCreatedAt OR (o.createdAt = :cursorCreatedAt AND o.id < :cursorId))
+        ORDER BY o.createdAt DESC, o.id DESC
+    """)
+    List<Object[]> findShopOrderKeysAfter(Shop shop, Collection<OrderStatus> statuses,
+                                          LocalDateTime from, LocalDateTime to,
+                                          LocalDateTime cursorCreatedAt, String cursorId, Limit limit);
+
+    // [status, count] đơn của shop trong khoảng thời gian
+    @Query("""
+        SELECT o.status, COUNT(o) FROM Order o
+        WHERE o.shop = :shop AND o.createdAt >= :from AND o.createdAt < :to
+        GROUP BY o.status
+    """)
+    List<Object[]> countByStatusForShop(Shop shop, LocalDateTime from, LocalDateTime to);
+
+    // Compare-and-set trạng thái 1 đơn: không nạp entity, không khóa, trả về 0 nếu đơn không ở trạng thái cho phép.
+    // Xóa persistence context sau khi chạy để không đọc lại bản Order cũ trong cùng transaction
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE Order o SET o.status = :toStatus, o.version = o.version + 1
+        WHERE o.id = :id AND o.status IN :fromStatuses
+    """)
+    int compareAndSetStatus(String id, Collection<OrderStatus> fromStatuses, OrderStatus toStatus);
+
+    // Như trên cho nhiều đơn trong 1 câu UPDATE, gọi sau lockIdsByIdInAndStatusIn nên khớp đúng các đơn đã khóa.
+    // Không xóa persistence context: entity caller đã nạp (vd. PaymentGroup) vẫn được quản lý,
+    // bản Order cũ còn trong context mang version cũ nên nếu bị lưu lại sẽ lỗi optimistic lock thay vì ghi đè
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        UPDATE Order o SET o.status = :toStatus, o.version = o.version + 1
+        WHERE o.id IN :ids AND o.status IN :fromStatuses
+    """)
+    int compareAndSetStatusIn(Collection<String> ids, Collection<OrderStatus> fromStatuses, OrderStatus toStatus);
+
+    // Khóa (FOR UPDATE) các đơn đang ở 1 trong các trạng thái cho tới hết transaction, theo thứ tự id
+    // để 2 transaction khóa cùng tập đơn không deadlock. Transaction khác không đổi trạng thái xen giữa được
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o.id FROM Order o WHERE o.id IN :ids AND o.status IN :statuses ORDER BY o.id")
+    List<String> lockIdsByIdInAndStatusIn(Collection<String> ids, Collection<OrderStatus> statuses);
+
+    // Chuyển trạng thái hàng loạt trong 1 câu UPDATE, chỉ đơn của shop đang ở trạng thái fromStatus
+    @Modifying
+    @Query("""
+        UPDATE Order o SET o.status = :toStatus, o.version = o.version + 1
+        WHERE o.shop = :shop AND o.id IN :ids AND o.status = :fromStatus
+    """)
+    int bulkUpdateStatus(Shop shop, Collection<String> ids, OrderStatus fromStatus, OrderStatus toStatus);
+
+    // Như lockIdsByIdInAndStatusIn, giới hạn trong đơn của shop
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o.id FROM Order o WHERE o.shop = :shop AND o.id IN :ids AND o.status = :status ORDER BY o.id")
+    List<String> lockIdsByShopAndStatus(Shop shop, Collection<String> ids, OrderStatus status);
+
+    // Gán shop cho đơn cũ (tạo trước khi có cột shop_id) theo sản phẩm trong đơn
+    @Modifying
+    @Query(value = """
+        UPDATE orders SET shop_id = (
+            SELECT MIN(p.shop_id) FROM order_items oi JOIN products p ON p.product_id = oi.product_id
+            WHERE oi.order_id = orders.id)
+        WHERE id IN (SELECT o.id FROM orders o WHERE o.shop_id IS NULL
+                     AND EXISTS (SELECT 1 FROM order_items oi JOIN products p ON p.product_id = oi.product_id
+                                 WHERE oi.order_id = o.id AND p.shop_id IS NOT NULL)
+                     LIMIT :batchSize)
+    """, nativeQuery = true)
+    int backfillShopIds(int batchSize);
 }
@@ -0,0 +1,83 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.OrderSummary;
+import com.example.backend.enums.OrderStatus;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OrderSummaryRepository extends JpaRepository<OrderSummary, String> {
+
+    // Danh sách đơn của người mua, keyset theo (createdAt, orderId) giảm dần
+    @Query("""
+        SELECT s FROM OrderSummary s
+        WHERE s.userId = :userId AND s.orderStatus IN :statuses
+        ORDER BY s.createdAt DESC, s.orderId DESC
+    """)
+    List<OrderSummary> findUserPage(String userId, Collection<OrderStatus> statuses, Limit limit);
+
+    @Query("""
+        SELECT s FROM OrderSummary s
+        WHERE s.userId = :userId AND s.orderStatus IN :statuses
+          AND (s.createdAt < :cursorCreatedAt OR (s.createdAt = :cursorCreatedAt AND s.orderId < :cursorId))
+        ORDER BY s.createdAt DESC, s.orderId DESC
+    """)
+    List<OrderSummary> findUserPageAfter(String userId, Collection<OrderStatus> statuses,
+                                         LocalDateTime cursorCreatedAt, String cursorId, Limit limit);
+
+    // Danh sách đơn của 1 shop (người bán)
+    @Query("""
+        SELECT s FROM OrderSummary s
+        WHERE s.shopId = :shopId AND s.orderStatus IN :statuses
+        ORDER BY s.createdAt DESC, s.orderId DESC
+    """)
+    List<OrderSummary> findShopPage(String shopId, Collection<OrderStatus> statuses, Limit limit);
+
+    @Query("""
+        SELECT s FROM OrderSummary s
+        WHERE s.shopId = :shopId AND s.orderStatus IN :statuses
+          AND (s.createdAt < :cursorCreatedAt OR (s.createdAt = :cursorCreatedAt AND s.orderId < :cursorId))
+        ORDER BY s.createdAt DESC, s.orderId DESC
+    """)
+    List<OrderSummary> findShopPageAfter(String shopId, Collection<OrderStatus> statuses,
+                                         LocalDateTime cursorCreatedAt, String cursorId, Limit limit);
+
+    // Đi cùng OrderRepository.bulkUpdateStatus: summary luôn cùng trạng thái với đơn
+    @Modifying
+    @Query("""
+        UPDATE OrderSummary s SET s.orderStatus = :toStatus, s.updatedAt = :now
+        WHERE s.shopId = :shopId AND s.orderId IN :ids AND s.orderStatus = :fromStatus
+    """)
+    int bulkUpdateStatus(String shopId, Collection<String> ids, OrderStatus fromStatus, OrderStatus toStatus,
+                         LocalDateTime now);
+
+    // Đi cùng OrderStateMachine.transitionAll (không giới hạn theo shop)
+    @Modifying
+    @Query("""
+        UPDATE OrderSummary s SET s.orderStatus = :toStatus, s.updatedAt = :now
+        WHERE s.orderId IN :ids
+    """)
+    int bulkUpdateStatusByOrderIds(Collection<String> ids, OrderStatus toStatus, LocalDateTime now);
+
+    @Modifying
+    @Query("""
+        UPDATE OrderSummary s SET s.paymentStatus = :paymentStatus, s.updatedAt = :now
+        WHERE s.orderId IN :ids
+    """)
+    int bulkUpdatePaymentStatus(Collection<String> ids, String paymentStatus, LocalDateTime now);
+
+    @Modifying
+    @Query("""
+        UPDATE OrderSummary s SET s.shipmentStatus = :shipmentStatus
+        WHERE s.shopId = :shopId AND s.orderId IN :ids AND s.orderStatus = :orderStatus
+    """)
+    int bulkUpdateShipmentStatus(String shopId, Collection<String> ids, OrderStatus orderStatus,
+                                 String shipmentStatus);
+}
@@ -0,0 +1,35 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Sự kiện đến hạn gửi, theo thứ tự id. Bỏ qua sự kiện đứng sau 1 sự kiện lỗi (đang chờ gửi lại)
+    // của cùng aggregate để giữ thứ tự. FOR UPDATE: node khác chạy poller sẽ chờ thay vì gửi trùng/lộn thứ tự
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+        SELECT e FROM OutboxEvent e
+        WHERE e.publishedAt IS NULL AND e.nextAttemptAt <= :now
+          AND NOT EXISTS (
+              SELECT 1 FROM OutboxEvent p
+              WHERE p.aggregateType = e.aggregateType AND p.aggregateId = e.aggregateId
+                AND p.publishedAt IS NULL AND p.id < e.id AND p.nextAttemptAt > :now)
+        ORDER BY e.id
+    """)
+    List<OutboxEvent> lockPending(LocalDateTime now, Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.publishedAt < :before")
+    int deletePublishedBefore(LocalDateTime before);
+}
@@ -0,0 +1,72 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.PayOSWebhookEvent;
+import com.example.backend.enums.WebhookEventStatus;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PayOSWebhookEventRepository extends JpaRepository<PayOSWebhookEvent, Long> {
+
+    // INSERT thẳng để webhook trùng orderCode báo lỗi khóa chính (save() sẽ thành merge)
+    @Transactional
+    @Modifying
+    @Query(value = """
+        INSERT INTO payos_webhook_events (order_code, code, payload, status, received_at, next_attempt_at, attempts)
+        VALUES (:orderCode, :code, :payload, 'RECEIVED', :receivedAt, :receivedAt, 0)
+    """, nativeQuery = true)
+    void insertReceived(long orderCode, String code, String payload, LocalDateTime receivedAt);
+
+    // Webhook thành công đến sau webhook thất bại / hủy của cùng orderCode: ghi đè và đưa về RECEIVED,
+    // trả về 0 nếu dòng đã là "00". Worker đang giữ bản cũ sẽ CAS trượt vì code đã đổi
+    @Transactional
+    @Modifying
+    @Query(value = """
+        UPDATE payos_webhook_events
+        SET code = '00', payload = :payload, status = 'RECEIVED', received_at = :receivedAt,
+            next_attempt_at = :receivedAt, processed_at = NULL, attempts = 0, last_error = NULL
+        WHERE order_code = :orderCode AND code <> '00'
+    """, nativeQuery = true)
+    int supersedeWithSuccess(long orderCode, String payload, LocalDateTime receivedAt);
+
+    @Query("""
+        SELECT e.orderCode FROM PayOSWebhookEvent e
+        WHERE e.status = com.example.backend.enums.WebhookEventStatus.RECEIVED AND e.nextAttemptAt <= :now
+        ORDER BY e.nextAttemptAt, e.orderCode
+    """)
+    List<Long> findDueOrderCodes(LocalDateTime now, Limit limit);
+
+    // Compare-and-set trạng thái, trả về 0 nếu worker/node khác đã đổi trước
+    // hoặc webhook đã bị ghi đè bằng code khác (supersedeWithSuccess)
+    @Modifying
+    @Query("""
+        UPDATE PayOSWebhookEvent e SET e.status = :status, e.processedAt = :now
+        WHERE e.orderCode = :orderCode AND e.code = :code AND e.status = :expected
+    """)
+    int compareAndSetStatus(long orderCode, String code, WebhookEventStatus expected, WebhookEventStatus status,
+                            LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE PayOSWebhookEvent e
+        SET e.attempts = e.attempts + 1, e.nextAttemptAt = :nextAttemptAt, e.lastError = :error, e.status = :status
+        WHERE e.orderCode = :orderCode AND e.status = com.example.backend.enums.WebhookEventStatus.RECEIVED
+    """)
+    int recordFailure(long orderCode, LocalDateTime nextAttemptAt, String error, WebhookEventStatus status);
+
+    @Transactional
+    @Modifying
+    @Query("""
+        DELETE FROM PayOSWebhookEvent e
+        WHERE e.status <> com.example.backend.enums.WebhookEventStatus.RECEIVED AND e.receivedAt < :before
+    """)
+    int deleteFinishedBefore(LocalDateTime before);
+}
@@ -0,0 +1,47 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.PaymentGroup;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PaymentGroupRepository extends JpaRepository<PaymentGroup, String> {
+
+    // Nhóm PENDING cùng tập đơn, link còn hạn sau mốc validAfter, mới nhất trước
+    @Query("""
+            SELECT g FROM PaymentGroup g
+            WHERE g.membersHash = :membersHash AND g.status = 'PENDING'
+              AND g.checkoutUrl IS NOT NULL AND g.linkExpiresAt > :validAfter
+            ORDER BY g.linkExpiresAt DESC
+            """)
+    List<PaymentGroup> findReusable(String membersHash, LocalDateTime validAfter, Limit limit);
+
+    // PENDING -> SUCCESS, trả về 0 nếu nhóm đã được đánh dấu (webhook gửi lại)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE PaymentGroup g SET g.status = 'SUCCESS', g.paidAt = :paidAt
+            WHERE g.id = :id AND g.status = 'PENDING'
+            """)
+    int markPaid(String id, LocalDateTime paidAt);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE PaymentGroup g SET g.status = 'SUCCESS', g.paidAt = :paidAt
+            WHERE g.id IN :ids AND g.status = 'PENDING'
+            """)
+    int markPaidByIdIn(Collection<String> ids, LocalDateTime paidAt);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE PaymentGroup g SET g.status = :status
+            WHERE g.id IN :ids AND g.status = 'PENDING'
+            """)
+    int closePendingByIdIn(Collection<String> ids, String status);
+}
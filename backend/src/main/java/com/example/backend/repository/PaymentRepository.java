@@ -1,9 +1,15 @@
 package com.example.backend.repository;
 
 import com.example.backend.entity.Payment;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -13,4 +19,72 @@ public interface PaymentRepository extends JpaRepository<Payment, String> {
 
     // Tìm payment theo mã giao dịch ngân hàng (để đối soát IPN)
     Optional<Payment> findByTransactionId(String transactionId);
-}
\ No newline at end of file
+
+    // Có created_at (khóa partition) nên chỉ đọc 1 partition
+    Optional<Payment> findByIdAndCreatedAt(String id, LocalDateTime createdAt);
+
+    // Link PayOS PENDING còn hạn sau mốc validAfter, mới nhất trước
+    @Query("""
+            SELECT p FROM Payment p
+            WHERE p.order.id = :orderId AND p.paymentMethod = 'PAYOS' AND p.paymentStatus = 'PENDING'
+              AND p.checkoutUrl IS NOT NULL AND p.linkExpiresAt > :validAfter
+            ORDER BY p.linkExpiresAt DESC
+            """)
+    List<Payment> findReusablePayOSLinks(String orderId, LocalDateTime validAfter, Limit limit);
+
+    // Payment PayOS còn PENDING của các đơn (link riêng hoặc nhóm cũ), trước khi gộp đơn vào nhóm mới
+    @Query("""
+            SELECT p FROM Payment p
+            WHERE p.order.id IN :orderIds AND p.paymentMethod = 'PAYOS' AND p.paymentStatus = 'PENDING'
+            """)
+    List<Payment> findPendingPayOSByOrderIdIn(Collection<String> orderIds);
+
+    // Đánh dấu payment của mọi đơn trong nhóm đã trả tiền, 1 câu UPDATE
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE Payment p SET p.paymentStatus = 'SUCCESS', p.paymentDate = :paidAt
+            WHERE p.paymentGroupId = :groupId AND p.paymentStatus <> 'SUCCESS'
+            """)
+    int markGroupPaid(String groupId, LocalDateTime paidAt);
+
+    // Đối soát: [id, createdAt, transactionId, orderId, paymentGroupId] của payment PayOS còn PENDING
+    // tạo trước staleBefore, keyset theo (createdAt, id) bắt đầu từ con trỏ (afterCreatedAt, afterId)
+    @Query("""
+            SELECT p.id, p.createdAt, p.transactionId, p.order.id, p.paymentGroupId FROM Payment p
+            WHERE p.paymentMethod = 'PAYOS' AND p.paymentStatus = 'PENDING'
+              AND p.createdAt >= :from AND p.createdAt < :staleBefore
+              AND (p.createdAt > :afterCreatedAt OR (p.createdAt = :afterCreatedAt AND p.id > :afterId))
+            ORDER BY p.createdAt, p.id
+            """)
+    List<Object[]> findStalePendingPayOS(LocalDateTime from, LocalDateTime staleBefore,
+                                         LocalDateTime afterCreatedAt, String afterId, Limit limit);
+
+    // Các UPDATE theo tập của đối soát; createdAt >= from để chỉ đụng các partition gần đây
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE Payment p SET p.paymentStatus = 'SUCCESS', p.paymentDate = :paidAt
+            WHERE p.id IN :ids AND p.createdAt >= :from AND p.paymentStatus = 'PENDING'
+            """)
+    int markPaidByIdIn(Collection<String> ids, LocalDateTime from, LocalDateTime paidAt);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE Payment p SET p.paymentStatus = 'SUCCESS', p.paymentDate = :paidAt
+            WHERE p.paymentGroupId IN :groupIds AND p.createdAt >= :from AND p.paymentStatus = 'PENDING'
+            """)
+    int markPaidByGroupIdIn(Collection<String> groupIds, LocalDateTime from, LocalDateTime paidAt);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE Payment p SET p.paymentStatus = :status
+            WHERE p.id IN :ids AND p.createdAt >= :from AND p.paymentStatus = 'PENDING'
+            """)
+    int closePendingByIdIn(Collection<String> ids, LocalDateTime from, String status);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE Payment p SET p.paymentStatus = :status
+            WHERE p.paymentGroupId IN :groupIds AND p.createdAt >= :from AND p.paymentStatus = 'PENDING'
+            """)
+    int closePendingByGroupIdIn(Collection<String> groupIds, LocalDateTime from, String status);
+}
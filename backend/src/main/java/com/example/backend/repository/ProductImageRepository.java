@@ -2,6 +2,18 @@ package com.example.backend.repository;
 
 import com.example.backend.entity.ProductImage;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface ProductImageRepository extends JpaRepository<ProductImage, String> {
+
+    // [productId, imageUrl] - 1 ảnh đại diện cho mỗi sản phẩm
+    @Query("""
+        SELECT i.product.productId, MIN(i.imageUrl) FROM ProductImage i
+        WHERE i.product.productId IN :productIds
+        GROUP BY i.product.productId
+    """)
+    List<Object[]> findThumbnailUrls(Collection<String> productIds);
 }
@@ -3,8 +3,10 @@ package com.example.backend.repository;
 import com.example.backend.entity.Product;
 import com.example.backend.entity.Shop;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,4 +18,8 @@ public interface ProductRepository extends JpaRepository<Product, String> {
     Optional<Product> findById(String id);
     List<Product> findAllByShopAndBrand(Shop shop, String brand);
     List<Product> findByNameContainingIgnoreCase(String keyword);
+
+    // [productId, categoryId] của các sản phẩm
+    @Query("SELECT p.productId, c.categoryId FROM Product p JOIN p.categories c WHERE p.productId IN :productIds")
+    List<Object[]> findCategoryIds(Collection<String> productIds);
 }
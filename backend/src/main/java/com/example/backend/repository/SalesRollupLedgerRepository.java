@@ -0,0 +1,22 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.SalesRollupLedger;
+import com.example.backend.enums.SalesLedgerState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface SalesRollupLedgerRepository extends JpaRepository<SalesRollupLedger, String> {
+
+    // Compare-and-set: chỉ 1 lần hủy được trừ doanh số
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE SalesRollupLedger l SET l.state = :to, l.updatedAt = :now
+        WHERE l.orderId = :orderId AND l.state = :from
+    """)
+    int compareAndSetState(String orderId, SalesLedgerState from, SalesLedgerState to, LocalDateTime now);
+}
@@ -1,13 +1,30 @@
 package com.example.backend.repository;
 
 import com.example.backend.entity.Shipment;
+import com.example.backend.entity.Shop;
+import com.example.backend.enums.OrderStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Optional;
 
 @Repository
 public interface ShipmentRepository extends JpaRepository<Shipment, String> {
     // Tìm shipment theo Order ID
     Optional<Shipment> findByOrder_Id(String orderId);
-}
\ No newline at end of file
+
+    @Modifying
+    @Query("UPDATE Shipment s SET s.status = :status WHERE s.order.id = :orderId")
+    int updateStatusByOrderId(String orderId, String status);
+
+    // Đổi trạng thái shipment của các đơn (thuộc shop) đang ở orderStatus
+    @Modifying
+    @Query("""
+        UPDATE Shipment s SET s.status = :status
+        WHERE s.order IN (SELECT o FROM Order o WHERE o.shop = :shop AND o.id IN :orderIds AND o.status = :orderStatus)
+    """)
+    int bulkUpdateStatus(Shop shop, Collection<String> orderIds, OrderStatus orderStatus, String status);
+}
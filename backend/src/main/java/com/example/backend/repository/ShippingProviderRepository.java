@@ -4,6 +4,7 @@ import com.example.backend.entity.ShippingProvider;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,5 +12,5 @@ public interface ShippingProviderRepository extends JpaRepository<ShippingProvid
     // Tìm provider theo tên
     Optional<ShippingProvider> findByName(String name);
 
-    // List<ShippingProvider> findByIsActiveTrue();
+    List<ShippingProvider> findByIsActiveTrue();
 }
\ No newline at end of file
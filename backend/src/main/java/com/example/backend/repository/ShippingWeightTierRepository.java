@@ -0,0 +1,12 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.ShippingWeightTier;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ShippingWeightTierRepository extends JpaRepository<ShippingWeightTier, String> {
+    List<ShippingWeightTier> findAllByVersionOrderByZoneAscMaxWeightGramAsc(int version);
+}
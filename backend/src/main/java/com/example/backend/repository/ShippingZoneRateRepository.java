@@ -0,0 +1,17 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.ShippingZoneRate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ShippingZoneRateRepository extends JpaRepository<ShippingZoneRate, String> {
+    // Version mới nhất của ma trận vùng (null nếu bảng trống)
+    @Query("SELECT MAX(r.version) FROM ShippingZoneRate r")
+    Integer findLatestVersion();
+
+    List<ShippingZoneRate> findAllByVersion(int version);
+}
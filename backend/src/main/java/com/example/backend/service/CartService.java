@@ -12,6 +12,7 @@ import com.example.backend.mapper.CartMapper;
 import com.example.backend.repository.CartRepository;
 import com.example.backend.repository.ProductRepository;
 import com.example.backend.repository.UserRepository;
+import com.example.backend.util.OptimisticLockRetry;
 import com.example.backend.util.SecurityUtil;
 import jakarta.transaction.Transactional;
 import lombok.AccessLevel;
@@ -29,9 +30,13 @@ public class CartService {
     ProductRepository productRepository;
 
     CartMapper cartMapper;
+    OptimisticLockRetry optimisticLockRetry;
 
-    @Transactional
     public CartResponse addToCart(CartRequest request, String userId) {
+        return optimisticLockRetry.execute(() -> doAddToCart(request, userId));
+    }
+
+    private CartResponse doAddToCart(CartRequest request, String userId) {
         User user = authorizeCartAccess(userId);
 
         if (request.getQuantity() <= 0) {
@@ -50,6 +55,8 @@ public class CartService {
                     .build();
             user.setCart(cart);
             cart = cartRepository.save(cart); // Lưu Cart cha trước để có ID
+        } else {
+            lockCart(cart);
         }
 
         CartItem existingItem = cart.getItems()
@@ -76,14 +83,18 @@ public class CartService {
         return cartMapper.toCartResponse(cart);
     }
 
-    @Transactional
     public CartResponse removeFromCart(String userId, String productId) {
+        return optimisticLockRetry.execute(() -> doRemoveFromCart(userId, productId));
+    }
+
+    private CartResponse doRemoveFromCart(String userId, String productId) {
         User user = authorizeCartAccess(userId);
 
         Cart cart = user.getCart();
         if (cart == null || cart.getItems().isEmpty()) {
             throw new AppException(ErrorCode.CART_EMPTY);
         }
+        lockCart(cart);
 
         CartItem removeItem = cart.getItems()
                 .stream()
@@ -101,14 +112,18 @@ public class CartService {
         return cartMapper.toCartResponse(cart);
     }
 
-    @Transactional
     public CartResponse clearCart(String userId) {
+        return optimisticLockRetry.execute(() -> doClearCart(userId));
+    }
+
+    private CartResponse doClearCart(String userId) {
         User user = authorizeCartAccess(userId);
 
         Cart cart = user.getCart();
         if (cart == null) {
             throw new AppException(ErrorCode.CART_EMPTY);
         }
+        lockCart(cart);
         cart.getItems().clear();
         cart.setTotalAmount(0);
         cartRepository.save(cart);
@@ -133,6 +148,11 @@ public class CartService {
     }
 
 
+    // Tăng version của cart khi commit để 2 request sửa cùng cart không ghi đè nhau
+    private void lockCart(Cart cart) {
+        cartRepository.lockById(cart.getId());
+    }
+
     private double calculateTotalAmount(Cart cart) {
         return cart.getItems().stream()
                 .mapToDouble(item -> item.getProduct().getPrice() * item.getQuantity())
@@ -0,0 +1,122 @@
+package com.example.backend.service;
+
+import com.example.backend.exception.AppException;
+import com.example.backend.exception.ErrorCode;
+import com.nimbusds.jose.*;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.text.ParseException;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Ký và kiểm tra quote token của checkout.
+ * <p>
+ * Token chứa người mua, từng sản phẩm (số lượng, giá lúc báo) và phí ship từng shop,
+ * nên bước tạo đơn không phải gọi lại API vận chuyển.
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class CheckoutQuoteTokenService {
+
+    public record QuotedLine(String productId, int quantity, double price) {
+    }
+
+    public record CheckoutQuote(String username, List<QuotedLine> lines, Map<String, Double> shippingFees,
+                                Instant expiresAt) {
+    }
+
+    @Value("${checkout.quote.signer-key:${jwt.signerKey}}")
+    @NonFinal
+    String signerKey;
+
+    @Value("${checkout.quote.ttl-seconds:300}")
+    @NonFinal
+    long ttlSeconds;
+
+    public Instant expiryFromNow() {
+        return Instant.now().plusSeconds(ttlSeconds);
+    }
+
+    public String sign(CheckoutQuote quote) {
+        List<Map<String, Object>> lines = new ArrayList<>();
+        for (QuotedLine line : quote.lines()) {
+            Map<String, Object> claim = new LinkedHashMap<>();
+            claim.put("productId", line.productId());
+            claim.put("quantity", line.quantity());
+            claim.put("price", line.price());
+            lines.add(claim);
+        }
+
+        JWTClaimsSet claimsSet = new JWTClaimsSet.Builder()
+                .subject(quote.username())
+                .issueTime(new Date())
+                .expirationTime(Date.from(quote.expiresAt()))
+                .jwtID(UUID.randomUUID().toString())
+                .claim("lines", lines)
+                .claim("fees", new LinkedHashMap<String, Object>(quote.shippingFees()))
+                .build();
+
+        JWSObject jwsObject = new JWSObject(new JWSHeader(JWSAlgorithm.HS512), new Payload(claimsSet.toJSONObject()));
+        try {
+            jwsObject.sign(new MACSigner(signerKey.getBytes()));
+            return jwsObject.serialize();
+        } catch (JOSEException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Kiểm tra chữ ký, hạn dùng và người mua của token.
+     */
+    @SuppressWarnings("unchecked")
+    public CheckoutQuote verify(String token, String username) {
+        JWTClaimsSet claims;
+        try {
+            SignedJWT signedJWT = SignedJWT.parse(token);
+            if (!signedJWT.verify(new MACVerifier(signerKey.getBytes()))) {
+                throw new AppException(ErrorCode.QUOTE_INVALID);
+            }
+            claims = signedJWT.getJWTClaimsSet();
+        } catch (ParseException | JOSEException e) {
+            log.warn("Rejected checkout quote token: {}", e.getMessage());
+            throw new AppException(ErrorCode.QUOTE_INVALID);
+        }
+
+        if (!Objects.equals(claims.getSubject(), username)) {
+            throw new AppException(ErrorCode.QUOTE_INVALID);
+        }
+        Date expiresAt = claims.getExpirationTime();
+        if (expiresAt == null || !expiresAt.after(new Date())) {
+            throw new AppException(ErrorCode.QUOTE_EXPIRED);
+        }
+
+        try {
+            List<QuotedLine> lines = new ArrayList<>();
+            for (Object item : (List<Object>) claims.getClaim("lines")) {
+                Map<String, Object> line = (Map<String, Object>) item;
+                lines.add(new QuotedLine(
+                        (String) line.get("productId"),
+                        ((Number) line.get("quantity")).intValue(),
+                        ((Number) line.get("price")).doubleValue()
+                ));
+            }
+            Map<String, Double> fees = new LinkedHashMap<>();
+            ((Map<String, Object>) claims.getClaim("fees"))
+                    .forEach((shopId, fee) -> fees.put(shopId, ((Number) fee).doubleValue()));
+            return new CheckoutQuote(claims.getSubject(), lines, fees, expiresAt.toInstant());
+        } catch (ClassCastException | NullPointerException e) {
+            throw new AppException(ErrorCode.QUOTE_INVALID);
+        }
+    }
+}
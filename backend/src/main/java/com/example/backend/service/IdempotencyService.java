@@ -0,0 +1,70 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.IdempotencyRecord;
+import com.example.backend.repository.IdempotencyRecordRepository;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Lưu kết quả của request có Idempotency-Key, tra theo khóa chính nên replay chỉ tốn 1 lần đọc.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class IdempotencyService {
+
+    IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Value("${idempotency.ttl-hours:24}")
+    @NonFinal
+    long ttlHours;
+
+    /**
+     * Bản ghi còn hạn của key, đã xong hoặc đang chạy.
+     */
+    public Optional<IdempotencyRecord> find(String id) {
+        return idempotencyRecordRepository.findById(id)
+                .filter(record -> record.getExpiresAt().isAfter(LocalDateTime.now()));
+    }
+
+    /**
+     * Giữ chỗ cho key trước khi chạy request. false nếu request khác đã giữ (ở node này hoặc node khác).
+     */
+    public boolean claim(String id, String requestHash) {
+        LocalDateTime now = LocalDateTime.now();
+        idempotencyRecordRepository.deleteIfExpired(id, now);
+        try {
+            idempotencyRecordRepository.insertClaim(id, requestHash, now, now.plusHours(ttlHours));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    public void complete(String id, int status, String contentType, byte[] body) {
+        idempotencyRecordRepository.complete(id, status, contentType, body);
+    }
+
+    public void release(String id) {
+        idempotencyRecordRepository.deleteClaim(id);
+    }
+
+    @Scheduled(cron = "0 */15 * * * *") // mỗi 15 phút
+    public void cleanupExpired() {
+        int deleted = idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("Cleaned {} expired idempotency records", deleted);
+        }
+    }
+}
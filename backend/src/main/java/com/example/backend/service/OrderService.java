@@ -1,27 +1,44 @@
 package com.example.backend.service;
 
+import com.example.backend.dto.request.BuyNowRequest;
 import com.example.backend.dto.request.OrderSelectedItemsRequest;
 import com.example.backend.dto.request.ShippingFeeRequest;
+import com.example.backend.dto.response.CheckoutQuoteResponse;
+import com.example.backend.dto.response.OrderHistoryResponse;
 import com.example.backend.dto.response.OrderResponse;
 import com.example.backend.dto.response.ShippingFeeResponse;
+import com.example.backend.dto.response.ShopQuoteResponse;
 import com.example.backend.entity.*;
 import com.example.backend.enums.OrderStatus;
+import com.example.backend.event.OrderCreatedEvent;
 import com.example.backend.exception.AppException;
 import com.example.backend.exception.ErrorCode;
 import com.example.backend.mapper.OrderMapper;
 import com.example.backend.repository.*;
+import com.example.backend.service.CheckoutQuoteTokenService.CheckoutQuote;
+import com.example.backend.service.CheckoutQuoteTokenService.QuotedLine;
+import com.example.backend.service.outbox.OutboxService;
+import com.example.backend.util.KeysetCursor;
+import com.example.backend.util.OptimisticLockRetry;
 import com.example.backend.util.SecurityUtil;
-import jakarta.transaction.Transactional;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -32,116 +49,235 @@ public class OrderService {
 
     UserRepository userRepository;
     CartRepository cartRepository;
+    ProductRepository productRepository;
     OrderRepository orderRepository;
     OrderItemRepository orderItemRepository;
     AddressBookRepository addressBookRepository;
     ShipmentRepository shipmentRepository;
     PaymentRepository paymentRepository;
     ShippingService shippingService;
+    OrderSummaryService orderSummaryService;
+    OrderStateMachine orderStateMachine;
+    OutboxService outboxService;
+    CheckoutQuoteTokenService quoteTokenService;
+    TransactionTemplate transactionTemplate;
+    OptimisticLockRetry optimisticLockRetry;
     OrderMapper orderMapper;
 
+    static final double DEFAULT_SHIPPING_FEE = 30000;
+    static final int DEFAULT_ESTIMATED_DAYS = 3;
+    static final int MAX_HISTORY_PAGE_SIZE = 100;
+    // Khoảng thời gian mặc định khi không lọc theo ngày
+    static final LocalDateTime HISTORY_MIN_DATE = LocalDateTime.of(2000, 1, 1, 0, 0);
+    static final LocalDateTime HISTORY_MAX_DATE = LocalDateTime.of(9999, 12, 31, 0, 0);
+
     /**
-     * Checkout từ giỏ hàng - Tách đơn theo Shop + Tính Ship
+     * Báo giá checkout: tiền hàng + phí ship từng shop, chưa tạo đơn.
+     * Chỉ đọc giỏ hàng trong transaction ngắn, gọi API vận chuyển ở ngoài transaction.
+     */
+    public CheckoutQuoteResponse quoteSelectedItems(OrderSelectedItemsRequest request) {
+        CheckoutSnapshot snapshot = readCheckoutSnapshot(request.getProductIds());
+        Map<String, ShippingFeeResponse> feeResponses = shippingService.calculateShippingFees(snapshot.feeRequests());
+        CheckoutQuote quote = toQuote(snapshot, feeResponses, quoteTokenService.expiryFromNow());
+
+        // Tổng tiền theo từng shop
+        Map<String, ShopQuoteResponse> shops = new LinkedHashMap<>();
+        for (CheckoutLine line : snapshot.lines()) {
+            ShopQuoteResponse shop = shops.computeIfAbsent(line.shopId(), shopId -> {
+                ShippingFeeResponse fee = feeResponses.get(shopId);
+                return ShopQuoteResponse.builder()
+                        .shopId(shopId)
+                        .shopName(line.shopName())
+                        .shippingFee(quote.shippingFees().get(shopId))
+                        .estimatedDays(fee != null ? fee.getEstimatedDays() : DEFAULT_ESTIMATED_DAYS)
+                        .shippingProvider(fee != null ? fee.getProvider() : null)
+                        .build();
+            });
+            shop.setItemTotal(shop.getItemTotal() + line.price() * line.quantity());
+        }
+
+        double itemTotal = shops.values().stream().mapToDouble(ShopQuoteResponse::getItemTotal).sum();
+        double shippingTotal = shops.values().stream().mapToDouble(ShopQuoteResponse::getShippingFee).sum();
+        return CheckoutQuoteResponse.builder()
+                .quoteToken(quoteTokenService.sign(quote))
+                .expiresAt(quote.expiresAt())
+                .itemTotal(itemTotal)
+                .shippingTotal(shippingTotal)
+                .totalAmount(itemTotal + shippingTotal)
+                .shops(new ArrayList<>(shops.values()))
+                .build();
+    }
+
+    /**
+     * Checkout từ giỏ hàng - Tách đơn theo Shop.
+     * Có quoteToken thì dùng đúng phí ship đã báo, không có thì báo giá trước (ngoài transaction).
+     * Chỉ bước ghi order/item/shipment chạy trong transaction.
      */
-    @Transactional
     public List<OrderResponse> checkoutSelectedItems(OrderSelectedItemsRequest request) {
-        User user = userRepository.findByUsername(
-                SecurityUtil.getCurrentUsername()
-        ).orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXIST));
+        CheckoutQuote quote;
+        if (request.getQuoteToken() != null) {
+            quote = quoteTokenService.verify(request.getQuoteToken(), SecurityUtil.getCurrentUsername());
+            if (request.getProductIds() != null && !Set.copyOf(request.getProductIds()).equals(
+                    quote.lines().stream().map(QuotedLine::productId).collect(Collectors.toSet()))) {
+                throw new AppException(ErrorCode.QUOTE_INVALID);
+            }
+        } else {
+            CheckoutSnapshot snapshot = readCheckoutSnapshot(request.getProductIds());
+            quote = toQuote(snapshot, shippingService.calculateShippingFees(snapshot.feeRequests()), null);
+        }
+
+        // Xung đột version của cart (2 tab checkout cùng lúc) thì chạy lại, lần sau sẽ thấy cart đã đổi
+        return optimisticLockRetry.execute(() -> placeOrders(quote));
+    }
+
+    // Dữ liệu giỏ hàng đã đọc xong, dùng ngoài transaction
+    private record CheckoutLine(String productId, String shopId, String shopName, int quantity, double price) {
+    }
+
+    private record CheckoutSnapshot(String username, List<CheckoutLine> lines,
+                                    Map<String, ShippingFeeRequest> feeRequests) {
+    }
+
+    private CheckoutSnapshot readCheckoutSnapshot(List<String> productIds) {
+        String username = SecurityUtil.getCurrentUsername();
+        return readOnlyTransaction().execute(status -> {
+            User user = userRepository.findByUsername(username)
+                    .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXIST));
+
+            AddressBook userAddress = user.getAddress();
+            if (userAddress == null) {
+                throw new AppException(ErrorCode.ADDRESS_NOT_FOUND);
+            }
+
+            Cart cart = user.getCart();
+            if (cart == null || cart.getItems().isEmpty()) {
+                throw new AppException(ErrorCode.CART_EMPTY);
+            }
+
+            List<CartItem> selectedItems = cart.getItems().stream()
+                    .filter(item -> productIds.contains(item.getProduct().getProductId()))
+                    .toList();
+
+            if (selectedItems.isEmpty()) {
+                throw new AppException(ErrorCode.CART_ITEM_NOT_EXIST);
+            }
 
-        AddressBook userAddress = user.getAddress();
-        if (userAddress == null) {
-            throw new AppException(ErrorCode.ADDRESS_NOT_FOUND);
+            // Nhóm theo Shop
+            Map<String, List<CartItem>> itemsByShop = selectedItems.stream()
+                    .collect(Collectors.groupingBy(item -> item.getProduct().getShop().getShopId(),
+                            LinkedHashMap::new, Collectors.toList()));
+
+            // Gom yêu cầu tính phí ship của từng shop để gọi song song
+            Map<String, ShippingFeeRequest> feeRequests = new LinkedHashMap<>();
+            List<CheckoutLine> lines = new ArrayList<>();
+            for (Map.Entry<String, List<CartItem>> entry : itemsByShop.entrySet()) {
+                Shop shop = entry.getValue().get(0).getProduct().getShop();
+                double weight = entry.getValue().stream()
+                        .mapToDouble(i -> i.getProduct().getWeight() * i.getQuantity())
+                        .sum();
+                ShippingFeeRequest feeRequest = buildShippingFeeRequest(shop, userAddress, weight);
+                if (feeRequest != null) {
+                    feeRequests.put(entry.getKey(), feeRequest);
+                }
+                for (CartItem item : entry.getValue()) {
+                    lines.add(new CheckoutLine(item.getProduct().getProductId(), entry.getKey(), shop.getName(),
+                            item.getQuantity(), item.getProduct().getPrice()));
+                }
+            }
+            return new CheckoutSnapshot(username, lines, feeRequests);
+        });
+    }
+
+    private CheckoutQuote toQuote(CheckoutSnapshot snapshot, Map<String, ShippingFeeResponse> feeResponses,
+                                  Instant expiresAt) {
+        List<QuotedLine> lines = new ArrayList<>();
+        Map<String, Double> shippingFees = new LinkedHashMap<>();
+        for (CheckoutLine line : snapshot.lines()) {
+            lines.add(new QuotedLine(line.productId(), line.quantity(), line.price()));
+            ShippingFeeResponse fee = feeResponses.get(line.shopId());
+            shippingFees.putIfAbsent(line.shopId(), fee != null ? fee.getFee() : DEFAULT_SHIPPING_FEE);
         }
+        return new CheckoutQuote(snapshot.username(), lines, shippingFees, expiresAt);
+    }
+
+    /**
+     * Ghi đơn theo báo giá. Giỏ hàng hoặc giá đã đổi so với lúc báo giá thì báo lỗi để client báo giá lại.
+     */
+    private List<OrderResponse> placeOrders(CheckoutQuote quote) {
+        User user = userRepository.findByUsername(quote.username())
+                .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXIST));
 
         Cart cart = user.getCart();
         if (cart == null || cart.getItems().isEmpty()) {
             throw new AppException(ErrorCode.CART_EMPTY);
         }
+        cartRepository.lockById(cart.getId());
 
-        List<CartItem> selectedItems = cart.getItems().stream()
-                .filter(item ->
-                        request.getProductIds()
-                                .contains(item.getProduct().getProductId())
-                )
-                .toList();
+        Map<String, CartItem> cartItems = cart.getItems().stream()
+                .collect(Collectors.toMap(item -> item.getProduct().getProductId(), item -> item, (a, b) -> a));
 
-        if (selectedItems.isEmpty()) {
-            throw new AppException(ErrorCode.CART_ITEM_NOT_EXIST);
+        List<CartItem> selectedItems = new ArrayList<>();
+        for (QuotedLine line : quote.lines()) {
+            CartItem item = cartItems.get(line.productId());
+            if (item == null
+                    || item.getQuantity() != line.quantity()
+                    || Double.compare(item.getProduct().getPrice(), line.price()) != 0) {
+                throw new AppException(ErrorCode.QUOTE_OUTDATED);
+            }
+            selectedItems.add(item);
         }
 
         // Nhóm theo Shop
         Map<String, List<CartItem>> itemsByShop = selectedItems.stream()
-                .collect(Collectors.groupingBy(item -> item.getProduct().getShop().getShopId()));
+                .collect(Collectors.groupingBy(item -> item.getProduct().getShop().getShopId(),
+                        LinkedHashMap::new, Collectors.toList()));
 
-        List<Order> savedOrders = new ArrayList<>();
+        List<Order> orders = new ArrayList<>();
 
         for (Map.Entry<String, List<CartItem>> entry : itemsByShop.entrySet()) {
             List<CartItem> shopItems = entry.getValue();
-            Shop shop = shopItems.get(0).getProduct().getShop();
-            AddressBook shopAddress = shop.getAddress();
 
             // Tính tiền hàng
             double itemTotal = shopItems.stream()
                     .mapToDouble(i -> i.getProduct().getPrice() * i.getQuantity())
                     .sum();
 
-            // Tính cân nặng
-            int totalWeight = (int) shopItems.stream()
-                    .mapToDouble(i -> i.getProduct().getWeight() * i.getQuantity())
-                    .sum();
-            if (totalWeight == 0) totalWeight = 200;
-
-            // Tính phí ship qua API
-            double shippingFee = 30000; // Mặc định
-            if (shopAddress != null && shopAddress.getWard() != null && userAddress.getWard() != null) {
-                try {
-                    ShippingFeeRequest feeRequest = new ShippingFeeRequest();
-                    feeRequest.setFromDistrictCode(shopAddress.getWard().getDistrict().getCode());
-                    feeRequest.setToDistrictCode(userAddress.getWard().getDistrict().getCode());
-                    feeRequest.setToWardCode(userAddress.getWard().getCode());
-                    feeRequest.setWeightGram(totalWeight);
-
-                    ShippingFeeResponse feeResponse = shippingService.calculateShippingFee(feeRequest);
-                    shippingFee = feeResponse.getFee();
-                } catch (Exception e) {
-                    log.error("Failed to calculate shipping fee: {}", e.getMessage());
-                }
-            }
+            double shippingFee = quote.shippingFees().getOrDefault(entry.getKey(), DEFAULT_SHIPPING_FEE);
 
-            // Tạo Order
+            // Tạo Order, items + shipment được cascade theo order
             Order order = Order.builder()
                     .user(user)
+                    .shop(shopItems.get(0).getProduct().getShop())
                     .status(OrderStatus.PENDING)
                     .createdAt(LocalDateTime.now())
                     .totalAmount(itemTotal + shippingFee)
                     .build();
-            Order savedOrder = orderRepository.save(order);
 
-            // Tạo Order Items
-            List<OrderItem> orderItems = shopItems.stream().map(cartItem ->
+            order.setItems(new ArrayList<>(shopItems.stream().map(cartItem ->
                     OrderItem.builder()
-                            .order(savedOrder)
+                            .order(order)
                             .product(cartItem.getProduct())
                             .quantity(cartItem.getQuantity())
                             .priceAtPurchase(cartItem.getProduct().getPrice())
                             .build()
-            ).toList();
-            orderItemRepository.saveAll(orderItems);
-            savedOrder.setItems(orderItems);
+            ).toList()));
 
-            // Tạo Shipment
-            Shipment shipment = Shipment.builder()
-                    .order(savedOrder)
+            order.setShipment(Shipment.builder()
+                    .order(order)
                     .shippingFee(shippingFee)
                     .status("PREPARING")
-                    .estimatedDeliveryDate(java.time.LocalDate.now().plusDays(3))
-                    .build();
-            shipmentRepository.save(shipment);
+                    .estimatedDeliveryDate(java.time.LocalDate.now().plusDays(DEFAULT_ESTIMATED_DAYS))
+                    .build());
 
-            savedOrders.add(savedOrder);
+            orders.add(order);
         }
 
+        // UUID sinh ở app nên insert được dồn tới lúc flush và gửi theo batch
+        // (hibernate.jdbc.batch_size + order_inserts): orders -> order_items -> shipments
+        List<Order> savedOrders = orderRepository.saveAll(orders);
+        orderSummaryService.onOrdersCreated(savedOrders);
+        savedOrders.forEach(this::appendOrderCreated);
+
         // Xóa items đã checkout khỏi giỏ
         cart.getItems().removeAll(selectedItems);
         double remainingTotal = cart.getItems().stream()
@@ -153,6 +289,108 @@ public class OrderService {
         return savedOrders.stream().map(orderMapper::toOrderResponse).toList();
     }
 
+    /**
+     * Tạo request tính phí ship cho 1 shop, null nếu shop hoặc người mua chưa có địa chỉ
+     */
+    private ShippingFeeRequest buildShippingFeeRequest(Shop shop, AddressBook userAddress, double weight) {
+        AddressBook shopAddress = shop.getAddress();
+        if (shopAddress == null || shopAddress.getWard() == null || userAddress.getWard() == null) {
+            return null;
+        }
+
+        int totalWeight = (int) weight;
+        if (totalWeight == 0) totalWeight = 200;
+
+        ShippingFeeRequest feeRequest = new ShippingFeeRequest();
+        feeRequest.setFromDistrictCode(shopAddress.getWard().getDistrict().getCode());
+        feeRequest.setToDistrictCode(userAddress.getWard().getDistrict().getCode());
+        feeRequest.setToWardCode(userAddress.getWard().getCode());
+        feeRequest.setWeightGram(totalWeight);
+        return feeRequest;
+    }
+
+    /**
+     * Mua ngay 1 sản phẩm, không qua giỏ hàng.
+     * Đọc sản phẩm + địa chỉ và tính phí ship ở ngoài transaction,
+     * sau đó ghi order + item + shipment trong 1 transaction ngắn, không đụng tới carts/cart_items.
+     */
+    public OrderResponse buyNow(BuyNowRequest request) {
+        if (request.getProductId() == null || request.getQuantity() <= 0) {
+            throw new AppException(ErrorCode.INVALID_VALUE);
+        }
+
+        String username = SecurityUtil.getCurrentUsername();
+        BuyNowSnapshot snapshot = readOnlyTransaction().execute(status -> {
+            User user = userRepository.findByUsername(username)
+                    .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXIST));
+            AddressBook userAddress = user.getAddress();
+            if (userAddress == null) {
+                throw new AppException(ErrorCode.ADDRESS_NOT_FOUND);
+            }
+            Product product = productRepository.findById(request.getProductId())
+                    .orElseThrow(() -> new AppException(ErrorCode.PRODUCT_NOT_EXIST));
+
+            ShippingFeeRequest feeRequest = buildShippingFeeRequest(product.getShop(), userAddress,
+                    product.getWeight() * request.getQuantity());
+            return new BuyNowSnapshot(user.getUserId(), feeRequest);
+        });
+
+        // Cùng logic phí ship theo shop như checkout giỏ hàng
+        ShippingFeeResponse fee = snapshot.feeRequest() != null
+                ? shippingService.calculateShippingFee(snapshot.feeRequest())
+                : null;
+        double shippingFee = fee != null ? fee.getFee() : DEFAULT_SHIPPING_FEE;
+
+        return transactionTemplate.execute(status -> {
+            // Lấy lại giá hiện tại của sản phẩm, user chỉ cần reference để gán khóa ngoại
+            Product product = productRepository.findById(request.getProductId())
+                    .orElseThrow(() -> new AppException(ErrorCode.PRODUCT_NOT_EXIST));
+
+            Order order = Order.builder()
+                    .user(userRepository.getReferenceById(snapshot.userId()))
+                    .shop(product.getShop())
+                    .status(OrderStatus.PENDING)
+                    .createdAt(LocalDateTime.now())
+                    .totalAmount(product.getPrice() * request.getQuantity() + shippingFee)
+                    .build();
+
+            order.setItems(new ArrayList<>(List.of(OrderItem.builder()
+                    .order(order)
+                    .product(product)
+                    .quantity(request.getQuantity())
+                    .priceAtPurchase(product.getPrice())
+                    .build())));
+
+            order.setShipment(Shipment.builder()
+                    .order(order)
+                    .shippingFee(shippingFee)
+                    .status("PREPARING")
+                    .estimatedDeliveryDate(java.time.LocalDate.now().plusDays(DEFAULT_ESTIMATED_DAYS))
+                    .build());
+
+            Order saved = orderRepository.save(order);
+            orderSummaryService.onOrdersCreated(List.of(saved));
+            appendOrderCreated(saved);
+            return orderMapper.toOrderResponse(saved);
+        });
+    }
+
+    private record BuyNowSnapshot(String userId, ShippingFeeRequest feeRequest) {
+    }
+
+    // Ghi OrderCreated vào outbox trong cùng transaction tạo đơn
+    private void appendOrderCreated(Order order) {
+        outboxService.append(new OrderCreatedEvent(order.getId(), order.getUser().getUserId(),
+                order.getShop() != null ? order.getShop().getShopId() : null,
+                order.getTotalAmount(), order.getCreatedAt()));
+    }
+
+    private TransactionTemplate readOnlyTransaction() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        return readOnly;
+    }
+
     public List<OrderResponse> getOrdersByUser(String userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXIST));
@@ -160,23 +398,90 @@ public class OrderService {
         return orders.stream().map(orderMapper::toOrderResponse).toList();
     }
 
+    /**
+     * Lịch sử đơn của user đang đăng nhập, phân trang keyset theo (createdAt, id) giảm dần.
+     * Mỗi trang chỉ tốn 2 query: lấy id trên index (user_id, created_at), rồi nạp đơn kèm items/product/shipment/payment.
+     *
+     * @param statuses rỗng = mọi trạng thái
+     * @param from     tính từ (bao gồm), null = không giới hạn
+     * @param to       tới (không bao gồm), null = không giới hạn
+     * @param cursor   nextCursor của trang trước, null = trang đầu
+     */
+    public OrderHistoryResponse getOrderHistory(List<OrderStatus> statuses, LocalDateTime from, LocalDateTime to,
+                                                String cursor, int size) {
+        if (size <= 0 || size > MAX_HISTORY_PAGE_SIZE || (from != null && to != null && !from.isBefore(to))) {
+            throw new AppException(ErrorCode.INVALID_VALUE);
+        }
+        Set<OrderStatus> statusFilter = statuses == null || statuses.isEmpty()
+                ? EnumSet.allOf(OrderStatus.class)
+                : EnumSet.copyOf(statuses);
+        LocalDateTime fromDate = from != null ? from : HISTORY_MIN_DATE;
+        LocalDateTime toDate = to != null ? to : HISTORY_MAX_DATE;
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        String username = SecurityUtil.getCurrentUsername();
+
+        return readOnlyTransaction().execute(status -> {
+            User user = userRepository.findByUsername(username)
+                    .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXIST));
+
+            // Lấy dư 1 dòng để biết còn trang sau hay không
+            Limit limit = Limit.of(size + 1);
+            List<Object[]> keys = after == null
+                    ? orderRepository.findHistoryKeys(user.getUserId(), statusFilter, fromDate, toDate, limit)
+                    : orderRepository.findHistoryKeysAfter(user.getUserId(), statusFilter, fromDate, toDate,
+                    after.createdAt(), after.id(), limit);
+
+            boolean hasMore = keys.size() > size;
+            List<Object[]> pageKeys = hasMore ? keys.subList(0, size) : keys;
+            List<String> ids = pageKeys.stream().map(key -> (String) key[0]).toList();
+
+            // IN (...) không giữ thứ tự -> sắp lại theo thứ tự id của trang
+            Map<String, Order> ordersById = ids.isEmpty() ? Map.of()
+                    : orderRepository.findAllWithDetailsByIdInAndCreatedAtBetween(ids,
+                            (LocalDateTime) pageKeys.get(pageKeys.size() - 1)[1], (LocalDateTime) pageKeys.get(0)[1])
+                    .stream()
+                    .collect(Collectors.toMap(Order::getId, Function.identity()));
+            List<OrderResponse> orders = ids.stream()
+                    .map(ordersById::get)
+                    .map(orderMapper::toOrderResponse)
+                    .toList();
+
+            String nextCursor = null;
+            if (hasMore) {
+                Object[] last = pageKeys.get(pageKeys.size() - 1);
+                nextCursor = new KeysetCursor((LocalDateTime) last[1], (String) last[0]).encode();
+            }
+            return OrderHistoryResponse.builder()
+                    .orders(orders)
+                    .nextCursor(nextCursor)
+                    .build();
+        });
+    }
+
     public OrderResponse getOrderById(String orderId) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new AppException(ErrorCode.ORDER_NOT_EXIST));
         return orderMapper.toOrderResponse(order);
     }
 
+    /**
+     * Đổi trạng thái đơn qua OrderStateMachine: compare-and-set trên trạng thái hiện tại,
+     * không nạp/ghi đè cả đơn nên không làm mất cập nhật của webhook thanh toán chạy cùng lúc.
+     */
     @Transactional
     public OrderResponse updateOrderStatus(String orderId, OrderStatus status) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new AppException(ErrorCode.ORDER_NOT_EXIST));
-
-        order.setStatus(status);
-
-        if (status == OrderStatus.CANCELLED && order.getShipment() != null) {
-            order.getShipment().setStatus("CANCELLED");
+        if (status == null) {
+            throw new AppException(ErrorCode.INVALID_VALUE);
+        }
+        if (!orderStateMachine.transition(orderId, status)) {
+            if (!orderRepository.existsById(orderId)) {
+                throw new AppException(ErrorCode.ORDER_NOT_EXIST);
+            }
+            throw new AppException(ErrorCode.ORDER_STATUS_TRANSITION_INVALID);
         }
 
-        return orderMapper.toOrderResponse(orderRepository.save(order));
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new AppException(ErrorCode.ORDER_NOT_EXIST));
+        return orderMapper.toOrderResponse(order);
     }
-}
\ No newline at end of file
+}
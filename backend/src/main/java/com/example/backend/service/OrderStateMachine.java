@@ -0,0 +1,135 @@
+package com.example.backend.service;
+
+import com.example.backend.enums.OrderStatus;
+import com.example.backend.event.DomainEvent;
+import com.example.backend.event.OrderCancelledEvent;
+import com.example.backend.event.OrderPaidEvent;
+import com.example.backend.event.OrderStatusChangedEvent;
+import com.example.backend.repository.OrderRepository;
+import com.example.backend.repository.ShipmentRepository;
+import com.example.backend.service.outbox.OutboxService;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Các bước chuyển trạng thái đơn hợp lệ.
+ * <p>
+ * Mỗi bước chuyển là 1 câu UPDATE ... WHERE id = ? AND status IN (trạng thái trước hợp lệ),
+ * không nạp đơn và không khóa, nên webhook PayOS, xác nhận COD và người bán cập nhật cùng lúc
+ * không ghi đè lên nhau: chỉ bước nào khớp trạng thái hiện tại mới có hiệu lực.
+ */
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class OrderStateMachine {
+
+    // Trạng thái đích -> các trạng thái được phép đi tới nó
+    static final Map<OrderStatus, Set<OrderStatus>> ALLOWED_FROM = new EnumMap<>(OrderStatus.class);
+
+    static {
+        ALLOWED_FROM.put(OrderStatus.PENDING, EnumSet.noneOf(OrderStatus.class));
+        ALLOWED_FROM.put(OrderStatus.PAID, EnumSet.of(OrderStatus.PENDING));
+        // COD giao hàng khi đơn còn PENDING
+        ALLOWED_FROM.put(OrderStatus.SHIPPED, EnumSet.of(OrderStatus.PENDING, OrderStatus.PAID));
+        ALLOWED_FROM.put(OrderStatus.DELIVERED, EnumSet.of(OrderStatus.SHIPPED));
+        ALLOWED_FROM.put(OrderStatus.CANCELLED, EnumSet.of(OrderStatus.PENDING, OrderStatus.PAID));
+    }
+
+    OrderRepository orderRepository;
+    ShipmentRepository shipmentRepository;
+    OrderSummaryService orderSummaryService;
+    OutboxService outboxService;
+
+    public static Set<OrderStatus> allowedFrom(OrderStatus target) {
+        return Collections.unmodifiableSet(ALLOWED_FROM.get(target));
+    }
+
+    public static boolean canTransition(OrderStatus from, OrderStatus to) {
+        return ALLOWED_FROM.get(to).contains(from);
+    }
+
+    /**
+     * Chuyển đơn sang trạng thái target nếu trạng thái hiện tại cho phép.
+     * Tác dụng phụ (hủy shipment, cập nhật order_summaries, ghi sự kiện vào outbox)
+     * chỉ chạy khi bước chuyển có hiệu lực.
+     *
+     * @return true nếu đã chuyển, false nếu đơn không tồn tại hoặc đang ở trạng thái không cho phép
+     */
+    @Transactional
+    public boolean transition(String orderId, OrderStatus target) {
+        Set<OrderStatus> from = ALLOWED_FROM.get(target);
+        if (from.isEmpty()) {
+            return false;
+        }
+        if (orderRepository.compareAndSetStatus(orderId, from, target) == 0) {
+            log.info("Order {} not moved to {}: current status is not one of {}", orderId, target, from);
+            return false;
+        }
+
+        String shipmentStatus = null;
+        if (target == OrderStatus.CANCELLED) {
+            shipmentStatus = "CANCELLED";
+            shipmentRepository.updateStatusByOrderId(orderId, shipmentStatus);
+        }
+        orderSummaryService.onStatusTransition(orderId, target, shipmentStatus);
+        outboxService.append(eventFor(orderId, target, LocalDateTime.now()));
+        return true;
+    }
+
+    /**
+     * Chuyển nhiều đơn sang target bằng 1 câu UPDATE theo tập, chỉ các đơn đang ở trạng thái cho phép.
+     * Các đơn đủ điều kiện bị khóa (FOR UPDATE) trước khi UPDATE nên tập đơn đã chuyển đúng bằng tập đã khóa;
+     * đơn bị transaction khác chuyển cùng lúc không lọt vào và không bị ghi sự kiện lần 2.
+     *
+     * @return id các đơn đã chuyển
+     */
+    @Transactional
+    public List<String> transitionAll(Collection<String> orderIds, OrderStatus target) {
+        Set<OrderStatus> from = ALLOWED_FROM.get(target);
+        if (from.isEmpty() || orderIds.isEmpty()) {
+            return List.of();
+        }
+        List<String> moved = orderRepository.lockIdsByIdInAndStatusIn(orderIds, from);
+        if (moved.isEmpty()) {
+            return moved;
+        }
+        orderRepository.compareAndSetStatusIn(moved, from, target);
+
+        String shipmentStatus = null;
+        if (target == OrderStatus.CANCELLED) {
+            shipmentStatus = "CANCELLED";
+            for (String orderId : moved) {
+                shipmentRepository.updateStatusByOrderId(orderId, shipmentStatus);
+            }
+        }
+        orderSummaryService.onBulkStatusTransition(moved, target);
+        LocalDateTime now = LocalDateTime.now();
+        for (String orderId : moved) {
+            outboxService.append(eventFor(orderId, target, now));
+        }
+        return moved;
+    }
+
+    // Sự kiện outbox tương ứng với bước chuyển sang target
+    static DomainEvent eventFor(String orderId, OrderStatus target, LocalDateTime at) {
+        return switch (target) {
+            case PAID -> new OrderPaidEvent(orderId, at);
+            case CANCELLED -> new OrderCancelledEvent(orderId, at);
+            default -> new OrderStatusChangedEvent(orderId, target, at);
+        };
+    }
+}
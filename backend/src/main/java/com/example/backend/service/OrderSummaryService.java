@@ -0,0 +1,282 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.response.OrderSummaryPageResponse;
+import com.example.backend.entity.*;
+import com.example.backend.enums.OrderStatus;
+import com.example.backend.exception.AppException;
+import com.example.backend.exception.ErrorCode;
+import com.example.backend.mapper.OrderSummaryMapper;
+import com.example.backend.repository.*;
+import com.example.backend.util.KeysetCursor;
+import com.example.backend.util.SecurityUtil;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ghi và đọc bảng order_summaries (read model cho màn danh sách đơn).
+ * Các hàm ghi bắt buộc chạy trong transaction của thao tác trên đơn hàng,
+ * nên bản tóm tắt luôn commit/rollback cùng đơn.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class OrderSummaryService {
+
+    static final int MAX_PAGE_SIZE = 100;
+    static final int BACKFILL_BATCH_SIZE = 500;
+
+    OrderSummaryRepository orderSummaryRepository;
+    OrderRepository orderRepository;
+    ProductImageRepository productImageRepository;
+    UserRepository userRepository;
+    ShopRepository shopRepository;
+    TransactionTemplate transactionTemplate;
+    OrderSummaryMapper orderSummaryMapper;
+
+    @Value("${order-summary.backfill-on-startup:true}")
+    @NonFinal
+    boolean backfillOnStartup;
+
+    /**
+     * Tạo bản tóm tắt cho các đơn vừa tạo (1 query lấy ảnh cho cả lô)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onOrdersCreated(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        List<String> productIds = orders.stream()
+                .filter(order -> order.getItems() != null && !order.getItems().isEmpty())
+                .map(order -> order.getItems().get(0).getProduct().getProductId())
+                .distinct()
+                .toList();
+        Map<String, String> thumbnails = new HashMap<>();
+        if (!productIds.isEmpty()) {
+            for (Object[] row : productImageRepository.findThumbnailUrls(productIds)) {
+                thumbnails.put((String) row[0], (String) row[1]);
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<OrderSummary> summaries = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            summaries.add(toSummary(order, thumbnails, now));
+        }
+        orderSummaryRepository.saveAll(summaries);
+    }
+
+    /**
+     * Sau khi OrderStateMachine chuyển trạng thái đơn thành công
+     *
+     * @param shipmentStatus null = giữ nguyên trạng thái shipment
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onStatusTransition(String orderId, OrderStatus status, String shipmentStatus) {
+        orderSummaryRepository.findById(orderId).ifPresentOrElse(summary -> {
+            summary.setOrderStatus(status);
+            if (shipmentStatus != null) {
+                summary.setShipmentStatus(shipmentStatus);
+            }
+            summary.setUpdatedAt(LocalDateTime.now());
+        }, () -> orderRepository.findById(orderId).ifPresent(order -> onOrdersCreated(List.of(order))));
+    }
+
+    /**
+     * Trạng thái thanh toán đổi. Trạng thái đơn (PAID) do OrderStateMachine cập nhật riêng.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onPaymentChanged(Order order, String paymentStatus) {
+        orderSummaryRepository.findById(order.getId()).ifPresentOrElse(summary -> {
+            summary.setPaymentStatus(paymentStatus);
+            summary.setUpdatedAt(LocalDateTime.now());
+        }, () -> {
+            onOrdersCreated(List.of(order));
+            orderSummaryRepository.findById(order.getId())
+                    .ifPresent(summary -> summary.setPaymentStatus(paymentStatus));
+        });
+    }
+
+    /**
+     * Trạng thái thanh toán của nhiều đơn đổi cùng lúc (thanh toán gộp), 1 câu UPDATE
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onPaymentsChanged(Collection<String> orderIds, String paymentStatus) {
+        orderSummaryRepository.bulkUpdatePaymentStatus(orderIds, paymentStatus, LocalDateTime.now());
+    }
+
+    /**
+     * Đi cùng OrderStateMachine.transitionAll
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onBulkStatusTransition(Collection<String> orderIds, OrderStatus status) {
+        orderSummaryRepository.bulkUpdateStatusByOrderIds(orderIds, status, LocalDateTime.now());
+    }
+
+    /**
+     * Đi cùng cập nhật trạng thái hàng loạt của shop, cũng bằng UPDATE theo tập
+     *
+     * @param shipmentStatus null = giữ nguyên trạng thái shipment
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onBulkStatusChanged(String shopId, Collection<String> orderIds, OrderStatus fromStatus,
+                                    OrderStatus toStatus, String shipmentStatus) {
+        orderSummaryRepository.bulkUpdateStatus(shopId, orderIds, fromStatus, toStatus, LocalDateTime.now());
+        if (shipmentStatus != null) {
+            orderSummaryRepository.bulkUpdateShipmentStatus(shopId, orderIds, toStatus, shipmentStatus);
+        }
+    }
+
+    /**
+     * Danh sách đơn của user đang đăng nhập, chỉ đọc order_summaries
+     */
+    @Transactional(readOnly = true)
+    public OrderSummaryPageResponse getMyOrders(List<OrderStatus> statuses, String cursor, int size) {
+        validateSize(size);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        User user = userRepository.findByUsername(SecurityUtil.getCurrentUsername())
+                .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXIST));
+
+        Set<OrderStatus> statusFilter = statusFilter(statuses);
+        Limit limit = Limit.of(size + 1);
+        List<OrderSummary> rows = after == null
+                ? orderSummaryRepository.findUserPage(user.getUserId(), statusFilter, limit)
+                : orderSummaryRepository.findUserPageAfter(user.getUserId(), statusFilter,
+                after.createdAt(), after.id(), limit);
+        return toPage(rows, size);
+    }
+
+    /**
+     * Danh sách đơn của 1 shop, chỉ chủ shop hoặc ADMIN được xem
+     */
+    @Transactional(readOnly = true)
+    public OrderSummaryPageResponse getShopOrders(String shopId, List<OrderStatus> statuses, String cursor, int size) {
+        validateSize(size);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        Shop shop = shopRepository.findById(shopId)
+                .orElseThrow(() -> new AppException(ErrorCode.SHOP_NOT_EXIST));
+        String currentUsername = SecurityUtil.getCurrentUsername();
+        if (!SecurityUtil.hasRole("ADMIN")
+                && !shop.getOwner().getUsername().equals(currentUsername)) {
+            throw new AppException(ErrorCode.UNAUTHORIZED);
+        }
+
+        Set<OrderStatus> statusFilter = statusFilter(statuses);
+        Limit limit = Limit.of(size + 1);
+        List<OrderSummary> rows = after == null
+                ? orderSummaryRepository.findShopPage(shopId, statusFilter, limit)
+                : orderSummaryRepository.findShopPageAfter(shopId, statusFilter,
+                after.createdAt(), after.id(), limit);
+        return toPage(rows, size);
+    }
+
+    /**
+     * Dựng bản tóm tắt cho các đơn cũ chưa có, theo lô nhỏ, mỗi lô 1 transaction
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillMissing() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        int total = 0;
+        try {
+            while (true) {
+                Integer created = transactionTemplate.execute(status -> {
+                    List<String> ids = orderRepository.findIdsWithoutSummary(Limit.of(BACKFILL_BATCH_SIZE));
+                    if (!ids.isEmpty()) {
+                        onOrdersCreated(orderRepository.findAllWithDetailsByIdIn(ids));
+                    }
+                    return ids.size();
+                });
+                if (created == null || created == 0) {
+                    break;
+                }
+                total += created;
+            }
+        } catch (RuntimeException e) {
+            // Đơn mới được tạo song song cũng ghi summary -> có thể trùng khóa, lần khởi động sau chạy tiếp
+            log.warn("Order summary backfill stopped after {} orders: {}", total, e.getMessage());
+            return;
+        }
+        if (total > 0) {
+            log.info("Backfilled {} order summaries", total);
+        }
+    }
+
+    private OrderSummary toSummary(Order order, Map<String, String> thumbnails, LocalDateTime now) {
+        Product firstProduct = null;
+        int itemCount = 0;
+        if (order.getItems() != null && !order.getItems().isEmpty()) {
+            firstProduct = order.getItems().get(0).getProduct();
+            itemCount = order.getItems().stream().mapToInt(OrderItem::getQuantity).sum();
+        }
+        Shop shop = order.getShop() != null ? order.getShop()
+                : firstProduct != null ? firstProduct.getShop() : null;
+        // Cắt về micro giây như cột timestamp trong DB, để con trỏ phân trang so sánh bằng khớp
+        LocalDateTime createdAt = order.getCreatedAt() != null ? order.getCreatedAt() : now;
+
+        return OrderSummary.builder()
+                .orderId(order.getId())
+                .userId(order.getUser().getUserId())
+                .shopId(shop != null ? shop.getShopId() : null)
+                .shopName(shop != null ? shop.getName() : null)
+                .productName(firstProduct != null ? firstProduct.getName() : null)
+                .thumbnailUrl(firstProduct != null ? thumbnails.get(firstProduct.getProductId()) : null)
+                .itemCount(itemCount)
+                .totalAmount(order.getTotalAmount())
+                .orderStatus(order.getStatus())
+                .shipmentStatus(order.getShipment() != null ? order.getShipment().getStatus() : null)
+                .paymentStatus(order.getPayment() != null ? order.getPayment().getPaymentStatus() : null)
+                .createdAt(createdAt.truncatedTo(ChronoUnit.MICROS))
+                .updatedAt(now)
+                .build();
+    }
+
+    private OrderSummaryPageResponse toPage(List<OrderSummary> rows, int size) {
+        // Lấy dư 1 dòng để biết còn trang sau hay không
+        boolean hasMore = rows.size() > size;
+        List<OrderSummary> page = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            OrderSummary last = page.get(page.size() - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getOrderId()).encode();
+        }
+        return OrderSummaryPageResponse.builder()
+                .orders(page.stream().map(orderSummaryMapper::toOrderSummaryResponse).toList())
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    private static Set<OrderStatus> statusFilter(List<OrderStatus> statuses) {
+        return statuses == null || statuses.isEmpty()
+                ? EnumSet.allOf(OrderStatus.class)
+                : EnumSet.copyOf(statuses);
+    }
+
+    private static void validateSize(int size) {
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new AppException(ErrorCode.INVALID_VALUE);
+        }
+    }
+}
@@ -1,16 +1,25 @@
 package com.example.backend.service;
 
 import com.example.backend.configuration.PayOSConfig;
+import com.example.backend.dto.request.PayOSGroupPaymentRequest;
 import com.example.backend.dto.request.PayOSPaymentRequest;
 import com.example.backend.dto.request.PayOSTestRequest;
 import com.example.backend.dto.response.PayOSPaymentResponse;
 import com.example.backend.entity.Order;
+import com.example.backend.entity.PayOSOrderCode;
 import com.example.backend.entity.Payment;
+import com.example.backend.entity.PaymentGroup;
 import com.example.backend.enums.OrderStatus;
 import com.example.backend.exception.AppException;
 import com.example.backend.exception.ErrorCode;
 import com.example.backend.repository.OrderRepository;
+import com.example.backend.repository.PayOSOrderCodeRepository;
+import com.example.backend.repository.PaymentGroupRepository;
 import com.example.backend.repository.PaymentRepository;
+import com.example.backend.service.payment.PayOSOrderCodeAllocator;
+import com.example.backend.service.payment.PayOSPaymentLinkCache;
+import com.example.backend.service.payment.PayOSSignatureEngine;
+import com.example.backend.service.payment.PaymentLink;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.transaction.Transactional;
@@ -18,19 +27,24 @@ import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
-import java.security.InvalidKeyException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.Objects;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -38,23 +52,221 @@ import java.util.Random;
 @Slf4j
 public class PayOSService {
 
+    private static final String GROUP_CACHE_PREFIX = "group:";
+
     PayOSConfig payOSConfig;
     OrderRepository orderRepository;
     PaymentRepository paymentRepository;
+    OrderSummaryService orderSummaryService;
+    OrderStateMachine orderStateMachine;
+    @Qualifier("payosRestTemplate")
     RestTemplate restTemplate;
+    PayOSSignatureEngine signatureEngine;
+    PayOSOrderCodeAllocator orderCodeAllocator;
+    PayOSOrderCodeRepository payOSOrderCodeRepository;
+    PayOSPaymentLinkCache paymentLinkCache;
+    PaymentGroupRepository paymentGroupRepository;
     ObjectMapper objectMapper = new ObjectMapper();
 
     /**
-     * Tạo link thanh toán PayOS
+     * Tạo link thanh toán PayOS.
+     * Đơn đã có link PENDING còn hạn (trong cache hoặc DB) thì trả lại link đó, không gọi PayOS.
      */
     @Transactional
     public PayOSPaymentResponse createPaymentLink(PayOSPaymentRequest request) {
         var order = orderRepository.findById(request.getOrderId())
                 .orElseThrow(() -> new AppException(ErrorCode.ORDER_NOT_EXIST));
 
-        // Tạo orderCode từ orderId (PayOS yêu cầu số nguyên)
-        long orderCode = generateOrderCode(order.getId());
+        PaymentLink link = paymentLinkCache.get(order.getId(), orderId ->
+                findReusableLink(orderId).orElseGet(() -> requestPaymentLink(order, request)));
+
+        return PayOSPaymentResponse.builder()
+                .checkoutUrl(link.checkoutUrl())
+                .orderCode(String.valueOf(link.orderCode()))
+                .message("Tạo link thanh toán thành công")
+                .qrCode(link.qrCode())
+                .build();
+    }
+
+    /**
+     * Link PENDING mới nhất của đơn còn hạn sau khoảng an toàn
+     */
+    private Optional<PaymentLink> findReusableLink(String orderId) {
+        return paymentRepository.findReusablePayOSLinks(orderId, paymentLinkCache.reusableAfter(), Limit.of(1))
+                .stream()
+                .findFirst()
+                .map(payment -> {
+                    log.info("Reusing PayOS payment link {} for order {}", payment.getTransactionId(), orderId);
+                    return new PaymentLink(Long.parseLong(payment.getTransactionId()),
+                            payment.getCheckoutUrl(), payment.getQrCode(), payment.getLinkExpiresAt());
+                });
+    }
+
+    /**
+     * Gọi PayOS tạo link mới và lưu payment PENDING kèm link
+     */
+    private PaymentLink requestPaymentLink(Order order, PayOSPaymentRequest request) {
+        // orderCode duy nhất lấy từ sequence (PayOS yêu cầu số nguyên)
+        long orderCode = orderCodeAllocator.nextCode();
+        PaymentLink link = postPaymentRequest(orderCode, (long) order.getTotalAmount(),
+                request.getReturnUrl(), request.getCancelUrl());
+        log.info("PayOS payment link created for order {}: {}", order.getId(), link.checkoutUrl());
+        return savePendingPayment(order, link);
+    }
+
+    /**
+     * Tạo 1 link PayOS cho cả nhóm đơn (checkout nhiều shop): 1 lần gọi PayOS, 1 webhook cho mọi đơn.
+     * Cùng tập đơn còn link PENDING chưa hết hạn thì trả lại link đó.
+     */
+    @Transactional
+    public PayOSPaymentResponse createGroupPaymentLink(PayOSGroupPaymentRequest request) {
+        List<String> orderIds = request.getOrderIds() == null ? List.of()
+                : request.getOrderIds().stream().distinct().sorted().toList();
+        if (orderIds.isEmpty()) {
+            throw new AppException(ErrorCode.PAYMENT_GROUP_INVALID);
+        }
+        List<Order> orders = orderRepository.findAllById(orderIds);
+        if (orders.size() != orderIds.size()) {
+            throw new AppException(ErrorCode.ORDER_NOT_EXIST);
+        }
+        // Chỉ gộp các đơn PENDING của cùng 1 người mua
+        String userId = orders.get(0).getUser() == null ? null : orders.get(0).getUser().getUserId();
+        for (Order order : orders) {
+            String orderUserId = order.getUser() == null ? null : order.getUser().getUserId();
+            if (order.getStatus() != OrderStatus.PENDING || !Objects.equals(userId, orderUserId)) {
+                throw new AppException(ErrorCode.PAYMENT_GROUP_INVALID);
+            }
+        }
+
+        String membersHash = membersHash(orderIds);
+        PaymentLink link = paymentLinkCache.get(GROUP_CACHE_PREFIX + membersHash, key ->
+                findReusableGroupLink(membersHash).orElseGet(() -> requestGroupPaymentLink(orders, membersHash, request)));
+        // Link riêng của từng đơn không còn được phát lại (xóa ngoài loader: Caffeine không cho sửa key khác trong lúc nạp)
+        orderIds.forEach(paymentLinkCache::invalidate);
+
+        return PayOSPaymentResponse.builder()
+                .checkoutUrl(link.checkoutUrl())
+                .orderCode(String.valueOf(link.orderCode()))
+                .message("Tạo link thanh toán thành công")
+                .qrCode(link.qrCode())
+                .build();
+    }
+
+    private Optional<PaymentLink> findReusableGroupLink(String membersHash) {
+        return paymentGroupRepository.findReusable(membersHash, paymentLinkCache.reusableAfter(), Limit.of(1))
+                .stream()
+                .findFirst()
+                .map(group -> {
+                    log.info("Reusing PayOS payment link {} for payment group {}", group.getOrderCode(), group.getId());
+                    return new PaymentLink(group.getOrderCode(), group.getCheckoutUrl(), group.getQrCode(),
+                            group.getLinkExpiresAt());
+                });
+    }
+
+    /**
+     * Gọi PayOS với tổng tiền các đơn, lưu nhóm + payment PENDING của từng đơn.
+     * Đơn đã có payment PENDING (link riêng hoặc nhóm cũ) thì dùng lại dòng đó cho nhóm mới, không thêm dòng thứ 2,
+     * và link riêng còn hạn được hủy trên PayOS để khách không trả 2 lần.
+     */
+    private PaymentLink requestGroupPaymentLink(List<Order> orders, String membersHash,
+                                                PayOSGroupPaymentRequest request) {
+        long orderCode = orderCodeAllocator.nextCode();
+        // Cộng từng đơn đã làm tròn để tổng khớp số tiền PayOS báo về
+        long amount = 0;
+        for (Order order : orders) {
+            amount += (long) order.getTotalAmount();
+        }
+        PaymentLink link = postPaymentRequest(orderCode, amount, request.getReturnUrl(), request.getCancelUrl());
+
+        PaymentGroup group = paymentGroupRepository.save(PaymentGroup.builder()
+                .orderCode(orderCode)
+                .membersHash(membersHash)
+                .orderIds(new ArrayList<>(orders.stream().map(Order::getId).toList()))
+                .totalAmount(amount)
+                .status("PENDING")
+                .checkoutUrl(link.checkoutUrl())
+                .qrCode(link.qrCode())
+                .linkExpiresAt(link.expiresAt())
+                .build());
+
+        Map<String, Payment> pendingByOrder = new HashMap<>();
+        for (Payment pending : paymentRepository.findPendingPayOSByOrderIdIn(group.getOrderIds())) {
+            // Mới nhất của mỗi đơn
+            pendingByOrder.merge(pending.getOrder().getId(), pending,
+                    (a, b) -> a.getCreatedAt().isAfter(b.getCreatedAt()) ? a : b);
+        }
+        List<String> linksToCancel = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        Payment first = null;
+        for (Order order : orders) {
+            Payment payment = pendingByOrder.get(order.getId());
+            if (payment == null) {
+                payment = Payment.builder()
+                        .order(order)
+                        .paymentMethod("PAYOS")
+                        .build();
+            } else if (payment.getPaymentGroupId() == null && payment.getLinkExpiresAt() != null
+                    && payment.getLinkExpiresAt().isAfter(now)) {
+                linksToCancel.add(payment.getTransactionId());
+            }
+            payment.setPaymentStatus("PENDING");
+            payment.setAmount(order.getTotalAmount());
+            payment.setTransactionId(String.valueOf(orderCode));
+            payment.setPaymentDate(now);
+            payment.setPaymentGroupId(group.getId());
+            // Link nằm trên nhóm
+            payment.setCheckoutUrl(null);
+            payment.setQrCode(null);
+            payment.setLinkExpiresAt(null);
+            paymentRepository.save(payment);
+            if (first == null) {
+                first = payment;
+            }
+            orderSummaryService.onPaymentChanged(order, payment.getPaymentStatus());
+        }
+        payOSOrderCodeRepository.save(PayOSOrderCode.builder()
+                .orderCode(orderCode)
+                .paymentId(first.getId())
+                .orderId(first.getOrder().getId())
+                .paymentCreatedAt(first.getCreatedAt())
+                .paymentGroupId(group.getId())
+                .build());
+
+        linksToCancel.forEach(code -> cancelPaymentLink(code, "Gộp vào thanh toán nhóm"));
+
+        log.info("PayOS payment link created for payment group {} ({} orders): {}",
+                group.getId(), orders.size(), link.checkoutUrl());
+        return link;
+    }
+
+    /**
+     * POST /v2/payment-requests/{orderCode}/cancel. Lỗi chỉ ghi log: link vẫn tự hết hạn sau link-ttl-minutes,
+     * và nếu khách vẫn trả link đó thì webhook của orderCode cũ vẫn tìm được payment của đơn.
+     */
+    private void cancelPaymentLink(String orderCode, String reason) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("x-client-id", payOSConfig.getClientId());
+        headers.set("x-api-key", payOSConfig.getApiKey());
+        try {
+            ResponseEntity<String> response = restTemplate.exchange(
+                    payOSConfig.getBaseUrl() + "/v2/payment-requests/" + orderCode + "/cancel",
+                    HttpMethod.POST,
+                    new HttpEntity<>(Map.of("cancellationReason", reason), headers),
+                    String.class);
+            String code = objectMapper.readTree(response.getBody()).path("code").asText();
+            if (!"00".equals(code)) {
+                log.warn("PayOS did not cancel payment link {}: code {}", orderCode, code);
+            }
+        } catch (Exception e) {
+            log.warn("Could not cancel PayOS payment link {}: {}", orderCode, e.getMessage());
+        }
+    }
 
+    /**
+     * POST /v2/payment-requests, trả về link PayOS vừa tạo (chưa lưu gì)
+     */
+    private PaymentLink postPaymentRequest(long orderCode, long amount, String returnUrl, String cancelUrl) {
         // Yêu cầu: Nội dung chuyển khoản chỉ hiển thị mã (ví dụ: CSGX0SVDCO5).
         // PayOS tự động ghép "mã giao dịch + description" để tạo nội dung chuyển khoản.
         // Để nội dung chỉ có mã, ta đặt description rỗng (luôn rỗng, bất kể request gửi gì).
@@ -63,16 +275,20 @@ public class PayOSService {
         // Tạo request body
         // PayOS yêu cầu amount và orderCode phải là integer
         Map<String, Object> paymentData = new HashMap<>();
-        paymentData.put("orderCode", (int) orderCode); // PayOS yêu cầu integer
-        paymentData.put("amount", (int) order.getTotalAmount()); // PayOS yêu cầu integer
+        paymentData.put("orderCode", orderCode); // PayOS yêu cầu integer
+        paymentData.put("amount", amount); // PayOS yêu cầu integer
         paymentData.put("description", description);
-        paymentData.put("returnUrl", request.getReturnUrl());
-        paymentData.put("cancelUrl", request.getCancelUrl());
+        paymentData.put("returnUrl", returnUrl);
+        paymentData.put("cancelUrl", cancelUrl);
 
         // Tạo signature (PayOS yêu cầu field name là "signature")
         String signature = createChecksum(paymentData);
 
+        // Link hết hạn sau link-ttl-minutes (expiredAt tính bằng giây unix, không nằm trong signature)
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(payOSConfig.getLinkTtlMinutes());
+
         Map<String, Object> requestBody = new HashMap<>(paymentData);
+        requestBody.put("expiredAt", expiresAt.atZone(ZoneId.systemDefault()).toEpochSecond());
         requestBody.put("signature", signature);
 
         // Gọi API PayOS
@@ -83,9 +299,7 @@ public class PayOSService {
         
         // Log request để debug
         log.info("PayOS Request URL: {}", payOSConfig.getBaseUrl() + "/v2/payment-requests");
-        log.info("PayOS Request Headers - x-client-id: {}, x-api-key: {}", 
-                payOSConfig.getClientId(), 
-                payOSConfig.getApiKey() != null ? "***" + payOSConfig.getApiKey().substring(Math.max(0, payOSConfig.getApiKey().length() - 4)) : "null");
+        log.info("PayOS Request Headers - x-client-id: {}", payOSConfig.getClientId());
         log.debug("PayOS Request Body: {}", requestBody);
 
         HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
@@ -116,26 +330,7 @@ public class PayOSService {
                             String checkoutUrl = data.get("checkoutUrl").asText();
                             String qrCode = data.has("qrCode") ? data.get("qrCode").asText() : null;
 
-                            // Lưu payment với status PENDING
-                            Payment payment = Payment.builder()
-                                    .order(order)
-                                    .paymentMethod("PAYOS")
-                                    .paymentStatus("PENDING")
-                                    .amount(order.getTotalAmount())
-                                    .transactionId(String.valueOf(orderCode))
-                                    .paymentDate(LocalDateTime.now())
-                                    .build();
-
-                            paymentRepository.save(payment);
-
-                            log.info("PayOS payment link created for order {}: {}", order.getId(), checkoutUrl);
-
-                            return PayOSPaymentResponse.builder()
-                                    .checkoutUrl(checkoutUrl)
-                                    .orderCode(String.valueOf(orderCode))
-                                    .message("Tạo link thanh toán thành công")
-                                    .qrCode(qrCode)
-                                    .build();
+                            return new PaymentLink(orderCode, checkoutUrl, qrCode, expiresAt);
                         } else {
                             log.error("PayOS response missing checkoutUrl in data: {}", responseBody);
                             throw new AppException(ErrorCode.PAYMENT_FAILED);
@@ -150,25 +345,8 @@ public class PayOSService {
                     String checkoutUrl = data.get("checkoutUrl").asText();
                     String qrCode = data.has("qrCode") ? data.get("qrCode").asText() : null;
                     
-                    // Lưu payment với status PENDING
-                    Payment payment = Payment.builder()
-                            .order(order)
-                            .paymentMethod("PAYOS")
-                            .paymentStatus("PENDING")
-                            .amount(order.getTotalAmount())
-                            .transactionId(String.valueOf(orderCode))
-                            .paymentDate(LocalDateTime.now())
-                            .build();
-
-                    paymentRepository.save(payment);
-                    
-                    log.info("PayOS payment link created (fallback) for order {}: {}", order.getId(), checkoutUrl);
-                    return PayOSPaymentResponse.builder()
-                            .checkoutUrl(checkoutUrl)
-                            .orderCode(String.valueOf(orderCode))
-                            .message("Tạo link thanh toán thành công")
-                            .qrCode(qrCode)
-                            .build();
+                    log.info("PayOS payment link created (fallback response format): {}", checkoutUrl);
+                    return new PaymentLink(orderCode, checkoutUrl, qrCode, expiresAt);
                 } else {
                     log.error("PayOS response format unexpected: {}", responseBody);
                     throw new AppException(ErrorCode.PAYMENT_FAILED);
@@ -195,8 +373,8 @@ public class PayOSService {
      * Tạo link thanh toán PayOS cho test (không cần order thật)
      */
     public PayOSPaymentResponse createTestPaymentLink(PayOSTestRequest request) {
-        // Tạo orderCode ngẫu nhiên cho test (thêm random để tránh trùng)
-        long orderCode = (System.currentTimeMillis() % 900000000L + 100000000L) + new Random().nextInt(1000);
+        // Cùng nguồn mã với đơn thật nên không trùng
+        long orderCode = orderCodeAllocator.nextCode();
 
         // Yêu cầu: Nội dung chuyển khoản chỉ hiển thị mã (ví dụ: CSGX0SVDCO5).
         // PayOS tự động ghép "mã giao dịch + description" để tạo nội dung chuyển khoản.
@@ -206,7 +384,7 @@ public class PayOSService {
         // Tạo request body
         // PayOS yêu cầu amount và orderCode phải là integer
         Map<String, Object> paymentData = new HashMap<>();
-        paymentData.put("orderCode", (int) orderCode); // PayOS yêu cầu integer
+        paymentData.put("orderCode", orderCode); // PayOS yêu cầu integer
         paymentData.put("amount", request.getAmount() != null ? request.getAmount() : 0); // PayOS yêu cầu integer
         paymentData.put("description", description);
         paymentData.put("returnUrl", request.getReturnUrl());
@@ -226,9 +404,7 @@ public class PayOSService {
         
         // Log request để debug
         log.info("PayOS Test Request URL: {}", payOSConfig.getBaseUrl() + "/v2/payment-requests");
-        log.info("PayOS Request Headers - x-client-id: {}, x-api-key: {}", 
-                payOSConfig.getClientId(), 
-                payOSConfig.getApiKey() != null ? "***" + payOSConfig.getApiKey().substring(Math.max(0, payOSConfig.getApiKey().length() - 4)) : "null");
+        log.info("PayOS Request Headers - x-client-id: {}", payOSConfig.getClientId());
         log.debug("PayOS Request Body: {}", requestBody);
 
         HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
@@ -320,37 +496,77 @@ public class PayOSService {
     }
 
     /**
-     * Xác nhận thanh toán từ webhook PayOS
+     * Áp dụng webhook thanh toán thành công (data của webhook) vào payment và order.
+     * Chạy trong transaction của worker inbox; gọi lại với cùng orderCode không đổi gì thêm.
+     *
+     * @return false nếu không có payment tương ứng với orderCode
      */
     @Transactional
-    public void confirmPayment(Map<String, Object> webhookData) {
-        try {
-            String code = webhookData.get("code").toString();
-            String desc = webhookData.get("desc").toString();
-            JsonNode data = objectMapper.valueToTree(webhookData.get("data"));
-
-            if ("00".equals(code)) {
-                long orderCode = data.get("orderCode").asLong();
-                String transactionId = String.valueOf(orderCode);
-
-                Payment payment = paymentRepository.findByTransactionId(transactionId)
-                        .orElseThrow(() -> new RuntimeException("Payment not found"));
+    public boolean applyPaidWebhook(JsonNode data) {
+        long orderCode = data.get("orderCode").asLong();
+        // orderCode của nhóm thanh toán gộp: cập nhật mọi đơn thành viên
+        String groupId = payOSOrderCodeRepository.findById(orderCode)
+                .map(PayOSOrderCode::getPaymentGroupId)
+                .orElse(null);
+        if (groupId != null) {
+            return applyGroupPaid(groupId);
+        }
+        Payment payment = findByOrderCode(orderCode).orElse(null);
+        if (payment == null) {
+            log.warn("PayOS webhook for unknown orderCode {}", orderCode);
+            return false;
+        }
 
-                payment.setPaymentStatus("SUCCESS");
-                payment.setPaymentDate(LocalDateTime.now());
-                paymentRepository.save(payment);
+        Order order = payment.getOrder();
+        if (!"SUCCESS".equals(payment.getPaymentStatus())) {
+            payment.setPaymentStatus("SUCCESS");
+            payment.setPaymentDate(LocalDateTime.now());
+            paymentRepository.save(payment);
+            orderSummaryService.onPaymentChanged(order, payment.getPaymentStatus());
+        }
+        // Đã trả tiền thì không phát lại link cũ (chỉ xóa cache trên node này, node khác tra DB sẽ thấy SUCCESS)
+        paymentLinkCache.invalidate(order.getId());
+        // Chỉ PENDING -> PAID, đơn đã hủy thì không đổi gì
+        if (orderStateMachine.transition(order.getId(), OrderStatus.PAID)) {
+            log.info("PayOS payment confirmed for order: {}", order.getId());
+        } else {
+            log.info("PayOS payment recorded, order {} status left unchanged", order.getId());
+        }
+        return true;
+    }
 
-                Order order = payment.getOrder();
-                order.setStatus(OrderStatus.PAID);
-                orderRepository.save(order);
+    /**
+     * Nhóm thanh toán gộp đã trả tiền: payment và trạng thái PAID của mọi đơn thành viên
+     * đều cập nhật bằng UPDATE theo tập, không nạp từng đơn.
+     */
+    private boolean applyGroupPaid(String groupId) {
+        PaymentGroup group = paymentGroupRepository.findById(groupId).orElse(null);
+        if (group == null) {
+            log.warn("PayOS webhook for unknown payment group {}", groupId);
+            return false;
+        }
+        List<String> orderIds = List.copyOf(group.getOrderIds());
+        LocalDateTime now = LocalDateTime.now();
+        if (paymentGroupRepository.markPaid(groupId, now) > 0) {
+            paymentRepository.markGroupPaid(groupId, now);
+            orderSummaryService.onPaymentsChanged(orderIds, "SUCCESS");
+        }
+        paymentLinkCache.invalidate(GROUP_CACHE_PREFIX + group.getMembersHash());
+        // Chỉ đơn còn PENDING -> PAID, đơn đã hủy giữ nguyên
+        List<String> paid = orderStateMachine.transitionAll(orderIds, OrderStatus.PAID);
+        log.info("PayOS payment confirmed for payment group {}: {} of {} orders moved to PAID",
+                groupId, paid.size(), orderIds.size());
+        return true;
+    }
 
-                log.info("PayOS payment confirmed for order: {}", order.getId());
-            } else {
-                log.warn("PayOS payment failed: {}", desc);
-            }
-        } catch (Exception e) {
-            log.error("Error confirming PayOS payment", e);
-            throw new RuntimeException("Error confirming payment", e);
+    // Khóa cache link của nhóm = tập đơn thành viên
+    static String membersHash(List<String> sortedOrderIds) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(String.join(",", sortedOrderIds).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
 
@@ -360,80 +576,50 @@ public class PayOSService {
      * Theo tài liệu: https://payos.vn/docs/api/
      */
     private String createChecksum(Map<String, Object> data) {
-        try {
-            // PayOS yêu cầu thứ tự alphabet: amount, cancelUrl, description, orderCode, returnUrl
-            // Format: amount=$amount&cancelUrl=$cancelUrl&description=$description&orderCode=$orderCode&returnUrl=$returnUrl
-            // PayOS yêu cầu amount và orderCode là integer (không có dấu thập phân)
-            Integer amount = ((Number) data.get("amount")).intValue();
-            String cancelUrl = String.valueOf(data.get("cancelUrl"));
-            String description = String.valueOf(data.get("description"));
-            Integer orderCode = ((Number) data.get("orderCode")).intValue();
-            String returnUrl = String.valueOf(data.get("returnUrl"));
-            
-            // PayOS yêu cầu signature được tính từ data được sort theo alphabet
-            // Format: amount=$amount&cancelUrl=$cancelUrl&description=$description&orderCode=$orderCode&returnUrl=$returnUrl
-            // Thử không URL encode trước (raw values)
-            String dataStr = String.format(
-                    "amount=%d&cancelUrl=%s&description=%s&orderCode=%d&returnUrl=%s",
-                    amount,
-                    cancelUrl,
-                    description,
-                    orderCode,
-                    returnUrl
-            );
-            
-            log.info("PayOS Signature data string: {}", dataStr);
-            
-            // Kiểm tra và clean checksum key
-            String checksumKey = payOSConfig.getChecksumKey();
-            if (checksumKey == null || checksumKey.isEmpty()) {
-                log.error("PayOS Checksum Key is NULL or empty!");
-                throw new RuntimeException("PayOS checksum key chưa được cấu hình");
-            }
-            
-            // Loại bỏ space và newline từ checksum key
-            checksumKey = checksumKey.trim().replaceAll("[\\r\\n]", "");
-            log.info("PayOS Checksum Key length: {}", checksumKey.length());
-            log.info("PayOS Checksum Key (last 8 chars): {}", checksumKey.length() >= 8 
-                    ? "***" + checksumKey.substring(checksumKey.length() - 8) : "null");
-
-            Mac hmacSHA256 = Mac.getInstance("HmacSHA256");
-            SecretKeySpec secretKey = new SecretKeySpec(
-                    checksumKey.getBytes(StandardCharsets.UTF_8),
-                    "HmacSHA256"
-            );
-            hmacSHA256.init(secretKey);
-            byte[] hash = hmacSHA256.doFinal(dataStr.getBytes(StandardCharsets.UTF_8));
-            
-            // PayOS yêu cầu HEX signature (theo code mẫu hoạt động)
-            String signature = bytesToHex(hash);
-            
-            log.info("Generated signature (hex): {}", signature);
-            log.info("Signature length: {}", signature.length());
-            
-            return signature;
-        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
-            log.error("Error creating signature", e);
-            throw new RuntimeException("Error creating signature", e);
-        }
+        // PayOS yêu cầu amount và orderCode là integer (không có dấu thập phân)
+        return signatureEngine.signPaymentRequest(
+                ((Number) data.get("amount")).longValue(),
+                String.valueOf(data.get("cancelUrl")),
+                String.valueOf(data.get("description")),
+                ((Number) data.get("orderCode")).longValue(),
+                String.valueOf(data.get("returnUrl")));
     }
-    
+
     /**
-     * Convert byte array to hex string
+     * Lưu payment PENDING kèm link và ghi orderCode -> payment vào bảng tra cứu
      */
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder result = new StringBuilder();
-        for (byte b : bytes) {
-            result.append(String.format("%02x", b));
-        }
-        return result.toString();
+    private PaymentLink savePendingPayment(Order order, PaymentLink link) {
+        long orderCode = link.orderCode();
+        Payment payment = Payment.builder()
+                .order(order)
+                .paymentMethod("PAYOS")
+                .paymentStatus("PENDING")
+                .amount(order.getTotalAmount())
+                .transactionId(String.valueOf(orderCode))
+                .paymentDate(LocalDateTime.now())
+                .checkoutUrl(link.checkoutUrl())
+                .qrCode(link.qrCode())
+                .linkExpiresAt(link.expiresAt())
+                .build();
+
+        paymentRepository.save(payment);
+        payOSOrderCodeRepository.save(PayOSOrderCode.builder()
+                .orderCode(orderCode)
+                .paymentId(payment.getId())
+                .orderId(order.getId())
+                .paymentCreatedAt(payment.getCreatedAt())
+                .build());
+        orderSummaryService.onPaymentChanged(order, payment.getPaymentStatus());
+        return link;
     }
 
     /**
-     * Tạo orderCode từ orderId (PayOS yêu cầu số nguyên)
+     * Tra payment theo orderCode qua khóa chính payos_order_codes.
+     * Payment tạo trước khi có bảng này (mã sinh từ hashCode) thì tìm theo transaction_id.
      */
-    private long generateOrderCode(String orderId) {
-        // Sử dụng hash của orderId để tạo số nguyên
-        return Math.abs(orderId.hashCode()) % 900000000L + 100000000L;
+    private Optional<Payment> findByOrderCode(long orderCode) {
+        return payOSOrderCodeRepository.findById(orderCode)
+                .flatMap(code -> paymentRepository.findByIdAndCreatedAt(code.getPaymentId(), code.getPaymentCreatedAt()))
+                .or(() -> paymentRepository.findByTransactionId(String.valueOf(orderCode)));
     }
 }
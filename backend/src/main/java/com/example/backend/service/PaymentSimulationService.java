@@ -27,6 +27,8 @@ public class PaymentSimulationService {
 
     PaymentRepository paymentRepository;
     OrderRepository orderRepository;
+    OrderSummaryService orderSummaryService;
+    OrderStateMachine orderStateMachine;
 
     /**
      * Giả lập thanh toán online (VNPay, Momo, ...)
@@ -54,10 +56,10 @@ public class PaymentSimulationService {
 
         paymentRepository.save(payment);
 
-        // Cập nhật order status
+        orderSummaryService.onPaymentChanged(order, status);
+        // Cập nhật order status (chỉ khi đơn còn PENDING)
         if (isSuccess) {
-            order.setStatus(OrderStatus.PAID);
-            orderRepository.save(order);
+            orderStateMachine.transition(order.getId(), OrderStatus.PAID);
         }
 
         log.info("Payment simulation: {} for order {}", status, order.getId());
@@ -91,6 +93,7 @@ public class PaymentSimulationService {
                 .build();
 
         paymentRepository.save(payment);
+        orderSummaryService.onPaymentChanged(order, payment.getPaymentStatus());
 
         // Order vẫn ở trạng thái PENDING, chờ ship
         log.info("COD payment created for order {}", orderId);
@@ -119,8 +122,9 @@ public class PaymentSimulationService {
         payment.setPaymentStatus("SUCCESS");
         payment.setPaymentDate(LocalDateTime.now());
 
-        order.setStatus(OrderStatus.PAID);
-        orderRepository.save(order);
+        orderSummaryService.onPaymentChanged(order, payment.getPaymentStatus());
+        // Đơn COD có thể đã SHIPPED/DELIVERED: giữ nguyên trạng thái, chỉ ghi nhận thanh toán
+        orderStateMachine.transition(orderId, OrderStatus.PAID);
 
         log.info("COD payment confirmed for order {}", orderId);
 
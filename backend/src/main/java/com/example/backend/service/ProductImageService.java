@@ -2,7 +2,9 @@ package com.example.backend.service;
 
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
+import com.example.backend.service.outbound.OutboundDependency;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -13,15 +15,18 @@ import java.util.Map;
 public class ProductImageService {
 
     private final Cloudinary cloudinary;
+    @Qualifier("cloudinaryOutbound")
+    private final OutboundDependency cloudinaryOutbound;
 
     public String uploadImage(MultipartFile file, String preset) {
         try {
-            Map result = cloudinary.uploader().upload(
+            // Upload không idempotent: chỉ thử lại khi chưa kết nối được
+            Map<?, ?> result = cloudinaryOutbound.execute(false, () -> cloudinary.uploader().upload(
                     file.getBytes(),
                     ObjectUtils.asMap(
                             "product-upload-preset", preset
                     )
-            );
+            ));
             return result.get("secure_url").toString();
         } catch (Exception e) {
             throw new RuntimeException("Upload image failed");
@@ -0,0 +1,138 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.response.DailySalesResponse;
+import com.example.backend.dto.response.SalesRankingResponse;
+import com.example.backend.entity.Category;
+import com.example.backend.entity.DailySalesRollup;
+import com.example.backend.entity.Product;
+import com.example.backend.entity.Shop;
+import com.example.backend.enums.SalesDimension;
+import com.example.backend.exception.AppException;
+import com.example.backend.exception.ErrorCode;
+import com.example.backend.repository.CategoryRepository;
+import com.example.backend.repository.DailySalesRollupRepository;
+import com.example.backend.repository.ProductRepository;
+import com.example.backend.repository.ShopRepository;
+import com.example.backend.util.SecurityUtil;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Báo cáo doanh số, chỉ đọc daily_sales_rollups (không quét orders / order_items)
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class SalesReportService {
+
+    static final int MAX_TOP_SIZE = 100;
+
+    DailySalesRollupRepository rollupRepository;
+    ShopRepository shopRepository;
+    ProductRepository productRepository;
+    CategoryRepository categoryRepository;
+
+    @Value("${sales-report.max-range-days:366}")
+    @NonFinal
+    int maxRangeDays;
+
+    /**
+     * Doanh số từng ngày của shop trong [from, to], ngày không có đơn trả về 0
+     */
+    @Transactional(readOnly = true)
+    public List<DailySalesResponse> getShopDailySales(String shopId, LocalDate from, LocalDate to) {
+        validateRange(from, to);
+        Shop shop = requireOwnedShop(shopId);
+
+        Map<LocalDate, DailySalesRollup> rows = rollupRepository
+                .findDaily(SalesDimension.SHOP, shop.getShopId(), from, to).stream()
+                .collect(Collectors.toMap(r -> r.getId().getSalesDate(), Function.identity()));
+        List<DailySalesResponse> result = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            DailySalesRollup row = rows.get(date);
+            result.add(DailySalesResponse.builder()
+                    .date(date)
+                    .units(row != null ? row.getUnits() : 0)
+                    .revenue(row != null ? row.getRevenue() : 0)
+                    .orderCount(row != null ? row.getOrderCount() : 0)
+                    .build());
+        }
+        return result;
+    }
+
+    /**
+     * Sản phẩm bán chạy nhất của shop theo doanh thu
+     */
+    @Transactional(readOnly = true)
+    public List<SalesRankingResponse> getTopProducts(String shopId, LocalDate from, LocalDate to, int size) {
+        validateRange(from, to);
+        if (size < 1 || size > MAX_TOP_SIZE) {
+            throw new AppException(ErrorCode.INVALID_VALUE);
+        }
+        Shop shop = requireOwnedShop(shopId);
+
+        List<Object[]> rows = rollupRepository.findTopProducts(shop.getShopId(), from, to, Limit.of(size));
+        Map<String, String> names = new HashMap<>();
+        productRepository.findAllById(rows.stream().map(row -> (String) row[0]).toList())
+                .forEach(product -> names.put(product.getProductId(), product.getName()));
+        return toRanking(rows, names);
+    }
+
+    /**
+     * Doanh số theo danh mục trên toàn sàn (chỉ ADMIN)
+     */
+    @Transactional(readOnly = true)
+    public List<SalesRankingResponse> getCategorySales(LocalDate from, LocalDate to) {
+        validateRange(from, to);
+        SecurityUtil.requireAdmin();
+
+        List<Object[]> rows = rollupRepository.sumByDimension(SalesDimension.CATEGORY, from, to);
+        Map<String, String> names = categoryRepository.findAllById(rows.stream().map(row -> (String) row[0]).toList())
+                .stream()
+                .collect(Collectors.toMap(Category::getCategoryId, Category::getName));
+        return toRanking(rows, names);
+    }
+
+    private static List<SalesRankingResponse> toRanking(List<Object[]> rows, Map<String, String> names) {
+        return rows.stream()
+                .map(row -> SalesRankingResponse.builder()
+                        .id((String) row[0])
+                        .name(names.get((String) row[0]))
+                        .units(((Number) row[1]).longValue())
+                        .revenue(((Number) row[2]).doubleValue())
+                        .orderCount(((Number) row[3]).longValue())
+                        .build())
+                .toList();
+    }
+
+    private void validateRange(LocalDate from, LocalDate to) {
+        if (from == null || to == null || to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= maxRangeDays) {
+            throw new AppException(ErrorCode.INVALID_VALUE);
+        }
+    }
+
+    private Shop requireOwnedShop(String shopId) {
+        Shop shop = shopRepository.findById(shopId)
+                .orElseThrow(() -> new AppException(ErrorCode.SHOP_NOT_EXIST));
+        if (!SecurityUtil.hasRole("ADMIN")
+                && !shop.getOwner().getUsername().equals(SecurityUtil.getCurrentUsername())) {
+            throw new AppException(ErrorCode.UNAUTHORIZED);
+        }
+        return shop;
+    }
+}
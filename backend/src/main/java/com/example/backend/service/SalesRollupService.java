@@ -0,0 +1,217 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.*;
+import com.example.backend.enums.OrderStatus;
+import com.example.backend.enums.SalesDimension;
+import com.example.backend.enums.SalesLedgerState;
+import com.example.backend.event.OrderCancelledEvent;
+import com.example.backend.event.OrderPaidEvent;
+import com.example.backend.repository.DailySalesRollupRepository;
+import com.example.backend.repository.OrderRepository;
+import com.example.backend.repository.SalesRollupLedgerRepository;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Cộng dồn doanh số vào daily_sales_rollups (shop / danh mục / sản phẩm × ngày đặt đơn).
+ * <p>
+ * Nhận OrderPaid / OrderCancelled từ outbox (ít nhất 1 lần, đúng thứ tự trong 1 đơn);
+ * sales_rollup_ledger chặn việc cộng 2 lần hoặc trừ khi chưa cộng.
+ * Đơn có trước khi có bảng này được cộng bởi backfill lúc khởi động.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class SalesRollupService {
+
+    static final int BACKFILL_BATCH_SIZE = 200;
+    // Các trạng thái đã thanh toán (và chưa hủy)
+    static final Set<OrderStatus> PAID_STATUSES = EnumSet.of(OrderStatus.PAID, OrderStatus.SHIPPED, OrderStatus.DELIVERED);
+
+    OrderRepository orderRepository;
+    DailySalesRollupRepository rollupRepository;
+    SalesRollupLedgerRepository ledgerRepository;
+    TransactionTemplate transactionTemplate;
+
+    @Value("${sales-rollup.backfill-on-startup:true}")
+    @NonFinal
+    boolean backfillOnStartup;
+
+    private record Delta(long units, double revenue) {
+    }
+
+    @EventListener
+    @Transactional
+    public void onOrderPaid(OrderPaidEvent event) {
+        count(event.orderId());
+    }
+
+    @EventListener
+    @Transactional
+    public void onOrderCancelled(OrderCancelledEvent event) {
+        reverse(event.orderId());
+    }
+
+    /**
+     * Cộng đơn vào rollup nếu chưa từng cộng (hoặc chưa bị đánh dấu bỏ qua)
+     *
+     * @return true nếu đã cộng
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean count(String orderId) {
+        if (ledgerRepository.existsById(orderId)) {
+            return false;
+        }
+        Order order = orderRepository.findById(orderId).orElse(null);
+        if (order == null) {
+            log.warn("Sales rollup: order {} no longer exists", orderId);
+            return false;
+        }
+        // Listener/backfill khác cùng chèn ledger -> trùng khóa khi commit, outbox gửi lại và lần sau bỏ qua
+        ledgerRepository.save(ledger(orderId, SalesLedgerState.COUNTED));
+        apply(order, 1);
+        return true;
+    }
+
+    /**
+     * Trừ đơn khỏi rollup nếu đã cộng. Chưa cộng thì đánh dấu SKIPPED để backfill không cộng nữa.
+     *
+     * @return true nếu đã trừ
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean reverse(String orderId) {
+        LocalDateTime now = LocalDateTime.now();
+        if (ledgerRepository.compareAndSetState(orderId, SalesLedgerState.COUNTED, SalesLedgerState.REVERSED, now) == 1) {
+            orderRepository.findById(orderId).ifPresent(order -> apply(order, -1));
+            return true;
+        }
+        if (!ledgerRepository.existsById(orderId)) {
+            ledgerRepository.save(ledger(orderId, SalesLedgerState.SKIPPED));
+        }
+        return false;
+    }
+
+    // sign = 1: cộng, -1: trừ. Các dòng được cập nhật theo thứ tự khóa cố định để tránh deadlock
+    private void apply(Order order, int sign) {
+        if (order.getItems() == null || order.getItems().isEmpty()) {
+            return;
+        }
+        LocalDate salesDate = order.getCreatedAt().toLocalDate();
+        Map<String, Delta> byProduct = new TreeMap<>();
+        Map<String, String> productShop = new TreeMap<>();
+        Map<String, Delta> byCategory = new TreeMap<>();
+        long units = 0;
+        double revenue = 0;
+        for (OrderItem item : order.getItems()) {
+            Product product = item.getProduct();
+            Delta line = new Delta(item.getQuantity(), item.getPriceAtPurchase() * item.getQuantity());
+            units += line.units();
+            revenue += line.revenue();
+            byProduct.merge(product.getProductId(), line, SalesRollupService::sum);
+            productShop.put(product.getProductId(), product.getShop() != null ? product.getShop().getShopId() : null);
+            Set<String> seen = new HashSet<>();
+            if (product.getCategories() != null) {
+                for (Category category : product.getCategories()) {
+                    if (seen.add(category.getCategoryId())) {
+                        byCategory.merge(category.getCategoryId(), line, SalesRollupService::sum);
+                    }
+                }
+            }
+        }
+
+        Shop shop = order.getShop() != null ? order.getShop() : order.getItems().get(0).getProduct().getShop();
+        LocalDateTime now = LocalDateTime.now();
+        // Mỗi đơn tính 1 lần vào order_count của từng shop/danh mục/sản phẩm có trong đơn
+        byCategory.forEach((categoryId, delta) ->
+                add(SalesDimension.CATEGORY, categoryId, null, salesDate, delta, sign, now));
+        byProduct.forEach((productId, delta) ->
+                add(SalesDimension.PRODUCT, productId, productShop.get(productId), salesDate, delta, sign, now));
+        if (shop != null) {
+            add(SalesDimension.SHOP, shop.getShopId(), shop.getShopId(), salesDate,
+                    new Delta(units, revenue), sign, now);
+        }
+    }
+
+    private void add(SalesDimension dimension, String dimensionId, String shopId, LocalDate salesDate,
+                     Delta delta, int sign, LocalDateTime now) {
+        DailySalesRollupId id = new DailySalesRollupId(dimension, dimensionId, salesDate);
+        long units = sign * delta.units();
+        double revenue = sign * delta.revenue();
+        if (rollupRepository.increment(id, units, revenue, sign, now) == 0) {
+            // Dòng đầu tiên của ngày; insert trùng song song -> lỗi khóa, outbox gửi lại sẽ đi nhánh increment
+            rollupRepository.save(DailySalesRollup.builder()
+                    .id(id)
+                    .shopId(shopId)
+                    .units(units)
+                    .revenue(revenue)
+                    .orderCount(sign)
+                    .updatedAt(now)
+                    .build());
+        }
+    }
+
+    private static Delta sum(Delta a, Delta b) {
+        return new Delta(a.units() + b.units(), a.revenue() + b.revenue());
+    }
+
+    private static SalesRollupLedger ledger(String orderId, SalesLedgerState state) {
+        return SalesRollupLedger.builder()
+                .orderId(orderId)
+                .state(state)
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * Cộng các đơn đã thanh toán chưa có trong ledger, theo lô, mỗi lô 1 transaction
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillMissing() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        int total = 0;
+        try {
+            while (true) {
+                Integer counted = transactionTemplate.execute(status -> {
+                    List<String> ids = orderRepository.findIdsWithoutSalesLedger(PAID_STATUSES,
+                            Limit.of(BACKFILL_BATCH_SIZE));
+                    ids.forEach(this::count);
+                    return ids.size();
+                });
+                if (counted == null || counted == 0) {
+                    break;
+                }
+                total += counted;
+            }
+        } catch (RuntimeException e) {
+            // Trùng ledger với listener đang chạy song song -> lần khởi động sau chạy tiếp
+            log.warn("Sales rollup backfill stopped after {} orders: {}", total, e.getMessage());
+            return;
+        }
+        if (total > 0) {
+            log.info("Backfilled sales rollups for {} orders", total);
+        }
+    }
+}
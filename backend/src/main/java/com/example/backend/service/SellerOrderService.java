@@ -0,0 +1,206 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.request.BulkOrderStatusRequest;
+import com.example.backend.dto.response.BulkOrderStatusResponse;
+import com.example.backend.dto.response.OrderResponse;
+import com.example.backend.dto.response.SellerOrderDashboardResponse;
+import com.example.backend.entity.Order;
+import com.example.backend.entity.Shop;
+import com.example.backend.enums.OrderStatus;
+import com.example.backend.exception.AppException;
+import com.example.backend.exception.ErrorCode;
+import com.example.backend.mapper.OrderMapper;
+import com.example.backend.repository.OrderRepository;
+import com.example.backend.repository.ShipmentRepository;
+import com.example.backend.repository.ShopRepository;
+import com.example.backend.service.outbox.OutboxService;
+import com.example.backend.util.KeysetCursor;
+import com.example.backend.util.SecurityUtil;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Màn quản lý đơn của người bán: lọc/phân trang theo shop, đếm theo trạng thái, đổi trạng thái hàng loạt.
+ * Mọi truy vấn lọc theo orders.shop_id nên chạy trên index của shop, không phải quét order_items.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class SellerOrderService {
+
+    static final int MAX_PAGE_SIZE = 100;
+    static final int MAX_BULK_SIZE = 1000;
+    static final int SHOP_BACKFILL_BATCH_SIZE = 1000;
+    static final LocalDateTime MIN_DATE = LocalDateTime.of(2000, 1, 1, 0, 0);
+    static final LocalDateTime MAX_DATE = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    ShopRepository shopRepository;
+    OrderRepository orderRepository;
+    ShipmentRepository shipmentRepository;
+    OrderSummaryService orderSummaryService;
+    OutboxService outboxService;
+    TransactionTemplate transactionTemplate;
+    OrderMapper orderMapper;
+
+    /**
+     * Đơn của shop theo bộ lọc, mới nhất trước, kèm số đơn theo từng trạng thái.
+     * 3 query mỗi trang: id trên index, nạp đơn + items, đếm GROUP BY status.
+     */
+    @Transactional(readOnly = true)
+    public SellerOrderDashboardResponse getDashboard(String shopId, List<OrderStatus> statuses,
+                                                     LocalDateTime from, LocalDateTime to,
+                                                     String cursor, int size) {
+        if (size <= 0 || size > MAX_PAGE_SIZE || (from != null && to != null && !from.isBefore(to))) {
+            throw new AppException(ErrorCode.INVALID_VALUE);
+        }
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        Shop shop = requireOwnedShop(shopId);
+
+        Set<OrderStatus> statusFilter = statuses == null || statuses.isEmpty()
+                ? EnumSet.allOf(OrderStatus.class)
+                : EnumSet.copyOf(statuses);
+        LocalDateTime fromDate = from != null ? from : MIN_DATE;
+        LocalDateTime toDate = to != null ? to : MAX_DATE;
+
+        // Lấy dư 1 dòng để biết còn trang sau hay không
+        Limit limit = Limit.of(size + 1);
+        List<Object[]> keys = after == null
+                ? orderRepository.findShopOrderKeys(shop, statusFilter, fromDate, toDate, limit)
+                : orderRepository.findShopOrderKeysAfter(shop, statusFilter, fromDate, toDate,
+                after.createdAt(), after.id(), limit);
+        boolean hasMore = keys.size() > size;
+        List<Object[]> pageKeys = hasMore ? keys.subList(0, size) : keys;
+        List<String> ids = pageKeys.stream().map(key -> (String) key[0]).toList();
+
+        Map<String, Order> ordersById = ids.isEmpty() ? Map.of()
+                : orderRepository.findAllWithDetailsByIdInAndCreatedAtBetween(ids,
+                        (LocalDateTime) pageKeys.get(pageKeys.size() - 1)[1], (LocalDateTime) pageKeys.get(0)[1])
+                .stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+        List<OrderResponse> orders = ids.stream()
+                .map(ordersById::get)
+                .map(orderMapper::toOrderResponse)
+                .toList();
+
+        Map<OrderStatus, Long> counts = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus status : OrderStatus.values()) {
+            counts.put(status, 0L);
+        }
+        for (Object[] row : orderRepository.countByStatusForShop(shop, fromDate, toDate)) {
+            counts.put((OrderStatus) row[0], (Long) row[1]);
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            Object[] last = pageKeys.get(pageKeys.size() - 1);
+            nextCursor = new KeysetCursor((LocalDateTime) last[1], (String) last[0]).encode();
+        }
+        return SellerOrderDashboardResponse.builder()
+                .orders(orders)
+                .nextCursor(nextCursor)
+                .statusCounts(counts)
+                .build();
+    }
+
+    /**
+     * Đổi trạng thái nhiều đơn của shop bằng 1 câu UPDATE (không nạp từng đơn).
+     * Chỉ đơn thuộc shop và đang ở fromStatus được đổi, còn lại bỏ qua.
+     * fromStatus -> status phải là bước chuyển hợp lệ của OrderStateMachine.
+     */
+    @Transactional
+    public BulkOrderStatusResponse bulkUpdateStatus(String shopId, BulkOrderStatusRequest request) {
+        if (request.getOrderIds() == null || request.getOrderIds().isEmpty()
+                || request.getOrderIds().size() > MAX_BULK_SIZE
+                || request.getFromStatus() == null || request.getStatus() == null) {
+            throw new AppException(ErrorCode.INVALID_VALUE);
+        }
+        if (!OrderStateMachine.canTransition(request.getFromStatus(), request.getStatus())) {
+            throw new AppException(ErrorCode.ORDER_STATUS_TRANSITION_INVALID);
+        }
+        Shop shop = requireOwnedShop(shopId);
+        Set<String> ids = new LinkedHashSet<>(request.getOrderIds());
+
+        // Chỉ đơn đang ở fromStatus mới đổi được; cần biết id để ghi sự kiện outbox cho từng đơn.
+        // Khóa các đơn này tới hết transaction nên UPDATE đổi đúng tập đã khóa, không lẫn đơn request khác vừa đổi
+        List<String> moved = orderRepository.lockIdsByShopAndStatus(shop, ids, request.getFromStatus());
+        if (moved.isEmpty()) {
+            return BulkOrderStatusResponse.builder()
+                    .status(request.getStatus())
+                    .requested(ids.size())
+                    .updated(0)
+                    .build();
+        }
+        orderRepository.bulkUpdateStatus(shop, moved, request.getFromStatus(), request.getStatus());
+
+        // Giống updateOrderStatus: hủy đơn thì hủy luôn shipment
+        String shipmentStatus = request.getStatus() == OrderStatus.CANCELLED ? "CANCELLED" : null;
+        if (shipmentStatus != null) {
+            shipmentRepository.bulkUpdateStatus(shop, moved, request.getStatus(), shipmentStatus);
+        }
+        orderSummaryService.onBulkStatusChanged(shopId, moved, request.getFromStatus(), request.getStatus(),
+                shipmentStatus);
+        LocalDateTime now = LocalDateTime.now();
+        moved.forEach(orderId -> outboxService.append(OrderStateMachine.eventFor(orderId, request.getStatus(), now)));
+
+        log.info("Shop {} moved {}/{} orders {} -> {}", shopId, moved.size(), ids.size(),
+                request.getFromStatus(), request.getStatus());
+        return BulkOrderStatusResponse.builder()
+                .status(request.getStatus())
+                .requested(ids.size())
+                .updated(moved.size())
+                .build();
+    }
+
+    /**
+     * Gán shop_id cho các đơn tạo trước khi có cột này, theo lô
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillShopIds() {
+        int total = 0;
+        try {
+            while (true) {
+                Integer updated = transactionTemplate.execute(status ->
+                        orderRepository.backfillShopIds(SHOP_BACKFILL_BATCH_SIZE));
+                if (updated == null || updated == 0) {
+                    break;
+                }
+                total += updated;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Order shop backfill stopped after {} orders: {}", total, e.getMessage());
+            return;
+        }
+        if (total > 0) {
+            log.info("Backfilled shop_id for {} orders", total);
+        }
+    }
+
+    private Shop requireOwnedShop(String shopId) {
+        Shop shop = shopRepository.findById(shopId)
+                .orElseThrow(() -> new AppException(ErrorCode.SHOP_NOT_EXIST));
+        String currentUsername = SecurityUtil.getCurrentUsername();
+        if (!SecurityUtil.hasRole("ADMIN") && !shop.getOwner().getUsername().equals(currentUsername)) {
+            throw new AppException(ErrorCode.UNAUTHORIZED);
+        }
+        return shop;
+    }
+}
@@ -3,100 +3,121 @@ package com.example.backend.service;
 
 import com.example.backend.dto.request.ShippingFeeRequest;
 import com.example.backend.dto.response.ShippingFeeResponse;
+import com.example.backend.service.shipping.ShippingQuoteCache;
+import com.example.backend.service.shipping.ShippingQuoteRacer;
+import com.example.backend.service.shipping.ShippingZoneFeeEngine;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.*;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ShippingService {
 
-    private final RestTemplate restTemplate;
-
-    private static final String GHN_URL_FEE = "https://online-gateway.ghn.vn/shiip/public-api/v2/shipping-order/fee\n";
-
-    private static final String GHN_TOKEN = "721ba613-e787-11f0-8373-1a92d62e4dc3";
-    private static final String GHN_SHOP_ID = "6194695";
-
-    public ShippingFeeResponse calculateShippingFee(ShippingFeeRequest request) {
-        log.info("Calling GHN API... From: {}, To: {}, Weight: {}",
-                request.getFromDistrictCode(), request.getToDistrictCode(), request.getWeightGram());
-
+    private final ShippingQuoteCache quoteCache;
+    private final ShippingZoneFeeEngine zoneFeeEngine;
+    private final ShippingQuoteRacer quoteRacer;
+
+    // Mỗi lần báo giá chạy trên 1 virtual thread riêng, không chiếm thread của servlet
+    private final ExecutorService quoteExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Hạn chót chung cho cả lượt báo giá nhiều shop
+    @Value("${shipping.quote.deadline-ms:2500}")
+    private long quoteDeadlineMs;
+
+    // true: trả luôn phí từ ma trận vùng nếu tính được, không gọi GHN
+    @Value("${shipping.zone-matrix.primary:false}")
+    private boolean zoneMatrixPrimary;
+
+    /**
+     * Tính phí ship cho nhiều shop cùng lúc.
+     * Các request chạy song song, shop nào quá hạn chót thì dùng phí mặc định,
+     * nên tổng thời gian chỉ bằng lượt gọi chậm nhất (tối đa bằng hạn chót).
+     */
+    public <K> Map<K, ShippingFeeResponse> calculateShippingFees(Map<K, ShippingFeeRequest> requests) {
+        Map<K, ShippingFeeResponse> results = new LinkedHashMap<>();
+        if (requests.isEmpty()) {
+            return results;
+        }
+
+        List<K> keys = new ArrayList<>(requests.keySet());
+        List<Callable<ShippingFeeResponse>> tasks = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            ShippingFeeRequest request = requests.get(key);
+            tasks.add(() -> calculateShippingFee(request));
+        }
+
+        List<Future<ShippingFeeResponse>> futures;
         try {
-            // Tạo Headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("token", GHN_TOKEN);
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            if (!GHN_SHOP_ID.isEmpty()) {
-                headers.set("ShopId", GHN_SHOP_ID);
+            // invokeAll tự hủy các task chưa xong khi hết hạn chót
+            futures = quoteExecutor.invokeAll(tasks, quoteDeadlineMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            keys.forEach(key -> results.put(key, fallbackFee(requests.get(key))));
+            return results;
+        }
+
+        for (int i = 0; i < keys.size(); i++) {
+            K key = keys.get(i);
+            try {
+                results.put(key, futures.get(i).get());
+            } catch (CancellationException e) {
+                log.warn("Shipping quote for {} missed the {} ms deadline, using default fee", key, quoteDeadlineMs);
+                results.put(key, fallbackFee(requests.get(key)));
+            } catch (ExecutionException e) {
+                log.error("Shipping quote for {} failed: {}", key, e.getCause().getMessage());
+                results.put(key, fallbackFee(requests.get(key)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results.put(key, fallbackFee(requests.get(key)));
             }
+        }
+        return results;
+    }
 
-            //  Tạo Body
-            Map<String, Object> body = new HashMap<>();
-
-            // 2 = Hàng nhẹ/Thương mại điện tử , 5 = Hàng nặng
-            body.put("service_type_id", 2);
-
-            body.put("from_district_id", Integer.parseInt(request.getFromDistrictCode()));
-            body.put("to_district_id", Integer.parseInt(request.getToDistrictCode()));
-            body.put("to_ward_code", request.getToWardCode());
-            body.put("weight", request.getWeightGram());
-            body.put("length", 20);
-            body.put("width", 15);
-            body.put("height", 10);
-            body.put("insurance_value", 0); // bảo hiểm
-            body.put("coupon", null);
-
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(body, headers);
-
-            // Gọi API
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    GHN_URL_FEE,
-                    HttpMethod.POST,
-                    entity,
-                    Map.class
-            );
-
-            // Xử lý kết quả thành công
-            if (response.getBody() != null && response.getStatusCode() == HttpStatus.OK) {
-                Map<String, Object> data = (Map<String, Object>) response.getBody().get("data");
-                if (data != null) {
-                    double totalFee = Double.parseDouble(data.get("total").toString());
-                    log.info("GHN Calculator Success: {} VND", totalFee);
-
-                    return ShippingFeeResponse.builder()
-                            .fee(totalFee)
-                            .estimatedDays(3) // Mặc định, muốn chuẩn phải gọi thêm API leadtime
-                            .provider("GHN Express")
-                            .build();
-                }
+    public ShippingFeeResponse calculateShippingFee(ShippingFeeRequest request) {
+        if (zoneMatrixPrimary) {
+            Optional<ShippingFeeResponse> local = zoneFeeEngine.quote(request);
+            if (local.isPresent()) {
+                return local.get();
             }
+        }
 
-            log.warn("GHN Response body is null or missing data");
-            return fallbackFee();
-
-        }catch (HttpClientErrorException e) {
-
-        System.err.println(">>> GHN REJECTED: " + e.getResponseBodyAsString());
-        log.error("GHN API Error: Status={}, Body={}", e.getStatusCode(), e.getResponseBodyAsString());
-        return fallbackFee();
-
-    } catch (Exception e) {
-        System.err.println(">>> CODE ERROR: " + e.getMessage());
-        e.printStackTrace(); // In chi tiết lỗi dòng nào
-        return fallbackFee();
-    }}
+        try {
+            // Cùng tuyến + cùng mức cân nặng thì dùng lại báo giá đã cache,
+            // chưa có thì hỏi song song các carrier và lấy giá rẻ nhất
+            return quoteCache.get(request, quoteRacer::quote);
+
+        } catch (Exception e) {
+            log.error("Shipping fee calculation failed: {}", e.getMessage());
+            return fallbackFee(request);
+        }
+    }
 
+    /**
+     * Phí dự phòng khi không carrier nào trả lời kịp: ưu tiên ma trận vùng, không có thì dùng giá cố định
+     */
+    private ShippingFeeResponse fallbackFee(ShippingFeeRequest request) {
+        return zoneFeeEngine.quote(request).orElseGet(ShippingService::flatFallbackFee);
+    }
 
-    private ShippingFeeResponse fallbackFee() {
-        System.out.print("Lỗi ship");
+    private static ShippingFeeResponse flatFallbackFee() {
         return ShippingFeeResponse.builder()
                 .fee(30000.0) // Giá fallback nếu gọi API lỗi
                 .estimatedDays(3)
@@ -107,4 +128,9 @@ public class ShippingService {
     public String createShippingOrder(String orderId) {
         return "GHN_ORDER_" + System.currentTimeMillis();
     }
+
+    @PreDestroy
+    void shutdownQuoteExecutor() {
+        quoteExecutor.shutdownNow();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,187 @@
+package com.example.backend.service.leaderboard;
+
+import com.example.backend.enums.SalesWindow;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Đếm số lượng bán theo sản phẩm trong các cửa sổ trượt (giờ / ngày / tuần), toàn sàn và theo danh mục.
+ * <p>
+ * Mỗi cửa sổ là 1 vòng bucket theo thời gian và 1 bảng tổng chạy; bucket hết hạn thì bị trừ khỏi tổng.
+ * refreshSnapshot() dựng top-K (heap giới hạn K phần tử) cho mọi phạm vi thành 1 snapshot bất biến,
+ * top() chỉ đọc snapshot đó nên không khóa và không tính toán gì.
+ * Ghi (record / advance / refreshSnapshot) phải được gọi tuần tự (TopSellerLeaderboard giữ khóa).
+ */
+public class TopSellerCounter {
+
+    // Phạm vi toàn sàn; các phạm vi khác là categoryId
+    public static final String SITE_WIDE = "";
+
+    public record Entry(String productId, long units) {
+    }
+
+    private record ScopedProduct(String scope, String productId) {
+    }
+
+    private final int maxSize;
+    private final Map<SalesWindow, Window> windows = new EnumMap<>(SalesWindow.class);
+    private volatile Map<SalesWindow, Map<String, List<Entry>>> snapshot = Map.of();
+
+    public TopSellerCounter(int maxSize) {
+        this.maxSize = maxSize;
+        for (SalesWindow window : SalesWindow.values()) {
+            windows.put(window, new Window(window));
+        }
+    }
+
+    /**
+     * Ghi nhận units sản phẩm bán lúc epochMillis. Quá cũ so với cửa sổ thì bỏ qua ở cửa sổ đó.
+     */
+    public void record(long epochMillis, long nowMillis, String productId, Collection<String> categoryIds, long units) {
+        for (Window window : windows.values()) {
+            window.add(epochMillis, nowMillis, productId, categoryIds, units);
+        }
+    }
+
+    /**
+     * Trừ các bucket đã trượt ra khỏi cửa sổ
+     *
+     * @return true nếu có bucket bị trừ (snapshot cần dựng lại)
+     */
+    public boolean advance(long nowMillis) {
+        boolean changed = false;
+        for (Window window : windows.values()) {
+            changed |= window.expire(nowMillis);
+        }
+        return changed;
+    }
+
+    public void refreshSnapshot() {
+        Map<SalesWindow, Map<String, List<Entry>>> next = new EnumMap<>(SalesWindow.class);
+        windows.forEach((type, window) -> next.put(type, window.topByScope(maxSize)));
+        snapshot = next;
+    }
+
+    public List<Entry> top(SalesWindow window, String scope, int size) {
+        List<Entry> entries = snapshot.getOrDefault(window, Map.of()).getOrDefault(scope, List.of());
+        return entries.size() <= size ? entries : entries.subList(0, size);
+    }
+
+    public void clear() {
+        windows.replaceAll((type, window) -> new Window(type));
+        snapshot = Map.of();
+    }
+
+    private static final class Window {
+        final long bucketMillis;
+        final int bucketCount;
+        // slot -> chỉ số bucket (epochMillis / bucketMillis) đang nằm ở slot, -1 = trống
+        final long[] slotBucket;
+        final List<Map<ScopedProduct, Long>> slots;
+        // scope -> productId -> tổng trong cửa sổ
+        final Map<String, Map<String, Long>> totals = new HashMap<>();
+
+        Window(SalesWindow type) {
+            this.bucketMillis = type.getBucketMillis();
+            this.bucketCount = type.getBucketCount();
+            this.slotBucket = new long[bucketCount];
+            this.slots = new ArrayList<>(bucketCount);
+            for (int i = 0; i < bucketCount; i++) {
+                slotBucket[i] = -1;
+                slots.add(new HashMap<>());
+            }
+        }
+
+        void add(long epochMillis, long nowMillis, String productId, Collection<String> categoryIds, long units) {
+            long nowBucket = nowMillis / bucketMillis;
+            // Đồng hồ lệch về tương lai thì tính vào bucket hiện tại
+            long bucket = Math.min(epochMillis / bucketMillis, nowBucket);
+            if (bucket <= nowBucket - bucketCount) {
+                return;
+            }
+            int slot = (int) (bucket % bucketCount);
+            if (slotBucket[slot] != bucket) {
+                if (slotBucket[slot] > bucket) {
+                    return; // slot đã thuộc bucket mới hơn -> bucket này đã hết hạn
+                }
+                evict(slot);
+                slotBucket[slot] = bucket;
+            }
+            addTo(slot, SITE_WIDE, productId, units);
+            for (String categoryId : categoryIds) {
+                addTo(slot, categoryId, productId, units);
+            }
+        }
+
+        private void addTo(int slot, String scope, String productId, long units) {
+            slots.get(slot).merge(new ScopedProduct(scope, productId), units, Long::sum);
+            totals.computeIfAbsent(scope, key -> new HashMap<>()).merge(productId, units, Long::sum);
+        }
+
+        boolean expire(long nowMillis) {
+            long oldestLive = nowMillis / bucketMillis - bucketCount + 1;
+            boolean changed = false;
+            for (int slot = 0; slot < bucketCount; slot++) {
+                if (slotBucket[slot] >= 0 && slotBucket[slot] < oldestLive) {
+                    evict(slot);
+                    changed = true;
+                }
+            }
+            return changed;
+        }
+
+        private void evict(int slot) {
+            for (Map.Entry<ScopedProduct, Long> expired : slots.get(slot).entrySet()) {
+                Map<String, Long> scopeTotals = totals.get(expired.getKey().scope());
+                String productId = expired.getKey().productId();
+                long remaining = scopeTotals.get(productId) - expired.getValue();
+                if (remaining <= 0) {
+                    scopeTotals.remove(productId);
+                    if (scopeTotals.isEmpty()) {
+                        totals.remove(expired.getKey().scope());
+                    }
+                } else {
+                    scopeTotals.put(productId, remaining);
+                }
+            }
+            slots.get(slot).clear();
+            slotBucket[slot] = -1;
+        }
+
+        Map<String, List<Entry>> topByScope(int k) {
+            Map<String, List<Entry>> result = new HashMap<>(totals.size() * 2);
+            totals.forEach((scope, counts) -> result.put(scope, topK(counts, k)));
+            return Collections.unmodifiableMap(result);
+        }
+
+        // Min-heap giữ K phần tử lớn nhất: O(n log K) thay vì sort cả danh sách
+        private static List<Entry> topK(Map<String, Long> counts, int k) {
+            PriorityQueue<Entry> heap = new PriorityQueue<>(k + 1, TopSellerCounter::compareAscending);
+            counts.forEach((productId, units) -> {
+                Entry entry = new Entry(productId, units);
+                if (heap.size() < k) {
+                    heap.add(entry);
+                } else if (compareAscending(entry, heap.peek()) > 0) {
+                    heap.poll();
+                    heap.add(entry);
+                }
+            });
+            List<Entry> sorted = new ArrayList<>(heap);
+            sorted.sort((a, b) -> compareAscending(b, a));
+            return List.copyOf(sorted);
+        }
+    }
+
+    // Ít units hơn xếp trước; bằng nhau thì productId lớn hơn xếp trước (kết quả ổn định)
+    private static int compareAscending(Entry a, Entry b) {
+        int byUnits = Long.compare(a.units(), b.units());
+        return byUnits != 0 ? byUnits : b.productId().compareTo(a.productId());
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.backend.service.leaderboard;
+
+import com.example.backend.dto.response.TopSellerResponse;
+import com.example.backend.enums.OrderStatus;
+import com.example.backend.enums.SalesWindow;
+import com.example.backend.event.OrderPaidEvent;
+import com.example.backend.exception.AppException;
+import com.example.backend.exception.ErrorCode;
+import com.example.backend.repository.OrderItemRepository;
+import com.example.backend.repository.ProductRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bảng xếp hạng sản phẩm bán chạy (giờ / ngày / tuần, toàn sàn hoặc theo danh mục), giữ trong bộ nhớ.
+ * <p>
+ * - Cộng từ sự kiện OrderPaid của outbox (đơn được trả tiền qua PayOS / giả lập / COD).
+ * - Khi khởi động: dựng lại từ order_items của các đơn đã thanh toán trong 1 tuần gần nhất.
+ * - Đọc: trả về snapshot top-K đã dựng sẵn, không truy vấn DB.
+ * Mỗi node có bảng riêng; outbox chỉ giao sự kiện cho 1 node nên với nhiều node
+ * nên bật leaderboard.resync-enabled để các node định kỳ dựng lại từ DB.
+ */
+@Component
+@Slf4j
+public class TopSellerLeaderboard {
+
+    static final Set<OrderStatus> PAID_STATUSES = EnumSet.of(OrderStatus.PAID, OrderStatus.SHIPPED, OrderStatus.DELIVERED);
+    private static final int CATEGORY_QUERY_CHUNK = 500;
+
+    private final OrderItemRepository orderItemRepository;
+    private final ProductRepository productRepository;
+    private final TopSellerCounter counter;
+    private final int maxSize;
+    // Đơn đã được cộng (outbox có thể gửi lại), giữ lâu hơn cửa sổ dài nhất
+    private final Cache<String, Boolean> countedOrders;
+    private final Map<String, String> productNames = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private final boolean resyncEnabled;
+    private boolean dirty;
+
+    public TopSellerLeaderboard(
+            OrderItemRepository orderItemRepository,
+            ProductRepository productRepository,
+            @Value("${leaderboard.max-size:100}") int maxSize,
+            @Value("${leaderboard.dedupe-max-orders:1000000}") long dedupeMaxOrders,
+            @Value("${leaderboard.resync-enabled:false}") boolean resyncEnabled) {
+        this.orderItemRepository = orderItemRepository;
+        this.productRepository = productRepository;
+        this.maxSize = maxSize;
+        this.resyncEnabled = resyncEnabled;
+        this.counter = new TopSellerCounter(maxSize);
+        this.countedOrders = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(SalesWindow.WEEK.getLengthMillis()).plusDays(1))
+                .maximumSize(dedupeMaxOrders)
+                .build();
+    }
+
+    @EventListener
+    public void onOrderPaid(OrderPaidEvent event) {
+        if (countedOrders.getIfPresent(event.orderId()) != null) {
+            return;
+        }
+        List<Object[]> lines = orderItemRepository.findLinesByOrderId(event.orderId());
+        Map<String, Set<String>> categories = categoriesOf(lines.stream().map(line -> (String) line[0]).toList());
+        long paidAt = toEpochMillis(event.paidAt() != null ? event.paidAt() : LocalDateTime.now());
+        long now = System.currentTimeMillis();
+        synchronized (writeLock) {
+            // Kiểm tra lại trong khóa: rebuild() có thể vừa đếm đơn này
+            if (countedOrders.asMap().putIfAbsent(event.orderId(), Boolean.TRUE) != null) {
+                return;
+            }
+            for (Object[] line : lines) {
+                String productId = (String) line[0];
+                productNames.put(productId, (String) line[1]);
+                counter.record(paidAt, now, productId, categories.getOrDefault(productId, Set.of()),
+                        ((Number) line[2]).longValue());
+            }
+            dirty = true;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    // Dựng lại định kỳ, dùng khi chạy nhiều node
+    @Scheduled(fixedDelayString = "${leaderboard.resync-ms:600000}", initialDelayString = "${leaderboard.resync-ms:600000}")
+    public void resync() {
+        if (resyncEnabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Dựng lại toàn bộ từ order_items của các đơn đã thanh toán trong cửa sổ dài nhất
+     * (thời điểm bán lấy theo ngày tạo đơn). Giữ khóa ghi trong lúc đọc DB để sự kiện đến
+     * giữa chừng không bị mất hoặc đếm 2 lần; chỉ chạy lúc khởi động / resync nên chấp nhận được.
+     */
+    public void rebuild() {
+        try {
+            synchronized (writeLock) {
+                long now = System.currentTimeMillis();
+                LocalDateTime since = LocalDateTime.now().minus(Duration.ofMillis(SalesWindow.WEEK.getLengthMillis()));
+                List<Object[]> lines = orderItemRepository.findSoldLinesSince(PAID_STATUSES, since);
+                Map<String, Set<String>> categories = categoriesOf(
+                        lines.stream().map(line -> (String) line[2]).distinct().toList());
+
+                counter.clear();
+                countedOrders.invalidateAll();
+                for (Object[] line : lines) {
+                    String productId = (String) line[2];
+                    productNames.put(productId, (String) line[3]);
+                    countedOrders.put((String) line[0], Boolean.TRUE);
+                    counter.record(toEpochMillis((LocalDateTime) line[1]), now, productId,
+                            categories.getOrDefault(productId, Set.of()), ((Number) line[4]).longValue());
+                }
+                counter.refreshSnapshot();
+                dirty = false;
+                log.info("Rebuilt top-seller leaderboard from {} order lines", lines.size());
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to rebuild top-seller leaderboard: {}", e.getMessage(), e);
+        }
+    }
+
+    // Trượt cửa sổ và dựng lại snapshot top-K
+    @Scheduled(fixedDelayString = "${leaderboard.refresh-ms:1000}")
+    public void tick() {
+        synchronized (writeLock) {
+            // Không có đơn mới và không bucket nào hết hạn thì giữ snapshot cũ
+            if (counter.advance(System.currentTimeMillis()) || dirty) {
+                counter.refreshSnapshot();
+                dirty = false;
+            }
+        }
+    }
+
+    /**
+     * Top sản phẩm bán chạy trong cửa sổ, categoryId = null -> toàn sàn.
+     * Đọc snapshot có sẵn (trễ tối đa leaderboard.refresh-ms so với sự kiện).
+     */
+    public List<TopSellerResponse> getTopSellers(SalesWindow window, String categoryId, int size) {
+        if (window == null || size < 1 || size > maxSize) {
+            throw new AppException(ErrorCode.INVALID_VALUE);
+        }
+        String scope = categoryId == null || categoryId.isBlank() ? TopSellerCounter.SITE_WIDE : categoryId;
+        List<TopSellerCounter.Entry> entries = counter.top(window, scope, size);
+        List<TopSellerResponse> result = new ArrayList<>(entries.size());
+        for (TopSellerCounter.Entry entry : entries) {
+            result.add(TopSellerResponse.builder()
+                    .productId(entry.productId())
+                    .productName(productNames.get(entry.productId()))
+                    .units(entry.units())
+                    .build());
+        }
+        return result;
+    }
+
+    private Map<String, Set<String>> categoriesOf(List<String> productIds) {
+        Map<String, Set<String>> result = new HashMap<>();
+        for (int from = 0; from < productIds.size(); from += CATEGORY_QUERY_CHUNK) {
+            List<String> chunk = productIds.subList(from, Math.min(productIds.size(), from + CATEGORY_QUERY_CHUNK));
+            for (Object[] row : productRepository.findCategoryIds(chunk)) {
+                result.computeIfAbsent((String) row[0], key -> new HashSet<>()).add((String) row[1]);
+            }
+        }
+        return result;
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
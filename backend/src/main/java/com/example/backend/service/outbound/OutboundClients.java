@@ -0,0 +1,95 @@
+package com.example.backend.service.outbound;
+
+import com.example.backend.configuration.OutboundProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Tạo client gọi ra ngoài cho từng dependency theo outbound.clients.&lt;tên&gt;:
+ * pool connection keep-alive riêng, timeout riêng, và OutboundDependency (bulkhead, breaker, retry, metrics).
+ */
+@Component
+@Slf4j
+public class OutboundClients {
+
+    private final OutboundProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, OutboundDependency> dependencies = new ConcurrentHashMap<>();
+    private final List<CloseableHttpClient> httpClients = new CopyOnWriteArrayList<>();
+
+    public OutboundClients(OutboundProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public OutboundDependency dependency(String name) {
+        return dependencies.computeIfAbsent(name,
+                key -> new OutboundDependency(key, properties.client(key), meterRegistry));
+    }
+
+    public String baseUrl(String name) {
+        return properties.client(name).getBaseUrl();
+    }
+
+    public RestTemplate restTemplate(String name) {
+        OutboundProperties.Client config = properties.client(name);
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(config.getMaxConnections())
+                        .setMaxConnPerRoute(config.getMaxConnections())
+                        .setDefaultConnectionConfig(ConnectionConfig.custom()
+                                .setConnectTimeout(Timeout.ofMilliseconds(config.getConnectTimeoutMs()))
+                                .setSocketTimeout(Timeout.ofMilliseconds(config.getReadTimeoutMs()))
+                                .setTimeToLive(TimeValue.ofMilliseconds(config.getConnectionTtlMs()))
+                                // Kiểm tra connection nằm im lâu trước khi dùng lại (server có thể đã đóng)
+                                .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                                .build())
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        // Chờ lấy connection từ pool cũng bị giới hạn như connect
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(config.getConnectTimeoutMs()))
+                        .setResponseTimeout(Timeout.ofMilliseconds(config.getReadTimeoutMs()))
+                        .build())
+                .evictIdleConnections(TimeValue.ofMilliseconds(config.getIdleEvictMs()))
+                .evictExpiredConnections()
+                // Retry do OutboundDependency quyết định
+                .disableAutomaticRetries()
+                .build();
+        httpClients.add(httpClient);
+
+        RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+        restTemplate.getInterceptors().add(new OutboundInterceptor(dependency(name), config.isRetryNonIdempotent()));
+        log.info("Outbound client {}: {} connections, connect {} ms, read {} ms, {} concurrent calls",
+                name, config.getMaxConnections(), config.getConnectTimeoutMs(), config.getReadTimeoutMs(),
+                config.getMaxConcurrent());
+        return restTemplate;
+    }
+
+    @PreDestroy
+    void close() {
+        for (CloseableHttpClient httpClient : httpClients) {
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                log.warn("Failed to close outbound HTTP client: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.backend.service.outbound;
+
+import com.example.backend.configuration.OutboundProperties;
+import com.example.backend.util.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.apache.hc.client5.http.ConnectTimeoutException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Lớp bảo vệ cho mọi lời gọi ra 1 dependency ngoài.
+ * <p>
+ * - Bulkhead (semaphore): dependency chậm chỉ giữ tối đa max-concurrent thread, không kéo cả servlet pool.
+ * - Circuit breaker: lỗi liên tiếp thì chặn luôn một lúc, không chờ timeout.
+ * - Retry có jitter cho lỗi tạm thời; request không idempotent chỉ retry khi chưa kết nối được.
+ * - Timer outbound.requests theo dependency và kết quả.
+ */
+public class OutboundDependency {
+
+    @FunctionalInterface
+    public interface Call<T> {
+        T execute() throws IOException;
+    }
+
+    private final String name;
+    private final Semaphore bulkhead;
+    private final CircuitBreaker breaker;
+    private final MeterRegistry meterRegistry;
+    private final long bulkheadWaitMs;
+    private final int maxAttempts;
+    private final long retryBaseBackoffMs;
+    private final long retryMaxBackoffMs;
+
+    public OutboundDependency(String name, OutboundProperties.Client config, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.bulkhead = new Semaphore(Math.max(1, config.getMaxConcurrent()));
+        this.breaker = new CircuitBreaker(name, config.getBreakerFailureThreshold(),
+                Duration.ofMillis(config.getBreakerOpenMs()));
+        this.meterRegistry = meterRegistry;
+        this.bulkheadWaitMs = config.getBulkheadWaitMs();
+        this.maxAttempts = Math.max(1, config.getMaxAttempts());
+        this.retryBaseBackoffMs = config.getRetryBaseBackoffMs();
+        this.retryMaxBackoffMs = config.getRetryMaxBackoffMs();
+        meterRegistry.gauge("outbound.bulkhead.available", Tags.of("dependency", name),
+                bulkhead, Semaphore::availablePermits);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public CircuitBreaker.State getBreakerState() {
+        return breaker.getState();
+    }
+
+    public <T> T execute(boolean idempotent, Call<T> call) throws IOException {
+        return execute(idempotent, call, result -> false, result -> {
+        });
+    }
+
+    /**
+     * Gọi call qua bulkhead + breaker, thử lại khi lỗi tạm thời.
+     *
+     * @param failed  kết quả nào tính là lỗi của dependency (vd HTTP 5xx); được retry nếu idempotent
+     * @param discard giải phóng kết quả lỗi trước khi retry (vd đóng response)
+     */
+    public <T> T execute(boolean idempotent, Call<T> call, Predicate<T> failed, Consumer<T> discard)
+            throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            acquire();
+            long start = System.nanoTime();
+            String outcome = "success";
+            try {
+                T result = call.execute();
+                if (!failed.test(result)) {
+                    breaker.recordSuccess();
+                    return result;
+                }
+                breaker.recordFailure();
+                outcome = "failed_response";
+                if (!idempotent || attempt >= maxAttempts) {
+                    return result;
+                }
+                discard.accept(result);
+            } catch (IOException e) {
+                breaker.recordFailure();
+                outcome = "io_error";
+                if (attempt >= maxAttempts || !(idempotent || notSent(e))) {
+                    throw e;
+                }
+            } catch (RuntimeException e) {
+                breaker.recordFailure();
+                outcome = "error";
+                throw e;
+            } finally {
+                bulkhead.release();
+                timer(outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            // Chờ ngoài bulkhead để không giữ chỗ của request khác
+            backoff(attempt);
+        }
+    }
+
+    private void acquire() throws IOException {
+        try {
+            if (!bulkhead.tryAcquire(bulkheadWaitMs, TimeUnit.MILLISECONDS)) {
+                rejected("bulkhead_full");
+                throw new OutboundRejectedException(name + ": too many concurrent calls");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(name + ": interrupted waiting for bulkhead");
+        }
+        if (!breaker.tryAcquire()) {
+            bulkhead.release();
+            rejected("circuit_open");
+            throw new OutboundRejectedException(name + ": circuit open");
+        }
+    }
+
+    // Full jitter: ngẫu nhiên trong [0, min(max, base * 2^(attempt - 1))]
+    long backoffMs(int attempt) {
+        long cap = Math.min(retryMaxBackoffMs, retryBaseBackoffMs << Math.min(attempt - 1, 20));
+        return cap <= 0 ? 0 : ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    private void backoff(int attempt) throws InterruptedIOException {
+        try {
+            Thread.sleep(backoffMs(attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(name + ": interrupted during retry backoff");
+        }
+    }
+
+    // Lỗi khi kết nối: request chưa tới server nên gửi lại an toàn kể cả POST
+    private static boolean notSent(IOException e) {
+        return e instanceof ConnectException || e instanceof ConnectTimeoutException;
+    }
+
+    private Timer timer(String outcome) {
+        return meterRegistry.timer("outbound.requests", "dependency", name, "outcome", outcome);
+    }
+
+    private void rejected(String reason) {
+        meterRegistry.counter("outbound.rejected", "dependency", name, "reason", reason).increment();
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.backend.service.outbound;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Cho mọi request của 1 RestTemplate đi qua OutboundDependency.
+ * HTTP 5xx / 429 tính là lỗi của dependency (mở breaker, được retry nếu idempotent).
+ */
+public class OutboundInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final Set<HttpMethod> IDEMPOTENT_METHODS = Set.of(
+            HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS, HttpMethod.PUT, HttpMethod.DELETE);
+
+    private final OutboundDependency dependency;
+    private final boolean retryNonIdempotent;
+
+    public OutboundInterceptor(OutboundDependency dependency, boolean retryNonIdempotent) {
+        this.dependency = dependency;
+        this.retryNonIdempotent = retryNonIdempotent;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        boolean idempotent = retryNonIdempotent || IDEMPOTENT_METHODS.contains(request.getMethod());
+        return dependency.execute(idempotent,
+                () -> execution.execute(request, body),
+                OutboundInterceptor::isDependencyFailure,
+                ClientHttpResponse::close);
+    }
+
+    static boolean isDependencyFailure(ClientHttpResponse response) {
+        try {
+            HttpStatusCode status = response.getStatusCode();
+            return status.is5xxServerError() || status.value() == 429;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.backend.service.outbound;
+
+import java.io.IOException;
+import java.io.Serial;
+
+/**
+ * Lời gọi bị chặn trước khi gửi: bulkhead đầy hoặc circuit breaker đang mở.
+ * Là IOException nên RestTemplate bọc thành ResourceAccessException như lỗi mạng.
+ */
+public class OutboundRejectedException extends IOException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public OutboundRejectedException(String message) {
+        super(message);
+    }
+}
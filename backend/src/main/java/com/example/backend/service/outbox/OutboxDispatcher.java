@@ -0,0 +1,218 @@
+package com.example.backend.service.outbox;
+
+import com.example.backend.entity.OutboxEvent;
+import com.example.backend.event.DomainEvent;
+import com.example.backend.repository.OutboxEventRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Đọc outbox_events theo lô và phát từng sự kiện cho các @EventListener.
+ * <p>
+ * - Mỗi aggregate (đơn hàng) được phát tuần tự theo id trên 1 virtual thread riêng,
+ *   các aggregate khác nhau chạy song song.
+ * - Sự kiện lỗi được thử lại với thời gian chờ tăng dần; trong lúc chờ, các sự kiện sau nó
+ *   của cùng aggregate không được phát (giữ thứ tự).
+ * - Ít nhất 1 lần: listener có thể nhận lại sự kiện đã xử lý nếu node chết giữa chừng.
+ */
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class OutboxDispatcher {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    // Tên class -> kiểu sự kiện, lấy từ danh sách permits của DomainEvent
+    private static final Map<String, Class<? extends DomainEvent>> EVENT_TYPES = new HashMap<>();
+
+    static {
+        for (Class<?> type : DomainEvent.class.getPermittedSubclasses()) {
+            EVENT_TYPES.put(type.getSimpleName(), type.asSubclass(DomainEvent.class));
+        }
+    }
+
+    OutboxEventRepository outboxEventRepository;
+    ApplicationEventPublisher eventPublisher;
+    ObjectMapper objectMapper;
+    TransactionTemplate transactionTemplate;
+    MeterRegistry meterRegistry;
+
+    ExecutorService listenerExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${outbox.dispatcher.enabled:true}")
+    @NonFinal
+    boolean enabled;
+
+    @Value("${outbox.batch-size:200}")
+    @NonFinal
+    int batchSize;
+
+    // Thời gian tối đa cho 1 lô; aggregate chưa xong bị hủy và gửi lại ở lượt sau
+    @Value("${outbox.dispatch-timeout-ms:10000}")
+    @NonFinal
+    long dispatchTimeoutMs;
+
+    @Value("${outbox.retry.base-backoff-ms:1000}")
+    @NonFinal
+    long baseBackoffMs;
+
+    @Value("${outbox.retry.max-backoff-ms:300000}")
+    @NonFinal
+    long maxBackoffMs;
+
+    @Value("${outbox.retention-days:7}")
+    @NonFinal
+    int retentionDays;
+
+    @Scheduled(fixedDelayString = "${outbox.poll-ms:1000}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            // Lô đầy thì đọc tiếp ngay, không chờ lượt sau
+            while (dispatchBatch() >= batchSize) {
+                log.debug("Outbox batch full, polling again");
+            }
+        } catch (RuntimeException e) {
+            log.error("Outbox dispatch failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Phát 1 lô sự kiện đến hạn.
+     * Các dòng bị khóa (FOR UPDATE) đến khi lô xong, nên poller ở node khác không phát trùng.
+     *
+     * @return số sự kiện đã đọc trong lô
+     */
+    public int dispatchBatch() {
+        Integer read = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<OutboxEvent> batch = outboxEventRepository.lockPending(now, Limit.of(batchSize));
+            if (batch.isEmpty()) {
+                return 0;
+            }
+
+            Map<String, List<OutboxEvent>> byAggregate = new LinkedHashMap<>();
+            for (OutboxEvent event : batch) {
+                byAggregate.computeIfAbsent(event.getAggregateType() + ":" + event.getAggregateId(),
+                        key -> new ArrayList<>()).add(event);
+            }
+
+            // Listener chạy trên virtual thread, ghi kết quả vào đây; entity chỉ được sửa ở thread này
+            Set<Long> delivered = ConcurrentHashMap.newKeySet();
+            Map<Long, String> failed = new ConcurrentHashMap<>();
+            List<Callable<Void>> tasks = new ArrayList<>(byAggregate.size());
+            for (List<OutboxEvent> events : byAggregate.values()) {
+                tasks.add(() -> {
+                    deliverInOrder(events, delivered, failed);
+                    return null;
+                });
+            }
+
+            try {
+                listenerExecutor.invokeAll(tasks, dispatchTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            for (List<OutboxEvent> events : byAggregate.values()) {
+                for (OutboxEvent event : events) {
+                    if (delivered.contains(event.getId())) {
+                        event.setPublishedAt(now);
+                        continue;
+                    }
+                    // Sự kiện đầu tiên chưa phát được (lỗi hoặc hết thời gian) chờ lùi lại;
+                    // các sự kiện sau nó giữ nguyên và bị lockPending chặn đến khi nó phát xong
+                    markFailed(event, failed.getOrDefault(event.getId(), "dispatch timed out"), now);
+                    break;
+                }
+            }
+
+            meterRegistry.counter("outbox.events", "result", "published").increment(delivered.size());
+            meterRegistry.counter("outbox.events", "result", "failed").increment(failed.size());
+            return batch.size();
+        });
+        return read == null ? 0 : read;
+    }
+
+    private void deliverInOrder(List<OutboxEvent> events, Set<Long> delivered, Map<Long, String> failed) {
+        for (OutboxEvent event : events) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            try {
+                eventPublisher.publishEvent(deserialize(event));
+                delivered.add(event.getId());
+            } catch (Exception e) {
+                log.warn("Outbox event {} ({} {}) failed: {}", event.getId(), event.getEventType(),
+                        event.getAggregateId(), e.getMessage());
+                failed.put(event.getId(), e.getClass().getSimpleName() + ": " + e.getMessage());
+                return; // dừng aggregate này để không phát sự kiện sau trước sự kiện lỗi
+            }
+        }
+    }
+
+    DomainEvent deserialize(OutboxEvent event) throws Exception {
+        Class<? extends DomainEvent> type = EVENT_TYPES.get(event.getEventType());
+        if (type == null) {
+            throw new IllegalStateException("Unknown outbox event type " + event.getEventType());
+        }
+        return objectMapper.readValue(event.getPayload(), type);
+    }
+
+    private void markFailed(OutboxEvent event, String error, LocalDateTime now) {
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        event.setNextAttemptAt(now.plusNanos(TimeUnit.MILLISECONDS.toNanos(backoffMs(attempts))));
+        event.setLastError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+    }
+
+    // base * 2^(attempts - 1), không quá max
+    long backoffMs(int attempts) {
+        int shift = Math.min(attempts - 1, 30);
+        return Math.min(maxBackoffMs, baseBackoffMs << shift);
+    }
+
+    // Dọn sự kiện đã phát quá hạn lưu
+    @Scheduled(cron = "${outbox.cleanup-cron:0 30 3 * * *}")
+    public void deletePublished() {
+        if (!enabled) {
+            return;
+        }
+        Integer deleted = transactionTemplate.execute(status ->
+                outboxEventRepository.deletePublishedBefore(LocalDateTime.now().minusDays(retentionDays)));
+        log.info("Deleted {} published outbox events older than {} days", deleted, retentionDays);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        listenerExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.backend.service.outbox;
+
+import com.example.backend.entity.OutboxEvent;
+import com.example.backend.event.DomainEvent;
+import com.example.backend.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ghi sự kiện vào outbox. Bắt buộc gọi trong transaction của thay đổi trạng thái,
+ * nên sự kiện chỉ tồn tại khi thay đổi đã commit.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class OutboxService {
+
+    OutboxEventRepository outboxEventRepository;
+    ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(DomainEvent event) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + event.getClass().getSimpleName(), e);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        outboxEventRepository.save(OutboxEvent.builder()
+                .aggregateType(event.aggregateType())
+                .aggregateId(event.aggregateId())
+                .eventType(event.getClass().getSimpleName())
+                .payload(payload)
+                .createdAt(now)
+                .nextAttemptAt(now)
+                .build());
+    }
+}
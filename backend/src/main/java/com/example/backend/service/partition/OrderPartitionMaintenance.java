@@ -0,0 +1,131 @@
+package com.example.backend.service.partition;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Bảo trì partition theo tháng của orders / order_items / shipments / payments (chỉ PostgreSQL).
+ * <p>
+ * - Chuyển bảng thường sang bảng partition nếu chưa (DB mới do Hibernate tạo bảng sau Flyway).
+ * - Tạo trước partition cho các tháng sắp tới.
+ * - Tháng cũ hơn archive-after-months mà không còn đơn đang xử lý (PENDING / PAID / SHIPPED)
+ *   được tách khỏi bảng chính sang schema archive, truy vấn đơn gần đây chỉ còn quét partition nóng.
+ * Các hàm SQL nằm trong db/migration/V1__monthly_partitions_for_order_tables.sql.
+ */
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class OrderPartitionMaintenance {
+
+    // orders sau cùng: chuyển đổi orders sẽ bỏ các FK còn sót từ bảng con
+    static final List<String> TABLES = List.of("order_items", "shipments", "payments", "orders");
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    JdbcTemplate jdbcTemplate;
+    TransactionTemplate transactionTemplate;
+
+    @Value("${partition.maintenance.enabled:true}")
+    @NonFinal
+    boolean enabled;
+
+    @Value("${partition.months-ahead:3}")
+    @NonFinal
+    int monthsAhead;
+
+    // 0 = không archive
+    @Value("${partition.archive-after-months:12}")
+    @NonFinal
+    int archiveAfterMonths;
+
+    @NonFinal
+    volatile Boolean postgres;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${partition.maintenance-cron:0 15 2 * * *}")
+    public void maintain() {
+        if (!enabled || !isPostgres()) {
+            return;
+        }
+        try {
+            for (String table : TABLES) {
+                if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                        "SELECT convert_to_monthly_partitions(?, ?)", Boolean.class, table, monthsAhead))) {
+                    log.info("Converted {} to monthly partitions", table);
+                }
+                Integer created = jdbcTemplate.queryForObject(
+                        "SELECT ensure_monthly_partitions(?, ?)", Integer.class, table, monthsAhead);
+                if (created != null && created > 0) {
+                    log.info("Created {} upcoming partitions for {}", created, table);
+                }
+            }
+            if (archiveAfterMonths > 0) {
+                archiveClosedMonths(YearMonth.now().minusMonths(archiveAfterMonths));
+            }
+        } catch (RuntimeException e) {
+            // Hàm chưa có (Flyway tắt) hoặc DB lỗi: thử lại ở lượt sau
+            log.error("Order partition maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Archive các tháng trước cutoff (không gồm cutoff), tháng nào còn đơn đang xử lý thì giữ lại
+     */
+    void archiveClosedMonths(YearMonth cutoff) {
+        List<String> partitions = jdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'orders'::regclass AND c.relname ~ '^orders_p[0-9]{6}$'
+                ORDER BY c.relname
+                """, String.class);
+        for (String partition : partitions) {
+            YearMonth month = YearMonth.parse(partition.substring("orders_p".length()), PARTITION_SUFFIX);
+            if (!month.isBefore(cutoff)) {
+                break;
+            }
+            Boolean open = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM " + partition + " WHERE status IN ('PENDING', 'PAID', 'SHIPPED'))",
+                    Boolean.class);
+            if (Boolean.TRUE.equals(open)) {
+                log.info("Keeping partition {}: it still has open orders", partition);
+                continue;
+            }
+            LocalDate first = month.atDay(1);
+            // Cả 4 bảng của 1 tháng được tách trong cùng 1 transaction
+            transactionTemplate.executeWithoutResult(status -> {
+                for (String table : TABLES) {
+                    jdbcTemplate.queryForObject("SELECT archive_monthly_partition(?, ?)", Boolean.class, table, first);
+                }
+            });
+            log.info("Archived order partitions of {}", month);
+        }
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            String product = jdbcTemplate.execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            postgres = "PostgreSQL".equalsIgnoreCase(product);
+        }
+        return postgres;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.backend.service.payment;
+
+import com.example.backend.configuration.PayOSConfig;
+import com.example.backend.enums.PayOSLinkStatus;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+
+/**
+ * GET /v2/payment-requests/{orderCode} qua client outbound của PayOS (pool, bulkhead, breaker)
+ */
+@Component
+public class HttpPayOSStatusClient implements PayOSStatusClient {
+
+    private static final String STATUS_PATH = "/v2/payment-requests/{orderCode}";
+
+    private final PayOSConfig payOSConfig;
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+
+    public HttpPayOSStatusClient(PayOSConfig payOSConfig,
+                                 @Qualifier("payosRestTemplate") RestTemplate restTemplate,
+                                 ObjectMapper objectMapper) {
+        this.payOSConfig = payOSConfig;
+        this.restTemplate = restTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public PayOSLinkStatus fetchStatus(long orderCode) throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("x-client-id", payOSConfig.getClientId());
+        headers.set("x-api-key", payOSConfig.getApiKey());
+        try {
+            ResponseEntity<String> response = restTemplate.exchange(payOSConfig.getBaseUrl() + STATUS_PATH,
+                    HttpMethod.GET, new HttpEntity<>(headers), String.class, orderCode);
+            JsonNode body = objectMapper.readTree(response.getBody());
+            if (!"00".equals(body.path("code").asText()) || !body.path("data").has("status")) {
+                throw new IOException("PayOS status lookup for " + orderCode + " returned " + body.path("code").asText());
+            }
+            return PayOSLinkStatus.from(body.path("data").path("status").asText());
+        } catch (RestClientException e) {
+            throw new IOException("PayOS status lookup for " + orderCode + " failed", e);
+        }
+    }
+}
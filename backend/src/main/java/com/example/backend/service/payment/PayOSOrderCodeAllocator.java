@@ -0,0 +1,50 @@
+package com.example.backend.service.payment;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cấp orderCode PayOS duy nhất theo kiểu hi/lo.
+ * <p>
+ * Mỗi lần gọi sequence (INCREMENT BY BLOCK_SIZE) lấy về 1 khối BLOCK_SIZE mã liên tiếp,
+ * các mã trong khối được cấp trong bộ nhớ, nên trung bình 100 đơn mới có 1 round trip.
+ * Khối chưa dùng hết khi tắt app thì bỏ, mã có thể nhảy cóc nhưng không bao giờ trùng giữa các node.
+ * Sequence do Flyway tạo (V2__payos_order_code_sequence.sql), ở đây chỉ đọc nextval.
+ */
+@Component
+@Slf4j
+public class PayOSOrderCodeAllocator {
+
+    static final String SEQUENCE = "payos_order_code_seq";
+    // Phải khớp INCREMENT BY của sequence trong migration, không được đổi khi sequence đã tồn tại
+    static final int BLOCK_SIZE = 100;
+    // START WITH của sequence: mã cũ sinh từ hashCode nằm trong [100000000, 1000000000)
+    static final long FIRST_CODE = 1_000_000_000L;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private long next;
+    private long limit;
+
+    public PayOSOrderCodeAllocator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public synchronized long nextCode() {
+        if (next >= limit) {
+            next = fetchBlock();
+            limit = next + BLOCK_SIZE;
+        }
+        return next++;
+    }
+
+    private long fetchBlock() {
+        Long hi = jdbcTemplate.queryForObject("SELECT nextval('" + SEQUENCE + "')", Long.class);
+        if (hi == null) {
+            throw new IllegalStateException("Sequence " + SEQUENCE + " returned no value");
+        }
+        log.debug("Allocated PayOS order code block {}..{}", hi, hi + BLOCK_SIZE - 1);
+        return hi;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.backend.service.payment;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.function.Function;
+
+/**
+ * Cache link PayOS còn hạn theo orderId, mỗi entry hết hạn trước link reuse-margin giây
+ * để không trả về link sắp hết hạn.
+ * <p>
+ * get() chỉ cho 1 thread nạp mỗi đơn, các lần bấm lại trang thanh toán cùng lúc chờ và dùng chung kết quả.
+ */
+@Component
+public class PayOSPaymentLinkCache {
+
+    private final Cache<String, PaymentLink> links;
+    private final Duration reuseMargin;
+
+    public PayOSPaymentLinkCache(
+            @Value("${payos.link-cache.max-size:10000}") long maxSize,
+            @Value("${payos.link-reuse-margin-seconds:60}") long reuseMarginSeconds) {
+        this.reuseMargin = Duration.ofSeconds(reuseMarginSeconds);
+        this.links = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, PaymentLink>() {
+                    @Override
+                    public long expireAfterCreate(String orderId, PaymentLink link, long currentTime) {
+                        return remainingNanos(link);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String orderId, PaymentLink link, long currentTime,
+                                                  long currentDuration) {
+                        return remainingNanos(link);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String orderId, PaymentLink link, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Link còn dùng được của đơn; chưa có thì gọi loader (tìm trong DB hoặc tạo mới qua PayOS)
+     */
+    public PaymentLink get(String orderId, Function<String, PaymentLink> loader) {
+        return links.get(orderId, loader);
+    }
+
+    public void invalidate(String orderId) {
+        links.invalidate(orderId);
+    }
+
+    /**
+     * Link hết hạn sau mốc này mới được dùng lại
+     */
+    public LocalDateTime reusableAfter() {
+        return LocalDateTime.now().plus(reuseMargin);
+    }
+
+    private long remainingNanos(PaymentLink link) {
+        return Math.max(0, Duration.between(reusableAfter(), link.expiresAt()).toNanos());
+    }
+}
@@ -0,0 +1,314 @@
+package com.example.backend.service.payment;
+
+import com.example.backend.entity.PaymentGroup;
+import com.example.backend.enums.OrderStatus;
+import com.example.backend.enums.PayOSLinkStatus;
+import com.example.backend.repository.PaymentGroupRepository;
+import com.example.backend.repository.PaymentRepository;
+import com.example.backend.service.OrderStateMachine;
+import com.example.backend.service.OrderSummaryService;
+import com.example.backend.util.RateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Đối soát payment PayOS còn PENDING quá lâu (mất webhook).
+ * <p>
+ * Quét payments theo keyset (created_at, id), mỗi trang hỏi PayOS trạng thái từng orderCode song song
+ * (giới hạn số lượt đồng thời và số lượt / giây), rồi ghi kết quả cả trang trong 1 transaction
+ * bằng các câu UPDATE theo tập. Các UPDATE chỉ đụng dòng còn PENDING nên chạy cùng lúc với webhook
+ * không áp dụng 2 lần.
+ */
+@Component
+@Slf4j
+public class PayOSReconciliationJob {
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentGroupRepository paymentGroupRepository;
+    private final OrderStateMachine orderStateMachine;
+    private final OrderSummaryService orderSummaryService;
+    private final PayOSStatusClient statusClient;
+    private final PayOSPaymentLinkCache paymentLinkCache;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService lookups;
+    private final RateLimiter rateLimiter;
+
+    private final boolean enabled;
+    private final int pageSize;
+    private final long staleAfterMinutes;
+    private final int lookbackDays;
+
+    public PayOSReconciliationJob(
+            PaymentRepository paymentRepository,
+            PaymentGroupRepository paymentGroupRepository,
+            OrderStateMachine orderStateMachine,
+            OrderSummaryService orderSummaryService,
+            PayOSStatusClient statusClient,
+            PayOSPaymentLinkCache paymentLinkCache,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${payos.reconcile.enabled:true}") boolean enabled,
+            @Value("${payos.reconcile.page-size:500}") int pageSize,
+            @Value("${payos.reconcile.stale-after-minutes:30}") long staleAfterMinutes,
+            @Value("${payos.reconcile.lookback-days:7}") int lookbackDays,
+            @Value("${payos.reconcile.max-concurrent:16}") int maxConcurrent,
+            @Value("${payos.reconcile.requests-per-second:50}") double requestsPerSecond) {
+        this.paymentRepository = paymentRepository;
+        this.paymentGroupRepository = paymentGroupRepository;
+        this.orderStateMachine = orderStateMachine;
+        this.orderSummaryService = orderSummaryService;
+        this.statusClient = statusClient;
+        this.paymentLinkCache = paymentLinkCache;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        // Số lượt gọi PayOS cùng lúc, mỗi lượt chạy trên 1 virtual thread
+        this.lookups = Executors.newFixedThreadPool(maxConcurrent, Thread.ofVirtual().name("payos-reconcile-", 0).factory());
+        this.rateLimiter = new RateLimiter(requestsPerSecond);
+        this.enabled = enabled;
+        this.pageSize = pageSize;
+        this.staleAfterMinutes = staleAfterMinutes;
+        this.lookbackDays = lookbackDays;
+    }
+
+    /**
+     * 1 payment PENDING cần đối soát
+     */
+    record StalePayment(String id, LocalDateTime createdAt, long orderCode, String orderId, String groupId) {
+    }
+
+    public record Result(int scanned, int paid, int closed, int stillPending, int errors) {
+    }
+
+    @Scheduled(fixedDelayString = "${payos.reconcile.interval-ms:300000}",
+            initialDelayString = "${payos.reconcile.initial-delay-ms:60000}")
+    public void scheduledRun() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Result result = reconcile();
+            if (result.scanned() > 0) {
+                log.info("PayOS reconciliation finished: {}", result);
+            }
+        } catch (RuntimeException e) {
+            log.error("PayOS reconciliation failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Đối soát mọi payment PayOS PENDING tạo trong lookback-days, cũ hơn stale-after-minutes.
+     */
+    public Result reconcile() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime from = now.minusDays(lookbackDays);
+        LocalDateTime staleBefore = now.minusMinutes(staleAfterMinutes);
+
+        int[] totals = new int[5];
+        LocalDateTime afterCreatedAt = from;
+        String afterId = "";
+        while (true) {
+            List<Object[]> rows = paymentRepository.findStalePendingPayOS(from, staleBefore,
+                    afterCreatedAt, afterId, Limit.of(pageSize));
+            if (rows.isEmpty()) {
+                break;
+            }
+            List<StalePayment> page = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                StalePayment payment = toStalePayment(row);
+                if (payment != null) {
+                    page.add(payment);
+                }
+            }
+            Result pageResult = reconcilePage(page, from);
+            totals[0] += rows.size();
+            totals[1] += pageResult.paid();
+            totals[2] += pageResult.closed();
+            totals[3] += pageResult.stillPending();
+            totals[4] += pageResult.errors();
+
+            Object[] last = rows.get(rows.size() - 1);
+            afterCreatedAt = (LocalDateTime) last[1];
+            afterId = (String) last[0];
+            if (rows.size() < pageSize) {
+                break;
+            }
+        }
+        return new Result(totals[0], totals[1], totals[2], totals[3], totals[4]);
+    }
+
+    /**
+     * Hỏi PayOS cho 1 trang rồi ghi kết quả. Payment của 1 nhóm dùng chung orderCode nên chỉ hỏi 1 lần.
+     */
+    Result reconcilePage(List<StalePayment> page, LocalDateTime from) {
+        Map<Long, List<StalePayment>> byOrderCode = new LinkedHashMap<>();
+        for (StalePayment payment : page) {
+            byOrderCode.computeIfAbsent(payment.orderCode(), code -> new ArrayList<>()).add(payment);
+        }
+
+        List<Long> orderCodes = new ArrayList<>(byOrderCode.keySet());
+        List<Callable<PayOSLinkStatus>> tasks = new ArrayList<>(orderCodes.size());
+        for (Long orderCode : orderCodes) {
+            tasks.add(() -> {
+                rateLimiter.acquire();
+                return statusClient.fetchStatus(orderCode);
+            });
+        }
+
+        Map<Long, PayOSLinkStatus> statuses = new HashMap<>();
+        int errors = 0;
+        try {
+            List<Future<PayOSLinkStatus>> futures = lookups.invokeAll(tasks);
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    statuses.put(orderCodes.get(i), futures.get(i).get());
+                } catch (ExecutionException e) {
+                    errors++;
+                    log.warn("PayOS status lookup for {} failed: {}", orderCodes.get(i), e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        Changes changes = new Changes();
+        int stillPending = 0;
+        for (Map.Entry<Long, PayOSLinkStatus> entry : statuses.entrySet()) {
+            PayOSLinkStatus status = entry.getValue();
+            for (StalePayment payment : byOrderCode.get(entry.getKey())) {
+                if (status == PayOSLinkStatus.PAID) {
+                    changes.paid.add(payment);
+                } else if (status.isClosedUnpaid()) {
+                    changes.closed.computeIfAbsent(status.name(), s -> new ArrayList<>()).add(payment);
+                } else {
+                    stillPending++;
+                }
+            }
+        }
+        if (!changes.isEmpty()) {
+            transactionTemplate.executeWithoutResult(tx -> apply(changes, from));
+            // Link đã đóng: không phát lại từ cache của node này
+            changes.closed.values().forEach(payments -> payments.stream()
+                    .filter(payment -> payment.groupId() == null)
+                    .forEach(payment -> paymentLinkCache.invalidate(payment.orderId())));
+        }
+
+        int closed = changes.closed.values().stream().mapToInt(List::size).sum();
+        count("paid", changes.paid.size());
+        count("closed", closed);
+        count("pending", stillPending);
+        count("error", errors);
+        return new Result(page.size(), changes.paid.size(), closed, stillPending, errors);
+    }
+
+    private static final class Changes {
+        final List<StalePayment> paid = new ArrayList<>();
+        // Trạng thái payment mới (CANCELLED / EXPIRED) -> payment
+        final Map<String, List<StalePayment>> closed = new HashMap<>();
+
+        boolean isEmpty() {
+            return paid.isEmpty() && closed.isEmpty();
+        }
+    }
+
+    private void apply(Changes changes, LocalDateTime from) {
+        LocalDateTime now = LocalDateTime.now();
+        if (!changes.paid.isEmpty()) {
+            Members paid = Members.of(changes.paid);
+            Set<String> orderIds = new HashSet<>(paid.orderIds);
+            if (!paid.paymentIds.isEmpty()) {
+                paymentRepository.markPaidByIdIn(paid.paymentIds, from, now);
+            }
+            if (!paid.groupIds.isEmpty()) {
+                orderIds.addAll(groupOrderIds(paid.groupIds));
+                paymentGroupRepository.markPaidByIdIn(paid.groupIds, now);
+                paymentRepository.markPaidByGroupIdIn(paid.groupIds, from, now);
+            }
+            orderSummaryService.onPaymentsChanged(orderIds, "SUCCESS");
+            // Đơn đã hủy trong lúc chờ giữ nguyên
+            orderStateMachine.transitionAll(orderIds, OrderStatus.PAID);
+        }
+        changes.closed.forEach((status, payments) -> {
+            Members closed = Members.of(payments);
+            Set<String> orderIds = new HashSet<>(closed.orderIds);
+            if (!closed.paymentIds.isEmpty()) {
+                paymentRepository.closePendingByIdIn(closed.paymentIds, from, status);
+            }
+            if (!closed.groupIds.isEmpty()) {
+                orderIds.addAll(groupOrderIds(closed.groupIds));
+                paymentGroupRepository.closePendingByIdIn(closed.groupIds, status);
+                paymentRepository.closePendingByGroupIdIn(closed.groupIds, from, status);
+            }
+            orderSummaryService.onPaymentsChanged(orderIds, status);
+        });
+    }
+
+    // Mọi đơn của nhóm, kể cả đơn có payment nằm ở trang khác
+    private Set<String> groupOrderIds(Set<String> groupIds) {
+        Set<String> orderIds = new HashSet<>();
+        for (PaymentGroup group : paymentGroupRepository.findAllById(groupIds)) {
+            orderIds.addAll(group.getOrderIds());
+        }
+        return orderIds;
+    }
+
+    /**
+     * Payment lẻ cập nhật theo id, payment thuộc nhóm cập nhật theo group id
+     */
+    private record Members(Set<String> paymentIds, Set<String> groupIds, Set<String> orderIds) {
+        static Members of(List<StalePayment> payments) {
+            Members members = new Members(new HashSet<>(), new HashSet<>(), new HashSet<>());
+            for (StalePayment payment : payments) {
+                if (payment.groupId() != null) {
+                    members.groupIds.add(payment.groupId());
+                } else {
+                    members.paymentIds.add(payment.id());
+                    members.orderIds.add(payment.orderId());
+                }
+            }
+            return members;
+        }
+    }
+
+    private StalePayment toStalePayment(Object[] row) {
+        try {
+            return new StalePayment((String) row[0], (LocalDateTime) row[1], Long.parseLong((String) row[2]),
+                    (String) row[3], (String) row[4]);
+        } catch (NumberFormatException e) {
+            // transaction_id không phải orderCode PayOS: bỏ qua
+            log.warn("Skipping payment {} with invalid PayOS order code {}", row[0], row[2]);
+            return null;
+        }
+    }
+
+    private void count(String result, int amount) {
+        if (amount > 0) {
+            meterRegistry.counter("payos.reconcile.payments", "result", result).increment(amount);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        lookups.shutdownNow();
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.backend.service.payment;
+
+import com.example.backend.configuration.PayOSConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Ký và kiểm chữ ký HMAC-SHA256 (hex) cho dữ liệu PayOS.
+ * <p>
+ * Mỗi thread giữ 1 Mac đã init sẵn khóa cùng các buffer dùng lại, nên 1 lần ký không gọi
+ * Mac.getInstance / init và gần như không cấp phát (ngoài chuỗi hex trả về).
+ * Kiểm chữ ký so từng byte với thời gian không phụ thuộc vị trí sai khác.
+ * Khóa không bao giờ được ghi log.
+ */
+@Component
+public class PayOSSignatureEngine {
+
+    static final String ALGORITHM = "HmacSHA256";
+    private static final int DIGEST_LENGTH = 32;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    // Ký tự ASCII -> giá trị hex, -1 = không phải chữ số hex
+    private static final byte[] HEX_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(HEX_VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            HEX_VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            HEX_VALUES['a' + i] = (byte) (10 + i);
+            HEX_VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    // null khi chưa cấu hình checksum key: ký / kiểm sẽ báo lỗi lúc gọi, không chặn app khởi động
+    private final SecretKeySpec key;
+    private final ThreadLocal<SigningState> state;
+
+    @Autowired
+    public PayOSSignatureEngine(PayOSConfig payOSConfig) {
+        this(payOSConfig.getChecksumKey());
+    }
+
+    PayOSSignatureEngine(String checksumKey) {
+        String cleaned = checksumKey == null ? "" : checksumKey.trim().replaceAll("[\\r\\n]", "");
+        this.key = cleaned.isEmpty() ? null : new SecretKeySpec(cleaned.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.state = ThreadLocal.withInitial(() -> new SigningState(requireKey()));
+    }
+
+    /**
+     * Chữ ký tạo link thanh toán: amount, cancelUrl, description, orderCode, returnUrl theo alphabet.
+     */
+    public String signPaymentRequest(long amount, String cancelUrl, String description,
+                                     long orderCode, String returnUrl) {
+        SigningState s = state.get();
+        StringBuilder data = s.resetData();
+        data.append("amount=").append(amount)
+                .append("&cancelUrl=").append(cancelUrl)
+                .append("&description=").append(description)
+                .append("&orderCode=").append(orderCode)
+                .append("&returnUrl=").append(returnUrl);
+        return s.hexDigest();
+    }
+
+    /**
+     * Kiểm chữ ký webhook: các field của data sort theo tên, nối key=value&key=value
+     * (null thành chuỗi rỗng, object / mảng giữ dạng JSON).
+     */
+    public boolean verifyWebhook(JsonNode data, String signature) {
+        if (data == null || !data.isObject() || signature == null || signature.length() != DIGEST_LENGTH * 2) {
+            return false;
+        }
+        SigningState s = state.get();
+        canonicalize(s, data);
+        return constantTimeEqualsHex(s.digest(), signature);
+    }
+
+    /**
+     * Ký data của webhook theo cùng quy tắc với verifyWebhook (dùng cho PayOS giả khi load test)
+     */
+    public String signWebhook(JsonNode data) {
+        if (data == null || !data.isObject()) {
+            throw new IllegalArgumentException("Webhook data must be a JSON object");
+        }
+        SigningState s = state.get();
+        canonicalize(s, data);
+        return s.hexDigest();
+    }
+
+    private static void canonicalize(SigningState s, JsonNode data) {
+        List<String> names = s.resetNames();
+        for (Iterator<String> it = data.fieldNames(); it.hasNext(); ) {
+            names.add(it.next());
+        }
+        Collections.sort(names);
+
+        StringBuilder canonical = s.resetData();
+        for (int i = 0; i < names.size(); i++) {
+            if (i > 0) {
+                canonical.append('&');
+            }
+            JsonNode value = data.get(names.get(i));
+            canonical.append(names.get(i)).append('=');
+            if (value.isContainerNode()) {
+                canonical.append(value);
+            } else if (!value.isNull()) {
+                canonical.append(value.asText());
+            }
+        }
+    }
+
+    /**
+     * So digest với chuỗi hex (hoa hoặc thường) mà không dừng sớm ở byte sai đầu tiên.
+     */
+    static boolean constantTimeEqualsHex(byte[] digest, CharSequence hex) {
+        if (hex.length() != digest.length * 2) {
+            return false;
+        }
+        int diff = 0;
+        for (int i = 0; i < digest.length; i++) {
+            int hi = hexValue(hex.charAt(2 * i));
+            int lo = hexValue(hex.charAt(2 * i + 1));
+            // Ký tự không hợp lệ cho -1 -> bit cao bật, luôn khác
+            diff |= ((hi << 4) | lo) ^ (digest[i] & 0xff);
+            diff |= (hi | lo) & 0x100;
+        }
+        return diff == 0;
+    }
+
+    private static int hexValue(char c) {
+        return c < 128 ? HEX_VALUES[c] & 0x1ff : 0x100;
+    }
+
+    static String toHex(byte[] bytes, char[] out) {
+        for (int i = 0; i < bytes.length; i++) {
+            out[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0x0f];
+            out[2 * i + 1] = HEX_DIGITS[bytes[i] & 0x0f];
+        }
+        return new String(out, 0, bytes.length * 2);
+    }
+
+    private SecretKeySpec requireKey() {
+        if (key == null) {
+            throw new IllegalStateException("PayOS checksum key chưa được cấu hình");
+        }
+        return key;
+    }
+
+    /**
+     * Mac + buffer của 1 thread, chỉ dùng trong thread đó
+     */
+    private static final class SigningState {
+        final Mac mac;
+        final StringBuilder data = new StringBuilder(256);
+        final List<String> names = new ArrayList<>(16);
+        // Thay ký tự lỗi bằng '?' giống String.getBytes
+        final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocate(512);
+        final byte[] digest = new byte[DIGEST_LENGTH];
+        final char[] hex = new char[DIGEST_LENGTH * 2];
+
+        SigningState(SecretKeySpec key) {
+            try {
+                mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cannot initialize " + ALGORITHM, e);
+            }
+        }
+
+        StringBuilder resetData() {
+            data.setLength(0);
+            return data;
+        }
+
+        List<String> resetNames() {
+            names.clear();
+            return names;
+        }
+
+        /**
+         * HMAC của data hiện tại, ghi vào buffer digest (bị ghi đè ở lần gọi sau)
+         */
+        byte[] digest() {
+            encode();
+            bytes.flip();
+            mac.update(bytes);
+            try {
+                mac.doFinal(digest, 0);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cannot compute " + ALGORITHM, e);
+            }
+            return digest;
+        }
+
+        String hexDigest() {
+            return toHex(digest(), hex);
+        }
+
+        // UTF-8 của data vào bytes, nới buffer nếu chưa đủ (chỉ xảy ra với dữ liệu dài bất thường)
+        private void encode() {
+            while (true) {
+                bytes.clear();
+                encoder.reset();
+                CharBuffer chars = CharBuffer.wrap(data);
+                CoderResult result = encoder.encode(chars, bytes, true);
+                if (!result.isOverflow()) {
+                    result = encoder.flush(bytes);
+                }
+                if (!result.isOverflow()) {
+                    return;
+                }
+                bytes = ByteBuffer.allocate(bytes.capacity() * 2);
+            }
+        }
+    }
+}
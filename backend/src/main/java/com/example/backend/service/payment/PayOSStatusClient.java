@@ -0,0 +1,13 @@
+package com.example.backend.service.payment;
+
+import com.example.backend.enums.PayOSLinkStatus;
+
+import java.io.IOException;
+
+/**
+ * Tra trạng thái link thanh toán PayOS theo orderCode
+ */
+public interface PayOSStatusClient {
+
+    PayOSLinkStatus fetchStatus(long orderCode) throws IOException;
+}
@@ -0,0 +1,104 @@
+package com.example.backend.service.payment;
+
+import com.example.backend.exception.AppException;
+import com.example.backend.exception.ErrorCode;
+import com.example.backend.repository.PayOSWebhookEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Nhận webhook PayOS: kiểm chữ ký, ghi body vào inbox rồi trả lời ngay, không đụng payment / order.
+ * <p>
+ * Chống trùng 2 lớp: LRU trong bộ nhớ chặn bão gửi lại trên node này mà không cần vào DB,
+ * khóa chính order_code chặn trùng giữa các node. PayOSWebhookProcessor xử lý inbox sau.
+ * Trùng tính theo (orderCode, code): webhook thành công ("00") đến sau webhook thất bại / hủy
+ * của cùng orderCode không bị bỏ mà ghi đè dòng inbox để được xử lý lại.
+ */
+@Component
+@Slf4j
+public class PayOSWebhookInbox {
+
+    static final String SUCCESS_CODE = "00";
+
+    private final PayOSWebhookEventRepository webhookEventRepository;
+    private final PayOSSignatureEngine signatureEngine;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    // orderCode đã ghi vào inbox -> code đã ghi ("00" thắng mọi code khác)
+    private final Cache<Long, String> seenOrderCodes;
+
+    public PayOSWebhookInbox(
+            PayOSWebhookEventRepository webhookEventRepository,
+            PayOSSignatureEngine signatureEngine,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${payos.webhook.dedupe-max-order-codes:100000}") long dedupeMaxOrderCodes) {
+        this.webhookEventRepository = webhookEventRepository;
+        this.signatureEngine = signatureEngine;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.seenOrderCodes = Caffeine.newBuilder()
+                .maximumSize(dedupeMaxOrderCodes)
+                .build();
+    }
+
+    /**
+     * Ghi webhook vào inbox.
+     *
+     * @return false nếu orderCode đã có trong inbox với cùng code hoặc đã thành công (PayOS gửi lại)
+     */
+    public boolean receive(Map<String, Object> webhookBody) {
+        JsonNode body = objectMapper.valueToTree(webhookBody);
+        JsonNode data = body.get("data");
+        JsonNode signature = body.get("signature");
+        if (signature == null || !signatureEngine.verifyWebhook(data, signature.asText())) {
+            meterRegistry.counter("payos.webhooks", "result", "rejected").increment();
+            throw new AppException(ErrorCode.WEBHOOK_SIGNATURE_INVALID);
+        }
+        JsonNode orderCodeNode = data.get("orderCode");
+        if (orderCodeNode == null || !orderCodeNode.canConvertToLong()) {
+            meterRegistry.counter("payos.webhooks", "result", "rejected").increment();
+            throw new AppException(ErrorCode.INVALID_VALUE);
+        }
+        long orderCode = orderCodeNode.asLong();
+
+        String code = body.hasNonNull("code") ? body.get("code").asText() : "";
+        String seenCode = seenOrderCodes.getIfPresent(orderCode);
+        if (seenCode != null && (seenCode.equals(code) || SUCCESS_CODE.equals(seenCode))) {
+            meterRegistry.counter("payos.webhooks", "result", "duplicate").increment();
+            return false;
+        }
+
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize PayOS webhook", e);
+        }
+        boolean inserted;
+        try {
+            webhookEventRepository.insertReceived(orderCode, code, payload, LocalDateTime.now());
+            inserted = true;
+        } catch (DataIntegrityViolationException e) {
+            // Node khác (hoặc lần gửi trước) đã ghi orderCode này. Nếu dòng đó là thất bại / hủy
+            // thì webhook thành công ghi đè, còn lại là trùng
+            inserted = SUCCESS_CODE.equals(code)
+                    && webhookEventRepository.supersedeWithSuccess(orderCode, payload, LocalDateTime.now()) > 0;
+        }
+        seenOrderCodes.asMap().merge(orderCode, code, (old, current) -> SUCCESS_CODE.equals(old) ? old : current);
+        meterRegistry.counter("payos.webhooks", "result", inserted ? "accepted" : "duplicate").increment();
+        log.debug("PayOS webhook for orderCode {} {}", orderCode, inserted ? "queued" : "already queued");
+        return inserted;
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.backend.service.payment;
+
+import com.example.backend.entity.PayOSWebhookEvent;
+import com.example.backend.enums.WebhookEventStatus;
+import com.example.backend.repository.PayOSWebhookEventRepository;
+import com.example.backend.service.PayOSService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Worker xử lý inbox webhook PayOS theo lô.
+ * <p>
+ * Mỗi webhook chạy trong 1 transaction riêng: compare-and-set RECEIVED -> PROCESSED rồi cập nhật
+ * payment / order. Hai việc commit cùng nhau nên mỗi đơn được áp dụng đúng 1 lần,
+ * kể cả khi nhiều worker/node cùng lấy 1 webhook. Lỗi thì rollback và thử lại với thời gian chờ tăng dần.
+ */
+@Component
+@Slf4j
+public class PayOSWebhookProcessor {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final PayOSWebhookEventRepository webhookEventRepository;
+    private final PayOSService payOSService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService workers;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long baseBackoffMs;
+    private final long maxBackoffMs;
+    private final int retentionDays;
+
+    public PayOSWebhookProcessor(
+            PayOSWebhookEventRepository webhookEventRepository,
+            PayOSService payOSService,
+            ObjectMapper objectMapper,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${payos.webhook.processor.enabled:true}") boolean enabled,
+            @Value("${payos.webhook.workers:4}") int workerCount,
+            @Value("${payos.webhook.batch-size:100}") int batchSize,
+            @Value("${payos.webhook.max-attempts:10}") int maxAttempts,
+            @Value("${payos.webhook.retry.base-backoff-ms:1000}") long baseBackoffMs,
+            @Value("${payos.webhook.retry.max-backoff-ms:300000}") long maxBackoffMs,
+            @Value("${payos.webhook.retention-days:30}") int retentionDays) {
+        this.webhookEventRepository = webhookEventRepository;
+        this.payOSService = payOSService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        // Giới hạn số webhook chạy song song (mỗi cái giữ 1 connection DB)
+        this.workers = Executors.newFixedThreadPool(workerCount, Thread.ofVirtual().name("payos-webhook-", 0).factory());
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMs = baseBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.retentionDays = retentionDays;
+    }
+
+    @Scheduled(fixedDelayString = "${payos.webhook.poll-ms:500}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            // Lô đầy thì đọc tiếp ngay
+            while (processBatch() >= batchSize) {
+                log.debug("PayOS webhook batch full, polling again");
+            }
+        } catch (RuntimeException e) {
+            log.error("PayOS webhook processing failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Xử lý 1 lô webhook đến hạn, chờ cả lô xong.
+     *
+     * @return số webhook đã đọc trong lô
+     */
+    public int processBatch() {
+        List<Long> orderCodes = webhookEventRepository.findDueOrderCodes(LocalDateTime.now(), Limit.of(batchSize));
+        if (orderCodes.isEmpty()) {
+            return 0;
+        }
+        List<Callable<WebhookEventStatus>> tasks = new ArrayList<>(orderCodes.size());
+        for (Long orderCode : orderCodes) {
+            tasks.add(() -> process(orderCode));
+        }
+        try {
+            for (Future<WebhookEventStatus> future : workers.invokeAll(tasks)) {
+                WebhookEventStatus result = future.get();
+                if (result != null) {
+                    meterRegistry.counter("payos.webhooks", "result", result.name().toLowerCase(Locale.ROOT)).increment();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("PayOS webhook worker failed: {}", e.getMessage(), e);
+        }
+        return orderCodes.size();
+    }
+
+    /**
+     * @return trạng thái mới của webhook, null nếu worker khác đã xử lý
+     */
+    WebhookEventStatus process(long orderCode) {
+        PayOSWebhookEvent event = null;
+        try {
+            event = webhookEventRepository.findById(orderCode).orElse(null);
+            if (event == null || event.getStatus() != WebhookEventStatus.RECEIVED) {
+                return null;
+            }
+            PayOSWebhookEvent received = event;
+            return transactionTemplate.execute(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                // Giữ khóa dòng đến khi commit: worker khác chờ rồi nhận 0 dòng.
+                // apply lỗi thì rollback cả 2, webhook quay lại RECEIVED
+                if (webhookEventRepository.compareAndSetStatus(orderCode, received.getCode(),
+                        WebhookEventStatus.RECEIVED, WebhookEventStatus.PROCESSED, now) == 0) {
+                    return null;
+                }
+                WebhookEventStatus outcome = apply(received);
+                if (outcome != WebhookEventStatus.PROCESSED) {
+                    webhookEventRepository.compareAndSetStatus(orderCode, received.getCode(),
+                            WebhookEventStatus.PROCESSED, outcome, now);
+                }
+                return outcome;
+            });
+        } catch (Exception e) {
+            int attempts = event == null ? 1 : event.getAttempts() + 1;
+            boolean giveUp = attempts >= maxAttempts;
+            String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            log.warn("PayOS webhook {} failed (attempt {}): {}", orderCode, attempts, error);
+            webhookEventRepository.recordFailure(orderCode,
+                    LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(backoffMs(attempts))),
+                    error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error,
+                    giveUp ? WebhookEventStatus.FAILED : WebhookEventStatus.RECEIVED);
+            return giveUp ? WebhookEventStatus.FAILED : null;
+        }
+    }
+
+    private WebhookEventStatus apply(PayOSWebhookEvent event) {
+        if (!"00".equals(event.getCode())) {
+            log.warn("PayOS payment failed for orderCode {}", event.getOrderCode());
+            return WebhookEventStatus.IGNORED;
+        }
+        JsonNode data;
+        try {
+            data = objectMapper.readTree(event.getPayload()).get("data");
+        } catch (Exception e) {
+            throw new IllegalStateException("Invalid webhook payload", e);
+        }
+        return payOSService.applyPaidWebhook(data) ? WebhookEventStatus.PROCESSED : WebhookEventStatus.IGNORED;
+    }
+
+    // base * 2^(attempts - 1), không quá max
+    long backoffMs(int attempts) {
+        int shift = Math.min(attempts - 1, 30);
+        return Math.min(maxBackoffMs, baseBackoffMs << shift);
+    }
+
+    // Giữ webhook đã xử lý đủ lâu để chặn PayOS gửi lại, sau đó xóa
+    @Scheduled(cron = "${payos.webhook.cleanup-cron:0 45 3 * * *}")
+    public void deleteFinished() {
+        if (!enabled) {
+            return;
+        }
+        int deleted = webhookEventRepository.deleteFinishedBefore(LocalDateTime.now().minusDays(retentionDays));
+        log.info("Deleted {} processed PayOS webhooks older than {} days", deleted, retentionDays);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.backend.service.payment;
+
+import java.time.LocalDateTime;
+
+/**
+ * Link thanh toán PayOS đang chờ trả tiền của 1 đơn
+ */
+public record PaymentLink(long orderCode, String checkoutUrl, String qrCode, LocalDateTime expiresAt) {
+}
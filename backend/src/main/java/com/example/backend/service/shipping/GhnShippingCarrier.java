@@ -0,0 +1,106 @@
+package com.example.backend.service.shipping;
+
+import com.example.backend.dto.request.ShippingFeeRequest;
+import com.example.backend.dto.response.ShippingFeeResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.*;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class GhnShippingCarrier implements ShippingCarrier {
+
+    @Qualifier("ghnRestTemplate")
+    private final RestTemplate restTemplate;
+
+    private static final String FEE_PATH = "/shiip/public-api/v2/shipping-order/fee";
+
+    private static final String GHN_TOKEN = "721ba613-e787-11f0-8373-1a92d62e4dc3";
+    private static final String GHN_SHOP_ID = "6194695";
+
+    @Value("${shipping.carriers.ghn.timeout-ms:2000}")
+    private long timeoutMs = 2000;
+
+    @Value("${outbound.clients.ghn.base-url:https://online-gateway.ghn.vn}")
+    private String baseUrl = "https://online-gateway.ghn.vn";
+
+    @Override
+    public String getName() {
+        return "GHN";
+    }
+
+    @Override
+    public Duration getTimeout() {
+        return Duration.ofMillis(timeoutMs);
+    }
+
+    /**
+     * Gọi API tính phí của GHN. Ném exception nếu GHN lỗi để kết quả lỗi không bị cache.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public ShippingFeeResponse quote(ShippingFeeRequest request) {
+        log.info("Calling GHN API... From: {}, To: {}, Weight: {}",
+                request.getFromDistrictCode(), request.getToDistrictCode(), request.getWeightGram());
+
+        // Tạo Headers
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("token", GHN_TOKEN);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (!GHN_SHOP_ID.isEmpty()) {
+            headers.set("ShopId", GHN_SHOP_ID);
+        }
+
+        //  Tạo Body
+        Map<String, Object> body = new HashMap<>();
+
+        // 2 = Hàng nhẹ/Thương mại điện tử , 5 = Hàng nặng
+        body.put("service_type_id", 2);
+
+        body.put("from_district_id", Integer.parseInt(request.getFromDistrictCode()));
+        body.put("to_district_id", Integer.parseInt(request.getToDistrictCode()));
+        body.put("to_ward_code", request.getToWardCode());
+        body.put("weight", request.getWeightGram());
+        body.put("length", 20);
+        body.put("width", 15);
+        body.put("height", 10);
+        body.put("insurance_value", 0); // bảo hiểm
+        body.put("coupon", null);
+
+        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(body, headers);
+
+        // Gọi API
+        ResponseEntity<Map> response = restTemplate.exchange(
+                baseUrl + FEE_PATH,
+                HttpMethod.POST,
+                entity,
+                Map.class
+        );
+
+        // Xử lý kết quả thành công
+        if (response.getBody() != null && response.getStatusCode() == HttpStatus.OK) {
+            Map<String, Object> data = (Map<String, Object>) response.getBody().get("data");
+            if (data != null) {
+                double totalFee = Double.parseDouble(data.get("total").toString());
+                log.info("GHN Calculator Success: {} VND", totalFee);
+
+                return ShippingFeeResponse.builder()
+                        .fee(totalFee)
+                        .estimatedDays(3) // Mặc định, muốn chuẩn phải gọi thêm API leadtime
+                        .provider("GHN Express")
+                        .build();
+            }
+        }
+
+        throw new IllegalStateException("GHN Response body is null or missing data");
+    }
+}
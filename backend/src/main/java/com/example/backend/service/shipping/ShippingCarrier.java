@@ -0,0 +1,25 @@
+package com.example.backend.service.shipping;
+
+import com.example.backend.dto.request.ShippingFeeRequest;
+import com.example.backend.dto.response.ShippingFeeResponse;
+
+import java.time.Duration;
+
+/**
+ * 1 đơn vị vận chuyển có thể báo giá (GHN, GHTK, ...).
+ * Tên phải khớp với ShippingProvider.name để bật/tắt qua bảng shipping_providers.
+ */
+public interface ShippingCarrier {
+
+    String getName();
+
+    /**
+     * Báo giá cho 1 kiện hàng. Ném exception nếu không báo giá được.
+     */
+    ShippingFeeResponse quote(ShippingFeeRequest request);
+
+    // Quá thời gian này thì bỏ qua báo giá của carrier
+    default Duration getTimeout() {
+        return Duration.ofSeconds(2);
+    }
+}
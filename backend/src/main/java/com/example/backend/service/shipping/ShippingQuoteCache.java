@@ -0,0 +1,171 @@
+package com.example.backend.service.shipping;
+
+import com.example.backend.dto.request.ShippingFeeRequest;
+import com.example.backend.dto.response.ShippingFeeResponse;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Cache báo giá ship theo tuyến (quận gửi, quận nhận, phường nhận) và mức cân nặng.
+ * <p>
+ * - Cùng 1 key chỉ có 1 lượt gọi API đang chạy (single-flight), các request khác chờ kết quả đó.
+ *   API được gọi ngoài lock của cache (AsyncCache giữ future), nên virtual thread không bị pin khi chờ.
+ * - Quá refresh-after thì vẫn trả giá cũ, đồng thời làm mới ở background.
+ * - Quá ttl thì bỏ hẳn, lượt sau phải gọi API lại.
+ */
+@Component
+@Slf4j
+public class ShippingQuoteCache {
+
+    public record QuoteKey(String fromDistrictCode, String toDistrictCode, String toWardCode, int weightBucket) {
+    }
+
+    record CachedQuote(ShippingFeeResponse response, long loadedAtNanos) {
+    }
+
+    private final AsyncCache<QuoteKey, CachedQuote> cache;
+    private final Ticker ticker;
+    private final Set<QuoteKey> refreshing = ConcurrentHashMap.newKeySet();
+    private final ExecutorService refreshExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final int weightBucketGram;
+    private final long refreshAfterNanos;
+    private final Counter refreshSuccess;
+    private final Counter refreshFailure;
+
+    @Autowired
+    public ShippingQuoteCache(
+            @Value("${shipping.quote.cache.ttl-minutes:360}") long ttlMinutes,
+            @Value("${shipping.quote.cache.refresh-after-minutes:30}") long refreshAfterMinutes,
+            @Value("${shipping.quote.cache.max-size:50000}") long maxSize,
+            @Value("${shipping.quote.cache.weight-bucket-gram:500}") int weightBucketGram,
+            MeterRegistry meterRegistry) {
+        this(ttlMinutes, refreshAfterMinutes, maxSize, weightBucketGram, meterRegistry, Ticker.systemTicker());
+    }
+
+    ShippingQuoteCache(long ttlMinutes, long refreshAfterMinutes, long maxSize, int weightBucketGram,
+                       MeterRegistry meterRegistry, Ticker ticker) {
+        this.weightBucketGram = weightBucketGram;
+        this.refreshAfterNanos = Duration.ofMinutes(refreshAfterMinutes).toNanos();
+        this.ticker = ticker;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .maximumSize(maxSize)
+                .ticker(ticker)
+                .recordStats()
+                .buildAsync();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "shipping.quotes");
+        this.refreshSuccess = Counter.builder("shipping.quotes.refresh")
+                .tag("result", "success")
+                .register(meterRegistry);
+        this.refreshFailure = Counter.builder("shipping.quotes.refresh")
+                .tag("result", "failure")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Lấy báo giá từ cache, nếu chưa có thì gọi loader với cân nặng làm tròn lên theo mức.
+     * Lỗi của loader được ném lại cho caller và không được lưu vào cache.
+     */
+    public ShippingFeeResponse get(ShippingFeeRequest request,
+                                   Function<ShippingFeeRequest, ShippingFeeResponse> loader) {
+        QuoteKey key = keyOf(request);
+        // Chỉ đặt future vào cache trong lock, lượt đặt được future thì tự gọi API sau khi ra khỏi lock
+        CompletableFuture<CachedQuote> created = new CompletableFuture<>();
+        CompletableFuture<CachedQuote> future = cache.get(key, (k, executor) -> created);
+        if (future == created) {
+            try {
+                created.complete(load(key, loader));
+            } catch (RuntimeException e) {
+                // Future lỗi bị Caffeine tự bỏ khỏi cache
+                created.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        CachedQuote cached = await(future);
+        if (ticker.read() - cached.loadedAtNanos() > refreshAfterNanos) {
+            scheduleRefresh(key, loader);
+        }
+        return cached.response();
+    }
+
+    private static CachedQuote await(CompletableFuture<CachedQuote> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public QuoteKey keyOf(ShippingFeeRequest request) {
+        int bucket = Math.max(1, (request.getWeightGram() + weightBucketGram - 1) / weightBucketGram);
+        return new QuoteKey(
+                request.getFromDistrictCode(),
+                request.getToDistrictCode(),
+                request.getToWardCode(),
+                bucket
+        );
+    }
+
+    public double hitRate() {
+        return cache.synchronous().stats().hitRate();
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    private void scheduleRefresh(QuoteKey key, Function<ShippingFeeRequest, ShippingFeeResponse> loader) {
+        if (!refreshing.add(key)) {
+            return; // đang có lượt làm mới cho key này
+        }
+        refreshExecutor.execute(() -> {
+            try {
+                cache.put(key, CompletableFuture.completedFuture(load(key, loader)));
+                refreshSuccess.increment();
+            } catch (RuntimeException e) {
+                refreshFailure.increment();
+                log.warn("Refreshing shipping quote {} failed, keeping stale value: {}", key, e.getMessage());
+            } finally {
+                refreshing.remove(key);
+            }
+        });
+    }
+
+    private CachedQuote load(QuoteKey key, Function<ShippingFeeRequest, ShippingFeeResponse> loader) {
+        // Báo giá cho cả mức cân nặng nên gọi API với cân nặng trần của mức
+        ShippingFeeRequest bucketRequest = new ShippingFeeRequest();
+        bucketRequest.setFromDistrictCode(key.fromDistrictCode());
+        bucketRequest.setToDistrictCode(key.toDistrictCode());
+        bucketRequest.setToWardCode(key.toWardCode());
+        bucketRequest.setWeightGram(key.weightBucket() * weightBucketGram);
+        return new CachedQuote(loader.apply(bucketRequest), ticker.read());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.backend.service.shipping;
+
+import com.example.backend.dto.request.ShippingFeeRequest;
+import com.example.backend.dto.response.ShippingFeeResponse;
+import com.example.backend.entity.ShippingProvider;
+import com.example.backend.repository.ShippingProviderRepository;
+import com.example.backend.util.CircuitBreaker;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Hỏi giá song song tất cả carrier đang bật và lấy giá rẻ nhất về kịp trong ngân sách thời gian.
+ * <p>
+ * Carrier chậm quá timeout của nó hoặc bị lỗi thì bị bỏ qua, không chờ.
+ * Mỗi carrier có circuit breaker riêng, đang OPEN thì không được hỏi.
+ */
+@Component
+@Slf4j
+public class ShippingQuoteRacer {
+
+    private static final long ACTIVE_PROVIDERS_TTL_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private final List<ShippingCarrier> carriers;
+    private final ShippingProviderRepository shippingProviderRepository;
+    private final long latencyBudgetMs;
+    private final Map<String, CircuitBreaker> breakers = new HashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Tên các provider đang bật, null = bảng trống -> dùng mọi carrier
+    private volatile Set<String> activeProviderNames;
+    private volatile long activeProvidersLoadedAt;
+    private volatile boolean activeProvidersLoaded;
+
+    public ShippingQuoteRacer(
+            List<ShippingCarrier> carriers,
+            ShippingProviderRepository shippingProviderRepository,
+            @Value("${shipping.carriers.latency-budget-ms:2000}") long latencyBudgetMs,
+            @Value("${shipping.carriers.breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${shipping.carriers.breaker.open-ms:30000}") long openMs) {
+        this.carriers = List.copyOf(carriers);
+        this.shippingProviderRepository = shippingProviderRepository;
+        this.latencyBudgetMs = latencyBudgetMs;
+        for (ShippingCarrier carrier : carriers) {
+            breakers.put(carrier.getName(),
+                    new CircuitBreaker(carrier.getName(), failureThreshold, Duration.ofMillis(openMs)));
+        }
+    }
+
+    private record CarrierCall(ShippingCarrier carrier, long deadlineNanos) {
+    }
+
+    /**
+     * Báo giá rẻ nhất trong các carrier trả lời kịp. Không carrier nào trả lời được thì ném exception.
+     */
+    public ShippingFeeResponse quote(ShippingFeeRequest request) {
+        long start = System.nanoTime();
+        long budgetNanos = TimeUnit.MILLISECONDS.toNanos(latencyBudgetMs);
+
+        CompletionService<ShippingFeeResponse> completionService = new ExecutorCompletionService<>(executor);
+        Map<Future<ShippingFeeResponse>, CarrierCall> pending = new HashMap<>();
+        for (ShippingCarrier carrier : activeCarriers()) {
+            CircuitBreaker breaker = breakers.get(carrier.getName());
+            if (!breaker.tryAcquire()) {
+                log.debug("Skipping carrier {}: circuit open", carrier.getName());
+                continue;
+            }
+            long carrierDeadline = start + Math.min(budgetNanos, carrier.getTimeout().toNanos());
+            pending.put(completionService.submit(() -> carrier.quote(request)),
+                    new CarrierCall(carrier, carrierDeadline));
+        }
+
+        ShippingFeeResponse best = null;
+        try {
+            while (!pending.isEmpty()) {
+                // Carrier quá timeout riêng thì hủy và bỏ ngay, chỉ chờ tới deadline gần nhất còn lại
+                long now = System.nanoTime();
+                long waitNanos = Long.MAX_VALUE;
+                for (Iterator<Map.Entry<Future<ShippingFeeResponse>, CarrierCall>> it = pending.entrySet().iterator();
+                     it.hasNext(); ) {
+                    Map.Entry<Future<ShippingFeeResponse>, CarrierCall> entry = it.next();
+                    long deadline = entry.getValue().deadlineNanos();
+                    if (now - deadline >= 0) {
+                        timedOut(entry.getKey(), entry.getValue());
+                        it.remove();
+                    } else {
+                        waitNanos = Math.min(waitNanos, deadline - now);
+                    }
+                }
+                if (pending.isEmpty()) {
+                    break;
+                }
+
+                Future<ShippingFeeResponse> done = completionService.poll(waitNanos, TimeUnit.NANOSECONDS);
+                // null = tới deadline gần nhất; call null = future đã bị hủy ở trên
+                CarrierCall call = done == null ? null : pending.remove(done);
+                if (call == null) {
+                    continue;
+                }
+                CircuitBreaker breaker = breakers.get(call.carrier().getName());
+                try {
+                    ShippingFeeResponse response = done.get();
+                    if (System.nanoTime() - call.deadlineNanos() > 0) {
+                        // Về sau timeout riêng của carrier -> coi như trễ
+                        breaker.recordFailure();
+                        continue;
+                    }
+                    breaker.recordSuccess();
+                    if (best == null || response.getFee() < best.getFee()) {
+                        best = response;
+                    }
+                } catch (ExecutionException e) {
+                    breaker.recordFailure();
+                    log.warn("Carrier {} failed to quote: {}", call.carrier().getName(), e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Chỉ còn khi bị interrupt: hủy các carrier chưa trả lời
+            pending.forEach(this::timedOut);
+        }
+
+        if (best == null) {
+            throw new IllegalStateException("No shipping carrier returned a quote in time");
+        }
+        return best;
+    }
+
+    // Carrier chưa trả lời kịp: hủy và tính là lỗi (timeout)
+    private void timedOut(Future<ShippingFeeResponse> future, CarrierCall call) {
+        future.cancel(true);
+        breakers.get(call.carrier().getName()).recordFailure();
+        log.warn("Carrier {} missed its quote timeout", call.carrier().getName());
+    }
+
+    public CircuitBreaker.State getBreakerState(String carrierName) {
+        return breakers.get(carrierName).getState();
+    }
+
+    List<ShippingCarrier> activeCarriers() {
+        Set<String> names = activeProviderNames();
+        if (names == null) {
+            return carriers;
+        }
+        List<ShippingCarrier> active = new ArrayList<>();
+        for (ShippingCarrier carrier : carriers) {
+            if (names.contains(carrier.getName().toUpperCase(Locale.ROOT))) {
+                active.add(carrier);
+            }
+        }
+        return active;
+    }
+
+    private Set<String> activeProviderNames() {
+        long now = System.nanoTime();
+        if (!activeProvidersLoaded || now - activeProvidersLoadedAt > ACTIVE_PROVIDERS_TTL_NANOS) {
+            try {
+                Set<String> names = null;
+                if (shippingProviderRepository.count() > 0) {
+                    names = shippingProviderRepository.findByIsActiveTrue().stream()
+                            .map(ShippingProvider::getName)
+                            .map(name -> name.toUpperCase(Locale.ROOT))
+                            .collect(Collectors.toUnmodifiableSet());
+                }
+                activeProviderNames = names;
+                activeProvidersLoadedAt = now;
+                activeProvidersLoaded = true;
+            } catch (RuntimeException e) {
+                // Không đọc được DB thì giữ danh sách cũ
+                log.warn("Could not load active shipping providers: {}", e.getMessage());
+            }
+        }
+        return activeProviderNames;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
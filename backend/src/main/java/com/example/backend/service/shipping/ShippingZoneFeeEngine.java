@@ -0,0 +1,234 @@
+package com.example.backend.service.shipping;
+
+import com.example.backend.dto.request.ShippingFeeRequest;
+import com.example.backend.dto.response.ShippingFeeResponse;
+import com.example.backend.entity.ShippingWeightTier;
+import com.example.backend.entity.ShippingZoneRate;
+import com.example.backend.repository.DistrictRepository;
+import com.example.backend.repository.ShippingWeightTierRepository;
+import com.example.backend.repository.ShippingZoneRateRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Tính phí ship offline từ ma trận vùng tỉnh -> tỉnh và bảng bậc cân nặng.
+ * <p>
+ * Dữ liệu được nạp từ version mới nhất của shipping_zone_rates / shipping_weight_tiers
+ * vào các mảng primitive, tra cứu chỉ tốn vài phép so sánh nên dùng được làm
+ * câu trả lời đầu tiên hoặc làm fallback khi GHN lỗi/chậm.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ShippingZoneFeeEngine {
+
+    // Vùng 0 dành cho giao trong cùng quận
+    static final int ZONE_SAME_DISTRICT = 0;
+    static final int EXTRA_STEP_GRAM = 500;
+
+    private final ShippingZoneRateRepository zoneRateRepository;
+    private final ShippingWeightTierRepository weightTierRepository;
+    private final DistrictRepository districtRepository;
+
+    private volatile Snapshot snapshot;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        reload();
+    }
+
+    // Kiểm tra version mới định kỳ, chỉ dựng lại ma trận khi version đổi
+    @Scheduled(fixedDelayString = "${shipping.zone-matrix.refresh-ms:600000}",
+            initialDelayString = "${shipping.zone-matrix.refresh-ms:600000}")
+    public void refreshIfChanged() {
+        Integer latest = zoneRateRepository.findLatestVersion();
+        Snapshot current = snapshot;
+        if (latest != null && (current == null || current.version != latest)) {
+            reload();
+        }
+    }
+
+    /**
+     * Nạp lại version mới nhất. Bảng trống thì engine tắt (quote() trả về empty).
+     */
+    public synchronized void reload() {
+        try {
+            Integer version = zoneRateRepository.findLatestVersion();
+            if (version == null) {
+                snapshot = null;
+                log.info("Shipping zone matrix is empty, offline fee engine disabled");
+                return;
+            }
+            snapshot = Snapshot.build(
+                    version,
+                    districtRepository.findAllProvinceCodes(),
+                    zoneRateRepository.findAllByVersion(version),
+                    weightTierRepository.findAllByVersionOrderByZoneAscMaxWeightGramAsc(version)
+            );
+            log.info("Loaded shipping zone matrix v{}", version);
+        } catch (RuntimeException e) {
+            // Giữ snapshot cũ nếu nạp lỗi
+            log.error("Failed to load shipping zone matrix: {}", e.getMessage(), e);
+        }
+    }
+
+    public boolean isAvailable() {
+        return snapshot != null;
+    }
+
+    public Optional<ShippingFeeResponse> quote(ShippingFeeRequest request) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return Optional.empty();
+        }
+        return current.quote(request);
+    }
+
+    /**
+     * Ma trận đã dựng, không đổi sau khi tạo nên đọc song song không cần khóa.
+     */
+    static final class Snapshot {
+        final int version;
+        // Mã quận đã sort + index tỉnh tương ứng, tra bằng binary search
+        final String[] districtCodes;
+        final short[] districtProvince;
+        final int provinceCount;
+        // zoneMatrix[from * provinceCount + to], -1 = chưa có giá
+        final byte[] zoneMatrix;
+        // Theo từng vùng: các bậc cân nặng tăng dần
+        final int[][] tierMaxWeight;
+        final int[][] tierFee;
+        final int[] extraFeePer500g;
+        final int[] estimatedDays;
+
+        private Snapshot(int version, String[] districtCodes, short[] districtProvince, int provinceCount,
+                         byte[] zoneMatrix, int[][] tierMaxWeight, int[][] tierFee,
+                         int[] extraFeePer500g, int[] estimatedDays) {
+            this.version = version;
+            this.districtCodes = districtCodes;
+            this.districtProvince = districtProvince;
+            this.provinceCount = provinceCount;
+            this.zoneMatrix = zoneMatrix;
+            this.tierMaxWeight = tierMaxWeight;
+            this.tierFee = tierFee;
+            this.extraFeePer500g = extraFeePer500g;
+            this.estimatedDays = estimatedDays;
+        }
+
+        static Snapshot build(int version, List<Object[]> districtProvinceCodes,
+                              List<ShippingZoneRate> rates, List<ShippingWeightTier> tiers) {
+            Map<String, Integer> provinceIndex = new HashMap<>();
+
+            // Quận -> tỉnh, sort theo mã quận để binary search
+            List<Object[]> districts = new ArrayList<>(districtProvinceCodes);
+            districts.sort((a, b) -> ((String) a[0]).compareTo((String) b[0]));
+            String[] districtCodes = new String[districts.size()];
+            short[] districtProvince = new short[districts.size()];
+            for (int i = 0; i < districts.size(); i++) {
+                districtCodes[i] = (String) districts.get(i)[0];
+                districtProvince[i] = (short) indexOf(provinceIndex, (String) districts.get(i)[1]);
+            }
+            for (ShippingZoneRate rate : rates) {
+                indexOf(provinceIndex, rate.getFromProvinceCode());
+                indexOf(provinceIndex, rate.getToProvinceCode());
+            }
+
+            int provinceCount = provinceIndex.size();
+            byte[] zoneMatrix = new byte[provinceCount * provinceCount];
+            Arrays.fill(zoneMatrix, (byte) -1);
+            int zoneCount = ZONE_SAME_DISTRICT + 1;
+            for (ShippingZoneRate rate : rates) {
+                int from = provinceIndex.get(rate.getFromProvinceCode());
+                int to = provinceIndex.get(rate.getToProvinceCode());
+                zoneMatrix[from * provinceCount + to] = (byte) rate.getZone();
+                zoneCount = Math.max(zoneCount, rate.getZone() + 1);
+            }
+            for (ShippingWeightTier tier : tiers) {
+                zoneCount = Math.max(zoneCount, tier.getZone() + 1);
+            }
+
+            // tiers đã được sort theo (zone, maxWeightGram)
+            int[] tierCount = new int[zoneCount];
+            for (ShippingWeightTier tier : tiers) {
+                tierCount[tier.getZone()]++;
+            }
+            int[][] tierMaxWeight = new int[zoneCount][];
+            int[][] tierFee = new int[zoneCount][];
+            for (int zone = 0; zone < zoneCount; zone++) {
+                tierMaxWeight[zone] = new int[tierCount[zone]];
+                tierFee[zone] = new int[tierCount[zone]];
+            }
+            int[] extraFeePer500g = new int[zoneCount];
+            int[] estimatedDays = new int[zoneCount];
+            int[] filled = new int[zoneCount];
+            for (ShippingWeightTier tier : tiers) {
+                int zone = tier.getZone();
+                tierMaxWeight[zone][filled[zone]] = tier.getMaxWeightGram();
+                tierFee[zone][filled[zone]] = tier.getFee();
+                filled[zone]++;
+                // Bậc cuối (nặng nhất) quyết định phí vượt bậc
+                extraFeePer500g[zone] = tier.getExtraFeePer500g();
+                estimatedDays[zone] = Math.max(estimatedDays[zone], tier.getEstimatedDays());
+            }
+
+            return new Snapshot(version, districtCodes, districtProvince, provinceCount,
+                    zoneMatrix, tierMaxWeight, tierFee, extraFeePer500g, estimatedDays);
+        }
+
+        private static int indexOf(Map<String, Integer> provinceIndex, String provinceCode) {
+            return provinceIndex.computeIfAbsent(provinceCode, code -> provinceIndex.size());
+        }
+
+        Optional<ShippingFeeResponse> quote(ShippingFeeRequest request) {
+            int zone = zoneOf(request.getFromDistrictCode(), request.getToDistrictCode());
+            if (zone < 0 || zone >= tierFee.length || tierFee[zone].length == 0) {
+                return Optional.empty();
+            }
+
+            return Optional.of(ShippingFeeResponse.builder()
+                    .fee(feeFor(zone, request.getWeightGram()))
+                    .estimatedDays(estimatedDays[zone])
+                    .provider("Zone table v" + version)
+                    .build());
+        }
+
+        int zoneOf(String fromDistrictCode, String toDistrictCode) {
+            if (fromDistrictCode == null || toDistrictCode == null) {
+                return -1;
+            }
+            if (fromDistrictCode.equals(toDistrictCode)
+                    && ZONE_SAME_DISTRICT < tierFee.length && tierFee[ZONE_SAME_DISTRICT].length > 0) {
+                return ZONE_SAME_DISTRICT;
+            }
+            int from = Arrays.binarySearch(districtCodes, fromDistrictCode);
+            int to = Arrays.binarySearch(districtCodes, toDistrictCode);
+            if (from < 0 || to < 0) {
+                return -1;
+            }
+            return zoneMatrix[districtProvince[from] * provinceCount + districtProvince[to]];
+        }
+
+        double feeFor(int zone, int weightGram) {
+            int[] maxWeights = tierMaxWeight[zone];
+            for (int i = 0; i < maxWeights.length; i++) {
+                if (weightGram <= maxWeights[i]) {
+                    return tierFee[zone][i];
+                }
+            }
+            int last = maxWeights.length - 1;
+            int extraSteps = (weightGram - maxWeights[last] + EXTRA_STEP_GRAM - 1) / EXTRA_STEP_GRAM;
+            return tierFee[zone][last] + (double) extraSteps * extraFeePer500g[zone];
+        }
+    }
+}
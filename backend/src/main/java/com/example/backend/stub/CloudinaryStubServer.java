@@ -0,0 +1,34 @@
+package com.example.backend.stub;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Cloudinary giả: nhận upload multipart tại /v1_1/{cloud}/{resource}/upload, bỏ nội dung file
+ * và trả về secure_url như API thật. App trỏ SDK vào đây qua cloudinary.upload-prefix.
+ */
+public class CloudinaryStubServer extends StubHttpServer {
+
+    public CloudinaryStubServer(StubProperties.Endpoint endpoint, ObjectMapper objectMapper) {
+        super("Cloudinary", endpoint, objectMapper);
+    }
+
+    @Override
+    protected void registerRoutes() {
+        route("/v1_1/", exchange -> {
+            int bytes = readBody(exchange).length;
+            String publicId = "stub/" + UUID.randomUUID();
+            String url = getBaseUrl() + "/image/upload/" + publicId + ".jpg";
+            sendJson(exchange, 200, Map.of(
+                    "public_id", publicId,
+                    "version", System.currentTimeMillis() / 1000,
+                    "resource_type", "image",
+                    "format", "jpg",
+                    "bytes", bytes,
+                    "url", url,
+                    "secure_url", url));
+        });
+    }
+}
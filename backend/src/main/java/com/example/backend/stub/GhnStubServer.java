@@ -0,0 +1,41 @@
+package com.example.backend.stub;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.Map;
+
+/**
+ * GHN giả: API tính phí /shiip/public-api/v2/shipping-order/fee.
+ * Phí tính cố định theo cân nặng và tuyến để kết quả lặp lại được giữa các lần chạy.
+ */
+public class GhnStubServer extends StubHttpServer {
+
+    static final String FEE_PATH = "/shiip/public-api/v2/shipping-order/fee";
+
+    private static final int BASE_FEE = 22_000;
+    private static final int OTHER_DISTRICT_FEE = 8_000;
+    private static final int FEE_PER_500G = 5_000;
+
+    public GhnStubServer(StubProperties.Endpoint endpoint, ObjectMapper objectMapper) {
+        super("GHN", endpoint, objectMapper);
+    }
+
+    @Override
+    protected void registerRoutes() {
+        route(FEE_PATH, exchange -> {
+            JsonNode body = objectMapper.readTree(readBody(exchange));
+            int fee = fee(body.path("from_district_id").asInt(), body.path("to_district_id").asInt(),
+                    body.path("weight").asInt());
+            sendJson(exchange, 200, Map.of(
+                    "code", 200,
+                    "message", "Success",
+                    "data", Map.of("total", fee, "service_fee", fee, "insurance_fee", 0)));
+        });
+    }
+
+    static int fee(int fromDistrictId, int toDistrictId, int weightGram) {
+        int extraSteps = Math.max(0, (weightGram - 1) / 500);
+        return BASE_FEE + (fromDistrictId == toDistrictId ? 0 : OTHER_DISTRICT_FEE) + extraSteps * FEE_PER_500G;
+    }
+}
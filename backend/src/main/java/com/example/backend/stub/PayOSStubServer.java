@@ -0,0 +1,225 @@
+package com.example.backend.stub;
+
+import com.example.backend.service.payment.PayOSSignatureEngine;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PayOS giả:
+ * <ul>
+ *   <li>POST /v2/payment-requests: kiểm chữ ký như PayOS, tạo link PENDING</li>
+ *   <li>GET /v2/payment-requests/{orderCode}: trạng thái link (PENDING / PAID / EXPIRED / CANCELLED)</li>
+ *   <li>POST /v2/payment-requests/{orderCode}/cancel: hủy link chưa trả</li>
+ *   <li>Sau webhook-delay-ms, paid-rate số link được coi là đã trả tiền và webhook có chữ ký được POST về app</li>
+ * </ul>
+ * Dùng chung PayOSSignatureEngine (cùng checksum key) với app nên chữ ký 2 chiều đều khớp.
+ */
+@Slf4j
+public class PayOSStubServer extends StubHttpServer {
+
+    static final String PAYMENT_REQUESTS_PATH = "/v2/payment-requests";
+
+    private static final DateTimeFormatter TRANSACTION_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final StubProperties.PayOS properties;
+    private final PayOSSignatureEngine signatureEngine;
+    private final Cache<Long, Link> links;
+    private final HttpClient webhookClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+    private final ScheduledExecutorService webhookScheduler =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("payos-stub-webhook").factory());
+
+    private static final class Link {
+        final long orderCode;
+        final long amount;
+        final String paymentLinkId;
+        final Instant expiredAt;
+        volatile String status = "PENDING";
+
+        Link(long orderCode, long amount, String paymentLinkId, Instant expiredAt) {
+            this.orderCode = orderCode;
+            this.amount = amount;
+            this.paymentLinkId = paymentLinkId;
+            this.expiredAt = expiredAt;
+        }
+
+        String currentStatus() {
+            return "PENDING".equals(status) && Instant.now().isAfter(expiredAt) ? "EXPIRED" : status;
+        }
+    }
+
+    public PayOSStubServer(StubProperties.PayOS properties, PayOSSignatureEngine signatureEngine,
+                           ObjectMapper objectMapper) {
+        super("PayOS", properties, objectMapper);
+        this.properties = properties;
+        this.signatureEngine = signatureEngine;
+        this.links = Caffeine.newBuilder().maximumSize(properties.getMaxLinks()).build();
+    }
+
+    @Override
+    protected void registerRoutes() {
+        route(PAYMENT_REQUESTS_PATH, exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            if ("POST".equals(exchange.getRequestMethod()) && path.endsWith("/cancel")) {
+                String orderCode = path.substring(0, path.length() - "/cancel".length());
+                sendJson(exchange, 200, cancelLink(orderCode.substring(orderCode.lastIndexOf('/') + 1)));
+            } else if ("POST".equals(exchange.getRequestMethod())) {
+                sendJson(exchange, 200, createLink(objectMapper.readTree(readBody(exchange))));
+            } else {
+                sendJson(exchange, 200, linkStatus(path.substring(path.lastIndexOf('/') + 1)));
+            }
+        });
+    }
+
+    private Map<String, Object> createLink(JsonNode body) {
+        long orderCode = body.path("orderCode").asLong();
+        long amount = body.path("amount").asLong();
+        String expected = signatureEngine.signPaymentRequest(amount, body.path("cancelUrl").asText(),
+                body.path("description").asText(), orderCode, body.path("returnUrl").asText());
+        if (!expected.equals(body.path("signature").asText())) {
+            return result("20", "Chữ ký không hợp lệ", null);
+        }
+        if (links.getIfPresent(orderCode) != null) {
+            return result("231", "Đơn thanh toán đã tồn tại", null);
+        }
+
+        Instant expiredAt = body.hasNonNull("expiredAt")
+                ? Instant.ofEpochSecond(body.get("expiredAt").asLong())
+                : Instant.now().plus(Duration.ofDays(1));
+        Link link = new Link(orderCode, amount, UUID.randomUUID().toString().replace("-", ""), expiredAt);
+        links.put(orderCode, link);
+        if (ThreadLocalRandom.current().nextDouble() < properties.getPaidRate()) {
+            webhookScheduler.schedule(() -> pay(link), properties.getWebhookDelayMs(), TimeUnit.MILLISECONDS);
+        }
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("bin", "970422");
+        data.put("accountNumber", "0000000000");
+        data.put("accountName", "STUB MERCHANT");
+        data.put("amount", amount);
+        data.put("description", body.path("description").asText());
+        data.put("orderCode", orderCode);
+        data.put("currency", "VND");
+        data.put("paymentLinkId", link.paymentLinkId);
+        data.put("status", link.status);
+        data.put("expiredAt", expiredAt.getEpochSecond());
+        data.put("checkoutUrl", getBaseUrl() + "/web/" + link.paymentLinkId);
+        data.put("qrCode", "00020101021238570010A000000727STUB" + orderCode);
+        return result("00", "success", data);
+    }
+
+    private Map<String, Object> linkStatus(String orderCodeText) {
+        Link link = findLink(orderCodeText);
+        if (link == null) {
+            return result("101", "Không tìm thấy đơn thanh toán", null);
+        }
+        String status = link.currentStatus();
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("id", link.paymentLinkId);
+        data.put("orderCode", link.orderCode);
+        data.put("amount", link.amount);
+        data.put("amountPaid", "PAID".equals(status) ? link.amount : 0);
+        data.put("amountRemaining", "PAID".equals(status) ? 0 : link.amount);
+        data.put("status", status);
+        return result("00", "success", data);
+    }
+
+    private Map<String, Object> cancelLink(String orderCodeText) {
+        Link link = findLink(orderCodeText);
+        if (link == null) {
+            return result("101", "Không tìm thấy đơn thanh toán", null);
+        }
+        if (!"PENDING".equals(link.currentStatus())) {
+            return result("101", "Đơn thanh toán không ở trạng thái chờ", null);
+        }
+        link.status = "CANCELLED";
+        return linkStatus(orderCodeText);
+    }
+
+    private Link findLink(String orderCodeText) {
+        try {
+            return links.getIfPresent(Long.parseLong(orderCodeText));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Khách "trả tiền": đổi trạng thái rồi gửi webhook có chữ ký về app
+    private void pay(Link link) {
+        if (!"PENDING".equals(link.currentStatus())) {
+            return;
+        }
+        link.status = "PAID";
+        ObjectNode data = objectMapper.createObjectNode();
+        data.put("orderCode", link.orderCode);
+        data.put("amount", link.amount);
+        data.put("description", "");
+        data.put("accountNumber", "0000000000");
+        data.put("reference", "STUB" + link.orderCode);
+        data.put("transactionDateTime", LocalDateTime.now().format(TRANSACTION_TIME));
+        data.put("currency", "VND");
+        data.put("paymentLinkId", link.paymentLinkId);
+        data.put("code", "00");
+        data.put("desc", "success");
+
+        ObjectNode webhook = objectMapper.createObjectNode();
+        webhook.put("code", "00");
+        webhook.put("desc", "success");
+        webhook.put("success", true);
+        webhook.set("data", data);
+        webhook.put("signature", signatureEngine.signWebhook(data));
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(properties.getWebhookUrl()))
+                    .timeout(Duration.ofSeconds(5))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(webhook)))
+                    .build();
+            webhookClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (error != null) {
+                            log.warn("PayOS stub webhook for {} failed: {}", link.orderCode, error.getMessage());
+                        } else if (response.statusCode() >= 300) {
+                            log.warn("PayOS stub webhook for {} returned {}", link.orderCode, response.statusCode());
+                        }
+                    });
+        } catch (IOException e) {
+            log.warn("PayOS stub could not build webhook for {}: {}", link.orderCode, e.getMessage());
+        }
+    }
+
+    private static Map<String, Object> result(String code, String desc, Object data) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("code", code);
+        result.put("desc", desc);
+        result.put("data", data);
+        return result;
+    }
+
+    @Override
+    public synchronized void stop() {
+        webhookScheduler.shutdownNow();
+        super.stop();
+    }
+}
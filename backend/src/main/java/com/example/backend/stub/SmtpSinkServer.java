@@ -0,0 +1,145 @@
+package com.example.backend.stub;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SMTP giả: nhận thư (EHLO / AUTH / MAIL / RCPT / DATA) rồi bỏ đi, chỉ đếm số thư đã nhận.
+ * Độ trễ và lỗi giả áp ở bước kết thúc DATA, vượt thông lượng trả 452.
+ */
+@Slf4j
+public class SmtpSinkServer {
+
+    private final int port;
+    private final StubBehavior behavior;
+    private final AtomicLong received = new AtomicLong();
+
+    private ServerSocket serverSocket;
+    private ExecutorService executor;
+
+    public SmtpSinkServer(StubProperties.Endpoint endpoint) {
+        this.port = endpoint.getPort();
+        this.behavior = new StubBehavior(endpoint);
+    }
+
+    public synchronized void start() throws IOException {
+        serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        executor.submit(this::acceptLoop);
+        log.info("SMTP sink listening on port {}", getPort());
+    }
+
+    public synchronized void stop() {
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+            } catch (IOException e) {
+                log.debug("Error closing SMTP sink: {}", e.getMessage());
+            }
+            executor.shutdownNow();
+            serverSocket = null;
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public long getReceivedCount() {
+        return received.get();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                executor.submit(() -> session(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.warn("SMTP sink accept failed: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void session(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             OutputStream out = socket.getOutputStream()) {
+            reply(out, "220 localhost SMTP sink ready");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() < 4 ? line.toUpperCase(Locale.ROOT)
+                        : line.substring(0, 4).toUpperCase(Locale.ROOT);
+                switch (command) {
+                    case "EHLO" -> reply(out, "250-localhost\r\n250-AUTH PLAIN LOGIN\r\n250-8BITMIME\r\n250 SIZE 52428800");
+                    case "HELO" -> reply(out, "250 localhost");
+                    case "AUTH" -> authenticate(line, in, out);
+                    case "MAIL", "RCPT", "RSET", "NOOP" -> reply(out, "250 OK");
+                    case "DATA" -> data(in, out);
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "502 Command not implemented");
+                }
+            }
+        } catch (IOException e) {
+            log.debug("SMTP sink session ended: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Chấp nhận mọi tài khoản: AUTH PLAIN <base64> hoặc AUTH LOGIN (2 bước username / password)
+    private void authenticate(String line, BufferedReader in, OutputStream out) throws IOException {
+        String[] parts = line.trim().split("\\s+");
+        if (parts.length >= 2 && "LOGIN".equalsIgnoreCase(parts[1])) {
+            reply(out, "334 VXNlcm5hbWU6");
+            in.readLine();
+            reply(out, "334 UGFzc3dvcmQ6");
+            in.readLine();
+        } else if (parts.length == 2) {
+            reply(out, "334 ");
+            in.readLine();
+        }
+        reply(out, "235 Authentication successful");
+    }
+
+    private void data(BufferedReader in, OutputStream out) throws IOException, InterruptedException {
+        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+        // Bỏ nội dung thư, đọc tới dòng "."
+        String line;
+        do {
+            line = in.readLine();
+        } while (line != null && !".".equals(line));
+        if (!behavior.tryAdmit()) {
+            reply(out, "452 Too many messages, try again later");
+            return;
+        }
+        behavior.delay();
+        if (behavior.shouldFail()) {
+            reply(out, "451 Stub injected error");
+            return;
+        }
+        received.incrementAndGet();
+        reply(out, "250 OK queued");
+    }
+
+    private static void reply(OutputStream out, String message) throws IOException {
+        out.write((message + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+}
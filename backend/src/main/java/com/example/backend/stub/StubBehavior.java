@@ -0,0 +1,62 @@
+package com.example.backend.stub;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Độ trễ, lỗi giả và giới hạn thông lượng áp cho mỗi request vào 1 server giả
+ */
+public class StubBehavior {
+
+    private final StubProperties.Latency latency;
+    private final double errorRate;
+    private final int maxRequestsPerSecond;
+
+    // Cửa sổ 1 giây hiện tại và số request đã nhận trong cửa sổ đó
+    private long windowSecond = Long.MIN_VALUE;
+    private int windowCount;
+
+    public StubBehavior(StubProperties.Endpoint endpoint) {
+        this.latency = endpoint.getLatency();
+        this.errorRate = endpoint.getErrorRate();
+        this.maxRequestsPerSecond = endpoint.getMaxRequestsPerSecond();
+    }
+
+    /**
+     * false nếu đã đủ max-requests-per-second trong giây hiện tại
+     */
+    public synchronized boolean tryAdmit() {
+        if (maxRequestsPerSecond <= 0) {
+            return true;
+        }
+        long second = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+        if (second != windowSecond) {
+            windowSecond = second;
+            windowCount = 0;
+        }
+        return ++windowCount <= maxRequestsPerSecond;
+    }
+
+    public boolean shouldFail() {
+        return errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+    }
+
+    public void delay() throws InterruptedException {
+        long ms = sampleLatencyMs();
+        if (ms > 0) {
+            TimeUnit.MILLISECONDS.sleep(ms);
+        }
+    }
+
+    long sampleLatencyMs() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mean = latency.getMeanMs();
+        double ms = switch (latency.getDistribution()) {
+            case FIXED -> mean;
+            case UNIFORM -> mean - latency.getSpreadMs() + random.nextDouble() * 2 * latency.getSpreadMs();
+            case EXPONENTIAL -> -mean * Math.log(1 - random.nextDouble());
+            case LOGNORMAL -> mean <= 0 ? 0 : Math.exp(Math.log(mean) + latency.getSigma() * random.nextGaussian());
+        };
+        return Math.max(0, Math.min(latency.getMaxMs(), Math.round(ms)));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.backend.stub;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Server HTTP giả dựa trên HttpServer của JDK, mỗi request 1 virtual thread, chỉ nghe trên loopback.
+ * <p>
+ * Mọi route đi qua cùng 1 bước: quá thông lượng -> 429, chờ độ trễ giả, lỗi giả -> 500,
+ * rồi mới tới handler của dịch vụ.
+ */
+@Slf4j
+public abstract class StubHttpServer {
+
+    private static final Map<String, Object> ERROR_BODY = Map.of("error", Map.of("message", "Stub injected error"));
+    private static final Map<String, Object> THROTTLED_BODY = Map.of("error", Map.of("message", "Too many requests"));
+
+    protected final ObjectMapper objectMapper;
+    private final String name;
+    private final int port;
+    private final StubBehavior behavior;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    protected StubHttpServer(String name, StubProperties.Endpoint endpoint, ObjectMapper objectMapper) {
+        this.name = name;
+        this.port = endpoint.getPort();
+        this.behavior = new StubBehavior(endpoint);
+        this.objectMapper = objectMapper;
+    }
+
+    @FunctionalInterface
+    protected interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    /**
+     * Đăng ký các route của dịch vụ
+     */
+    protected abstract void registerRoutes();
+
+    public synchronized void start() throws IOException {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        server.setExecutor(executor);
+        registerRoutes();
+        server.start();
+        log.info("{} stub listening on port {}", name, getPort());
+    }
+
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + getPort();
+    }
+
+    protected void route(String path, Handler handler) {
+        server.createContext(path, exchange -> {
+            try {
+                if (!behavior.tryAdmit()) {
+                    drain(exchange);
+                    sendJson(exchange, 429, THROTTLED_BODY);
+                    return;
+                }
+                behavior.delay();
+                if (behavior.shouldFail()) {
+                    drain(exchange);
+                    sendJson(exchange, 500, ERROR_BODY);
+                    return;
+                }
+                handler.handle(exchange);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException | IOException e) {
+                log.warn("{} stub failed to handle {}: {}", name, exchange.getRequestURI(), e.getMessage());
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    protected byte[] readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return in.readAllBytes();
+        }
+    }
+
+    protected void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=" + StandardCharsets.UTF_8.name());
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    // Đọc hết body để client không bị reset kết nối khi server trả lời sớm
+    private void drain(HttpExchange exchange) throws IOException {
+        readBody(exchange);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.backend.stub;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Cấu hình các server giả (profile "stub"): stub.ghn.*, stub.payos.*, stub.cloudinary.*, stub.smtp.*
+ */
+@ConfigurationProperties(prefix = "stub")
+@Getter
+@Setter
+public class StubProperties {
+
+    private Endpoint ghn = new Endpoint();
+    private PayOS payos = new PayOS();
+    private Endpoint cloudinary = new Endpoint();
+    private Endpoint smtp = new Endpoint();
+
+    @Getter
+    @Setter
+    public static class Endpoint {
+        // 0 = cổng ngẫu nhiên
+        private int port;
+        private Latency latency = new Latency();
+        // Tỉ lệ request trả lỗi (0..1)
+        private double errorRate;
+        // Số request tối đa mỗi giây, vượt thì trả 429 (SMTP: 452); 0 = không giới hạn
+        private int maxRequestsPerSecond;
+    }
+
+    @Getter
+    @Setter
+    public static class PayOS extends Endpoint {
+        // Tỉ lệ link được "thanh toán" và gửi webhook về app (0..1)
+        private double paidRate = 1.0;
+        private long webhookDelayMs = 2000;
+        private String webhookUrl = "http://localhost:8080/payments/payos/webhook";
+        // Số link giữ trong bộ nhớ để tra trạng thái
+        private long maxLinks = 1_000_000;
+    }
+
+    public enum Distribution {
+        FIXED,
+        UNIFORM,
+        EXPONENTIAL,
+        LOGNORMAL
+    }
+
+    /**
+     * Độ trễ mỗi request.
+     * FIXED: mean-ms. UNIFORM: mean-ms ± spread-ms. EXPONENTIAL: trung bình mean-ms.
+     * LOGNORMAL: trung vị mean-ms, độ lệch sigma (đuôi dài như mạng thật).
+     * Mọi phân phối bị chặn trên bởi max-ms.
+     */
+    @Getter
+    @Setter
+    public static class Latency {
+        private Distribution distribution = Distribution.FIXED;
+        private long meanMs;
+        private long spreadMs;
+        private double sigma = 0.5;
+        private long maxMs = 30_000;
+    }
+}
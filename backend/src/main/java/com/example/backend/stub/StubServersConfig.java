@@ -0,0 +1,39 @@
+package com.example.backend.stub;
+
+import com.example.backend.service.payment.PayOSSignatureEngine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Profile "stub": chạy GHN, PayOS, Cloudinary và SMTP giả ngay trong JVM của app để load test
+ * trên 1 máy không cần mạng. application-stub.properties trỏ các client của app vào các cổng này.
+ */
+@Configuration
+@Profile("stub")
+@EnableConfigurationProperties(StubProperties.class)
+public class StubServersConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public GhnStubServer ghnStubServer(StubProperties properties, ObjectMapper objectMapper) {
+        return new GhnStubServer(properties.getGhn(), objectMapper);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public PayOSStubServer payOSStubServer(StubProperties properties, PayOSSignatureEngine signatureEngine,
+                                           ObjectMapper objectMapper) {
+        return new PayOSStubServer(properties.getPayos(), signatureEngine, objectMapper);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public CloudinaryStubServer cloudinaryStubServer(StubProperties properties, ObjectMapper objectMapper) {
+        return new CloudinaryStubServer(properties.getCloudinary(), objectMapper);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public SmtpSinkServer smtpSinkServer(StubProperties properties) {
+        return new SmtpSinkServer(properties.getSmtp());
+    }
+}
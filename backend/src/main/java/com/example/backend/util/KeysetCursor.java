@@ -0,0 +1,40 @@
+package com.example.backend.util;
+
+import com.example.backend.exception.AppException;
+import com.example.backend.exception.ErrorCode;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Con trỏ phân trang keyset theo (createdAt, id) giảm dần: vị trí của dòng cuối cùng ở trang trước.
+ * Client chỉ thấy chuỗi base64 và gửi lại nguyên vẹn.
+ */
+public record KeysetCursor(LocalDateTime createdAt, String id) {
+
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return null nếu cursor null (trang đầu)
+     */
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator < 0) {
+                throw new AppException(ErrorCode.INVALID_VALUE);
+            }
+            return new KeysetCursor(LocalDateTime.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new AppException(ErrorCode.INVALID_VALUE);
+        }
+    }
+}
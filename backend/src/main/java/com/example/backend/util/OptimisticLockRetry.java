@@ -0,0 +1,81 @@
+package com.example.backend.util;
+
+import com.example.backend.exception.AppException;
+import com.example.backend.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Chạy 1 đoạn ghi DB trong transaction riêng, nếu bị xung đột @Version thì chạy lại cả transaction.
+ * <p>
+ * Mỗi lần chạy lại đọc dữ liệu mới nhất, nên request thua sẽ thấy trạng thái sau khi request thắng đã commit
+ * (vd: cart đã checkout xong thì báo lỗi thay vì tạo đơn lần 2).
+ */
+@Component
+@Slf4j
+public class OptimisticLockRetry {
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+
+    public OptimisticLockRetry(
+            TransactionTemplate transactionTemplate,
+            @Value("${transaction.optimistic-retry.max-attempts:10}") int maxAttempts,
+            @Value("${transaction.optimistic-retry.backoff-ms:10}") long backoffMs,
+            @Value("${transaction.optimistic-retry.max-backoff-ms:300}") long maxBackoffMs) {
+        this.transactionTemplate = transactionTemplate;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = Math.max(backoffMs, maxBackoffMs);
+    }
+
+    public <T> T execute(Supplier<T> action) {
+        // Đang trong transaction ngoài thì xung đột chỉ lộ ra khi transaction đó commit, không retry ở đây được
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    log.warn("Giving up after {} optimistic lock conflicts: {}", attempt, e.getMessage());
+                    throw new AppException(ErrorCode.CONCURRENT_UPDATE);
+                }
+                backoff(attempt);
+            }
+        }
+    }
+
+    /**
+     * Chờ tăng theo cấp số nhân (backoff-ms, x2 mỗi lần, tối đa max-backoff-ms) với jitter:
+     * nửa cố định, nửa ngẫu nhiên, để các request xung đột giãn ra thay vì cùng chạy lại 1 lúc.
+     */
+    long backoffDelayMs(int attempt) {
+        long ceiling = Math.min(maxBackoffMs, backoffMs << Math.min(attempt - 1, 20));
+        long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+    }
+
+    private void backoff(int attempt) {
+        if (backoffMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(backoffDelayMs(attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppException(ErrorCode.CONCURRENT_UPDATE);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.backend.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Giới hạn tốc độ gọi dịch vụ ngoài: tối đa permitsPerSecond lượt / giây, chia đều theo thời gian.
+ * <p>
+ * Mỗi lượt giữ trước 1 khe thời gian; đã tới khe thì đi luôn, chưa tới thì ngủ tới khe đó.
+ * Khe không dùng trong lúc rảnh không được cộng dồn, nên sau 1 lúc nghỉ không có đợt dồn dập.
+ */
+public class RateLimiter {
+
+    private final long intervalNanos;
+    private final LongSupplier nanoClock;
+
+    private long nextFreeAt;
+    private boolean started;
+
+    public RateLimiter(double permitsPerSecond) {
+        this(permitsPerSecond, System::nanoTime);
+    }
+
+    public RateLimiter(double permitsPerSecond, LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive");
+        }
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Chờ tới lượt của mình.
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Giữ khe kế tiếp, trả về số nano giây phải chờ (0 = đi được ngay)
+     */
+    public synchronized long reserve() {
+        long now = nanoClock.getAsLong();
+        if (!started || now - nextFreeAt > 0) {
+            started = true;
+            nextFreeAt = now;
+        }
+        long wait = nextFreeAt - now;
+        nextFreeAt += intervalNanos;
+        return wait;
+    }
+}
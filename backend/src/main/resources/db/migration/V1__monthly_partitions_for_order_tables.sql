@@ -0,0 +1,175 @@
+-- Chia orders, order_items, shipments, payments thành partition theo tháng (RANGE created_at).
+--
+-- - Partition tên <bảng>_pYYYYMM, phủ [đầu tháng, đầu tháng sau); <bảng>_default nhận dữ liệu ngoài khoảng đã tạo.
+-- - PK đổi thành (id, created_at) vì PostgreSQL yêu cầu khóa unique chứa khóa partition,
+--   nên các FK trỏ tới các bảng này bị bỏ (entity dùng @ForeignKey(NO_CONSTRAINT)).
+--   FK đi ra từ các bảng này (user, shop, product, provider) được tạo lại trên bảng partition.
+-- - Partition tháng đã đóng được tách ra schema archive (bảng lạnh), xem OrderPartitionMaintenance.
+--
+-- DB mới (bảng chưa tồn tại khi Flyway chạy): Hibernate tạo bảng thường, OrderPartitionMaintenance
+-- gọi convert_to_monthly_partitions lúc khởi động để chuyển đổi.
+
+CREATE SCHEMA IF NOT EXISTS archive;
+
+-- Tạo partition cho tháng chứa p_month nếu chưa có (kể cả đã chuyển sang archive).
+-- Dữ liệu của tháng đó đang nằm trong partition default được chuyển sang partition mới.
+CREATE OR REPLACE FUNCTION create_monthly_partition(p_parent text, p_month date)
+RETURNS boolean LANGUAGE plpgsql AS $$
+DECLARE
+    v_start date := date_trunc('month', p_month)::date;
+    v_end date := (date_trunc('month', p_month) + interval '1 month')::date;
+    v_part text := format('%s_p%s', p_parent, to_char(v_start, 'YYYYMM'));
+    v_default text := p_parent || '_default';
+    v_has_rows boolean := false;
+BEGIN
+    IF to_regclass(quote_ident(v_part)) IS NOT NULL
+            OR to_regclass('archive.' || quote_ident(v_part)) IS NOT NULL THEN
+        RETURN false;
+    END IF;
+
+    IF to_regclass(quote_ident(v_default)) IS NOT NULL THEN
+        EXECUTE format('SELECT EXISTS (SELECT 1 FROM %I WHERE created_at >= %L AND created_at < %L)',
+                       v_default, v_start, v_end) INTO v_has_rows;
+    END IF;
+
+    IF v_has_rows THEN
+        -- Không tạo được PARTITION OF khi default đang chứa dòng của khoảng này
+        EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', v_part, p_parent);
+        EXECUTE format('WITH moved AS (DELETE FROM %I WHERE created_at >= %L AND created_at < %L RETURNING *) '
+                       'INSERT INTO %I SELECT * FROM moved', v_default, v_start, v_end, v_part);
+        EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                       p_parent, v_part, v_start, v_end);
+    ELSE
+        EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                       v_part, p_parent, v_start, v_end);
+    END IF;
+    RETURN true;
+END $$;
+
+-- Tạo partition từ tháng hiện tại tới p_months_ahead tháng sau (bảng chưa partition thì bỏ qua)
+CREATE OR REPLACE FUNCTION ensure_monthly_partitions(p_parent text, p_months_ahead int)
+RETURNS int LANGUAGE plpgsql AS $$
+DECLARE
+    v_created int := 0;
+BEGIN
+    IF to_regclass(quote_ident(p_parent)) IS NULL
+            OR NOT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(quote_ident(p_parent))) THEN
+        RETURN 0;
+    END IF;
+    FOR i IN 0..p_months_ahead LOOP
+        IF create_monthly_partition(p_parent, (date_trunc('month', now()) + make_interval(months => i))::date) THEN
+            v_created := v_created + 1;
+        END IF;
+    END LOOP;
+    RETURN v_created;
+END $$;
+
+-- Chuyển 1 bảng thường thành bảng partition theo tháng, giữ nguyên dữ liệu và các index thường.
+-- Trả về false nếu bảng chưa tồn tại hoặc đã được partition.
+CREATE OR REPLACE FUNCTION convert_to_monthly_partitions(p_table text, p_months_ahead int)
+RETURNS boolean LANGUAGE plpgsql AS $$
+DECLARE
+    v_rel regclass := to_regclass(quote_ident(p_table));
+    v_legacy text := p_table || '_unpartitioned';
+    v_index_defs text[];
+    v_fk_defs text[];
+    v_first date;
+    v_month date;
+    r record;
+BEGIN
+    IF v_rel IS NULL OR EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = v_rel) THEN
+        RETURN false;
+    END IF;
+
+    -- FK từ bảng khác trỏ tới bảng này không còn khóa unique (id) để tham chiếu.
+    -- conparentid = 0: bỏ qua bản sao của FK trên từng partition, xóa FK ở bảng cha là đủ
+    FOR r IN SELECT conname, conrelid::regclass AS child FROM pg_constraint
+             WHERE contype = 'f' AND confrelid = v_rel AND conparentid = 0 LOOP
+        EXECUTE format('ALTER TABLE %s DROP CONSTRAINT %I', r.child, r.conname);
+    END LOOP;
+
+    -- Index thường được dựng lại trên bảng mới; unique (vd order_id của @OneToOne) không giữ được
+    -- vì không chứa created_at
+    SELECT coalesce(array_agg(pg_get_indexdef(i.indexrelid)), '{}') INTO v_index_defs
+    FROM pg_index i WHERE i.indrelid = v_rel AND NOT i.indisunique;
+    FOR r IN SELECT c.relname FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid
+             WHERE i.indrelid = v_rel AND NOT i.indisunique LOOP
+        EXECUTE format('DROP INDEX %I', r.relname);
+    END LOOP;
+    -- CREATE TABLE ... (LIKE ...) không copy FK: giữ lại định nghĩa các FK đi ra để tạo lại sau khi chép dữ liệu
+    SELECT coalesce(array_agg(format('ALTER TABLE %I ADD CONSTRAINT %I %s',
+                                     p_table, conname, pg_get_constraintdef(oid))), '{}') INTO v_fk_defs
+    FROM pg_constraint WHERE conrelid = v_rel AND contype = 'f';
+
+    FOR r IN SELECT conname FROM pg_constraint WHERE conrelid = v_rel AND contype IN ('p', 'u') LOOP
+        EXECUTE format('ALTER TABLE %I DROP CONSTRAINT %I', p_table, r.conname);
+    END LOOP;
+
+    EXECUTE format('UPDATE %I SET created_at = now() WHERE created_at IS NULL', p_table);
+    EXECUTE format('ALTER TABLE %I RENAME TO %I', p_table, v_legacy);
+    EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING CONSTRAINTS, PRIMARY KEY (id, created_at)) '
+                   'PARTITION BY RANGE (created_at)', p_table, v_legacy);
+    EXECUTE format('CREATE TABLE %I PARTITION OF %I DEFAULT', p_table || '_default', p_table);
+
+    EXECUTE format('SELECT min(created_at)::date FROM %I', v_legacy) INTO v_first;
+    v_month := date_trunc('month', coalesce(v_first, now()))::date;
+    WHILE v_month <= (date_trunc('month', now()) + make_interval(months => p_months_ahead))::date LOOP
+        PERFORM create_monthly_partition(p_table, v_month);
+        v_month := (v_month + interval '1 month')::date;
+    END LOOP;
+
+    EXECUTE format('INSERT INTO %I SELECT * FROM %I', p_table, v_legacy);
+    EXECUTE format('DROP TABLE %I', v_legacy);
+
+    FOR i IN 1..coalesce(array_length(v_index_defs, 1), 0) LOOP
+        EXECUTE regexp_replace(v_index_defs[i], ' ON (ONLY )?\S+ USING ', format(' ON %I USING ', p_table));
+    END LOOP;
+    FOR i IN 1..coalesce(array_length(v_fk_defs, 1), 0) LOOP
+        EXECUTE v_fk_defs[i];
+    END LOOP;
+    RETURN true;
+END $$;
+
+-- Tách partition của tháng p_month khỏi bảng cha và chuyển sang schema archive.
+-- Truy vấn trên bảng cha không còn thấy dữ liệu này; có thể pg_dump rồi xóa schema archive khi cần.
+CREATE OR REPLACE FUNCTION archive_monthly_partition(p_parent text, p_month date)
+RETURNS boolean LANGUAGE plpgsql AS $$
+DECLARE
+    v_part text := format('%s_p%s', p_parent, to_char(date_trunc('month', p_month), 'YYYYMM'));
+BEGIN
+    IF to_regclass(quote_ident(v_part)) IS NULL THEN
+        RETURN false;
+    END IF;
+    EXECUTE format('ALTER TABLE %I DETACH PARTITION %I', p_parent, v_part);
+    EXECUTE format('ALTER TABLE %I SET SCHEMA archive', v_part);
+    RETURN true;
+END $$;
+
+-- DB đã có dữ liệu: thêm created_at cho các bảng con (lấy theo đơn) rồi chuyển đổi
+DO $$
+BEGIN
+    IF to_regclass('orders') IS NULL THEN
+        RETURN;
+    END IF;
+
+    IF to_regclass('order_items') IS NOT NULL THEN
+        ALTER TABLE order_items ADD COLUMN IF NOT EXISTS created_at timestamp(6);
+        UPDATE order_items i SET created_at = o.created_at FROM orders o
+        WHERE o.id = i.order_id AND i.created_at IS NULL;
+    END IF;
+    IF to_regclass('shipments') IS NOT NULL THEN
+        ALTER TABLE shipments ADD COLUMN IF NOT EXISTS created_at timestamp(6);
+        UPDATE shipments s SET created_at = o.created_at FROM orders o
+        WHERE o.id = s.order_id AND s.created_at IS NULL;
+    END IF;
+    IF to_regclass('payments') IS NOT NULL THEN
+        ALTER TABLE payments ADD COLUMN IF NOT EXISTS created_at timestamp(6);
+        UPDATE payments p SET created_at = coalesce(p.payment_date, o.created_at) FROM orders o
+        WHERE o.id = p.order_id AND p.created_at IS NULL;
+    END IF;
+
+    PERFORM convert_to_monthly_partitions('order_items', 3);
+    PERFORM convert_to_monthly_partitions('shipments', 3);
+    PERFORM convert_to_monthly_partitions('payments', 3);
+    PERFORM convert_to_monthly_partitions('orders', 3);
+END $$;
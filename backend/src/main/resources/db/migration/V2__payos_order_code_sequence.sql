@@ -0,0 +1,8 @@
+-- Sequence cấp orderCode PayOS theo khối (hi/lo), xem PayOSOrderCodeAllocator.
+--
+-- - INCREMENT BY phải khớp PayOSOrderCodeAllocator.BLOCK_SIZE: mỗi nextval là đầu 1 khối 100 mã.
+-- - Mã cũ sinh từ hashCode nằm trong [100000000, 1000000000), nên bắt đầu từ 1000000000.
+-- - IF NOT EXISTS: DB đã có sequence do bản cũ tạo lúc chạy thì giữ nguyên giá trị hiện tại.
+-- Cú pháp chung cho PostgreSQL và H2 (profile test chạy file này qua spring.sql.init).
+
+CREATE SEQUENCE IF NOT EXISTS payos_order_code_seq START WITH 1000000000 INCREMENT BY 100;
@@ -1,35 +1,50 @@
 package com.example.backend.configuration;
 
+import com.example.backend.service.outbound.OutboundClients;
+import com.example.backend.service.outbound.OutboundDependency;
+import com.example.backend.service.outbound.OutboundInterceptor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.InterceptingClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class AppConfigTest {
 
     private final AppConfig appConfig = new AppConfig();
+    private final OutboundClients outboundClients =
+            new OutboundClients(new OutboundProperties(), new SimpleMeterRegistry());
 
     @Test
-    void restTemplate_shouldReturnRestTemplate() {
-        // Act
-        RestTemplate restTemplate = appConfig.restTemplate();
+    void restTemplates_arePooledAndGuardedPerDependency() {
+        RestTemplate ghn = appConfig.ghnRestTemplate(outboundClients);
+        RestTemplate payos = appConfig.payosRestTemplate(outboundClients);
+
+        assertNotSame(ghn, payos);
+        assertEquals(1, ghn.getInterceptors().size());
+        assertInstanceOf(OutboundInterceptor.class, ghn.getInterceptors().get(0));
+        assertInstanceOf(InterceptingClientHttpRequestFactory.class, ghn.getRequestFactory());
+        assertInstanceOf(OutboundInterceptor.class, payos.getInterceptors().get(0));
+    }
 
-        // Assert
-        assertNotNull(restTemplate);
-        assertInstanceOf(RestTemplate.class, restTemplate);
+    @Test
+    void restTemplate_usesApacheHttpClientPool() {
+        OutboundClients clients = new OutboundClients(new OutboundProperties(), new SimpleMeterRegistry());
+        RestTemplate ghn = clients.restTemplate(AppConfig.GHN);
+        ghn.setInterceptors(List.of());
+
+        assertInstanceOf(HttpComponentsClientHttpRequestFactory.class, ghn.getRequestFactory());
     }
 
     @Test
-    void restTemplate_shouldReturnNewInstance() {
-        // Act
-        RestTemplate restTemplate1 = appConfig.restTemplate();
-        RestTemplate restTemplate2 = appConfig.restTemplate();
-
-        // Assert
-        // Each call should return a new instance (not singleton)
-        assertNotNull(restTemplate1);
-        assertNotNull(restTemplate2);
-        // Note: If @Bean is used without @Scope, Spring creates singleton by default
-        // But in unit test, we're calling the method directly, so each call creates new instance
+    void cloudinaryOutbound_isSharedPerDependency() {
+        OutboundDependency dependency = appConfig.cloudinaryOutbound(outboundClients);
+
+        assertSame(dependency, outboundClients.dependency(AppConfig.CLOUDINARY));
+        assertEquals("cloudinary", dependency.getName());
     }
 }
@@ -0,0 +1,277 @@
+package com.example.backend.configuration;
+
+import com.example.backend.entity.IdempotencyRecord;
+import com.example.backend.exception.ErrorCode;
+import com.example.backend.service.IdempotencyService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyFilterTest {
+
+    @Mock
+    IdempotencyService idempotencyService;
+
+    private IdempotencyFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new IdempotencyFilter(idempotencyService, new ObjectMapper(),
+                List.of("POST /orders/checkout/selected", "POST /cart/add/**"), 2000);
+    }
+
+    private MockHttpServletRequest request(String key, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/orders/checkout/selected");
+        if (key != null) {
+            request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key);
+        }
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    // Handler giả: đọc body và trả về JSON
+    private FilterChain handler(AtomicInteger executions, String responseBody) {
+        return (req, res) -> {
+            executions.incrementAndGet();
+            req.getInputStream().readAllBytes();
+            res.setContentType("application/json");
+            res.getWriter().write(responseBody);
+        };
+    }
+
+    @Test
+    void withoutKey_passesThrough() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+
+        filter.doFilter(request(null, "{}"), new MockHttpServletResponse(), handler(executions, "{}"));
+
+        assertEquals(1, executions.get());
+        verifyNoInteractions(idempotencyService);
+    }
+
+    @Test
+    void otherEndpoint_passesThrough() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/users");
+        request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, "k1");
+
+        filter.doFilter(request, new MockHttpServletResponse(), handler(executions, "{}"));
+
+        assertEquals(1, executions.get());
+        verifyNoInteractions(idempotencyService);
+    }
+
+    @Test
+    void firstRequest_executesAndStoresResponse() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        when(idempotencyService.find(anyString())).thenReturn(Optional.empty());
+        when(idempotencyService.claim(anyString(), anyString())).thenReturn(true);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("k1", "{\"productIds\":[\"p1\"]}"), response, handler(executions, "{\"code\":1000}"));
+
+        assertEquals(1, executions.get());
+        assertEquals("{\"code\":1000}", response.getContentAsString());
+        ArgumentCaptor<byte[]> body = ArgumentCaptor.forClass(byte[].class);
+        verify(idempotencyService).complete(anyString(), eq(200), eq("application/json"), body.capture());
+        assertEquals("{\"code\":1000}", new String(body.getValue(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void completedKey_isReplayedWithoutExecuting() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        MockHttpServletRequest first = request("k1", "{\"productIds\":[\"p1\"]}");
+        when(idempotencyService.find(anyString())).thenReturn(Optional.empty());
+        when(idempotencyService.claim(anyString(), anyString())).thenReturn(true);
+        filter.doFilter(first, new MockHttpServletResponse(), handler(executions, "{\"code\":1000}"));
+
+        ArgumentCaptor<String> recordId = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> requestHash = ArgumentCaptor.forClass(String.class);
+        verify(idempotencyService).claim(recordId.capture(), requestHash.capture());
+        when(idempotencyService.find(recordId.getValue())).thenReturn(Optional.of(IdempotencyRecord.builder()
+                .id(recordId.getValue())
+                .requestHash(requestHash.getValue())
+                .completed(true)
+                .responseStatus(200)
+                .contentType("application/json")
+                .responseBody("{\"code\":1000}".getBytes(StandardCharsets.UTF_8))
+                .build()));
+
+        MockHttpServletResponse replay = new MockHttpServletResponse();
+        filter.doFilter(request("k1", "{\"productIds\":[\"p1\"]}"), replay, handler(executions, "{\"code\":9999}"));
+
+        assertEquals(1, executions.get());
+        assertEquals(200, replay.getStatus());
+        assertEquals("{\"code\":1000}", replay.getContentAsString());
+        assertEquals("true", replay.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void sameKeyDifferentBody_isRejected() throws Exception {
+        when(idempotencyService.find(anyString())).thenReturn(Optional.of(IdempotencyRecord.builder()
+                .requestHash("hash-of-another-body")
+                .completed(true)
+                .responseStatus(200)
+                .build()));
+        AtomicInteger executions = new AtomicInteger();
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("k1", "{\"productIds\":[\"p2\"]}"), response, handler(executions, "{}"));
+
+        assertEquals(0, executions.get());
+        assertEquals(422, response.getStatus());
+    }
+
+    @Test
+    void serverError_isNotStored() throws Exception {
+        when(idempotencyService.find(anyString())).thenReturn(Optional.empty());
+        when(idempotencyService.claim(anyString(), anyString())).thenReturn(true);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("k1", "{}"), response,
+                (req, res) -> ((HttpServletResponse) res).setStatus(503));
+
+        verify(idempotencyService).release(anyString());
+        verify(idempotencyService, never()).complete(anyString(), anyInt(), any(), any());
+    }
+
+    @Test
+    void retryableConflict_isReleasedNotStored() throws Exception {
+        when(idempotencyService.find(anyString())).thenReturn(Optional.empty());
+        when(idempotencyService.claim(anyString(), anyString())).thenReturn(true);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("k1", "{}"), response, (req, res) -> {
+            ((HttpServletResponse) res).setStatus(409);
+            res.getWriter().write("{\"code\":" + ErrorCode.CONCURRENT_UPDATE.getCode() + "}");
+        });
+
+        assertEquals(409, response.getStatus());
+        verify(idempotencyService).release(anyString());
+        verify(idempotencyService, never()).complete(anyString(), anyInt(), any(), any());
+    }
+
+    @Test
+    void finalConflict_isStored() throws Exception {
+        when(idempotencyService.find(anyString())).thenReturn(Optional.empty());
+        when(idempotencyService.claim(anyString(), anyString())).thenReturn(true);
+
+        filter.doFilter(request("k1", "{}"), new MockHttpServletResponse(), (req, res) -> {
+            ((HttpServletResponse) res).setStatus(409);
+            res.getWriter().write("{\"code\":" + ErrorCode.ORDER_STATUS_TRANSITION_INVALID.getCode() + "}");
+        });
+
+        verify(idempotencyService).complete(anyString(), eq(409), any(), any());
+        verify(idempotencyService, never()).release(anyString());
+    }
+
+    @Test
+    void claimLost_holderReleasedKey_reclaimsBeforeExecuting() throws Exception {
+        // Lần claim đầu thua, nhưng request giữ key đã nhả ra trước khi find -> giữ lại rồi mới chạy
+        when(idempotencyService.find(anyString())).thenReturn(Optional.empty());
+        when(idempotencyService.claim(anyString(), anyString())).thenReturn(false, true);
+        AtomicInteger executions = new AtomicInteger();
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("k1", "{}"), response, handler(executions, "{\"code\":1000}"));
+
+        assertEquals(1, executions.get());
+        verify(idempotencyService, times(2)).claim(anyString(), anyString());
+        verify(idempotencyService).complete(anyString(), eq(200), eq("application/json"), any());
+    }
+
+    @Test
+    void claimNeverHeld_doesNotExecute() throws Exception {
+        when(idempotencyService.find(anyString())).thenReturn(Optional.empty());
+        when(idempotencyService.claim(anyString(), anyString())).thenReturn(false);
+        AtomicInteger executions = new AtomicInteger();
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("k1", "{}"), response, handler(executions, "{}"));
+
+        assertEquals(0, executions.get());
+        assertEquals(ErrorCode.IDEMPOTENCY_IN_PROGRESS.getStatus().value(), response.getStatus());
+        verify(idempotencyService, never()).complete(anyString(), anyInt(), any(), any());
+    }
+
+    @Test
+    void concurrentDuplicates_waitForInFlightResult() throws Exception {
+        when(idempotencyService.find(anyString())).thenReturn(Optional.empty());
+        when(idempotencyService.claim(anyString(), anyString())).thenReturn(true);
+
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain slowHandler = (req, res) -> {
+            executions.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            res.setContentType("application/json");
+            res.getWriter().write("{\"result\":\"order-1\"}");
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<MockHttpServletResponse> first = executor.submit(() -> {
+                MockHttpServletResponse response = new MockHttpServletResponse();
+                filter.doFilter(request("k1", "{}"), response, slowHandler);
+                return response;
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            List<Future<MockHttpServletResponse>> duplicates = List.of(
+                    executor.submit(() -> {
+                        MockHttpServletResponse response = new MockHttpServletResponse();
+                        filter.doFilter(request("k1", "{}"), response, slowHandler);
+                        return response;
+                    }),
+                    executor.submit(() -> {
+                        MockHttpServletResponse response = new MockHttpServletResponse();
+                        filter.doFilter(request("k1", "{}"), response, slowHandler);
+                        return response;
+                    }));
+            Thread.sleep(100);
+            release.countDown();
+
+            assertEquals("{\"result\":\"order-1\"}", first.get(5, TimeUnit.SECONDS).getContentAsString());
+            for (Future<MockHttpServletResponse> duplicate : duplicates) {
+                MockHttpServletResponse response = duplicate.get(5, TimeUnit.SECONDS);
+                assertEquals("{\"result\":\"order-1\"}", response.getContentAsString());
+                assertEquals("true", response.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, executions.get());
+        verify(idempotencyService, times(1)).claim(anyString(), anyString());
+    }
+}
@@ -2,14 +2,23 @@ package com.example.backend.controller;
 
 import com.example.backend.configuration.CustomJwtDecoder;
 import com.example.backend.configuration.SecurityConfig;
+import com.example.backend.dto.request.BulkOrderStatusRequest;
+import com.example.backend.dto.request.BuyNowRequest;
 import com.example.backend.dto.request.OrderSelectedItemsRequest;
 import com.example.backend.dto.request.OrderStatusUpdateRequest;
+import com.example.backend.dto.response.BulkOrderStatusResponse;
+import com.example.backend.dto.response.CheckoutQuoteResponse;
+import com.example.backend.dto.response.OrderHistoryResponse;
 import com.example.backend.dto.response.OrderResponse;
+import com.example.backend.dto.response.OrderSummaryPageResponse;
+import com.example.backend.dto.response.OrderSummaryResponse;
 import com.example.backend.enums.OrderStatus;
 import com.example.backend.exception.AppException;
 import com.example.backend.exception.ErrorCode;
 import com.example.backend.exception.GlobalExceptionHandler;
 import com.example.backend.service.OrderService;
+import com.example.backend.service.OrderSummaryService;
+import com.example.backend.service.SellerOrderService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,7 +33,9 @@ import java.util.List;
 import java.util.Objects;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -42,6 +53,12 @@ class OrderControllerTest {
     @MockitoBean
     OrderService orderService;
 
+    @MockitoBean
+    OrderSummaryService orderSummaryService;
+
+    @MockitoBean
+    SellerOrderService sellerOrderService;
+
     @Autowired
     ObjectMapper objectMapper;
 
@@ -85,6 +102,141 @@ class OrderControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    @WithMockUser(username = "user1")
+    void quoteCheckout_success() throws Exception {
+        OrderSelectedItemsRequest request = new OrderSelectedItemsRequest();
+        request.setProductIds(List.of("product-1"));
+
+        CheckoutQuoteResponse quote = CheckoutQuoteResponse.builder()
+                .quoteToken("quote-token")
+                .itemTotal(100000)
+                .shippingTotal(30000)
+                .totalAmount(130000)
+                .build();
+        when(orderService.quoteSelectedItems(any())).thenReturn(quote);
+
+        mockMvc.perform(post("/orders/checkout/quote")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(Objects.requireNonNull(objectMapper.writeValueAsString(request))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.quoteToken").value("quote-token"))
+                .andExpect(jsonPath("$.result.totalAmount").value(130000));
+
+        verify(orderService, never()).checkoutSelectedItems(any());
+    }
+
+    @Test
+    @WithMockUser(username = "user1")
+    void checkoutSelectedItems_outdatedQuote() throws Exception {
+        OrderSelectedItemsRequest request = new OrderSelectedItemsRequest();
+        request.setProductIds(List.of("product-1"));
+        request.setQuoteToken("quote-token");
+
+        when(orderService.checkoutSelectedItems(any()))
+                .thenThrow(new AppException(ErrorCode.QUOTE_OUTDATED));
+
+        mockMvc.perform(post("/orders/checkout/selected")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(Objects.requireNonNull(objectMapper.writeValueAsString(request))))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    @WithMockUser(username = "user1")
+    void buyNow_success() throws Exception {
+        BuyNowRequest request = new BuyNowRequest("product-1", 2);
+        OrderResponse response = OrderResponse.builder()
+                .orderId("order-1")
+                .totalAmount(230000)
+                .build();
+
+        when(orderService.buyNow(any())).thenReturn(response);
+
+        mockMvc.perform(post("/orders/buy-now")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(Objects.requireNonNull(objectMapper.writeValueAsString(request))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.orderId").value("order-1"))
+                .andExpect(jsonPath("$.result.totalAmount").value(230000));
+
+        verify(orderService, never()).checkoutSelectedItems(any());
+    }
+
+    @Test
+    @WithMockUser(username = "user1")
+    void getOrderHistory_success() throws Exception {
+        OrderHistoryResponse response = OrderHistoryResponse.builder()
+                .orders(List.of(OrderResponse.builder().orderId("order-1").status(OrderStatus.PAID).build()))
+                .nextCursor("next")
+                .build();
+
+        when(orderService.getOrderHistory(eq(List.of(OrderStatus.PAID)), any(), any(), eq("abc"), eq(10)))
+                .thenReturn(response);
+
+        mockMvc.perform(get("/orders/history")
+                        .param("status", "PAID")
+                        .param("from", "2026-01-01T00:00:00")
+                        .param("cursor", "abc")
+                        .param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.orders[0].orderId").value("order-1"))
+                .andExpect(jsonPath("$.result.nextCursor").value("next"));
+    }
+
+    @Test
+    @WithMockUser(username = "seller1")
+    void getShopOrderSummaries_success() throws Exception {
+        OrderSummaryPageResponse response = OrderSummaryPageResponse.builder()
+                .orders(List.of(OrderSummaryResponse.builder()
+                        .orderId("order-1")
+                        .productName("Áo thun")
+                        .itemCount(2)
+                        .orderStatus(OrderStatus.PAID)
+                        .build()))
+                .build();
+
+        when(orderSummaryService.getShopOrders(eq("shop-1"), any(), isNull(), eq(20))).thenReturn(response);
+
+        mockMvc.perform(get("/orders/shop/shop-1/summaries"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.orders[0].productName").value("Áo thun"))
+                .andExpect(jsonPath("$.result.orders[0].itemCount").value(2));
+    }
+
+    @Test
+    @WithMockUser(username = "user1")
+    void getShopOrderSummaries_notOwner() throws Exception {
+        when(orderSummaryService.getShopOrders(eq("shop-1"), any(), any(), anyInt()))
+                .thenThrow(new AppException(ErrorCode.UNAUTHORIZED));
+
+        mockMvc.perform(get("/orders/shop/shop-1/summaries"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(username = "seller1")
+    void bulkUpdateStatus_success() throws Exception {
+        BulkOrderStatusRequest request = BulkOrderStatusRequest.builder()
+                .orderIds(List.of("order-1", "order-2"))
+                .fromStatus(OrderStatus.PAID)
+                .status(OrderStatus.SHIPPED)
+                .build();
+
+        when(sellerOrderService.bulkUpdateStatus(eq("shop-1"), any())).thenReturn(BulkOrderStatusResponse.builder()
+                .status(OrderStatus.SHIPPED)
+                .requested(2)
+                .updated(1)
+                .build());
+
+        mockMvc.perform(patch("/orders/shop/shop-1/status")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(Objects.requireNonNull(objectMapper.writeValueAsString(request))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.requested").value(2))
+                .andExpect(jsonPath("$.result.updated").value(1));
+    }
+
     @Test
     @WithMockUser(username = "user1")
     void getOrdersByUser_success() throws Exception {
@@ -153,4 +305,21 @@ class OrderControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.result.orderId").value("order-1"));
     }
-}
\ No newline at end of file
+
+    @Test
+    @WithMockUser(roles = {"ADMIN"})
+    void updateOrderStatus_invalidTransition() throws Exception {
+        OrderStatusUpdateRequest request = OrderStatusUpdateRequest.builder()
+                .status(OrderStatus.PAID)
+                .build();
+
+        when(orderService.updateOrderStatus(eq("order-1"), eq(OrderStatus.PAID)))
+                .thenThrow(new AppException(ErrorCode.ORDER_STATUS_TRANSITION_INVALID));
+
+        mockMvc.perform(patch("/orders/order-1/status")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(Objects.requireNonNull(objectMapper.writeValueAsString(request))))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.code").value(1704));
+    }
+}
@@ -5,7 +5,11 @@ import com.example.backend.configuration.SecurityConfig;
 import com.example.backend.dto.request.PaymentRequest;
 import com.example.backend.dto.response.PaymentResponse;
 import com.example.backend.exception.GlobalExceptionHandler;
+import com.example.backend.exception.AppException;
+import com.example.backend.exception.ErrorCode;
+import com.example.backend.service.PayOSService;
 import com.example.backend.service.PaymentSimulationService;
+import com.example.backend.service.payment.PayOSWebhookInbox;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,6 +20,7 @@ import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.Map;
 import java.util.Objects;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -36,6 +41,12 @@ class PaymentControllerTest {
     @MockitoBean
     PaymentSimulationService paymentService;
 
+    @MockitoBean
+    PayOSService payOSService;
+
+    @MockitoBean
+    PayOSWebhookInbox payOSWebhookInbox;
+
     @Autowired
     ObjectMapper objectMapper;
 
@@ -99,4 +110,32 @@ class PaymentControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.result.status").value("CONFIRMED"));
     }
+
+    @Test
+    void payOSWebhook_acksAfterQueueing() throws Exception {
+        when(payOSWebhookInbox.receive(any())).thenReturn(true);
+
+        mockMvc.perform(post("/payments/payos/webhook")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(objectMapper.writeValueAsString(Map.of(
+                                "code", "00",
+                                "data", Map.of("orderCode", 123456789),
+                                "signature", "abc123"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.status").value("success"));
+
+        verify(payOSWebhookInbox).receive(any());
+        verifyNoInteractions(payOSService);
+    }
+
+    @Test
+    void payOSWebhook_invalidSignature_returnsBadRequest() throws Exception {
+        when(payOSWebhookInbox.receive(any())).thenThrow(new AppException(ErrorCode.WEBHOOK_SIGNATURE_INVALID));
+
+        mockMvc.perform(post("/payments/payos/webhook")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content("{\"code\":\"00\",\"data\":{\"orderCode\":1},\"signature\":\"bad\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(ErrorCode.WEBHOOK_SIGNATURE_INVALID.getCode()));
+    }
 }
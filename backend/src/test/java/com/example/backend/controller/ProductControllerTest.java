@@ -4,10 +4,13 @@ import com.example.backend.configuration.CustomJwtDecoder;
 import com.example.backend.configuration.SecurityConfig;
 import com.example.backend.dto.request.ProductCreationRequest;
 import com.example.backend.dto.response.ProductResponse;
+import com.example.backend.dto.response.TopSellerResponse;
+import com.example.backend.enums.SalesWindow;
 import com.example.backend.exception.AppException;
 import com.example.backend.exception.ErrorCode;
 import com.example.backend.exception.GlobalExceptionHandler;
 import com.example.backend.service.ProductService;
+import com.example.backend.service.leaderboard.TopSellerLeaderboard;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -41,6 +44,9 @@ class ProductControllerTest {
     @MockitoBean
     ProductService productService;
 
+    @MockitoBean
+    TopSellerLeaderboard topSellerLeaderboard;
+
     @Autowired
     ObjectMapper objectMapper;
 
@@ -199,4 +205,19 @@ class ProductControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.result.length()").value(1));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getBestSellers_public() throws Exception {
+        when(topSellerLeaderboard.getTopSellers(SalesWindow.HOUR, "cat-1", 5))
+                .thenReturn(List.of(TopSellerResponse.builder()
+                        .productId("product-1").productName("Product 1").units(7).build()));
+
+        mockMvc.perform(get("/products/best-sellers")
+                        .param("window", "HOUR")
+                        .param("categoryId", "cat-1")
+                        .param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result[0].productId").value("product-1"))
+                .andExpect(jsonPath("$.result[0].units").value(7));
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.backend.controller;
+
+import com.example.backend.configuration.CustomJwtDecoder;
+import com.example.backend.configuration.SecurityConfig;
+import com.example.backend.dto.response.DailySalesResponse;
+import com.example.backend.dto.response.SalesRankingResponse;
+import com.example.backend.exception.AppException;
+import com.example.backend.exception.ErrorCode;
+import com.example.backend.exception.GlobalExceptionHandler;
+import com.example.backend.service.SalesReportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ReportController.class)
+@Import({SecurityConfig.class, GlobalExceptionHandler.class})
+class ReportControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockitoBean
+    private CustomJwtDecoder customJwtDecoder;
+
+    @MockitoBean
+    SalesReportService salesReportService;
+
+    @Test
+    @WithMockUser(username = "seller")
+    void getShopDailySales_success() throws Exception {
+        when(salesReportService.getShopDailySales("shop-1", LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 2)))
+                .thenReturn(List.of(
+                        DailySalesResponse.builder().date(LocalDate.of(2024, 5, 1)).build(),
+                        DailySalesResponse.builder().date(LocalDate.of(2024, 5, 2))
+                                .units(3).revenue(300000).orderCount(2).build()));
+
+        mockMvc.perform(get("/reports/shops/shop-1/sales/daily")
+                        .param("from", "2024-05-01")
+                        .param("to", "2024-05-02"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.length()").value(2))
+                .andExpect(jsonPath("$.result[1].revenue").value(300000))
+                .andExpect(jsonPath("$.result[1].orderCount").value(2));
+    }
+
+    @Test
+    @WithMockUser(username = "seller")
+    void getTopProducts_defaultSize() throws Exception {
+        when(salesReportService.getTopProducts(eq("shop-1"), any(), any(), eq(10)))
+                .thenReturn(List.of(SalesRankingResponse.builder()
+                        .id("product-1").name("Product 1").units(5).revenue(500000).orderCount(4).build()));
+
+        mockMvc.perform(get("/reports/shops/shop-1/sales/top-products")
+                        .param("from", "2024-05-01")
+                        .param("to", "2024-05-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result[0].id").value("product-1"))
+                .andExpect(jsonPath("$.result[0].units").value(5));
+    }
+
+    @Test
+    @WithMockUser(username = "user1")
+    void getCategorySales_notAdmin_forbidden() throws Exception {
+        when(salesReportService.getCategorySales(any(), any()))
+                .thenThrow(new AppException(ErrorCode.UNAUTHORIZED));
+
+        mockMvc.perform(get("/reports/categories/sales")
+                        .param("from", "2024-05-01")
+                        .param("to", "2024-05-31"))
+                .andExpect(status().isForbidden());
+    }
+}
@@ -3,8 +3,12 @@ package com.example.backend.integration;
 import com.example.backend.dto.request.*;
 import com.example.backend.dto.response.*;
 import com.example.backend.entity.*;
+import com.example.backend.enums.OrderStatus;
+import com.example.backend.exception.AppException;
+import com.example.backend.exception.ErrorCode;
 import com.example.backend.repository.*;
 import com.example.backend.service.*;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,6 +44,27 @@ class OrderIntegrationTest {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private OrderSummaryService orderSummaryService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SellerOrderService sellerOrderService;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private OrderStateMachine orderStateMachine;
+
+    @Autowired
+    private SalesReportService salesReportService;
+
+    @Autowired
+    private jakarta.persistence.EntityManager entityManager;
+
     @Autowired
     private OrderRepository orderRepository;
 
@@ -164,6 +189,12 @@ class OrderIntegrationTest {
         SecurityContextHolder.clearContext();
     }
 
+    @AfterEach
+    void tearDown() {
+        // Test lỗi giữa chừng cũng không để lại authentication cho test sau
+        SecurityContextHolder.clearContext();
+    }
+
     @Test
     void completeOrderFlow_shouldWork() {
         // Mock authentication for buyer
@@ -227,6 +258,311 @@ class OrderIntegrationTest {
         assertEquals(buyer.getUserId(), dbOrder.get().getUser().getUserId());
     }
 
+    @Test
+    void quoteThenCheckout_shouldUseQuotedTotals() {
+        Authentication buyerAuth = new UsernamePasswordAuthenticationToken(
+                "buyer",
+                null,
+                java.util.Collections.emptyList()
+        );
+        SecurityContextHolder.getContext().setAuthentication(buyerAuth);
+
+        cartService.addToCart(new CartRequest(product1.getProductId(), 2), buyer.getUserId());
+
+        OrderSelectedItemsRequest request = new OrderSelectedItemsRequest();
+        request.setProductIds(List.of(product1.getProductId()));
+
+        // Báo giá không tạo order
+        CheckoutQuoteResponse quote = orderService.quoteSelectedItems(request);
+        assertNotNull(quote.getQuoteToken());
+        assertEquals(200000, quote.getItemTotal());
+        assertEquals(1, quote.getShops().size());
+        assertTrue(orderService.getOrdersByUser(buyer.getUserId()).isEmpty());
+
+        request.setQuoteToken(quote.getQuoteToken());
+        List<OrderResponse> orders = orderService.checkoutSelectedItems(request);
+
+        SecurityContextHolder.clearContext();
+
+        assertEquals(1, orders.size());
+        assertEquals(quote.getTotalAmount(), orders.get(0).getTotalAmount());
+    }
+
+    @Test
+    void checkout_withOutdatedQuote_shouldFail() {
+        Authentication buyerAuth = new UsernamePasswordAuthenticationToken(
+                "buyer",
+                null,
+                java.util.Collections.emptyList()
+        );
+        SecurityContextHolder.getContext().setAuthentication(buyerAuth);
+
+        cartService.addToCart(new CartRequest(product1.getProductId(), 1), buyer.getUserId());
+
+        OrderSelectedItemsRequest request = new OrderSelectedItemsRequest();
+        request.setProductIds(List.of(product1.getProductId()));
+        request.setQuoteToken(orderService.quoteSelectedItems(request).getQuoteToken());
+
+        // Đổi số lượng sau khi báo giá
+        cartService.addToCart(new CartRequest(product1.getProductId(), 1), buyer.getUserId());
+
+        AppException exception = assertThrows(AppException.class,
+                () -> orderService.checkoutSelectedItems(request));
+        assertEquals(ErrorCode.QUOTE_OUTDATED, exception.getErrorCode());
+
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void buyNow_shouldCreateOrderWithoutTouchingCart() {
+        Authentication buyerAuth = new UsernamePasswordAuthenticationToken(
+                "buyer",
+                null,
+                java.util.Collections.emptyList()
+        );
+        SecurityContextHolder.getContext().setAuthentication(buyerAuth);
+
+        cartService.addToCart(new CartRequest(product2.getProductId(), 1), buyer.getUserId());
+
+        OrderResponse order = orderService.buyNow(new BuyNowRequest(product1.getProductId(), 3));
+
+        assertNotNull(order.getOrderId());
+        assertEquals(1, order.getItems().size());
+        assertEquals(product1.getProductId(), order.getItems().get(0).getProductId());
+        assertEquals(3, order.getItems().get(0).getQuantity());
+        assertTrue(order.getTotalAmount() > 300000);
+
+        Order dbOrder = orderRepository.findById(order.getOrderId()).orElseThrow();
+        assertEquals(buyer.getUserId(), dbOrder.getUser().getUserId());
+        assertNotNull(dbOrder.getShipment());
+
+        // Giỏ hàng giữ nguyên
+        CartResponse cart = cartService.getCartByUser(buyer.getUserId());
+        assertEquals(1, cart.getItems().size());
+        assertEquals(product2.getProductId(), cart.getItems().get(0).getProductId());
+    }
+
+    @Test
+    void buyNow_invalidQuantity_shouldFail() {
+        AppException exception = assertThrows(AppException.class,
+                () -> orderService.buyNow(new BuyNowRequest(product1.getProductId(), 0)));
+        assertEquals(ErrorCode.INVALID_VALUE, exception.getErrorCode());
+    }
+
+    @Test
+    void orderHistory_shouldPageByCursorAndFilterByStatus() {
+        Authentication buyerAuth = new UsernamePasswordAuthenticationToken(
+                "buyer",
+                null,
+                java.util.Collections.emptyList()
+        );
+        SecurityContextHolder.getContext().setAuthentication(buyerAuth);
+
+        OrderResponse first = orderService.buyNow(new BuyNowRequest(product1.getProductId(), 1));
+        orderService.buyNow(new BuyNowRequest(product2.getProductId(), 1));
+        orderService.buyNow(new BuyNowRequest(product1.getProductId(), 2));
+        orderService.updateOrderStatus(first.getOrderId(), OrderStatus.CANCELLED);
+
+        OrderHistoryResponse page1 = orderService.getOrderHistory(null, null, null, null, 2);
+        assertEquals(2, page1.getOrders().size());
+        assertNotNull(page1.getNextCursor());
+        assertFalse(page1.getOrders().get(0).getItems().isEmpty());
+
+        OrderHistoryResponse page2 = orderService.getOrderHistory(null, null, null, page1.getNextCursor(), 2);
+        assertEquals(1, page2.getOrders().size());
+        assertNull(page2.getNextCursor());
+
+        // Mới nhất trước, không trùng đơn giữa các trang
+        List<OrderResponse> all = new java.util.ArrayList<>(page1.getOrders());
+        all.addAll(page2.getOrders());
+        assertEquals(3, all.stream().map(OrderResponse::getOrderId).distinct().count());
+        for (int i = 1; i < all.size(); i++) {
+            assertFalse(all.get(i).getCreatedAt().isAfter(all.get(i - 1).getCreatedAt()));
+        }
+
+        OrderHistoryResponse cancelled = orderService.getOrderHistory(
+                List.of(OrderStatus.CANCELLED), null, null, null, 10);
+        assertEquals(1, cancelled.getOrders().size());
+        assertEquals(first.getOrderId(), cancelled.getOrders().get(0).getOrderId());
+
+        OrderHistoryResponse future = orderService.getOrderHistory(
+                null, java.time.LocalDateTime.now().plusDays(1), null, null, 10);
+        assertTrue(future.getOrders().isEmpty());
+
+        AppException exception = assertThrows(AppException.class,
+                () -> orderService.getOrderHistory(null, null, null, "not-a-cursor", 10));
+        assertEquals(ErrorCode.INVALID_VALUE, exception.getErrorCode());
+
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void orderSummaries_shouldFollowOrderAndKeepProductSnapshot() {
+        Authentication buyerAuth = new UsernamePasswordAuthenticationToken(
+                "buyer",
+                null,
+                java.util.Collections.emptyList()
+        );
+        SecurityContextHolder.getContext().setAuthentication(buyerAuth);
+
+        OrderResponse order = orderService.buyNow(new BuyNowRequest(product1.getProductId(), 2));
+
+        OrderSummaryPageResponse mine = orderSummaryService.getMyOrders(null, null, 20);
+        assertEquals(1, mine.getOrders().size());
+        OrderSummaryResponse summary = mine.getOrders().get(0);
+        assertEquals(order.getOrderId(), summary.getOrderId());
+        assertEquals("Product 1", summary.getProductName());
+        assertEquals(2, summary.getItemCount());
+        assertEquals(OrderStatus.PENDING, summary.getOrderStatus());
+        assertEquals("PREPARING", summary.getShipmentStatus());
+        assertEquals(order.getTotalAmount(), summary.getTotalAmount());
+
+        // Đổi trạng thái -> summary cập nhật theo, đổi tên sản phẩm -> summary giữ tên cũ
+        orderService.updateOrderStatus(order.getOrderId(), OrderStatus.CANCELLED);
+        Product product = productRepository.findById(product1.getProductId()).orElseThrow();
+        product.setName("Renamed Product");
+        productRepository.saveAndFlush(product);
+
+        summary = orderSummaryService.getMyOrders(List.of(OrderStatus.CANCELLED), null, 20).getOrders().get(0);
+        assertEquals(OrderStatus.CANCELLED, summary.getOrderStatus());
+        assertEquals("CANCELLED", summary.getShipmentStatus());
+        assertEquals("Product 1", summary.getProductName());
+
+        // Người mua không xem được danh sách đơn của shop
+        AppException exception = assertThrows(AppException.class,
+                () -> orderSummaryService.getShopOrders(shop.getShopId(), null, null, 20));
+        assertEquals(ErrorCode.UNAUTHORIZED, exception.getErrorCode());
+
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "seller", null, java.util.Collections.emptyList()));
+        OrderSummaryPageResponse shopOrders = orderSummaryService.getShopOrders(shop.getShopId(), null, null, 20);
+        assertEquals(1, shopOrders.getOrders().size());
+        assertEquals("Test Shop", shopOrders.getOrders().get(0).getShopName());
+
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void sellerDashboard_shouldCountByStatusAndBulkTransition() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "buyer", null, java.util.Collections.emptyList()));
+        List<String> orderIds = new java.util.ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            orderIds.add(orderService.buyNow(new BuyNowRequest(product1.getProductId(), 1)).getOrderId());
+        }
+        orderService.updateOrderStatus(orderIds.get(0), OrderStatus.PAID);
+        orderService.updateOrderStatus(orderIds.get(1), OrderStatus.PAID);
+
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "seller", null, java.util.Collections.emptyList()));
+
+        SellerOrderDashboardResponse dashboard = sellerOrderService.getDashboard(
+                shop.getShopId(), List.of(OrderStatus.PAID), null, null, null, 20);
+        assertEquals(2, dashboard.getOrders().size());
+        assertEquals(2L, dashboard.getStatusCounts().get(OrderStatus.PAID));
+        assertEquals(1L, dashboard.getStatusCounts().get(OrderStatus.PENDING));
+        assertNotNull(orderRepository.findById(orderIds.get(0)).orElseThrow().getShop());
+
+        // Chỉ 2 đơn đang PAID được chuyển, đơn PENDING bị bỏ qua
+        BulkOrderStatusResponse result = sellerOrderService.bulkUpdateStatus(shop.getShopId(),
+                BulkOrderStatusRequest.builder()
+                        .orderIds(orderIds)
+                        .fromStatus(OrderStatus.PAID)
+                        .status(OrderStatus.SHIPPED)
+                        .build());
+        assertEquals(3, result.getRequested());
+        assertEquals(2, result.getUpdated());
+
+        entityManager.flush();
+        entityManager.clear();
+        assertEquals(OrderStatus.SHIPPED, orderRepository.findById(orderIds.get(0)).orElseThrow().getStatus());
+        assertEquals(OrderStatus.PENDING, orderRepository.findById(orderIds.get(2)).orElseThrow().getStatus());
+        assertEquals(2, orderSummaryService.getShopOrders(shop.getShopId(), List.of(OrderStatus.SHIPPED), null, 20)
+                .getOrders().size());
+
+        // Người mua không có quyền với shop
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "buyer", null, java.util.Collections.emptyList()));
+        AppException exception = assertThrows(AppException.class,
+                () -> sellerOrderService.getDashboard(shop.getShopId(), null, null, null, null, 20));
+        assertEquals(ErrorCode.UNAUTHORIZED, exception.getErrorCode());
+
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void transitionAll_shouldMoveOnlyLockedPendingOrders() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "buyer", null, java.util.Collections.emptyList()));
+        List<String> orderIds = new java.util.ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            orderIds.add(orderService.buyNow(new BuyNowRequest(product1.getProductId(), 1)).getOrderId());
+        }
+        orderService.updateOrderStatus(orderIds.get(2), OrderStatus.CANCELLED);
+
+        List<String> moved = orderStateMachine.transitionAll(orderIds, OrderStatus.PAID);
+
+        assertEquals(java.util.Set.of(orderIds.get(0), orderIds.get(1)), java.util.Set.copyOf(moved));
+        entityManager.flush();
+        entityManager.clear();
+        assertEquals(OrderStatus.PAID, orderRepository.findById(orderIds.get(0)).orElseThrow().getStatus());
+        assertEquals(OrderStatus.CANCELLED, orderRepository.findById(orderIds.get(2)).orElseThrow().getStatus());
+        // Gọi lại (webhook lặp): không còn đơn PENDING nào để chuyển
+        assertTrue(orderStateMachine.transitionAll(orderIds, OrderStatus.PAID).isEmpty());
+    }
+
+    @Test
+    void salesRollups_shouldCountPaidOrdersOnceAndReverseOnCancel() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "buyer", null, java.util.Collections.emptyList()));
+        String first = orderService.buyNow(new BuyNowRequest(product1.getProductId(), 3)).getOrderId();
+        String second = orderService.buyNow(new BuyNowRequest(product2.getProductId(), 1)).getOrderId();
+        String unpaid = orderService.buyNow(new BuyNowRequest(product2.getProductId(), 5)).getOrderId();
+        java.time.LocalDateTime now = java.time.LocalDateTime.now();
+
+        // Outbox gửi lặp -> chỉ cộng 1 lần
+        salesRollupService.onOrderPaid(new com.example.backend.event.OrderPaidEvent(first, now));
+        salesRollupService.onOrderPaid(new com.example.backend.event.OrderPaidEvent(first, now));
+        salesRollupService.onOrderPaid(new com.example.backend.event.OrderPaidEvent(second, now));
+        // Hủy khi chưa thanh toán -> không trừ, và backfill/gửi lại cũng không cộng nữa
+        salesRollupService.onOrderCancelled(new com.example.backend.event.OrderCancelledEvent(unpaid, now));
+        assertFalse(salesRollupService.count(unpaid));
+
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "seller", null, java.util.Collections.emptyList()));
+        java.time.LocalDate today = now.toLocalDate();
+        List<DailySalesResponse> daily = salesReportService.getShopDailySales(shop.getShopId(), today.minusDays(1), today);
+        assertEquals(2, daily.size());
+        assertEquals(0, daily.get(0).getOrderCount());
+        assertEquals(4, daily.get(1).getUnits());
+        assertEquals(500000, daily.get(1).getRevenue());
+        assertEquals(2, daily.get(1).getOrderCount());
+
+        List<SalesRankingResponse> top = salesReportService.getTopProducts(shop.getShopId(), today, today, 10);
+        assertEquals(List.of(product1.getProductId(), product2.getProductId()),
+                top.stream().map(SalesRankingResponse::getId).toList());
+        assertEquals("Product 1", top.get(0).getName());
+
+        // Hủy sau khi thanh toán -> trừ đúng 1 lần
+        salesRollupService.onOrderCancelled(new com.example.backend.event.OrderCancelledEvent(first, now));
+        salesRollupService.onOrderCancelled(new com.example.backend.event.OrderCancelledEvent(first, now));
+        daily = salesReportService.getShopDailySales(shop.getShopId(), today, today);
+        assertEquals(1, daily.get(0).getUnits());
+        assertEquals(200000, daily.get(0).getRevenue());
+        assertEquals(1, daily.get(0).getOrderCount());
+        top = salesReportService.getTopProducts(shop.getShopId(), today, today, 10);
+        assertEquals(List.of(product2.getProductId()), top.stream().map(SalesRankingResponse::getId).toList());
+
+        AppException exception = assertThrows(AppException.class,
+                () -> salesReportService.getShopDailySales(shop.getShopId(), today, today.minusDays(1)));
+        assertEquals(ErrorCode.INVALID_VALUE, exception.getErrorCode());
+        // Báo cáo danh mục chỉ dành cho admin
+        exception = assertThrows(AppException.class, () -> salesReportService.getCategorySales(today, today));
+        assertEquals(ErrorCode.UNAUTHORIZED, exception.getErrorCode());
+
+        SecurityContextHolder.clearContext();
+    }
+
     @Test
     void createOrder_thenGetOrder_shouldReturnOrder() {
         // Arrange: Create order (simplified - in real scenario would go through checkout)
@@ -0,0 +1,147 @@
+package com.example.backend.integration;
+
+import com.example.backend.entity.OutboxEvent;
+import com.example.backend.enums.OrderStatus;
+import com.example.backend.event.DomainEvent;
+import com.example.backend.event.OrderCancelledEvent;
+import com.example.backend.event.OrderCreatedEvent;
+import com.example.backend.event.OrderPaidEvent;
+import com.example.backend.event.OrderStatusChangedEvent;
+import com.example.backend.repository.OutboxEventRepository;
+import com.example.backend.service.outbox.OutboxDispatcher;
+import com.example.backend.service.outbox.OutboxService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Outbox: ghi cùng transaction, phát theo lô, giữ thứ tự và chặn sự kiện sau 1 sự kiện lỗi.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(OutboxDispatcherIntegrationTest.RecordingListener.class)
+// Không dùng @Transactional: dispatcher chỉ thấy sự kiện đã commit
+class OutboxDispatcherIntegrationTest {
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private RecordingListener listener;
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class RecordingListener {
+        final List<DomainEvent> received = new CopyOnWriteArrayList<>();
+        final Set<String> failingOrders = ConcurrentHashMap.newKeySet();
+
+        @EventListener
+        public void on(DomainEvent event) {
+            if (failingOrders.contains(event.aggregateId())) {
+                throw new IllegalStateException("listener down");
+            }
+            received.add(event);
+        }
+
+        List<DomainEvent> receivedFor(String orderId) {
+            return received.stream().filter(e -> e.aggregateId().equals(orderId)).toList();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        outboxEventRepository.deleteAll();
+        listener.received.clear();
+        listener.failingOrders.clear();
+    }
+
+    @Test
+    void dispatchBatch_deliversEventsOfAnOrderInOrder_andMarksThemPublished() {
+        String orderId = "order-" + UUID.randomUUID();
+        LocalDateTime now = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxService.append(new OrderCreatedEvent(orderId, "user-1", "shop-1", 150000, now));
+            outboxService.append(new OrderPaidEvent(orderId, now));
+            outboxService.append(new OrderStatusChangedEvent(orderId, OrderStatus.SHIPPED, now));
+        });
+
+        assertEquals(3, outboxDispatcher.dispatchBatch());
+
+        List<DomainEvent> received = listener.receivedFor(orderId);
+        assertEquals(List.of(
+                new OrderCreatedEvent(orderId, "user-1", "shop-1", 150000, now),
+                new OrderPaidEvent(orderId, now),
+                new OrderStatusChangedEvent(orderId, OrderStatus.SHIPPED, now)), received);
+        assertTrue(outboxEventRepository.findAll().stream().allMatch(e -> e.getPublishedAt() != null));
+        assertEquals(0, outboxDispatcher.dispatchBatch());
+    }
+
+    @Test
+    void dispatchBatch_failedEvent_blocksLaterEventsOfSameOrderOnly() {
+        String failing = "order-" + UUID.randomUUID();
+        String healthy = "order-" + UUID.randomUUID();
+        LocalDateTime now = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxService.append(new OrderPaidEvent(failing, now));
+            outboxService.append(new OrderPaidEvent(healthy, now));
+            outboxService.append(new OrderCancelledEvent(failing, now));
+            outboxService.append(new OrderCancelledEvent(healthy, now));
+        });
+        listener.failingOrders.add(failing);
+
+        outboxDispatcher.dispatchBatch();
+
+        assertEquals(2, listener.receivedFor(healthy).size());
+        assertTrue(listener.receivedFor(failing).isEmpty());
+        List<OutboxEvent> pending = outboxEventRepository.findAll().stream()
+                .filter(e -> e.getAggregateId().equals(failing))
+                .sorted((a, b) -> Long.compare(a.getId(), b.getId()))
+                .toList();
+        assertEquals(1, pending.get(0).getAttempts());
+        assertTrue(pending.get(0).getNextAttemptAt().isAfter(now));
+        assertNotNull(pending.get(0).getLastError());
+        assertNull(pending.get(0).getPublishedAt());
+        // Sự kiện sau không bị tính là lỗi, chỉ chờ
+        assertEquals(0, pending.get(1).getAttempts());
+
+        // Listener hồi phục, tới hạn thử lại: 2 sự kiện được phát đúng thứ tự
+        listener.failingOrders.clear();
+        transactionTemplate.executeWithoutResult(status -> outboxEventRepository.findAll()
+                .forEach(e -> e.setNextAttemptAt(LocalDateTime.now().minusSeconds(1))));
+        outboxDispatcher.dispatchBatch();
+
+        assertEquals(List.of(new OrderPaidEvent(failing, now), new OrderCancelledEvent(failing, now)),
+                listener.receivedFor(failing));
+        assertEquals(2, listener.receivedFor(healthy).size());
+    }
+
+    @Test
+    void append_outsideTransaction_isRejected() {
+        assertThrows(IllegalTransactionStateException.class,
+                () -> outboxService.append(new OrderPaidEvent("order-1", LocalDateTime.now())));
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.backend.migration;
+
+import com.example.backend.service.partition.OrderPartitionMaintenance;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Migration V1 trên PostgreSQL thật: DB cũ (bảng thường do Hibernate tạo, đã có dữ liệu) được chuyển sang
+ * partition theo tháng, rồi OrderPartitionMaintenance tạo partition mới và archive tháng đã đóng.
+ * Cần Docker, không có Docker thì test tự bỏ qua.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class OrderPartitionMigrationTest {
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("partition_test")
+            .withUsername("test")
+            .withPassword("test");
+
+    static DriverManagerDataSource dataSource;
+    static JdbcTemplate jdbcTemplate;
+    static TransactionTemplate transactionTemplate;
+
+    // Đơn đã giao 14 tháng trước, đơn còn PENDING 13 tháng trước, đơn tháng này
+    static final LocalDateTime CLOSED_AT = LocalDateTime.now().minusMonths(14).withDayOfMonth(15);
+    static final LocalDateTime OPEN_AT = LocalDateTime.now().minusMonths(13).withDayOfMonth(15);
+    static final LocalDateTime RECENT_AT = LocalDateTime.now().withDayOfMonth(1).plusHours(1);
+
+    @BeforeAll
+    static void migrateLegacySchema() {
+        dataSource = new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        // Schema như Hibernate tạo trước khi có partition: PK id, FK tới users và tới orders
+        jdbcTemplate.execute("""
+                CREATE TABLE users (id varchar(255) PRIMARY KEY);
+                CREATE TABLE orders (id varchar(255) PRIMARY KEY, user_id varchar(255) REFERENCES users (id),
+                                     status varchar(20), created_at timestamp(6));
+                CREATE INDEX idx_orders_user_created ON orders (user_id, created_at);
+                CREATE TABLE order_items (id varchar(255) PRIMARY KEY, order_id varchar(255) REFERENCES orders (id),
+                                          quantity int);
+                CREATE TABLE shipments (id varchar(255) PRIMARY KEY,
+                                        order_id varchar(255) UNIQUE REFERENCES orders (id));
+                CREATE TABLE payments (id varchar(255) PRIMARY KEY, order_id varchar(255) REFERENCES orders (id),
+                                       payment_date timestamp(6));
+                INSERT INTO users VALUES ('u1');
+                """);
+        insertOrder("o-closed", "DELIVERED", CLOSED_AT);
+        insertOrder("o-open", "PENDING", OPEN_AT);
+        insertOrder("o-recent", "PAID", RECENT_AT);
+
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration")
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load()
+                .migrate();
+    }
+
+    private static void insertOrder(String id, String status, LocalDateTime createdAt) {
+        jdbcTemplate.update("INSERT INTO orders VALUES (?, 'u1', ?, ?)", id, status, createdAt);
+        jdbcTemplate.update("INSERT INTO order_items VALUES (?, ?, 1)", id + "-i1", id);
+        jdbcTemplate.update("INSERT INTO order_items VALUES (?, ?, 2)", id + "-i2", id);
+        jdbcTemplate.update("INSERT INTO shipments VALUES (?, ?)", id + "-s", id);
+        jdbcTemplate.update("INSERT INTO payments VALUES (?, ?, ?)", id + "-p", id, createdAt);
+    }
+
+    private static String partition(String table, LocalDateTime at) {
+        return table + "_p" + at.format(SUFFIX);
+    }
+
+    private static boolean exists(String relation) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, relation));
+    }
+
+    private static List<String> historyOfUser() {
+        return jdbcTemplate.queryForList("""
+                SELECT o.id FROM orders o JOIN order_items i ON i.order_id = o.id
+                WHERE o.user_id = 'u1'
+                GROUP BY o.id, o.created_at HAVING sum(i.quantity) = 3
+                ORDER BY o.created_at DESC
+                """, String.class);
+    }
+
+    @Test
+    void convertEnsureArchiveAndQueryHistory() {
+        // Chuyển đổi: 4 bảng thành bảng partition, dữ liệu nằm đúng partition tháng
+        for (String table : List.of("orders", "order_items", "shipments", "payments")) {
+            assertEquals(Boolean.TRUE, jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?))",
+                    Boolean.class, table), table + " should be partitioned");
+            assertTrue(exists(partition(table, CLOSED_AT)));
+            assertTrue(exists(partition(table, RECENT_AT.plusMonths(3))));
+        }
+        assertEquals(partition("order_items", OPEN_AT), jdbcTemplate.queryForObject(
+                "SELECT tableoid::regclass::text FROM order_items WHERE id = 'o-open-i1'", String.class));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM order_items_default", Integer.class));
+        assertEquals(List.of("o-recent", "o-open", "o-closed"), historyOfUser());
+
+        // Tạo trước partition: đã có tới +3 tháng, thêm +4 và +5
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT ensure_monthly_partitions('orders', 5)", Integer.class));
+        assertTrue(exists(partition("orders", RECENT_AT.plusMonths(5))));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT ensure_monthly_partitions('orders', 5)", Integer.class));
+
+        // Archive: tháng cũ hơn 12 tháng, đã đóng -> sang schema archive; tháng còn đơn PENDING được giữ
+        OrderPartitionMaintenance maintenance = new OrderPartitionMaintenance(jdbcTemplate, transactionTemplate);
+        ReflectionTestUtils.setField(maintenance, "enabled", true);
+        ReflectionTestUtils.setField(maintenance, "monthsAhead", 3);
+        ReflectionTestUtils.setField(maintenance, "archiveAfterMonths", 12);
+        maintenance.maintain();
+
+        for (String table : List.of("orders", "order_items", "shipments", "payments")) {
+            assertFalse(exists(partition(table, CLOSED_AT)), table + " closed month should be detached");
+            assertTrue(exists("archive." + partition(table, CLOSED_AT)));
+            assertTrue(exists(partition(table, OPEN_AT)), table + " month with open orders should stay");
+        }
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM order_items WHERE order_id = 'o-closed'", Integer.class));
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM archive." + partition("order_items", CLOSED_AT), Integer.class));
+
+        // Lịch sử đơn vẫn đọc qua nhiều partition nóng, không còn thấy tháng đã archive
+        assertEquals(List.of("o-recent", "o-open"), historyOfUser());
+        assertEquals(YearMonth.from(OPEN_AT).toString(), jdbcTemplate.queryForObject(
+                "SELECT to_char(created_at, 'YYYY-MM') FROM orders WHERE id = 'o-open'", String.class));
+    }
+
+    @Test
+    void convertedTables_keepOutgoingForeignKeys() {
+        // FK tới users được tạo lại trên bảng partition; FK tới orders thì không giữ được (PK có created_at)
+        assertThrows(DataIntegrityViolationException.class, () -> jdbcTemplate.update(
+                "INSERT INTO orders VALUES ('o-bad', 'missing-user', 'PENDING', now())"));
+        assertEquals(1, jdbcTemplate.queryForObject("""
+                SELECT count(*) FROM pg_constraint
+                WHERE conrelid = 'orders'::regclass AND contype = 'f' AND confrelid = 'users'::regclass
+                """, Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject("""
+                SELECT count(*) FROM pg_constraint WHERE contype = 'f' AND confrelid = 'orders'::regclass
+                """, Integer.class));
+    }
+
+    @Test
+    void convertedTables_areReportedAsPartitionedTables() throws Exception {
+        // Giá trị mà hibernate.hbm2ddl.extra_physical_table_types (application.properties) dựa vào
+        try (Connection connection = dataSource.getConnection();
+             ResultSet tables = connection.getMetaData().getTables(null, "public", "payments", null)) {
+            assertTrue(tables.next());
+            assertEquals("PARTITIONED TABLE", tables.getString("TABLE_TYPE"));
+        }
+    }
+}
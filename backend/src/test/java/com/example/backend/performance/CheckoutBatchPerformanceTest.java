@@ -0,0 +1,199 @@
+package com.example.backend.performance;
+
+import com.example.backend.dto.request.OrderSelectedItemsRequest;
+import com.example.backend.entity.*;
+import com.example.backend.repository.*;
+import com.example.backend.service.OrderService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Đo số statement JDBC và p99 của checkout khi giỏ hàng trải trên 1, 5, 20 shop,
+ * so sánh ghi từng dòng (batch size = 1) với JDBC batch theo cấu hình.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+// Không dùng @Transactional: mỗi lượt checkout commit thật để flush chạy đúng như production
+class CheckoutBatchPerformanceTest {
+
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 50;
+    private static final int PRODUCTS_PER_SHOP = 2;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ShopRepository shopRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private AddressBookRepository addressBookRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private record Fixture(String username, List<String> productIds) {
+    }
+
+    private record Result(long statements, long p99Micros) {
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void checkout_batchedWrites_needFewerStatements() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        boolean statisticsEnabled = statistics.isStatisticsEnabled();
+        statistics.setStatisticsEnabled(true);
+        try {
+            // Bảng số liệu đi kèm message của assertion
+            StringBuilder report = new StringBuilder(String.format("%n%-6s | %-28s | %-28s",
+                    "shops", "row by row: stmts / p99", "batched: stmts / p99"));
+            for (int shopCount : new int[]{1, 5, 20}) {
+                Fixture fixture = seed(shopCount);
+                Result rowByRow = measure(fixture, 1, statistics);
+                Result batched = measure(fixture, null, statistics);
+                report.append(String.format("%n%-6d | %8d / %10d us    | %8d / %10d us",
+                        shopCount, rowByRow.statements(), rowByRow.p99Micros(),
+                        batched.statements(), batched.p99Micros()));
+
+                if (shopCount > 1) {
+                    assertTrue(batched.statements() < rowByRow.statements(),
+                            "Batched checkout for " + shopCount + " shops should use fewer statements:" + report);
+                }
+            }
+        } finally {
+            statistics.setStatisticsEnabled(statisticsEnabled);
+        }
+    }
+
+    /**
+     * Chạy checkout nhiều lượt với batch size cho trước (null = theo cấu hình),
+     * trả về số statement của 1 lượt và p99 thời gian.
+     */
+    private Result measure(Fixture fixture, Integer jdbcBatchSize, Statistics statistics) {
+        OrderSelectedItemsRequest request = new OrderSelectedItemsRequest();
+        request.setProductIds(fixture.productIds());
+
+        long[] durations = new long[ITERATIONS];
+        long statements = 0;
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            fillCart(fixture);
+            SecurityContextHolder.getContext().setAuthentication(
+                    new UsernamePasswordAuthenticationToken(fixture.username(), null, List.of()));
+            statistics.clear();
+
+            long start = System.nanoTime();
+            transactionTemplate.executeWithoutResult(status -> {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+                orderService.checkoutSelectedItems(request);
+            });
+            long elapsed = System.nanoTime() - start;
+
+            if (i >= WARMUP) {
+                durations[i - WARMUP] = elapsed / 1000;
+                statements = Math.max(statements, statistics.getPrepareStatementCount());
+            }
+        }
+
+        Arrays.sort(durations);
+        int p99Index = (int) Math.ceil(ITERATIONS * 0.99) - 1;
+        return new Result(statements, durations[p99Index]);
+    }
+
+    private Fixture seed(int shopCount) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        return transactionTemplate.execute(status -> {
+            User seller = userRepository.save(User.builder()
+                    .username("bench-seller-" + suffix)
+                    .email("bench-seller-" + suffix + "@sis.hust.edu.vn")
+                    .build());
+
+            // Người mua không có phường -> dùng phí ship mặc định, không gọi API ngoài
+            AddressBook address = addressBookRepository.save(AddressBook.builder()
+                    .name("Bench Buyer")
+                    .phone("0123456789")
+                    .addressDetail("1 Dai Co Viet")
+                    .build());
+            User buyer = User.builder()
+                    .username("bench-buyer-" + suffix)
+                    .email("bench-buyer-" + suffix + "@sis.hust.edu.vn")
+                    .address(address)
+                    .build();
+            Cart cart = Cart.builder().user(buyer).totalAmount(0).build();
+            buyer.setCart(cart);
+            userRepository.save(buyer);
+            cartRepository.save(cart);
+
+            List<String> productIds = new ArrayList<>();
+            for (int s = 0; s < shopCount; s++) {
+                Shop shop = shopRepository.save(Shop.builder()
+                        .owner(seller)
+                        .name("Bench Shop " + s + " " + suffix)
+                        .build());
+                for (int p = 0; p < PRODUCTS_PER_SHOP; p++) {
+                    Product product = productRepository.save(Product.builder()
+                            .shop(shop)
+                            .name("Bench Product " + s + "-" + p)
+                            .price(10000 + p)
+                            .weight(300)
+                            .build());
+                    productIds.add(product.getProductId());
+                }
+            }
+            return new Fixture(buyer.getUsername(), productIds);
+        });
+    }
+
+    private void fillCart(Fixture fixture) {
+        transactionTemplate.executeWithoutResult(status -> {
+            User buyer = userRepository.findByUsername(fixture.username()).orElseThrow();
+            Cart cart = buyer.getCart();
+            for (String productId : fixture.productIds()) {
+                cart.getItems().add(CartItem.builder()
+                        .cart(cart)
+                        .product(productRepository.getReferenceById(productId))
+                        .quantity(1)
+                        .build());
+            }
+            cartRepository.save(cart);
+        });
+    }
+}
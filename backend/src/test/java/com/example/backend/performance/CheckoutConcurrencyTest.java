@@ -0,0 +1,203 @@
+package com.example.backend.performance;
+
+import com.example.backend.dto.request.CartRequest;
+import com.example.backend.dto.request.OrderSelectedItemsRequest;
+import com.example.backend.entity.*;
+import com.example.backend.repository.*;
+import com.example.backend.service.CartService;
+import com.example.backend.service.OrderService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stress test optimistic lock của cart: nhiều request cùng checkout / cùng sửa 1 cart.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+// Không dùng @Transactional: mỗi request phải tự commit thì mới xung đột version thật
+class CheckoutConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ShopRepository shopRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private AddressBookRepository addressBookRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private record Buyer(String userId, String username, List<String> productIds) {
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void concurrentCheckout_sameCart_createsOrdersOnlyOnce() throws Exception {
+        Buyer buyer = seedBuyer(3);
+        transactionTemplate.executeWithoutResult(status -> {
+            Cart cart = userRepository.findByUsername(buyer.username()).orElseThrow().getCart();
+            for (String productId : buyer.productIds()) {
+                cart.getItems().add(CartItem.builder()
+                        .cart(cart)
+                        .product(productRepository.getReferenceById(productId))
+                        .quantity(1)
+                        .build());
+            }
+        });
+
+        OrderSelectedItemsRequest request = new OrderSelectedItemsRequest();
+        request.setProductIds(buyer.productIds());
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        runConcurrently(THREADS, 1, buyer.username(), () -> {
+            try {
+                orderService.checkoutSelectedItems(request);
+                succeeded.incrementAndGet();
+            } catch (RuntimeException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertEquals(1, succeeded.get(), "Only one tab may check out the cart");
+        assertEquals(THREADS - 1, rejected.get());
+        User user = userRepository.findByUsername(buyer.username()).orElseThrow();
+        // 3 shop -> 3 đơn, không có đơn trùng
+        assertEquals(3, orderRepository.findAllByUser(user).size());
+    }
+
+    @Test
+    void concurrentAddToCart_sameCart_loseNoUpdates() throws Exception {
+        int addsPerThread = 20;
+        Buyer contended = seedBuyer(1);
+        String productId = contended.productIds().get(0);
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        runConcurrently(THREADS, addsPerThread, contended.username(), () -> {
+            try {
+                cartService.addToCart(new CartRequest(productId, 1), contended.userId());
+                succeeded.incrementAndGet();
+            } catch (RuntimeException e) {
+                // Hết số lần retry -> request báo lỗi 409, không được ghi đè số lượng
+                rejected.incrementAndGet();
+            }
+        });
+
+        int quantity = transactionTemplate.execute(status ->
+                userRepository.findByUsername(contended.username()).orElseThrow()
+                        .getCart().getItems().get(0).getQuantity());
+        String report = String.format("addToCart same cart: %d ok, %d rejected", succeeded.get(), rejected.get());
+        assertEquals(THREADS * addsPerThread, succeeded.get() + rejected.get(), report);
+        assertTrue(succeeded.get() > 0, report);
+        // Không mất cập nhật: số lượng đúng bằng số lần thêm thành công
+        assertEquals(succeeded.get(), quantity, "Every successful add must be reflected exactly once: " + report);
+    }
+
+    // Chạy task cùng lúc trên nhiều thread (cùng 1 user)
+    private void runConcurrently(int threads, int repetitions, String username, Runnable task) throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    SecurityContextHolder.getContext().setAuthentication(
+                            new UsernamePasswordAuthenticationToken(username, null, List.of()));
+                    barrier.await();
+                    for (int i = 0; i < repetitions; i++) {
+                        task.run();
+                    }
+                    SecurityContextHolder.clearContext();
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Buyer seedBuyer(int shopCount) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        return transactionTemplate.execute(status -> {
+            User seller = userRepository.save(User.builder()
+                    .username("race-seller-" + suffix)
+                    .email("race-seller-" + suffix + "@sis.hust.edu.vn")
+                    .build());
+
+            AddressBook address = addressBookRepository.save(AddressBook.builder()
+                    .name("Race Buyer")
+                    .phone("0123456789")
+                    .addressDetail("1 Dai Co Viet")
+                    .build());
+            User buyer = User.builder()
+                    .username("race-buyer-" + suffix)
+                    .email("race-buyer-" + suffix + "@sis.hust.edu.vn")
+                    .address(address)
+                    .build();
+            Cart cart = Cart.builder().user(buyer).totalAmount(0).build();
+            buyer.setCart(cart);
+            userRepository.save(buyer);
+
+            List<String> productIds = new ArrayList<>();
+            for (int s = 0; s < shopCount; s++) {
+                Shop shop = shopRepository.save(Shop.builder()
+                        .owner(seller)
+                        .name("Race Shop " + s + " " + suffix)
+                        .build());
+                Product product = productRepository.save(Product.builder()
+                        .shop(shop)
+                        .name("Race Product " + s)
+                        .price(50000)
+                        .weight(300)
+                        .build());
+                productIds.add(product.getProductId());
+            }
+            return new Buyer(buyer.getUserId(), buyer.getUsername(), productIds);
+        });
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.backend.performance;
+
+import com.example.backend.enums.PayOSLinkStatus;
+import com.example.backend.repository.PaymentGroupRepository;
+import com.example.backend.repository.PaymentRepository;
+import com.example.backend.service.OrderStateMachine;
+import com.example.backend.service.OrderSummaryService;
+import com.example.backend.service.payment.PayOSPaymentLinkCache;
+import com.example.backend.service.payment.PayOSReconciliationJob;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Đối soát 100k payment PENDING với PayOS giả có độ trễ.
+ * Chạy tay: mvn test -Dtest=PayOSReconciliationLoadTest -Dpayos.reconcile.load-test=true
+ * (tùy chọn -Dpayos.reconcile.load-test.payments=..., -Dpayos.reconcile.load-test.latency-ms=...)
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "payos.reconcile.load-test", matches = "true")
+class PayOSReconciliationLoadTest {
+
+    private static final long FIRST_ORDER_CODE = 5_000_000_000L;
+    private static final int INSERT_BATCH = 1000;
+    private static final int PAID_PERCENT = 30;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentGroupRepository paymentGroupRepository;
+
+    @Autowired
+    private OrderStateMachine orderStateMachine;
+
+    @Autowired
+    private OrderSummaryService orderSummaryService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void reconcilesAllStalePayments() {
+        int payments = Integer.getInteger("payos.reconcile.load-test.payments", 100_000);
+        long latencyMs = Long.getLong("payos.reconcile.load-test.latency-ms", 20);
+        int maxConcurrent = Integer.getInteger("payos.reconcile.load-test.max-concurrent", 256);
+
+        seedPendingPayments(payments);
+
+        StubPayOSStatusClient stub = new StubPayOSStatusClient(latencyMs, PAID_PERCENT);
+        PayOSReconciliationJob job = new PayOSReconciliationJob(paymentRepository, paymentGroupRepository,
+                orderStateMachine, orderSummaryService, stub, new PayOSPaymentLinkCache(1000, 60),
+                transactionTemplate, new SimpleMeterRegistry(),
+                true, 1000, 30, 7, maxConcurrent, 100_000);
+
+        long start = System.nanoTime();
+        PayOSReconciliationJob.Result result = job.reconcile();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("Reconciled %d payments in %d ms (%.0f payments/s, %d PayOS calls, latency %d ms, concurrency %d)%n",
+                result.scanned(), elapsedMs, result.scanned() * 1000.0 / Math.max(1, elapsedMs),
+                stub.getCalls(), latencyMs, maxConcurrent);
+
+        int expectedPaid = 0;
+        for (int i = 0; i < payments; i++) {
+            if (stub.expectedStatus(FIRST_ORDER_CODE + i) == PayOSLinkStatus.PAID) {
+                expectedPaid++;
+            }
+        }
+        assertEquals(payments, result.scanned());
+        assertEquals(0, result.errors());
+        assertEquals(expectedPaid, result.paid());
+        assertEquals(payments - expectedPaid, result.closed());
+        assertEquals(0, countPayments("PENDING"));
+        assertEquals(expectedPaid, countPayments("SUCCESS"));
+        assertEquals(expectedPaid, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM orders WHERE status = 'PAID'", Integer.class));
+    }
+
+    private int countPayments(String status) {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM payments WHERE payment_method = 'PAYOS' AND payment_status = ?",
+                Integer.class, status);
+    }
+
+    // Ghi thẳng bằng JDBC batch: đơn PENDING + payment PayOS PENDING tạo 1 giờ trước
+    private void seedPendingPayments(int count) {
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now().minusHours(1));
+        for (int offset = 0; offset < count; offset += INSERT_BATCH) {
+            List<Object[]> orders = new ArrayList<>(INSERT_BATCH);
+            List<Object[]> payments = new ArrayList<>(INSERT_BATCH);
+            for (int i = offset; i < Math.min(count, offset + INSERT_BATCH); i++) {
+                String orderId = UUID.randomUUID().toString();
+                orders.add(new Object[]{orderId, createdAt});
+                payments.add(new Object[]{UUID.randomUUID().toString(), orderId,
+                        String.valueOf(FIRST_ORDER_CODE + i), createdAt, createdAt});
+            }
+            jdbcTemplate.batchUpdate("""
+                    INSERT INTO orders (id, status, created_at, total_amount, version)
+                    VALUES (?, 'PENDING', ?, 100000, 0)
+                    """, orders);
+            jdbcTemplate.batchUpdate("""
+                    INSERT INTO payments (id, order_id, payment_method, payment_status, amount,
+                                          transaction_id, payment_date, created_at)
+                    VALUES (?, ?, 'PAYOS', 'PENDING', 100000, ?, ?, ?)
+                    """, payments);
+        }
+    }
+}
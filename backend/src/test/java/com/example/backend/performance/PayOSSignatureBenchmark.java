@@ -0,0 +1,126 @@
+package com.example.backend.performance;
+
+import com.example.backend.configuration.PayOSConfig;
+import com.example.backend.service.payment.PayOSSignatureEngine;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh ký / kiểm chữ ký PayOS kiểu cũ (Mac.getInstance + init mỗi lần, String.format, hex từng byte)
+ * với PayOSSignatureEngine. Không chạy trong mvn test, chạy tay:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.backend.performance.PayOSSignatureBenchmark
+ * </pre>
+ * Cột gc.alloc.rate.norm (byte/lần gọi) cho thấy lượng cấp phát, score cho thấy độ trễ.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class PayOSSignatureBenchmark {
+
+    private static final String KEY = "1a2b3c4d5e6f7a8b9c0d1e2f3a4b5c6d7e8f9a0b1c2d3e4f5a6b7c8d9e0f1a2b";
+
+    PayOSSignatureEngine engine;
+    JsonNode webhookData;
+    String webhookSignature;
+
+    @Setup
+    public void setUp() throws Exception {
+        PayOSConfig config = new PayOSConfig();
+        config.setChecksumKey(KEY);
+        engine = new PayOSSignatureEngine(config);
+        webhookData = new ObjectMapper().readTree("""
+                {"orderCode":123456789,"amount":150000,"description":"CSGX0SVDCO5","accountNumber":"12345678",
+                 "reference":"TF230204212323","transactionDateTime":"2026-10-19 18:25:00","currency":"VND",
+                 "paymentLinkId":"124c33293c43417ab7879e14c8d9eb18","code":"00","desc":"Thành công",
+                 "counterAccountBankId":"","counterAccountBankName":"","counterAccountName":null,
+                 "counterAccountNumber":null,"virtualAccountName":"","virtualAccountNumber":""}
+                """);
+        webhookSignature = legacyVerifySignature(webhookData);
+    }
+
+    @Benchmark
+    public String signLegacy() throws Exception {
+        String dataStr = String.format(
+                "amount=%d&cancelUrl=%s&description=%s&orderCode=%d&returnUrl=%s",
+                150000, "https://shop.vn/cancel", "", 123456789, "https://shop.vn/return");
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(KEY.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return legacyHex(mac.doFinal(dataStr.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Benchmark
+    public String signEngine() {
+        return engine.signPaymentRequest(150000, "https://shop.vn/cancel", "", 123456789, "https://shop.vn/return");
+    }
+
+    @Benchmark
+    public boolean verifyLegacy() throws Exception {
+        return legacyVerifySignature(webhookData).equals(webhookSignature);
+    }
+
+    @Benchmark
+    public boolean verifyEngine() {
+        return engine.verifyWebhook(webhookData, webhookSignature);
+    }
+
+    private static String legacyVerifySignature(JsonNode data) throws Exception {
+        TreeMap<String, String> sorted = new TreeMap<>();
+        for (Iterator<String> it = data.fieldNames(); it.hasNext(); ) {
+            String name = it.next();
+            JsonNode value = data.get(name);
+            sorted.put(name, value.isNull() ? "" : value.asText());
+        }
+        StringBuilder dataStr = new StringBuilder();
+        sorted.forEach((key, value) -> {
+            if (!dataStr.isEmpty()) {
+                dataStr.append('&');
+            }
+            dataStr.append(key).append('=').append(value);
+        });
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(KEY.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return legacyHex(mac.doFinal(dataStr.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String legacyHex(byte[] bytes) {
+        StringBuilder result = new StringBuilder();
+        for (byte b : bytes) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(PayOSSignatureBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
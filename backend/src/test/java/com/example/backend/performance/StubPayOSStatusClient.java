@@ -0,0 +1,45 @@
+package com.example.backend.performance;
+
+import com.example.backend.enums.PayOSLinkStatus;
+import com.example.backend.service.payment.PayOSStatusClient;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PayOS giả cho test tải đối soát: trả lời sau latencyMs, kết quả cố định theo orderCode
+ * (orderCode % 100 < paidPercent -> PAID, còn lại EXPIRED) để kiểm được kết quả.
+ */
+class StubPayOSStatusClient implements PayOSStatusClient {
+
+    private final long latencyMs;
+    private final int paidPercent;
+    private final AtomicLong calls = new AtomicLong();
+
+    StubPayOSStatusClient(long latencyMs, int paidPercent) {
+        this.latencyMs = latencyMs;
+        this.paidPercent = paidPercent;
+    }
+
+    @Override
+    public PayOSLinkStatus fetchStatus(long orderCode) throws IOException {
+        calls.incrementAndGet();
+        try {
+            TimeUnit.MILLISECONDS.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while simulating PayOS latency");
+        }
+        return expectedStatus(orderCode);
+    }
+
+    PayOSLinkStatus expectedStatus(long orderCode) {
+        return orderCode % 100 < paidPercent ? PayOSLinkStatus.PAID : PayOSLinkStatus.EXPIRED;
+    }
+
+    long getCalls() {
+        return calls.get();
+    }
+}
@@ -12,6 +12,7 @@ import com.example.backend.mapper.CartMapper;
 import com.example.backend.repository.CartRepository;
 import com.example.backend.repository.ProductRepository;
 import com.example.backend.repository.UserRepository;
+import com.example.backend.util.OptimisticLockRetry;
 import com.example.backend.util.SecurityUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -23,6 +24,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.ArrayList;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -43,6 +45,9 @@ class CartServiceTest {
     @Mock
     CartMapper cartMapper;
 
+    @Mock
+    OptimisticLockRetry optimisticLockRetry;
+
     @InjectMocks
     CartService cartService;
 
@@ -53,6 +58,10 @@ class CartServiceTest {
 
     @BeforeEach
     void setUp() {
+        // Chạy thẳng action, không mở transaction
+        lenient().when(optimisticLockRetry.execute(any())).thenAnswer(invocation ->
+                invocation.getArgument(0, Supplier.class).get());
+
         testUser = User.builder()
                 .userId("user-1")
                 .username("testuser")
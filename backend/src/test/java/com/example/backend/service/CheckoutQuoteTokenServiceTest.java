@@ -0,0 +1,81 @@
+package com.example.backend.service;
+
+import com.example.backend.exception.AppException;
+import com.example.backend.exception.ErrorCode;
+import com.example.backend.service.CheckoutQuoteTokenService.CheckoutQuote;
+import com.example.backend.service.CheckoutQuoteTokenService.QuotedLine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckoutQuoteTokenServiceTest {
+
+    private CheckoutQuoteTokenService quoteTokenService;
+
+    @BeforeEach
+    void setUp() {
+        quoteTokenService = new CheckoutQuoteTokenService();
+        ReflectionTestUtils.setField(quoteTokenService, "signerKey",
+                "test-signer-key-for-ci-cd-pipeline-minimum-256-bits-long-key-for-testing-only");
+        ReflectionTestUtils.setField(quoteTokenService, "ttlSeconds", 300L);
+    }
+
+    private CheckoutQuote quote(Instant expiresAt) {
+        return new CheckoutQuote(
+                "buyer",
+                List.of(new QuotedLine("product-1", 2, 100000), new QuotedLine("product-2", 1, 55000.5)),
+                Map.of("shop-1", 32000.0),
+                expiresAt
+        );
+    }
+
+    @Test
+    void signAndVerify_roundTrip() {
+        String token = quoteTokenService.sign(quote(quoteTokenService.expiryFromNow()));
+
+        CheckoutQuote verified = quoteTokenService.verify(token, "buyer");
+
+        assertEquals("buyer", verified.username());
+        assertEquals(2, verified.lines().size());
+        assertEquals(new QuotedLine("product-1", 2, 100000), verified.lines().get(0));
+        assertEquals(55000.5, verified.lines().get(1).price());
+        assertEquals(32000.0, verified.shippingFees().get("shop-1"));
+    }
+
+    @Test
+    void verify_tamperedToken_isInvalid() {
+        String token = quoteTokenService.sign(quote(quoteTokenService.expiryFromNow()));
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        AppException exception = assertThrows(AppException.class, () -> quoteTokenService.verify(tampered, "buyer"));
+        assertEquals(ErrorCode.QUOTE_INVALID, exception.getErrorCode());
+    }
+
+    @Test
+    void verify_otherUser_isInvalid() {
+        String token = quoteTokenService.sign(quote(quoteTokenService.expiryFromNow()));
+
+        AppException exception = assertThrows(AppException.class, () -> quoteTokenService.verify(token, "someone-else"));
+        assertEquals(ErrorCode.QUOTE_INVALID, exception.getErrorCode());
+    }
+
+    @Test
+    void verify_expiredToken() {
+        String token = quoteTokenService.sign(quote(Instant.now().minusSeconds(1)));
+
+        AppException exception = assertThrows(AppException.class, () -> quoteTokenService.verify(token, "buyer"));
+        assertEquals(ErrorCode.QUOTE_EXPIRED, exception.getErrorCode());
+    }
+
+    @Test
+    void verify_garbage_isInvalid() {
+        AppException exception = assertThrows(AppException.class, () -> quoteTokenService.verify("not-a-token", "buyer"));
+        assertEquals(ErrorCode.QUOTE_INVALID, exception.getErrorCode());
+    }
+}
@@ -18,6 +18,7 @@ import com.example.backend.repository.CategoryRepository;
 import com.example.backend.repository.ProductImageRepository;
 import com.example.backend.repository.ProductRepository;
 import com.example.backend.repository.UserRepository;
+import com.example.backend.util.OptimisticLockRetry;
 import com.example.backend.util.SecurityUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -28,6 +29,7 @@ import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -76,6 +78,9 @@ class FailingUnitTests {
     @Mock
     com.example.backend.repository.ShopRepository shopRepository;
 
+    @Mock
+    OptimisticLockRetry optimisticLockRetry;
+
     @InjectMocks
     UserService userService;
 
@@ -91,6 +96,9 @@ class FailingUnitTests {
 
     @BeforeEach
     void setUp() {
+        lenient().when(optimisticLockRetry.execute(any())).thenAnswer(invocation ->
+                invocation.getArgument(0, Supplier.class).get());
+
         testUser = User.builder()
                 .userId("user-1")
                 .username("testuser")
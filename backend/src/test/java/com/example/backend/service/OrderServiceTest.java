@@ -7,6 +7,7 @@ import com.example.backend.exception.AppException;
 import com.example.backend.exception.ErrorCode;
 import com.example.backend.mapper.OrderMapper;
 import com.example.backend.repository.*;
+import com.example.backend.util.OptimisticLockRetry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -18,6 +19,7 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -50,9 +52,18 @@ class OrderServiceTest {
     @Mock
     ShippingService shippingService;
 
+    @Mock
+    OrderSummaryService orderSummaryService;
+
+    @Mock
+    OrderStateMachine orderStateMachine;
+
     @Mock
     OrderMapper orderMapper;
 
+    @Mock
+    OptimisticLockRetry optimisticLockRetry;
+
     @InjectMocks
     OrderService orderService;
 
@@ -66,6 +77,10 @@ class OrderServiceTest {
 
     @BeforeEach
     void setUp() {
+        // Chạy thẳng action, không mở transaction
+        lenient().when(optimisticLockRetry.execute(any())).thenAnswer(invocation ->
+                invocation.getArgument(0, Supplier.class).get());
+
         testUser = User.builder()
                 .userId("user-1")
                 .username("testuser")
@@ -207,7 +222,7 @@ class OrderServiceTest {
         Order order = Order.builder()
                 .id("order-1")
                 .user(testUser)
-                .status(OrderStatus.PENDING)
+                .status(OrderStatus.SHIPPED)
                 .totalAmount(200000)
                 .build();
 
@@ -216,57 +231,34 @@ class OrderServiceTest {
                 .totalAmount(200000)
                 .build();
 
+        when(orderStateMachine.transition("order-1", OrderStatus.DELIVERED)).thenReturn(true);
         when(orderRepository.findById("order-1")).thenReturn(Optional.of(order));
-        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
-            Order savedOrder = invocation.getArgument(0, Order.class);
-            return savedOrder;
-        });
         when(orderMapper.toOrderResponse(any(Order.class))).thenReturn(response);
 
         OrderResponse result = orderService.updateOrderStatus("order-1", OrderStatus.DELIVERED);
 
         assertNotNull(result);
-        verify(orderRepository).save(any(Order.class));
+        // Chỉ chạy câu UPDATE có điều kiện, không ghi đè cả entity
+        verify(orderRepository, never()).save(any(Order.class));
     }
 
     @Test
-    @SuppressWarnings("null")
-    void updateOrderStatus_cancelled() {
-        Shipment shipment = Shipment.builder()
-                .id("ship-1")
-                .status("PREPARING")
-                .build();
+    void updateOrderStatus_transitionNotAllowed() {
+        when(orderStateMachine.transition("order-1", OrderStatus.PAID)).thenReturn(false);
+        when(orderRepository.existsById("order-1")).thenReturn(true);
 
-        Order order = Order.builder()
-                .id("order-1")
-                .user(testUser)
-                .status(OrderStatus.PENDING)
-                .totalAmount(200000)
-                .shipment(shipment)
-                .build();
-
-        OrderResponse response = OrderResponse.builder()
-                .orderId("order-1")
-                .totalAmount(200000)
-                .build();
-
-        when(orderRepository.findById("order-1")).thenReturn(Optional.of(order));
-        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
-            Order savedOrder = invocation.getArgument(0, Order.class);
-            return savedOrder;
+        AppException exception = assertThrows(AppException.class, () -> {
+            orderService.updateOrderStatus("order-1", OrderStatus.PAID);
         });
-        when(orderMapper.toOrderResponse(any(Order.class))).thenReturn(response);
 
-        OrderResponse result = orderService.updateOrderStatus("order-1", OrderStatus.CANCELLED);
-
-        assertNotNull(result);
-        assertEquals("CANCELLED", order.getShipment().getStatus());
-        verify(orderRepository).save(any(Order.class));
+        assertEquals(ErrorCode.ORDER_STATUS_TRANSITION_INVALID, exception.getErrorCode());
+        verify(orderRepository, never()).findById(any());
     }
 
     @Test
     void updateOrderStatus_orderNotExist() {
-        when(orderRepository.findById("non-existent")).thenReturn(Optional.empty());
+        when(orderStateMachine.transition("non-existent", OrderStatus.DELIVERED)).thenReturn(false);
+        when(orderRepository.existsById("non-existent")).thenReturn(false);
 
         AppException exception = assertThrows(AppException.class, () -> {
             orderService.updateOrderStatus("non-existent", OrderStatus.DELIVERED);
@@ -0,0 +1,151 @@
+package com.example.backend.service;
+
+import com.example.backend.enums.OrderStatus;
+import com.example.backend.event.OrderCancelledEvent;
+import com.example.backend.event.OrderPaidEvent;
+import com.example.backend.event.OrderStatusChangedEvent;
+import com.example.backend.repository.OrderRepository;
+import com.example.backend.repository.ShipmentRepository;
+import com.example.backend.service.outbox.OutboxService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderStateMachineTest {
+
+    @Mock
+    OrderRepository orderRepository;
+
+    @Mock
+    ShipmentRepository shipmentRepository;
+
+    @Mock
+    OrderSummaryService orderSummaryService;
+
+    @Mock
+    OutboxService outboxService;
+
+    @InjectMocks
+    OrderStateMachine orderStateMachine;
+
+    @Test
+    void transition_applied_runsSideEffects() {
+        when(orderRepository.compareAndSetStatus("order-1",
+                EnumSet.of(OrderStatus.PENDING, OrderStatus.PAID), OrderStatus.CANCELLED)).thenReturn(1);
+
+        assertTrue(orderStateMachine.transition("order-1", OrderStatus.CANCELLED));
+
+        verify(shipmentRepository).updateStatusByOrderId("order-1", "CANCELLED");
+        verify(orderSummaryService).onStatusTransition("order-1", OrderStatus.CANCELLED, "CANCELLED");
+        verify(outboxService).append(any(OrderCancelledEvent.class));
+    }
+
+    @Test
+    void transition_notApplied_skipsSideEffects() {
+        // Đơn đã DELIVERED: câu UPDATE không khớp dòng nào
+        when(orderRepository.compareAndSetStatus(eq("order-1"), any(), eq(OrderStatus.CANCELLED))).thenReturn(0);
+
+        assertFalse(orderStateMachine.transition("order-1", OrderStatus.CANCELLED));
+
+        verifyNoInteractions(shipmentRepository, orderSummaryService, outboxService);
+    }
+
+    @Test
+    void transition_paid_onlyFromPending() {
+        when(orderRepository.compareAndSetStatus("order-1", EnumSet.of(OrderStatus.PENDING), OrderStatus.PAID))
+                .thenReturn(1);
+
+        assertTrue(orderStateMachine.transition("order-1", OrderStatus.PAID));
+
+        verify(shipmentRepository, never()).updateStatusByOrderId(anyString(), anyString());
+        verify(orderSummaryService).onStatusTransition("order-1", OrderStatus.PAID, null);
+        verify(outboxService).append(any(OrderPaidEvent.class));
+    }
+
+    @Test
+    void transition_toPending_neverApplies() {
+        assertFalse(orderStateMachine.transition("order-1", OrderStatus.PENDING));
+
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    void transitionAll_movesLockedMembersWithOneUpdate() {
+        List<String> ids = List.of("order-1", "order-2", "order-3");
+        // order-3 đã hủy nên không nằm trong tập đơn khóa được
+        when(orderRepository.lockIdsByIdInAndStatusIn(ids, EnumSet.of(OrderStatus.PENDING)))
+                .thenReturn(List.of("order-1", "order-2"));
+
+        List<String> moved = orderStateMachine.transitionAll(ids, OrderStatus.PAID);
+
+        assertEquals(List.of("order-1", "order-2"), moved);
+        verify(orderRepository).compareAndSetStatusIn(moved, EnumSet.of(OrderStatus.PENDING), OrderStatus.PAID);
+        verify(orderRepository, never()).compareAndSetStatus(anyString(), any(), any());
+        verify(orderSummaryService).onBulkStatusTransition(moved, OrderStatus.PAID);
+        verify(outboxService, times(2)).append(any(OrderPaidEvent.class));
+        verifyNoInteractions(shipmentRepository);
+    }
+
+    @Test
+    void transitionAll_orderMovedConcurrently_skipsItsSideEffects() {
+        List<String> ids = List.of("order-1", "order-2");
+        // Webhook khác đã chuyển order-2 sang PAID và commit trước khi khóa
+        when(orderRepository.lockIdsByIdInAndStatusIn(ids, EnumSet.of(OrderStatus.PENDING)))
+                .thenReturn(List.of("order-1"));
+
+        List<String> moved = orderStateMachine.transitionAll(ids, OrderStatus.PAID);
+
+        assertEquals(List.of("order-1"), moved);
+        verify(orderRepository).compareAndSetStatusIn(List.of("order-1"), EnumSet.of(OrderStatus.PENDING),
+                OrderStatus.PAID);
+        verify(orderSummaryService).onBulkStatusTransition(List.of("order-1"), OrderStatus.PAID);
+        verify(outboxService).append(argThat(e -> e instanceof OrderPaidEvent paid && paid.orderId().equals("order-1")));
+        verifyNoMoreInteractions(outboxService);
+    }
+
+    @Test
+    void transitionAll_noEligibleOrders_skipsUpdateAndSideEffects() {
+        when(orderRepository.lockIdsByIdInAndStatusIn(any(), any())).thenReturn(List.of());
+
+        assertTrue(orderStateMachine.transitionAll(List.of("order-1"), OrderStatus.PAID).isEmpty());
+
+        verify(orderRepository, never()).compareAndSetStatusIn(any(), any(), any());
+        verifyNoInteractions(orderSummaryService, outboxService);
+    }
+
+    @Test
+    void eventFor_mapsTargetToEventType() {
+        LocalDateTime at = LocalDateTime.now();
+
+        assertEquals(new OrderPaidEvent("order-1", at), OrderStateMachine.eventFor("order-1", OrderStatus.PAID, at));
+        assertEquals(new OrderCancelledEvent("order-1", at),
+                OrderStateMachine.eventFor("order-1", OrderStatus.CANCELLED, at));
+        assertEquals(new OrderStatusChangedEvent("order-1", OrderStatus.SHIPPED, at),
+                OrderStateMachine.eventFor("order-1", OrderStatus.SHIPPED, at));
+    }
+
+    @Test
+    void canTransition_followsRules() {
+        assertTrue(OrderStateMachine.canTransition(OrderStatus.PENDING, OrderStatus.PAID));
+        assertTrue(OrderStateMachine.canTransition(OrderStatus.PENDING, OrderStatus.SHIPPED));
+        assertTrue(OrderStateMachine.canTransition(OrderStatus.PAID, OrderStatus.SHIPPED));
+        assertTrue(OrderStateMachine.canTransition(OrderStatus.SHIPPED, OrderStatus.DELIVERED));
+        assertFalse(OrderStateMachine.canTransition(OrderStatus.DELIVERED, OrderStatus.PAID));
+        assertFalse(OrderStateMachine.canTransition(OrderStatus.CANCELLED, OrderStatus.PAID));
+        assertFalse(OrderStateMachine.canTransition(OrderStatus.SHIPPED, OrderStatus.CANCELLED));
+        assertFalse(OrderStateMachine.canTransition(OrderStatus.PAID, OrderStatus.PAID));
+    }
+}
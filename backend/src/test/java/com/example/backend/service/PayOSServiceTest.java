@@ -0,0 +1,225 @@
+package com.example.backend.service;
+
+import com.example.backend.configuration.PayOSConfig;
+import com.example.backend.dto.request.PayOSGroupPaymentRequest;
+import com.example.backend.dto.response.PayOSPaymentResponse;
+import com.example.backend.entity.Order;
+import com.example.backend.entity.PayOSOrderCode;
+import com.example.backend.entity.Payment;
+import com.example.backend.entity.PaymentGroup;
+import com.example.backend.entity.User;
+import com.example.backend.enums.OrderStatus;
+import com.example.backend.exception.AppException;
+import com.example.backend.exception.ErrorCode;
+import com.example.backend.repository.OrderRepository;
+import com.example.backend.repository.PayOSOrderCodeRepository;
+import com.example.backend.repository.PaymentGroupRepository;
+import com.example.backend.repository.PaymentRepository;
+import com.example.backend.service.payment.PayOSOrderCodeAllocator;
+import com.example.backend.service.payment.PayOSPaymentLinkCache;
+import com.example.backend.service.payment.PayOSSignatureEngine;
+import com.example.backend.service.payment.PaymentLink;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PayOSServiceTest {
+
+    @Mock
+    PayOSConfig payOSConfig;
+
+    @Mock
+    OrderRepository orderRepository;
+
+    @Mock
+    PaymentRepository paymentRepository;
+
+    @Mock
+    OrderSummaryService orderSummaryService;
+
+    @Mock
+    OrderStateMachine orderStateMachine;
+
+    @Mock
+    RestTemplate restTemplate;
+
+    @Mock
+    PayOSSignatureEngine signatureEngine;
+
+    @Mock
+    PayOSOrderCodeAllocator orderCodeAllocator;
+
+    @Mock
+    PayOSOrderCodeRepository payOSOrderCodeRepository;
+
+    @Spy
+    PayOSPaymentLinkCache paymentLinkCache = new PayOSPaymentLinkCache(100, 60);
+
+    @Mock
+    PaymentGroupRepository paymentGroupRepository;
+
+    @InjectMocks
+    PayOSService payOSService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Order pendingOrder(String id, String userId) {
+        User user = new User();
+        user.setUserId(userId);
+        Order order = new Order();
+        order.setId(id);
+        order.setUser(user);
+        order.setStatus(OrderStatus.PENDING);
+        order.setTotalAmount(100_000);
+        return order;
+    }
+
+    private PayOSGroupPaymentRequest groupRequest(String... orderIds) {
+        PayOSGroupPaymentRequest request = new PayOSGroupPaymentRequest();
+        request.setOrderIds(List.of(orderIds));
+        request.setReturnUrl("https://shop.test/return");
+        request.setCancelUrl("https://shop.test/cancel");
+        return request;
+    }
+
+    private PaymentGroup group(String id, List<String> orderIds) {
+        return PaymentGroup.builder()
+                .id(id)
+                .orderCode(1_000_000_123L)
+                .membersHash(PayOSService.membersHash(orderIds))
+                .orderIds(new ArrayList<>(orderIds))
+                .status("PENDING")
+                .checkoutUrl("https://pay.payos.vn/web/group")
+                .qrCode("qr-group")
+                .linkExpiresAt(LocalDateTime.now().plusMinutes(10))
+                .build();
+    }
+
+    @Test
+    void applyPaidWebhook_groupOrderCode_updatesAllMembersBySet() throws Exception {
+        List<String> orderIds = List.of("order-1", "order-2", "order-3");
+        when(payOSOrderCodeRepository.findById(1_000_000_123L)).thenReturn(Optional.of(
+                PayOSOrderCode.builder().orderCode(1_000_000_123L).paymentGroupId("group-1").build()));
+        when(paymentGroupRepository.findById("group-1")).thenReturn(Optional.of(group("group-1", orderIds)));
+        when(paymentGroupRepository.markPaid(eq("group-1"), any())).thenReturn(1);
+        when(orderStateMachine.transitionAll(orderIds, OrderStatus.PAID)).thenReturn(orderIds);
+
+        assertTrue(payOSService.applyPaidWebhook(objectMapper.readTree("{\"orderCode\":1000000123}")));
+
+        verify(paymentRepository).markGroupPaid(eq("group-1"), any());
+        verify(orderSummaryService).onPaymentsChanged(orderIds, "SUCCESS");
+        verify(orderStateMachine).transitionAll(orderIds, OrderStatus.PAID);
+        verify(orderStateMachine, never()).transition(any(), any());
+        verify(paymentRepository, never()).save(any());
+    }
+
+    @Test
+    void applyPaidWebhook_groupAlreadyPaid_doesNotRewritePayments() throws Exception {
+        List<String> orderIds = List.of("order-1", "order-2");
+        when(payOSOrderCodeRepository.findById(1_000_000_123L)).thenReturn(Optional.of(
+                PayOSOrderCode.builder().orderCode(1_000_000_123L).paymentGroupId("group-1").build()));
+        when(paymentGroupRepository.findById("group-1")).thenReturn(Optional.of(group("group-1", orderIds)));
+        when(paymentGroupRepository.markPaid(eq("group-1"), any())).thenReturn(0);
+        when(orderStateMachine.transitionAll(orderIds, OrderStatus.PAID)).thenReturn(List.of());
+
+        assertTrue(payOSService.applyPaidWebhook(objectMapper.readTree("{\"orderCode\":1000000123}")));
+
+        verify(paymentRepository, never()).markGroupPaid(any(), any());
+        verify(orderSummaryService, never()).onPaymentsChanged(anyList(), any());
+    }
+
+    @Test
+    void createGroupPaymentLink_ordersOfDifferentBuyers_rejected() {
+        when(orderRepository.findAllById(List.of("order-1", "order-2")))
+                .thenReturn(List.of(pendingOrder("order-1", "user-1"), pendingOrder("order-2", "user-2")));
+
+        AppException ex = assertThrows(AppException.class,
+                () -> payOSService.createGroupPaymentLink(groupRequest("order-2", "order-1")));
+
+        assertEquals(ErrorCode.PAYMENT_GROUP_INVALID, ex.getErrorCode());
+        verifyNoInteractions(restTemplate, orderCodeAllocator);
+    }
+
+    @Test
+    void createGroupPaymentLink_pendingGroupForSameOrders_reusedWithoutPayOSCall() {
+        List<String> orderIds = List.of("order-1", "order-2");
+        when(orderRepository.findAllById(orderIds))
+                .thenReturn(List.of(pendingOrder("order-1", "user-1"), pendingOrder("order-2", "user-1")));
+        when(paymentGroupRepository.findReusable(eq(PayOSService.membersHash(orderIds)), any(), any()))
+                .thenReturn(List.of(group("group-1", orderIds)));
+
+        // Thứ tự orderId trong request không ảnh hưởng
+        PayOSPaymentResponse response = payOSService.createGroupPaymentLink(groupRequest("order-2", "order-1"));
+
+        assertEquals("https://pay.payos.vn/web/group", response.getCheckoutUrl());
+        assertEquals("1000000123", response.getOrderCode());
+        verifyNoInteractions(restTemplate, orderCodeAllocator);
+    }
+
+    @Test
+    void createGroupPaymentLink_orderWithSingleLink_reusesPaymentRowAndCancelsLink() {
+        List<String> orderIds = List.of("order-1", "order-2");
+        Order first = pendingOrder("order-1", "user-1");
+        when(orderRepository.findAllById(orderIds)).thenReturn(List.of(first, pendingOrder("order-2", "user-1")));
+        when(orderCodeAllocator.nextCode()).thenReturn(1_000_000_200L);
+        when(payOSConfig.getBaseUrl()).thenReturn("https://api-merchant.payos.vn");
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(ResponseEntity.ok("{\"code\":\"00\",\"data\":{\"checkoutUrl\":\"https://pay.payos.vn/web/new\"}}"));
+        when(paymentGroupRepository.save(any(PaymentGroup.class))).thenAnswer(invocation -> {
+            PaymentGroup group = invocation.getArgument(0);
+            group.setId("group-2");
+            return group;
+        });
+        // order-1 đã có link riêng còn hạn (createPaymentLink trước đó)
+        Payment single = Payment.builder()
+                .id("payment-1")
+                .order(first)
+                .paymentMethod("PAYOS")
+                .paymentStatus("PENDING")
+                .transactionId("1000000050")
+                .checkoutUrl("https://pay.payos.vn/web/single")
+                .linkExpiresAt(LocalDateTime.now().plusMinutes(10))
+                .createdAt(LocalDateTime.now().minusMinutes(5))
+                .build();
+        when(paymentRepository.findPendingPayOSByOrderIdIn(orderIds)).thenReturn(List.of(single));
+        paymentLinkCache.get("order-1", orderId -> new PaymentLink(1_000_000_050L,
+                single.getCheckoutUrl(), null, single.getLinkExpiresAt()));
+
+        PayOSPaymentResponse response = payOSService.createGroupPaymentLink(groupRequest("order-1", "order-2"));
+
+        assertEquals("https://pay.payos.vn/web/new", response.getCheckoutUrl());
+        // Không thêm dòng payment thứ 2 cho order-1: dòng cũ chuyển sang nhóm, link riêng bị gỡ
+        ArgumentCaptor<Payment> saved = ArgumentCaptor.forClass(Payment.class);
+        verify(paymentRepository, times(2)).save(saved.capture());
+        assertSame(single, saved.getAllValues().get(0));
+        assertEquals("group-2", single.getPaymentGroupId());
+        assertEquals("1000000200", single.getTransactionId());
+        assertNull(single.getCheckoutUrl());
+        assertEquals("order-2", saved.getAllValues().get(1).getOrder().getId());
+        verify(restTemplate).exchange(eq("https://api-merchant.payos.vn/v2/payment-requests/1000000050/cancel"),
+                eq(HttpMethod.POST), any(HttpEntity.class), eq(String.class));
+        verify(paymentLinkCache).invalidate("order-1");
+    }
+}
@@ -35,6 +35,12 @@ class PaymentSimulationServiceTest {
     @Mock
     OrderRepository orderRepository;
 
+    @Mock
+    OrderSummaryService orderSummaryService;
+
+    @Mock
+    OrderStateMachine orderStateMachine;
+
     @InjectMocks
     PaymentSimulationService paymentSimulationService;
 
@@ -65,12 +71,6 @@ class PaymentSimulationServiceTest {
             payment.setId("payment-1");
             return payment;
         });
-        // Use lenient() because orderRepository.save() is only called when payment is SUCCESS (90% chance)
-        ArgumentCaptor<Order> orderCaptor = ArgumentCaptor.forClass(Order.class);
-        lenient().when(orderRepository.save(orderCaptor.capture())).thenAnswer(invocation -> {
-            Order order = Objects.requireNonNull(orderCaptor.getValue());
-            return order;
-        });
 
         PaymentResponse response = paymentSimulationService.simulateOnlinePayment(paymentRequest);
 
@@ -86,7 +86,9 @@ class PaymentSimulationServiceTest {
         verify(orderRepository).findById("order-1");
         verify(paymentRepository).save(any(Payment.class));
         if (response.getStatus().equals("SUCCESS")) {
-            verify(orderRepository).save(any(Order.class));
+            verify(orderStateMachine).transition("order-1", OrderStatus.PAID);
+        } else {
+            verify(orderStateMachine, never()).transition(anyString(), any());
         }
     }
 
@@ -158,11 +160,6 @@ class PaymentSimulationServiceTest {
 
         when(orderRepository.findById("order-1")).thenReturn(Optional.of(testOrder));
         when(paymentRepository.findByOrder_Id("order-1")).thenReturn(Optional.of(existingPayment));
-        ArgumentCaptor<Order> orderCaptor = ArgumentCaptor.forClass(Order.class);
-        when(orderRepository.save(orderCaptor.capture())).thenAnswer(invocation -> {
-            Order order = Objects.requireNonNull(orderCaptor.getValue());
-            return order;
-        });
 
         PaymentResponse response = paymentSimulationService.confirmCODPayment("order-1");
 
@@ -179,8 +176,7 @@ class PaymentSimulationServiceTest {
         // Payment is updated in place (setPaymentStatus, setPaymentDate)
         // Note: In the actual service, payment is not explicitly saved, 
         // but it's managed by JPA and will be persisted on transaction commit
-        verify(orderRepository).save(any(Order.class));
-        assertEquals(OrderStatus.PAID, testOrder.getStatus());
+        verify(orderStateMachine).transition("order-1", OrderStatus.PAID);
         assertEquals("SUCCESS", existingPayment.getPaymentStatus());
     }
 
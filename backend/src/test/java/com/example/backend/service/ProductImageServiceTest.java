@@ -1,11 +1,15 @@
 package com.example.backend.service;
 
 import com.cloudinary.Cloudinary;
+import com.example.backend.configuration.OutboundProperties;
+import com.example.backend.service.outbound.OutboundDependency;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -25,6 +29,10 @@ class ProductImageServiceTest {
     @Mock
     MultipartFile multipartFile;
 
+    @Spy
+    OutboundDependency cloudinaryOutbound =
+            new OutboundDependency("cloudinary", new OutboundProperties.Client(), new SimpleMeterRegistry());
+
     @InjectMocks
     ProductImageService productImageService;
 
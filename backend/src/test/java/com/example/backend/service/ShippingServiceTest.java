@@ -2,19 +2,30 @@ package com.example.backend.service;
 
 import com.example.backend.dto.request.ShippingFeeRequest;
 import com.example.backend.dto.response.ShippingFeeResponse;
+import com.example.backend.repository.ShippingProviderRepository;
+import com.example.backend.service.shipping.GhnShippingCarrier;
+import com.example.backend.service.shipping.ShippingQuoteCache;
+import com.example.backend.service.shipping.ShippingQuoteRacer;
+import com.example.backend.service.shipping.ShippingZoneFeeEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.http.HttpMethod;
 
@@ -28,13 +39,24 @@ class ShippingServiceTest {
     @Mock
     RestTemplate restTemplate;
 
-    @InjectMocks
+    @Mock
+    ShippingZoneFeeEngine zoneFeeEngine;
+
+    @Mock
+    ShippingProviderRepository shippingProviderRepository;
+
     ShippingService shippingService;
 
     private ShippingFeeRequest shippingFeeRequest;
 
     @BeforeEach
     void setUp() {
+        // Bảng shipping_providers trống -> racer dùng GHN (gọi qua restTemplate mock)
+        ShippingQuoteRacer quoteRacer = new ShippingQuoteRacer(
+                List.of(new GhnShippingCarrier(restTemplate)), shippingProviderRepository, 2000, 5, 30000);
+        ShippingQuoteCache quoteCache = new ShippingQuoteCache(360, 30, 1000, 500, new SimpleMeterRegistry());
+        shippingService = new ShippingService(quoteCache, zoneFeeEngine, quoteRacer);
+
         shippingFeeRequest = new ShippingFeeRequest();
         shippingFeeRequest.setFromDistrictCode("1442");
         shippingFeeRequest.setToDistrictCode("1452");
@@ -149,4 +171,173 @@ class ShippingServiceTest {
         assertNotNull(result);
         assertTrue(result.startsWith("GHN_ORDER_"));
     }
+
+    @Test
+    @SuppressWarnings({"null", "unchecked"})
+    void calculateShippingFees_runsQuotesConcurrently() {
+        ReflectionTestUtils.setField(shippingService, "quoteDeadlineMs", 5000L);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("total", "25000");
+        Map<String, Object> responseBody = new HashMap<>();
+        responseBody.put("data", data);
+        @SuppressWarnings("rawtypes")
+        ResponseEntity<Map> rawResponseEntity = (ResponseEntity<Map>) (ResponseEntity<?>)
+                new ResponseEntity<>(responseBody, HttpStatus.OK);
+
+        // Mỗi lượt gọi chỉ trả về khi cả 3 lượt đã bắt đầu -> chỉ pass nếu chạy song song
+        CountDownLatch allStarted = new CountDownLatch(3);
+        when(restTemplate.exchange(
+                anyString(),
+                any(HttpMethod.class),
+                any(org.springframework.http.HttpEntity.class),
+                eq(Map.class)
+        )).thenAnswer(invocation -> {
+            allStarted.countDown();
+            allStarted.await(3, TimeUnit.SECONDS);
+            return rawResponseEntity;
+        });
+
+        // 3 tuyến khác nhau để không dùng chung báo giá trong cache
+        Map<String, ShippingFeeRequest> requests = new LinkedHashMap<>();
+        for (int i = 1; i <= 3; i++) {
+            ShippingFeeRequest request = new ShippingFeeRequest();
+            request.setFromDistrictCode("1442");
+            request.setToDistrictCode("1452");
+            request.setToWardCode("2000" + i);
+            request.setWeightGram(1000);
+            requests.put("shop-" + i, request);
+        }
+
+        Map<String, ShippingFeeResponse> results = shippingService.calculateShippingFees(requests);
+
+        assertEquals(0, allStarted.getCount());
+        assertEquals(3, results.size());
+        results.values().forEach(result -> {
+            assertEquals(25000.0, result.getFee());
+            assertEquals("GHN Express", result.getProvider());
+        });
+    }
+
+    @Test
+    @SuppressWarnings("null")
+    void calculateShippingFees_deadlineExceeded_usesFallback() {
+        ReflectionTestUtils.setField(shippingService, "quoteDeadlineMs", 100L);
+
+        when(restTemplate.exchange(
+                anyString(),
+                any(HttpMethod.class),
+                any(org.springframework.http.HttpEntity.class),
+                eq(Map.class)
+        )).thenAnswer(invocation -> {
+            Thread.sleep(5000);
+            return null;
+        });
+
+        long start = System.currentTimeMillis();
+        Map<String, ShippingFeeResponse> results =
+                shippingService.calculateShippingFees(Map.of("shop-1", shippingFeeRequest));
+        long duration = System.currentTimeMillis() - start;
+
+        assertTrue(duration < 2000, "Quotes should stop at the deadline, but took " + duration + "ms");
+        assertEquals(30000.0, results.get("shop-1").getFee());
+        assertEquals("GHN (Fallback)", results.get("shop-1").getProvider());
+    }
+
+    @Test
+    void calculateShippingFees_emptyRequests() {
+        assertTrue(shippingService.calculateShippingFees(Map.of()).isEmpty());
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    @SuppressWarnings({"null", "unchecked"})
+    void calculateShippingFee_sameRouteAndWeightBucket_callsGhnOnce() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("total", "32000");
+        Map<String, Object> responseBody = new HashMap<>();
+        responseBody.put("data", data);
+        @SuppressWarnings("rawtypes")
+        ResponseEntity<Map> rawResponseEntity = (ResponseEntity<Map>) (ResponseEntity<?>)
+                new ResponseEntity<>(responseBody, HttpStatus.OK);
+        when(restTemplate.exchange(
+                anyString(),
+                any(HttpMethod.class),
+                any(org.springframework.http.HttpEntity.class),
+                eq(Map.class)
+        )).thenReturn(rawResponseEntity);
+
+        ShippingFeeRequest sameBucket = new ShippingFeeRequest();
+        sameBucket.setFromDistrictCode("1442");
+        sameBucket.setToDistrictCode("1452");
+        sameBucket.setToWardCode("12345");
+        sameBucket.setWeightGram(800); // cùng mức 501-1000g với 1000g
+
+        assertEquals(32000.0, shippingService.calculateShippingFee(shippingFeeRequest).getFee());
+        assertEquals(32000.0, shippingService.calculateShippingFee(sameBucket).getFee());
+
+        verify(restTemplate, times(1)).exchange(
+                anyString(),
+                any(HttpMethod.class),
+                any(org.springframework.http.HttpEntity.class),
+                eq(Map.class)
+        );
+    }
+
+    @Test
+    @SuppressWarnings("null")
+    void calculateShippingFee_fallbackIsNotCached() {
+        when(restTemplate.exchange(
+                anyString(),
+                any(HttpMethod.class),
+                any(org.springframework.http.HttpEntity.class),
+                eq(Map.class)
+        )).thenThrow(new RuntimeException("Network error"));
+
+        shippingService.calculateShippingFee(shippingFeeRequest);
+        shippingService.calculateShippingFee(shippingFeeRequest);
+
+        verify(restTemplate, times(2)).exchange(
+                anyString(),
+                any(HttpMethod.class),
+                any(org.springframework.http.HttpEntity.class),
+                eq(Map.class)
+        );
+    }
+
+    @Test
+    @SuppressWarnings("null")
+    void calculateShippingFee_ghnError_usesZoneMatrixWhenAvailable() {
+        when(restTemplate.exchange(
+                anyString(),
+                any(HttpMethod.class),
+                any(org.springframework.http.HttpEntity.class),
+                eq(Map.class)
+        )).thenThrow(new RuntimeException("Network error"));
+        when(zoneFeeEngine.quote(shippingFeeRequest)).thenReturn(Optional.of(ShippingFeeResponse.builder()
+                .fee(22000)
+                .estimatedDays(2)
+                .provider("Zone table v1")
+                .build()));
+
+        ShippingFeeResponse result = shippingService.calculateShippingFee(shippingFeeRequest);
+
+        assertEquals(22000.0, result.getFee());
+        assertEquals("Zone table v1", result.getProvider());
+    }
+
+    @Test
+    void calculateShippingFee_zoneMatrixPrimary_skipsGhn() {
+        ReflectionTestUtils.setField(shippingService, "zoneMatrixPrimary", true);
+        when(zoneFeeEngine.quote(shippingFeeRequest)).thenReturn(Optional.of(ShippingFeeResponse.builder()
+                .fee(18000)
+                .estimatedDays(1)
+                .provider("Zone table v1")
+                .build()));
+
+        ShippingFeeResponse result = shippingService.calculateShippingFee(shippingFeeRequest);
+
+        assertEquals(18000.0, result.getFee());
+        verifyNoInteractions(restTemplate);
+    }
 }
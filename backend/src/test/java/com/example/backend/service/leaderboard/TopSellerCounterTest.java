@@ -0,0 +1,84 @@
+package com.example.backend.service.leaderboard;
+
+import com.example.backend.enums.SalesWindow;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopSellerCounterTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+    // Mốc thời gian chia hết cho mọi kích thước bucket
+    private static final long T0 = 1_000L * 7 * 24 * HOUR;
+
+    @Test
+    void top_ranksByUnits_perScope() {
+        TopSellerCounter counter = new TopSellerCounter(10);
+        counter.record(T0, T0, "p1", Set.of("phone"), 2);
+        counter.record(T0, T0, "p2", Set.of("phone", "gift"), 5);
+        counter.record(T0, T0, "p3", Set.of(), 3);
+        counter.record(T0, T0, "p1", Set.of("phone"), 2);
+        counter.refreshSnapshot();
+
+        assertEquals(List.of(new TopSellerCounter.Entry("p2", 5), new TopSellerCounter.Entry("p1", 4),
+                        new TopSellerCounter.Entry("p3", 3)),
+                counter.top(SalesWindow.HOUR, TopSellerCounter.SITE_WIDE, 10));
+        assertEquals(List.of("p2", "p1"), ids(counter.top(SalesWindow.WEEK, "phone", 10)));
+        assertEquals(List.of("p2"), ids(counter.top(SalesWindow.DAY, "gift", 10)));
+        assertEquals(List.of("p2"), ids(counter.top(SalesWindow.DAY, TopSellerCounter.SITE_WIDE, 1)));
+        assertTrue(counter.top(SalesWindow.DAY, "unknown", 10).isEmpty());
+    }
+
+    @Test
+    void top_keepsOnlyMaxSizeEntries() {
+        TopSellerCounter counter = new TopSellerCounter(2);
+        for (int i = 1; i <= 5; i++) {
+            counter.record(T0, T0, "p" + i, Set.of(), i);
+        }
+        counter.refreshSnapshot();
+
+        assertEquals(List.of("p5", "p4"), ids(counter.top(SalesWindow.HOUR, TopSellerCounter.SITE_WIDE, 10)));
+    }
+
+    @Test
+    void advance_dropsSalesThatSlideOutOfEachWindow() {
+        TopSellerCounter counter = new TopSellerCounter(10);
+        counter.record(T0, T0, "old", Set.of(), 10);
+        counter.record(T0 + 2 * HOUR, T0 + 2 * HOUR, "new", Set.of(), 1);
+
+        long now = T0 + 2 * HOUR + MINUTE;
+        counter.advance(now);
+        counter.refreshSnapshot();
+
+        assertEquals(List.of("new"), ids(counter.top(SalesWindow.HOUR, TopSellerCounter.SITE_WIDE, 10)));
+        assertEquals(List.of("old", "new"), ids(counter.top(SalesWindow.DAY, TopSellerCounter.SITE_WIDE, 10)));
+
+        // Sau 25 giờ: đơn "old" chỉ còn trong cửa sổ tuần
+        now = T0 + 25 * HOUR;
+        assertTrue(counter.advance(now));
+        counter.refreshSnapshot();
+        assertEquals(List.of("new"), ids(counter.top(SalesWindow.DAY, TopSellerCounter.SITE_WIDE, 10)));
+        assertEquals(List.of("old", "new"), ids(counter.top(SalesWindow.WEEK, TopSellerCounter.SITE_WIDE, 10)));
+
+        assertFalse(counter.advance(now));
+    }
+
+    @Test
+    void record_olderThanWindow_isIgnored() {
+        TopSellerCounter counter = new TopSellerCounter(10);
+        long now = T0 + 3 * HOUR;
+        counter.record(T0, now, "p1", Set.of(), 4);
+        counter.refreshSnapshot();
+
+        assertTrue(counter.top(SalesWindow.HOUR, TopSellerCounter.SITE_WIDE, 10).isEmpty());
+        assertEquals(4, counter.top(SalesWindow.DAY, TopSellerCounter.SITE_WIDE, 10).get(0).units());
+    }
+
+    private static List<String> ids(List<TopSellerCounter.Entry> entries) {
+        return entries.stream().map(TopSellerCounter.Entry::productId).toList();
+    }
+}
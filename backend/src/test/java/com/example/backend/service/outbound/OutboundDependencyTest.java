@@ -0,0 +1,132 @@
+package com.example.backend.service.outbound;
+
+import com.example.backend.configuration.OutboundProperties;
+import com.example.backend.util.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboundDependencyTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private OutboundDependency dependency(int maxAttempts, int maxConcurrent, int breakerThreshold) {
+        OutboundProperties.Client config = new OutboundProperties.Client();
+        config.setMaxAttempts(maxAttempts);
+        config.setMaxConcurrent(maxConcurrent);
+        config.setBreakerFailureThreshold(breakerThreshold);
+        config.setRetryBaseBackoffMs(1);
+        config.setRetryMaxBackoffMs(5);
+        return new OutboundDependency("test", config, meterRegistry);
+    }
+
+    @Test
+    void execute_idempotent_retriesFailedResponse() throws Exception {
+        OutboundDependency dependency = dependency(3, 10, 10);
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger discarded = new AtomicInteger();
+
+        int result = dependency.execute(true, calls::incrementAndGet, value -> value < 3, value -> discarded.incrementAndGet());
+
+        assertEquals(3, result);
+        assertEquals(2, discarded.get());
+        assertEquals(1, meterRegistry.timer("outbound.requests", "dependency", "test", "outcome", "success").count());
+        assertEquals(2, meterRegistry.timer("outbound.requests", "dependency", "test", "outcome", "failed_response").count());
+    }
+
+    @Test
+    void execute_nonIdempotent_retriesOnlyConnectFailures() throws Exception {
+        OutboundDependency dependency = dependency(3, 10, 10);
+        AtomicInteger calls = new AtomicInteger();
+
+        // Chưa kết nối được -> gửi lại an toàn
+        String result = dependency.execute(false, () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new ConnectException("refused");
+            }
+            return "ok";
+        });
+        assertEquals("ok", result);
+        assertEquals(2, calls.get());
+
+        // Đã gửi rồi mới timeout -> không gửi lại (có thể tạo trùng)
+        calls.set(0);
+        assertThrows(SocketTimeoutException.class, () -> dependency.execute(false, () -> {
+            calls.incrementAndGet();
+            throw new SocketTimeoutException("read timed out");
+        }));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void execute_consecutiveFailures_openBreakerAndRejectWithoutCalling() {
+        OutboundDependency dependency = dependency(1, 10, 2);
+        AtomicInteger calls = new AtomicInteger();
+        OutboundDependency.Call<String> failing = () -> {
+            calls.incrementAndGet();
+            throw new IOException("down");
+        };
+
+        assertThrows(IOException.class, () -> dependency.execute(true, failing));
+        assertThrows(IOException.class, () -> dependency.execute(true, failing));
+        assertEquals(CircuitBreaker.State.OPEN, dependency.getBreakerState());
+
+        assertThrows(OutboundRejectedException.class, () -> dependency.execute(true, failing));
+        assertEquals(2, calls.get());
+        assertEquals(1, meterRegistry.counter("outbound.rejected", "dependency", "test", "reason", "circuit_open").count());
+    }
+
+    @Test
+    void execute_bulkheadFull_rejectsExtraCalls() throws Exception {
+        OutboundDependency dependency = dependency(1, 1, 10);
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> dependency.execute(true, () -> {
+                inside.countDown();
+                awaitQuietly(release);
+                return "slow";
+            }));
+            assertTrue(inside.await(5, TimeUnit.SECONDS));
+
+            assertThrows(OutboundRejectedException.class, () -> dependency.execute(true, () -> "fast"));
+            assertEquals(1, meterRegistry.counter("outbound.rejected", "dependency", "test", "reason", "bulkhead_full").count());
+
+            release.countDown();
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+        // Chỗ được trả lại sau khi lời gọi chậm xong
+        assertEquals("fast", dependency.execute(true, () -> "fast"));
+    }
+
+    @Test
+    void backoffMs_staysWithinJitterCap() {
+        OutboundDependency dependency = dependency(3, 10, 10);
+
+        for (int i = 0; i < 100; i++) {
+            long backoff = dependency.backoffMs(10);
+            assertTrue(backoff >= 0 && backoff <= 5);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
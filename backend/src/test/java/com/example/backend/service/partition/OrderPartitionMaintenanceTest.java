@@ -0,0 +1,117 @@
+package com.example.backend.service.partition;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderPartitionMaintenanceTest {
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @Mock
+    TransactionTemplate transactionTemplate;
+
+    private OrderPartitionMaintenance maintenance;
+
+    @BeforeEach
+    void setUp() {
+        maintenance = new OrderPartitionMaintenance(jdbcTemplate, transactionTemplate);
+        ReflectionTestUtils.setField(maintenance, "enabled", true);
+        ReflectionTestUtils.setField(maintenance, "monthsAhead", 3);
+        ReflectionTestUtils.setField(maintenance, "archiveAfterMonths", 12);
+    }
+
+    private void runTransactionsInline() {
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    private void partitions(String... names) {
+        when(jdbcTemplate.queryForList(contains("pg_inherits"), eq(String.class))).thenReturn(List.of(names));
+    }
+
+    // lenient: cùng method queryForObject còn được gọi cho archive_monthly_partition với tham số khác
+    private void openOrders(String partition, boolean open) {
+        lenient().when(jdbcTemplate.queryForObject(contains("FROM " + partition + " WHERE status IN"), eq(Boolean.class)))
+                .thenReturn(open);
+    }
+
+    @Test
+    void archiveClosedMonths_archivesAllTablesOfClosedMonthsBeforeCutoff() {
+        runTransactionsInline();
+        partitions("orders_p202401", "orders_p202402", "orders_p202403", "orders_p202404");
+        openOrders("orders_p202401", false);
+        openOrders("orders_p202402", false);
+
+        maintenance.archiveClosedMonths(YearMonth.of(2024, 3));
+
+        for (String table : OrderPartitionMaintenance.TABLES) {
+            verify(jdbcTemplate).queryForObject("SELECT archive_monthly_partition(?, ?)", Boolean.class,
+                    table, LocalDate.of(2024, 1, 1));
+            verify(jdbcTemplate).queryForObject("SELECT archive_monthly_partition(?, ?)", Boolean.class,
+                    table, LocalDate.of(2024, 2, 1));
+        }
+        // Tháng cutoff trở đi không bị kiểm tra hay archive
+        verify(jdbcTemplate, never()).queryForObject(contains("orders_p202403"), eq(Boolean.class));
+        verify(transactionTemplate, times(2)).executeWithoutResult(any());
+    }
+
+    @Test
+    void archiveClosedMonths_keepsMonthWithOpenOrders() {
+        runTransactionsInline();
+        partitions("orders_p202401", "orders_p202402");
+        openOrders("orders_p202401", true);
+        openOrders("orders_p202402", false);
+
+        maintenance.archiveClosedMonths(YearMonth.of(2024, 6));
+
+        verify(jdbcTemplate, never()).queryForObject(eq("SELECT archive_monthly_partition(?, ?)"), eq(Boolean.class),
+                any(), eq(LocalDate.of(2024, 1, 1)));
+        verify(jdbcTemplate, times(4)).queryForObject(eq("SELECT archive_monthly_partition(?, ?)"), eq(Boolean.class),
+                any(), eq(LocalDate.of(2024, 2, 1)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void maintain_skipsNonPostgresDatabases() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("H2");
+
+        maintenance.maintain();
+
+        verify(jdbcTemplate, never()).queryForObject(anyString(), eq(Boolean.class), any(), any());
+        verifyNoInteractions(transactionTemplate);
+    }
+
+    @Test
+    void maintain_archiveDisabled_onlyConvertsAndCreatesPartitions() {
+        ReflectionTestUtils.setField(maintenance, "postgres", true);
+        ReflectionTestUtils.setField(maintenance, "archiveAfterMonths", 0);
+
+        maintenance.maintain();
+
+        for (String table : OrderPartitionMaintenance.TABLES) {
+            verify(jdbcTemplate).queryForObject("SELECT convert_to_monthly_partitions(?, ?)", Boolean.class, table, 3);
+            verify(jdbcTemplate).queryForObject("SELECT ensure_monthly_partitions(?, ?)", Integer.class, table, 3);
+        }
+        verify(jdbcTemplate, never()).queryForList(anyString(), eq(String.class));
+    }
+}
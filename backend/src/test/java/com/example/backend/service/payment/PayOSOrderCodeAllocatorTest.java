@@ -0,0 +1,83 @@
+package com.example.backend.service.payment;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PayOSOrderCodeAllocatorTest {
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    PayOSOrderCodeAllocator allocator;
+
+    // Giả lập sequence START WITH FIRST_CODE INCREMENT BY BLOCK_SIZE
+    private void stubSequence() {
+        AtomicLong sequence = new AtomicLong(PayOSOrderCodeAllocator.FIRST_CODE);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class)))
+                .thenAnswer(invocation -> sequence.getAndAdd(PayOSOrderCodeAllocator.BLOCK_SIZE));
+    }
+
+    @Test
+    void nextCode_handsOutBlockInMemory_thenFetchesNextBlock() {
+        stubSequence();
+
+        long first = allocator.nextCode();
+        for (int i = 1; i < PayOSOrderCodeAllocator.BLOCK_SIZE; i++) {
+            assertEquals(first + i, allocator.nextCode());
+        }
+        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Long.class));
+
+        assertEquals(first + PayOSOrderCodeAllocator.BLOCK_SIZE, allocator.nextCode());
+        verify(jdbcTemplate, times(2)).queryForObject(anyString(), eq(Long.class));
+        // Sequence do migration tạo, allocator không chạy DDL
+        verify(jdbcTemplate, never()).execute(anyString());
+        assertEquals(PayOSOrderCodeAllocator.FIRST_CODE, first);
+    }
+
+    @Test
+    void nextCode_concurrentCallers_neverCollide() throws Exception {
+        stubSequence();
+        Set<Long> codes = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        assertTrue(codes.add(allocator.nextCode()));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(8000, codes.size());
+        verify(jdbcTemplate, times(8000 / PayOSOrderCodeAllocator.BLOCK_SIZE))
+                .queryForObject(anyString(), eq(Long.class));
+    }
+}
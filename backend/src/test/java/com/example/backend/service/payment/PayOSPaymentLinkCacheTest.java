@@ -0,0 +1,89 @@
+package com.example.backend.service.payment;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayOSPaymentLinkCacheTest {
+
+    private final PayOSPaymentLinkCache cache = new PayOSPaymentLinkCache(100, 60);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private PaymentLink link(long orderCode, LocalDateTime expiresAt) {
+        return new PaymentLink(orderCode, "https://pay.payos.vn/web/" + orderCode, "qr-" + orderCode, expiresAt);
+    }
+
+    @Test
+    void get_reusesLinkUntilExpiry() {
+        PaymentLink created = link(1L, LocalDateTime.now().plusMinutes(15));
+
+        PaymentLink first = cache.get("order-1", id -> {
+            loads.incrementAndGet();
+            return created;
+        });
+        PaymentLink second = cache.get("order-1", id -> {
+            loads.incrementAndGet();
+            return link(2L, LocalDateTime.now().plusMinutes(15));
+        });
+
+        assertSame(created, first);
+        assertSame(created, second);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_linkInsideReuseMargin_isNotKept() {
+        // Còn 30s < margin 60s -> không giữ trong cache
+        cache.get("order-1", id -> link(1L, LocalDateTime.now().plusSeconds(30)));
+
+        PaymentLink next = cache.get("order-1", id -> link(2L, LocalDateTime.now().plusMinutes(15)));
+
+        assertEquals(2L, next.orderCode());
+    }
+
+    @Test
+    void invalidate_forcesReload() {
+        cache.get("order-1", id -> link(1L, LocalDateTime.now().plusMinutes(15)));
+
+        cache.invalidate("order-1");
+        PaymentLink next = cache.get("order-1", id -> link(2L, LocalDateTime.now().plusMinutes(15)));
+
+        assertEquals(2L, next.orderCode());
+    }
+
+    @Test
+    void get_concurrentRequestsForSameOrder_loadOnce() throws Exception {
+        int callers = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<PaymentLink>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return cache.get("order-1", id -> {
+                        loads.incrementAndGet();
+                        return link(loads.get(), LocalDateTime.now().plusMinutes(15));
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<PaymentLink> future : futures) {
+                assertEquals(1L, future.get(5, TimeUnit.SECONDS).orderCode());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.backend.service.payment;
+
+import com.example.backend.entity.PaymentGroup;
+import com.example.backend.enums.OrderStatus;
+import com.example.backend.enums.PayOSLinkStatus;
+import com.example.backend.repository.PaymentGroupRepository;
+import com.example.backend.repository.PaymentRepository;
+import com.example.backend.service.OrderStateMachine;
+import com.example.backend.service.OrderSummaryService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PayOSReconciliationJobTest {
+
+    @Mock
+    PaymentRepository paymentRepository;
+
+    @Mock
+    PaymentGroupRepository paymentGroupRepository;
+
+    @Mock
+    OrderStateMachine orderStateMachine;
+
+    @Mock
+    OrderSummaryService orderSummaryService;
+
+    @Mock
+    PayOSStatusClient statusClient;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    private final LocalDateTime createdAt = LocalDateTime.now().minusHours(2);
+
+    private PayOSReconciliationJob job(int pageSize) {
+        return new PayOSReconciliationJob(paymentRepository, paymentGroupRepository, orderStateMachine,
+                orderSummaryService, statusClient, new PayOSPaymentLinkCache(100, 60),
+                new TransactionTemplate(transactionManager), new SimpleMeterRegistry(),
+                true, pageSize, 30, 7, 4, 1000);
+    }
+
+    private Object[] row(String paymentId, int secondOffset, long orderCode, String orderId, String groupId) {
+        return new Object[]{paymentId, createdAt.plusSeconds(secondOffset), String.valueOf(orderCode), orderId, groupId};
+    }
+
+    @SafeVarargs
+    private void stubPages(List<Object[]>... pages) {
+        var stubbing = when(paymentRepository.findStalePendingPayOS(any(), any(), any(), any(), any()));
+        for (List<Object[]> page : pages) {
+            stubbing = stubbing.thenReturn(page);
+        }
+    }
+
+    @Test
+    void reconcile_appliesResultsWithSetBasedUpdates() throws Exception {
+        stubPages(List.of(
+                row("pay-1", 0, 1001L, "order-1", null),
+                row("pay-2", 1, 1002L, "order-2", null),
+                row("pay-3", 2, 1003L, "order-3", "group-1")));
+        when(statusClient.fetchStatus(1001L)).thenReturn(PayOSLinkStatus.PAID);
+        when(statusClient.fetchStatus(1002L)).thenReturn(PayOSLinkStatus.EXPIRED);
+        when(statusClient.fetchStatus(1003L)).thenReturn(PayOSLinkStatus.PAID);
+        // order-4 của nhóm có payment nằm ở trang khác
+        when(paymentGroupRepository.findAllById(Set.of("group-1"))).thenReturn(List.of(PaymentGroup.builder()
+                .id("group-1").orderIds(new ArrayList<>(List.of("order-3", "order-4"))).build()));
+
+        PayOSReconciliationJob.Result result = job(500).reconcile();
+
+        assertEquals(new PayOSReconciliationJob.Result(3, 2, 1, 0, 0), result);
+        verify(paymentRepository).markPaidByIdIn(eq(Set.of("pay-1")), any(), any());
+        verify(paymentGroupRepository).markPaidByIdIn(eq(Set.of("group-1")), any());
+        verify(paymentRepository).markPaidByGroupIdIn(eq(Set.of("group-1")), any(), any());
+        verify(orderSummaryService).onPaymentsChanged(Set.of("order-1", "order-3", "order-4"), "SUCCESS");
+        verify(orderStateMachine).transitionAll(Set.of("order-1", "order-3", "order-4"), OrderStatus.PAID);
+        verify(paymentRepository).closePendingByIdIn(eq(Set.of("pay-2")), any(), eq("EXPIRED"));
+        verify(orderSummaryService).onPaymentsChanged(Set.of("order-2"), "EXPIRED");
+        // Cả trang ghi trong 1 transaction
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void reconcile_pagesWithKeysetCursor() throws Exception {
+        stubPages(
+                List.of(row("pay-1", 0, 1001L, "order-1", null), row("pay-2", 1, 1002L, "order-2", null)),
+                List.<Object[]>of(row("pay-3", 2, 1003L, "order-3", null)));
+        when(statusClient.fetchStatus(anyLong())).thenReturn(PayOSLinkStatus.PENDING);
+
+        PayOSReconciliationJob.Result result = job(2).reconcile();
+
+        assertEquals(3, result.scanned());
+        assertEquals(3, result.stillPending());
+        verify(paymentRepository).findStalePendingPayOS(any(), any(), eq(createdAt.plusSeconds(1)), eq("pay-2"), any());
+        verify(paymentRepository, times(2)).findStalePendingPayOS(any(), any(), any(), any(), any());
+        verifyNoInteractions(orderStateMachine, orderSummaryService, transactionManager);
+    }
+
+    @Test
+    void reconcile_groupMembersShareOneLookup() throws Exception {
+        stubPages(List.of(
+                row("pay-1", 0, 1001L, "order-1", "group-1"),
+                row("pay-2", 0, 1001L, "order-2", "group-1")));
+        when(statusClient.fetchStatus(1001L)).thenReturn(PayOSLinkStatus.PENDING);
+
+        job(500).reconcile();
+
+        verify(statusClient, times(1)).fetchStatus(1001L);
+    }
+
+    @Test
+    void reconcile_failedLookup_countedAndLeftPending() throws Exception {
+        stubPages(List.<Object[]>of(row("pay-1", 0, 1001L, "order-1", null)));
+        when(statusClient.fetchStatus(1001L)).thenThrow(new IOException("timeout"));
+
+        PayOSReconciliationJob.Result result = job(500).reconcile();
+
+        assertEquals(1, result.errors());
+        verify(paymentRepository, never()).markPaidByIdIn(any(), any(), any());
+        verifyNoInteractions(orderStateMachine, transactionManager);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.backend.service.payment;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayOSSignatureEngineTest {
+
+    private static final String KEY = "checksum-key-123";
+
+    private final PayOSSignatureEngine engine = new PayOSSignatureEngine(KEY);
+
+    // Cách tính chuẩn (cấp phát mỗi lần) để đối chiếu
+    private static String reference(String data) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(KEY.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return HexFormat.of().formatHex(mac.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void signPaymentRequest_matchesHmacOfCanonicalString() throws Exception {
+        String signature = engine.signPaymentRequest(150000, "https://shop.vn/cancel", "",
+                123456789, "https://shop.vn/return");
+
+        assertEquals(reference("amount=150000&cancelUrl=https://shop.vn/cancel&description="
+                + "&orderCode=123456789&returnUrl=https://shop.vn/return"), signature);
+    }
+
+    @Test
+    void signPaymentRequest_keyWithTrailingNewline_isTrimmed() {
+        PayOSSignatureEngine padded = new PayOSSignatureEngine(" " + KEY + "\n");
+
+        assertEquals(engine.signPaymentRequest(1, "c", "Thanh toán đơn", 2, "r"),
+                padded.signPaymentRequest(1, "c", "Thanh toán đơn", 2, "r"));
+    }
+
+    @Test
+    void verifyWebhook_sortsFieldsAndAcceptsEitherHexCase() throws Exception {
+        JsonNode data = new ObjectMapper().readTree("""
+                {"orderCode":123,"amount":3000,"description":"VQRIO123","reference":null,"accountNumber":"12345678"}
+                """);
+        String expected = reference("accountNumber=12345678&amount=3000&description=VQRIO123"
+                + "&orderCode=123&reference=");
+
+        assertTrue(engine.verifyWebhook(data, expected));
+        assertTrue(engine.verifyWebhook(data, expected.toUpperCase()));
+    }
+
+    @Test
+    void signWebhook_roundTripsWithVerify() throws Exception {
+        JsonNode data = new ObjectMapper().readTree("""
+                {"orderCode":123,"amount":3000,"description":"VQRIO123","reference":null}
+                """);
+
+        String signature = engine.signWebhook(data);
+
+        assertEquals(reference("amount=3000&description=VQRIO123&orderCode=123&reference="), signature);
+        assertTrue(engine.verifyWebhook(data, signature));
+    }
+
+    @Test
+    void verifyWebhook_rejectsTamperedOrMalformedSignature() throws Exception {
+        JsonNode data = new ObjectMapper().readTree("{\"orderCode\":123,\"amount\":3000}");
+        String valid = reference("amount=3000&orderCode=123");
+        char last = valid.charAt(valid.length() - 1);
+        String tampered = valid.substring(0, valid.length() - 1) + (last == '0' ? '1' : '0');
+
+        assertFalse(engine.verifyWebhook(data, tampered));
+        assertFalse(engine.verifyWebhook(data, valid.substring(2)));
+        assertFalse(engine.verifyWebhook(data, "zz" + valid.substring(2)));
+        assertFalse(engine.verifyWebhook(data, null));
+        assertFalse(engine.verifyWebhook(null, valid));
+    }
+
+    @Test
+    void signPaymentRequest_isThreadSafe() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        long orderCode = offset * 1000L + i;
+                        String expected = reference("amount=" + i + "&cancelUrl=c&description=d&orderCode="
+                                + orderCode + "&returnUrl=r");
+                        if (!expected.equals(engine.signPaymentRequest(i, "c", "d", orderCode, "r"))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void missingKey_failsOnUse() {
+        PayOSSignatureEngine unconfigured = new PayOSSignatureEngine((String) null);
+
+        assertThrows(IllegalStateException.class,
+                () -> unconfigured.signPaymentRequest(1, "c", "d", 2, "r"));
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.backend.service.payment;
+
+import com.example.backend.exception.AppException;
+import com.example.backend.exception.ErrorCode;
+import com.example.backend.repository.PayOSWebhookEventRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PayOSWebhookInboxTest {
+
+    @Mock
+    PayOSWebhookEventRepository webhookEventRepository;
+
+    @Mock
+    PayOSSignatureEngine signatureEngine;
+
+    SimpleMeterRegistry meterRegistry;
+    PayOSWebhookInbox inbox;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        inbox = new PayOSWebhookInbox(webhookEventRepository, signatureEngine, new ObjectMapper(), meterRegistry, 100);
+    }
+
+    private Map<String, Object> webhook(long orderCode) {
+        return webhook(orderCode, "00");
+    }
+
+    private Map<String, Object> webhook(long orderCode, String code) {
+        return Map.of(
+                "code", code,
+                "desc", "00".equals(code) ? "success" : "failed",
+                "data", Map.of("orderCode", orderCode, "amount", 150000),
+                "signature", "abc123");
+    }
+
+    @Test
+    void receive_validWebhook_isQueued() {
+        when(signatureEngine.verifyWebhook(any(), eq("abc123"))).thenReturn(true);
+
+        assertTrue(inbox.receive(webhook(123456789L)));
+
+        verify(webhookEventRepository).insertReceived(eq(123456789L), eq("00"), anyString(), any());
+    }
+
+    @Test
+    void receive_retriedWebhook_isDroppedWithoutTouchingDb() {
+        when(signatureEngine.verifyWebhook(any(), eq("abc123"))).thenReturn(true);
+
+        assertTrue(inbox.receive(webhook(123456789L)));
+        assertFalse(inbox.receive(webhook(123456789L)));
+        assertFalse(inbox.receive(webhook(123456789L)));
+
+        verify(webhookEventRepository, times(1)).insertReceived(anyLong(), anyString(), anyString(), any());
+        assertEquals(2, meterRegistry.counter("payos.webhooks", "result", "duplicate").count());
+    }
+
+    @Test
+    void receive_orderCodeQueuedByAnotherNode_isDuplicate() {
+        when(signatureEngine.verifyWebhook(any(), eq("abc123"))).thenReturn(true);
+        doThrow(new DataIntegrityViolationException("duplicate key"))
+                .when(webhookEventRepository).insertReceived(anyLong(), anyString(), anyString(), any());
+
+        assertFalse(inbox.receive(webhook(123456789L)));
+        // Lần sau chặn bằng LRU, không INSERT nữa
+        assertFalse(inbox.receive(webhook(123456789L)));
+
+        verify(webhookEventRepository, times(1)).insertReceived(anyLong(), anyString(), anyString(), any());
+    }
+
+    @Test
+    void receive_failureThenSuccess_successSupersedesFailure() {
+        when(signatureEngine.verifyWebhook(any(), eq("abc123"))).thenReturn(true);
+
+        assertTrue(inbox.receive(webhook(123456789L, "01")));
+        // Dòng order_code đã có (bản thất bại) -> INSERT trùng khóa, bản thành công ghi đè
+        doThrow(new DataIntegrityViolationException("duplicate key"))
+                .when(webhookEventRepository).insertReceived(eq(123456789L), eq("00"), anyString(), any());
+        when(webhookEventRepository.supersedeWithSuccess(eq(123456789L), anyString(), any())).thenReturn(1);
+
+        assertTrue(inbox.receive(webhook(123456789L)));
+        // Gửi lại bản thành công hoặc bản thất bại sau đó đều là trùng
+        assertFalse(inbox.receive(webhook(123456789L)));
+        assertFalse(inbox.receive(webhook(123456789L, "01")));
+
+        verify(webhookEventRepository).insertReceived(eq(123456789L), eq("01"), anyString(), any());
+        verify(webhookEventRepository).supersedeWithSuccess(eq(123456789L), contains("\"00\""), any());
+        assertEquals(2, meterRegistry.counter("payos.webhooks", "result", "accepted").count());
+    }
+
+    @Test
+    void receive_failureAfterSuccessFromAnotherNode_isDuplicate() {
+        when(signatureEngine.verifyWebhook(any(), eq("abc123"))).thenReturn(true);
+        doThrow(new DataIntegrityViolationException("duplicate key"))
+                .when(webhookEventRepository).insertReceived(anyLong(), anyString(), anyString(), any());
+
+        assertFalse(inbox.receive(webhook(123456789L, "01")));
+
+        verify(webhookEventRepository, never()).supersedeWithSuccess(anyLong(), anyString(), any());
+    }
+
+    @Test
+    void receive_invalidSignature_isRejected() {
+        when(signatureEngine.verifyWebhook(any(), eq("abc123"))).thenReturn(false);
+
+        AppException ex = assertThrows(AppException.class, () -> inbox.receive(webhook(123456789L)));
+
+        assertEquals(ErrorCode.WEBHOOK_SIGNATURE_INVALID, ex.getErrorCode());
+        verifyNoInteractions(webhookEventRepository);
+    }
+}
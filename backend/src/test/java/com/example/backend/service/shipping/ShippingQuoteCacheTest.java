@@ -0,0 +1,153 @@
+package com.example.backend.service.shipping;
+
+import com.example.backend.dto.request.ShippingFeeRequest;
+import com.example.backend.dto.response.ShippingFeeResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShippingQuoteCacheTest {
+
+    private ShippingFeeRequest request(String wardCode, int weightGram) {
+        ShippingFeeRequest request = new ShippingFeeRequest();
+        request.setFromDistrictCode("1442");
+        request.setToDistrictCode("1452");
+        request.setToWardCode(wardCode);
+        request.setWeightGram(weightGram);
+        return request;
+    }
+
+    private ShippingFeeResponse quote(double fee) {
+        return ShippingFeeResponse.builder()
+                .fee(fee)
+                .estimatedDays(2)
+                .provider("GHN Express")
+                .build();
+    }
+
+    @Test
+    void keyOf_roundsWeightUpToBucket() {
+        ShippingQuoteCache cache = new ShippingQuoteCache(60, 30, 100, 500, new SimpleMeterRegistry());
+
+        assertEquals(1, cache.keyOf(request("w1", 1)).weightBucket());
+        assertEquals(1, cache.keyOf(request("w1", 500)).weightBucket());
+        assertEquals(2, cache.keyOf(request("w1", 501)).weightBucket());
+        assertEquals(cache.keyOf(request("w1", 600)), cache.keyOf(request("w1", 1000)));
+        assertNotEquals(cache.keyOf(request("w1", 600)), cache.keyOf(request("w2", 600)));
+    }
+
+    @Test
+    void get_loadsWithBucketCeilingWeight_andServesHits() {
+        ShippingQuoteCache cache = new ShippingQuoteCache(60, 30, 100, 500, new SimpleMeterRegistry());
+        List<Integer> loadedWeights = new ArrayList<>();
+
+        ShippingFeeResponse first = cache.get(request("w1", 620), r -> {
+            loadedWeights.add(r.getWeightGram());
+            return quote(28000);
+        });
+        ShippingFeeResponse second = cache.get(request("w1", 900), r -> {
+            loadedWeights.add(r.getWeightGram());
+            return quote(99999);
+        });
+
+        assertEquals(28000, first.getFee());
+        assertEquals(28000, second.getFee());
+        assertEquals(2, first.getEstimatedDays());
+        assertEquals(List.of(1000), loadedWeights);
+        assertEquals(0.5, cache.hitRate());
+    }
+
+    @Test
+    void get_concurrentMisses_loadOnce() throws Exception {
+        ShippingQuoteCache cache = new ShippingQuoteCache(60, 30, 100, 500, new SimpleMeterRegistry());
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        try {
+            List<Future<ShippingFeeResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return cache.get(request("w1", 1000), r -> {
+                        loads.incrementAndGet();
+                        sleep(100);
+                        return quote(30000);
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<ShippingFeeResponse> future : futures) {
+                assertEquals(30000, future.get(5, TimeUnit.SECONDS).getFee());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_failedLoad_isNotCached() {
+        ShippingQuoteCache cache = new ShippingQuoteCache(60, 30, 100, 500, new SimpleMeterRegistry());
+
+        assertThrows(IllegalStateException.class, () -> cache.get(request("w1", 1000), r -> {
+            throw new IllegalStateException("GHN down");
+        }));
+
+        ShippingFeeResponse result = cache.get(request("w1", 1000), r -> quote(31000));
+        assertEquals(31000, result.getFee());
+    }
+
+    @Test
+    void get_staleEntry_servesOldValueWhileRefreshing() throws Exception {
+        AtomicLong now = new AtomicLong();
+        ShippingQuoteCache cache = new ShippingQuoteCache(60, 30, 100, 500, new SimpleMeterRegistry(), now::get);
+        cache.get(request("w1", 1000), r -> quote(30000));
+
+        // Chưa quá refresh-after: không làm mới
+        AtomicInteger earlyRefreshes = new AtomicInteger();
+        cache.get(request("w1", 1000), r -> {
+            earlyRefreshes.incrementAndGet();
+            return quote(99999);
+        });
+
+        now.addAndGet(TimeUnit.MINUTES.toNanos(31));
+        CountDownLatch refreshed = new CountDownLatch(1);
+        ShippingFeeResponse stale = cache.get(request("w1", 1000), r -> {
+            refreshed.countDown();
+            return quote(35000);
+        });
+
+        assertEquals(30000, stale.getFee());
+        assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+        assertEquals(0, earlyRefreshes.get());
+
+        // Chờ giá mới được ghi vào cache
+        double fee = 0;
+        for (int i = 0; i < 50 && fee != 35000; i++) {
+            fee = cache.get(request("w1", 1000), r -> quote(35000)).getFee();
+            sleep(20);
+        }
+        assertEquals(35000, fee);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
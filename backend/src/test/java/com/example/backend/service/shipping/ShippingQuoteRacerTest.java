@@ -0,0 +1,114 @@
+package com.example.backend.service.shipping;
+
+import com.example.backend.dto.request.ShippingFeeRequest;
+import com.example.backend.dto.response.ShippingFeeResponse;
+import com.example.backend.entity.ShippingProvider;
+import com.example.backend.repository.ShippingProviderRepository;
+import com.example.backend.util.CircuitBreaker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShippingQuoteRacerTest {
+
+    @Mock
+    ShippingProviderRepository shippingProviderRepository;
+
+    private ShippingFeeRequest request;
+
+    @BeforeEach
+    void setUp() {
+        request = new ShippingFeeRequest();
+        request.setFromDistrictCode("1442");
+        request.setToDistrictCode("1452");
+        request.setToWardCode("12345");
+        request.setWeightGram(1000);
+    }
+
+    private ShippingQuoteRacer racer(long budgetMs, ShippingCarrier... carriers) {
+        return new ShippingQuoteRacer(List.of(carriers), shippingProviderRepository, budgetMs, 3, 60000);
+    }
+
+    @Test
+    void quote_returnsCheapestQuote() {
+        ShippingQuoteRacer racer = racer(1000,
+                new StubShippingCarrier("GHN", 32000, 20, Duration.ofSeconds(1)),
+                new StubShippingCarrier("GHTK", 27000, 50, Duration.ofSeconds(1)),
+                new StubShippingCarrier("VTP", 30000, 0, Duration.ofSeconds(1)));
+
+        ShippingFeeResponse result = racer.quote(request);
+
+        assertEquals(27000, result.getFee());
+        assertEquals("GHTK", result.getProvider());
+    }
+
+    @Test
+    void quote_slowCarrierIsNotAwaited() {
+        StubShippingCarrier slow = new StubShippingCarrier("GHTK", 10000, 3000, Duration.ofMillis(200));
+        ShippingQuoteRacer racer = racer(1000,
+                new StubShippingCarrier("GHN", 32000, 0, Duration.ofSeconds(1)), slow);
+
+        long start = System.currentTimeMillis();
+        ShippingFeeResponse result = racer.quote(request);
+        long duration = System.currentTimeMillis() - start;
+
+        assertEquals("GHN", result.getProvider());
+        assertTrue(duration < 1000, "Slow carrier should be dropped at its timeout, but took " + duration + "ms");
+    }
+
+    @Test
+    void quote_failingCarrierIsIgnored() {
+        ShippingQuoteRacer racer = racer(1000,
+                new StubShippingCarrier("GHN", 32000, 0, Duration.ofSeconds(1)),
+                new StubShippingCarrier("GHTK", 10000, 0, Duration.ofSeconds(1)).failing());
+
+        assertEquals("GHN", racer.quote(request).getProvider());
+    }
+
+    @Test
+    void quote_noCarrierAnswers_throws() {
+        ShippingQuoteRacer racer = racer(200,
+                new StubShippingCarrier("GHN", 32000, 0, Duration.ofSeconds(1)).failing(),
+                new StubShippingCarrier("GHTK", 27000, 2000, Duration.ofSeconds(1)));
+
+        assertThrows(IllegalStateException.class, () -> racer.quote(request));
+    }
+
+    @Test
+    void quote_repeatedFailures_openBreakerAndSkipCarrier() {
+        StubShippingCarrier broken = new StubShippingCarrier("GHTK", 10000, 0, Duration.ofSeconds(1)).failing();
+        ShippingQuoteRacer racer = racer(1000,
+                new StubShippingCarrier("GHN", 32000, 0, Duration.ofSeconds(1)), broken);
+
+        for (int i = 0; i < 3; i++) {
+            racer.quote(request);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, racer.getBreakerState("GHTK"));
+
+        racer.quote(request);
+        assertEquals(3, broken.calls.get());
+        assertEquals(CircuitBreaker.State.CLOSED, racer.getBreakerState("GHN"));
+    }
+
+    @Test
+    void quote_onlyAsksActiveProviders() {
+        when(shippingProviderRepository.count()).thenReturn(2L);
+        when(shippingProviderRepository.findByIsActiveTrue()).thenReturn(List.of(
+                ShippingProvider.builder().name("ghn").isActive(true).build()));
+        StubShippingCarrier inactive = new StubShippingCarrier("GHTK", 10000, 0, Duration.ofSeconds(1));
+        ShippingQuoteRacer racer = racer(1000,
+                new StubShippingCarrier("GHN", 32000, 0, Duration.ofSeconds(1)), inactive);
+
+        assertEquals("GHN", racer.quote(request).getProvider());
+        assertEquals(0, inactive.calls.get());
+    }
+}
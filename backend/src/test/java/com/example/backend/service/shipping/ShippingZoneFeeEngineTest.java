@@ -0,0 +1,144 @@
+package com.example.backend.service.shipping;
+
+import com.example.backend.dto.request.ShippingFeeRequest;
+import com.example.backend.dto.response.ShippingFeeResponse;
+import com.example.backend.entity.ShippingWeightTier;
+import com.example.backend.entity.ShippingZoneRate;
+import com.example.backend.repository.DistrictRepository;
+import com.example.backend.repository.ShippingWeightTierRepository;
+import com.example.backend.repository.ShippingZoneRateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShippingZoneFeeEngineTest {
+
+    @Mock
+    ShippingZoneRateRepository zoneRateRepository;
+
+    @Mock
+    ShippingWeightTierRepository weightTierRepository;
+
+    @Mock
+    DistrictRepository districtRepository;
+
+    @InjectMocks
+    ShippingZoneFeeEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        // Hà Nội (201): quận 1442, 1443 ; HCM (202): quận 1452, 1454
+        lenient().when(districtRepository.findAllProvinceCodes()).thenReturn(List.of(
+                new Object[]{"1442", "201"},
+                new Object[]{"1443", "201"},
+                new Object[]{"1452", "202"},
+                new Object[]{"1454", "202"}
+        ));
+        lenient().when(zoneRateRepository.findAllByVersion(3)).thenReturn(List.of(
+                rate("201", "201", 1),
+                rate("201", "202", 2),
+                rate("202", "201", 2)
+        ));
+        lenient().when(weightTierRepository.findAllByVersionOrderByZoneAscMaxWeightGramAsc(3)).thenReturn(List.of(
+                tier(0, 3000, 15000, 2500, 1),
+                tier(1, 500, 18000, 0, 2),
+                tier(1, 3000, 22000, 3000, 2),
+                tier(2, 500, 30000, 0, 4),
+                tier(2, 2000, 40000, 5000, 5)
+        ));
+    }
+
+    private ShippingZoneRate rate(String from, String to, int zone) {
+        return ShippingZoneRate.builder()
+                .version(3)
+                .fromProvinceCode(from)
+                .toProvinceCode(to)
+                .zone(zone)
+                .build();
+    }
+
+    private ShippingWeightTier tier(int zone, int maxWeight, int fee, int extraFee, int days) {
+        return ShippingWeightTier.builder()
+                .version(3)
+                .zone(zone)
+                .maxWeightGram(maxWeight)
+                .fee(fee)
+                .extraFeePer500g(extraFee)
+                .estimatedDays(days)
+                .build();
+    }
+
+    private ShippingFeeRequest request(String from, String to, int weight) {
+        ShippingFeeRequest request = new ShippingFeeRequest();
+        request.setFromDistrictCode(from);
+        request.setToDistrictCode(to);
+        request.setToWardCode("w1");
+        request.setWeightGram(weight);
+        return request;
+    }
+
+    @Test
+    void quote_emptyTable_returnsEmpty() {
+        when(zoneRateRepository.findLatestVersion()).thenReturn(null);
+
+        engine.reload();
+
+        assertFalse(engine.isAvailable());
+        assertTrue(engine.quote(request("1442", "1452", 500)).isEmpty());
+    }
+
+    @Test
+    void quote_usesZoneMatrixAndWeightTiers() {
+        when(zoneRateRepository.findLatestVersion()).thenReturn(3);
+        engine.reload();
+
+        // Cùng quận -> vùng 0
+        assertEquals(15000, engine.quote(request("1442", "1442", 1000)).orElseThrow().getFee());
+        // Cùng tỉnh -> vùng 1, bậc 500g và bậc 3000g
+        assertEquals(18000, engine.quote(request("1442", "1443", 500)).orElseThrow().getFee());
+        assertEquals(22000, engine.quote(request("1442", "1443", 501)).orElseThrow().getFee());
+
+        ShippingFeeResponse interProvince = engine.quote(request("1442", "1452", 1200)).orElseThrow();
+        assertEquals(40000, interProvince.getFee());
+        assertEquals(5, interProvince.getEstimatedDays());
+        assertEquals("Zone table v3", interProvince.getProvider());
+    }
+
+    @Test
+    void quote_overLastTier_addsExtraPer500g() {
+        when(zoneRateRepository.findLatestVersion()).thenReturn(3);
+        engine.reload();
+
+        // 2000g + 1001g -> 3 bước 500g
+        assertEquals(40000 + 3 * 5000, engine.quote(request("1452", "1442", 3001)).orElseThrow().getFee());
+    }
+
+    @Test
+    void quote_unknownDistrictOrRoute_returnsEmpty() {
+        when(zoneRateRepository.findLatestVersion()).thenReturn(3);
+        engine.reload();
+
+        assertEquals(Optional.empty(), engine.quote(request("9999", "1452", 500)));
+        // Chưa có giá HCM -> HCM
+        assertEquals(Optional.empty(), engine.quote(request("1452", "1454", 500)));
+    }
+
+    @Test
+    void refreshIfChanged_reloadsOnlyOnNewVersion() {
+        when(zoneRateRepository.findLatestVersion()).thenReturn(3);
+        engine.reload();
+        engine.refreshIfChanged();
+
+        verify(zoneRateRepository, times(1)).findAllByVersion(3);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.backend.service.shipping;
+
+import com.example.backend.dto.request.ShippingFeeRequest;
+import com.example.backend.dto.response.ShippingFeeResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Carrier giả cho test: trả phí cố định sau một khoảng trễ, hoặc ném lỗi.
+ */
+class StubShippingCarrier implements ShippingCarrier {
+
+    private final String name;
+    private final double fee;
+    private final long latencyMs;
+    private final Duration timeout;
+    private volatile boolean failing;
+    final AtomicInteger calls = new AtomicInteger();
+
+    StubShippingCarrier(String name, double fee, long latencyMs, Duration timeout) {
+        this.name = name;
+        this.fee = fee;
+        this.latencyMs = latencyMs;
+        this.timeout = timeout;
+    }
+
+    StubShippingCarrier failing() {
+        this.failing = true;
+        return this;
+    }
+
+    void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    @Override
+    public ShippingFeeResponse quote(ShippingFeeRequest request) {
+        calls.incrementAndGet();
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(name + " interrupted");
+            }
+        }
+        if (failing) {
+            throw new IllegalStateException(name + " unavailable");
+        }
+        return ShippingFeeResponse.builder()
+                .fee(fee)
+                .estimatedDays(3)
+                .provider(name)
+                .build();
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.backend.stub;
+
+import com.example.backend.configuration.PayOSConfig;
+import com.example.backend.service.payment.PayOSSignatureEngine;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayOSStubServerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private PayOSSignatureEngine signatureEngine;
+    private HttpServer webhookReceiver;
+    private final CompletableFuture<JsonNode> webhook = new CompletableFuture<>();
+    private PayOSStubServer stub;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        PayOSConfig config = new PayOSConfig();
+        config.setChecksumKey("stub-checksum-key");
+        signatureEngine = new PayOSSignatureEngine(config);
+
+        // App giả nhận webhook
+        webhookReceiver = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        webhookReceiver.createContext("/webhook", exchange -> {
+            webhook.complete(objectMapper.readTree(exchange.getRequestBody().readAllBytes()));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        webhookReceiver.start();
+
+        StubProperties.PayOS properties = new StubProperties.PayOS();
+        properties.setWebhookDelayMs(10);
+        properties.setWebhookUrl("http://localhost:" + webhookReceiver.getAddress().getPort() + "/webhook");
+        stub = new PayOSStubServer(properties, signatureEngine, objectMapper);
+        stub.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.stop();
+        webhookReceiver.stop(0);
+    }
+
+    private JsonNode createLink(long orderCode, String signature) throws Exception {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("orderCode", orderCode);
+        body.put("amount", 150000);
+        body.put("description", "DH" + orderCode);
+        body.put("returnUrl", "http://localhost/return");
+        body.put("cancelUrl", "http://localhost/cancel");
+        body.put("signature", signature);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(stub.getBaseUrl() + PayOSStubServer.PAYMENT_REQUESTS_PATH))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                .build();
+        return objectMapper.readTree(client.send(request, HttpResponse.BodyHandlers.ofString()).body());
+    }
+
+    @Test
+    void signedRequest_createsLinkAndSendsSignedWebhook() throws Exception {
+        String signature = signatureEngine.signPaymentRequest(150000, "http://localhost/cancel", "DH1001",
+                1001, "http://localhost/return");
+
+        JsonNode created = createLink(1001, signature);
+
+        assertEquals("00", created.path("code").asText());
+        assertEquals(1001, created.path("data").path("orderCode").asLong());
+        assertTrue(created.path("data").path("checkoutUrl").asText().startsWith(stub.getBaseUrl()));
+
+        JsonNode received = webhook.get(5, TimeUnit.SECONDS);
+        assertEquals(1001, received.path("data").path("orderCode").asLong());
+        assertTrue(signatureEngine.verifyWebhook(received.path("data"), received.path("signature").asText()));
+
+        HttpRequest status = HttpRequest.newBuilder(
+                URI.create(stub.getBaseUrl() + PayOSStubServer.PAYMENT_REQUESTS_PATH + "/1001")).GET().build();
+        JsonNode info = objectMapper.readTree(client.send(status, HttpResponse.BodyHandlers.ofString()).body());
+        assertEquals("PAID", info.path("data").path("status").asText());
+    }
+
+    @Test
+    void badSignature_isRejected() throws Exception {
+        JsonNode created = createLink(1002, "0".repeat(64));
+
+        assertEquals("20", created.path("code").asText());
+        assertFalse(webhook.isDone());
+    }
+
+    @Test
+    void cancelledLink_isNotPaid() throws Exception {
+        StubProperties.PayOS properties = new StubProperties.PayOS();
+        properties.setPaidRate(0);
+        PayOSStubServer unpaid = new PayOSStubServer(properties, signatureEngine, objectMapper);
+        unpaid.start();
+        try {
+            String signature = signatureEngine.signPaymentRequest(150000, "http://localhost/cancel", "DH1003",
+                    1003, "http://localhost/return");
+            ObjectNode body = objectMapper.createObjectNode();
+            body.put("orderCode", 1003);
+            body.put("amount", 150000);
+            body.put("description", "DH1003");
+            body.put("returnUrl", "http://localhost/return");
+            body.put("cancelUrl", "http://localhost/cancel");
+            body.put("signature", signature);
+            String base = unpaid.getBaseUrl() + PayOSStubServer.PAYMENT_REQUESTS_PATH;
+            client.send(HttpRequest.newBuilder(URI.create(base))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+
+            HttpRequest cancel = HttpRequest.newBuilder(URI.create(base + "/1003/cancel"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"cancellationReason\":\"test\"}"))
+                    .build();
+            JsonNode cancelled = objectMapper.readTree(client.send(cancel, HttpResponse.BodyHandlers.ofString()).body());
+            assertEquals("00", cancelled.path("code").asText());
+            assertEquals("CANCELLED", cancelled.path("data").path("status").asText());
+
+            // Hủy lần 2: link không còn chờ thanh toán
+            JsonNode again = objectMapper.readTree(client.send(cancel, HttpResponse.BodyHandlers.ofString()).body());
+            assertNotEquals("00", again.path("code").asText());
+        } finally {
+            unpaid.stop();
+        }
+    }
+}
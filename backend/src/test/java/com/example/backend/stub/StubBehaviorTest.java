@@ -0,0 +1,74 @@
+package com.example.backend.stub;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StubBehaviorTest {
+
+    private static StubProperties.Endpoint endpoint() {
+        return new StubProperties.Endpoint();
+    }
+
+    @Test
+    void tryAdmit_capsRequestsWithinOneSecond() {
+        StubProperties.Endpoint endpoint = endpoint();
+        endpoint.setMaxRequestsPerSecond(3);
+        StubBehavior behavior = new StubBehavior(endpoint);
+
+        int admitted = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (behavior.tryAdmit()) {
+                admitted++;
+            }
+        }
+
+        // Vòng lặp chạy xong trong chưa tới 1 giây: tối đa 2 cửa sổ nếu rơi đúng ranh giới giây
+        assertTrue(admitted >= 3 && admitted <= 6, "admitted " + admitted);
+    }
+
+    @Test
+    void tryAdmit_unlimitedWhenZero() {
+        StubBehavior behavior = new StubBehavior(endpoint());
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(behavior.tryAdmit());
+        }
+    }
+
+    @Test
+    void shouldFail_followsErrorRate() {
+        StubProperties.Endpoint always = endpoint();
+        always.setErrorRate(1.0);
+
+        assertTrue(new StubBehavior(always).shouldFail());
+        assertFalse(new StubBehavior(endpoint()).shouldFail());
+    }
+
+    @Test
+    void sampleLatency_respectsDistributionAndCap() {
+        StubProperties.Endpoint endpoint = endpoint();
+        StubProperties.Latency latency = endpoint.getLatency();
+        latency.setMeanMs(100);
+        latency.setSpreadMs(20);
+        latency.setMaxMs(500);
+
+        latency.setDistribution(StubProperties.Distribution.FIXED);
+        assertEquals(100, new StubBehavior(endpoint).sampleLatencyMs());
+
+        latency.setDistribution(StubProperties.Distribution.UNIFORM);
+        StubBehavior uniform = new StubBehavior(endpoint);
+        for (int i = 0; i < 1000; i++) {
+            long ms = uniform.sampleLatencyMs();
+            assertTrue(ms >= 80 && ms <= 120, "uniform sample " + ms);
+        }
+
+        latency.setDistribution(StubProperties.Distribution.LOGNORMAL);
+        latency.setSigma(3.0);
+        StubBehavior lognormal = new StubBehavior(endpoint);
+        for (int i = 0; i < 1000; i++) {
+            long ms = lognormal.sampleLatencyMs();
+            assertTrue(ms >= 0 && ms <= 500, "lognormal sample " + ms);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.backend.util;
+
+import com.example.backend.exception.AppException;
+import com.example.backend.exception.ErrorCode;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class OptimisticLockRetryTest {
+
+    @Test
+    void backoffDelay_growsExponentiallyWithJitterUpToCap() {
+        OptimisticLockRetry retry = new OptimisticLockRetry(mock(TransactionTemplate.class), 10, 10, 300);
+
+        for (int i = 0; i < 1000; i++) {
+            long first = retry.backoffDelayMs(1);
+            long third = retry.backoffDelayMs(3);
+            long tenth = retry.backoffDelayMs(10);
+            assertTrue(first >= 5 && first <= 10, "attempt 1: " + first);
+            assertTrue(third >= 20 && third <= 40, "attempt 3: " + third);
+            assertTrue(tenth >= 150 && tenth <= 300, "attempt 10: " + tenth);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void execute_retriesConflictsThenGivesUp() {
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenThrow(new OptimisticLockingFailureException("conflict"));
+        OptimisticLockRetry retry = new OptimisticLockRetry(transactionTemplate, 3, 0, 0);
+        AtomicInteger calls = new AtomicInteger();
+
+        AppException exception = assertThrows(AppException.class, () -> retry.execute(calls::incrementAndGet));
+
+        assertEquals(ErrorCode.CONCURRENT_UPDATE, exception.getErrorCode());
+        verify(transactionTemplate, times(3)).execute(any());
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void spacesPermitsEvenly() {
+        RateLimiter limiter = new RateLimiter(10, clock::get);
+
+        assertEquals(0, limiter.reserve());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), limiter.reserve());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), limiter.reserve());
+    }
+
+    @Test
+    void idleTimeDoesNotAccumulateBurst() {
+        RateLimiter limiter = new RateLimiter(10, clock::get);
+        limiter.reserve();
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+
+        assertEquals(0, limiter.reserve());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), limiter.reserve());
+    }
+
+    @Test
+    void rejectsNonPositiveRate() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter(0));
+    }
+}